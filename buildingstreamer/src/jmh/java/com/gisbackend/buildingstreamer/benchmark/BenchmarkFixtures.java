@@ -0,0 +1,166 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.List;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import com.gisbackend.buildingstreamer.config.BoundedExecutor;
+import com.gisbackend.buildingstreamer.config.BuildingJsonConverter;
+import com.gisbackend.buildingstreamer.config.MessageOrigin;
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.controller.BuildingController;
+import com.gisbackend.buildingstreamer.index.BitmapIndex;
+import com.gisbackend.buildingstreamer.index.BuildingJsonCache;
+import com.gisbackend.buildingstreamer.index.ColumnStore;
+import com.gisbackend.buildingstreamer.index.GridIndex;
+import com.gisbackend.buildingstreamer.index.PointIndex;
+import com.gisbackend.buildingstreamer.index.SearchIndex;
+import com.gisbackend.buildingstreamer.index.SpatialIndex;
+import com.gisbackend.buildingstreamer.index.TemporalIndex;
+import com.gisbackend.buildingstreamer.index.TripleIndex;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.metrics.PipelineTracer;
+import com.gisbackend.buildingstreamer.service.AccessRightsService;
+import com.gisbackend.buildingstreamer.service.BuildingService;
+import com.gisbackend.buildingstreamer.service.ChangeLog;
+import com.gisbackend.buildingstreamer.service.FailedMessageRouter;
+import com.gisbackend.buildingstreamer.service.GraphQueryService;
+import com.gisbackend.buildingstreamer.service.KafkaService;
+import com.gisbackend.buildingstreamer.service.NominatimService;
+import com.gisbackend.buildingstreamer.service.ReprojectionService;
+import com.gisbackend.buildingstreamer.service.StatisticsService;
+import com.gisbackend.buildingstreamer.service.StringPool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Wires the services without a Spring context. Geocoding stays disabled and
+ * messages are sent to mock producers, so benchmarks never leave the JVM.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static BuildingService buildingService(BuildingDataGenerator generator, int size) {
+        SearchIndex searchIndex = new SearchIndex();
+        BitmapIndex bitmapIndex = new BitmapIndex();
+        ColumnStore columnStore = new ColumnStore();
+        SpatialIndex spatialIndex = new SpatialIndex();
+        GridIndex gridIndex = new GridIndex();
+        PointIndex pointIndex = new PointIndex();
+        TemporalIndex temporalIndex = new TemporalIndex(Duration.ofDays(3650), 64);
+        BuildingJsonCache jsonCache = new BuildingJsonCache();
+        inject(jsonCache, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        BuildingService buildingService = new BuildingService(
+            List.of(searchIndex, bitmapIndex, columnStore, spatialIndex, gridIndex, pointIndex, temporalIndex, jsonCache),
+            searchIndex, bitmapIndex, columnStore, spatialIndex, gridIndex, jsonCache, pointIndex, temporalIndex,
+            new ChangeLog(100000), new TripleIndex(4096));
+        for (int i = 0; i < size; i++) {
+            buildingService.addBuilding(generator.building(i));
+        }
+        return buildingService;
+    }
+
+    public static KafkaService kafkaService(BuildingService buildingService) {
+        return kafkaService(buildingService, new NominatimService(),
+            new BoundedExecutor("benchmark-group", false, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * KafkaService geocoding with the given service, and decoding the buildings
+     * of bulk messages on the given executor.
+     */
+    public static KafkaService kafkaService(BuildingService buildingService, NominatimService nominatimService,
+            BoundedExecutor groupExecutor) {
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        PipelineTracer pipelineTracer = new PipelineTracer(true, 1024);
+        BoundedExecutor outboundExecutor = new BoundedExecutor("benchmark-outbound", true, 64);
+        inject(nominatimService, "pipelineMetrics", pipelineMetrics);
+        inject(nominatimService, "pipelineTracer", pipelineTracer);
+        RetryTopology retryTopology = new RetryTopology("benchmark", List.of(Duration.ofSeconds(1)), 1);
+        FailedMessageRouter failedMessageRouter = new FailedMessageRouter();
+        inject(failedMessageRouter, "kafkaTemplate", kafkaTemplate());
+        inject(failedMessageRouter, "retryTopology", retryTopology);
+        inject(failedMessageRouter, "pipelineMetrics", pipelineMetrics);
+        KafkaService kafkaService = new KafkaService(buildingService, nominatimService, kafkaTemplate(),
+            accessRightsService(buildingService), new ReprojectionService(), pipelineMetrics, pipelineTracer,
+            outboundExecutor, groupExecutor, new MessageOrigin("benchmark"), new StringPool(65536), retryTopology,
+            failedMessageRouter, 10, "benchmark");
+        inject(buildingService, "kafkaService", kafkaService);
+        return kafkaService;
+    }
+
+    // KafkaTemplate closes the producer after each send, so every send gets a new one that keeps nothing
+    public static KafkaTemplate<String, String> kafkaTemplate() {
+        return new KafkaTemplate<>(() -> new MockProducer<>(true, null, new StringSerializer(), new StringSerializer()));
+    }
+
+    // Shares the change log of the given BuildingService
+    public static AccessRightsService accessRightsService(BuildingService buildingService) {
+        return new AccessRightsService((ChangeLog) read(buildingService, "changeLog"));
+    }
+
+    // Shares the indexes of the given BuildingService
+    public static StatisticsService statisticsService(BuildingService buildingService) {
+        StatisticsService statisticsService = new StatisticsService();
+        inject(statisticsService, "buildingService", buildingService);
+        inject(statisticsService, "bitmapIndex", read(buildingService, "bitmapIndex"));
+        inject(statisticsService, "columnStore", read(buildingService, "columnStore"));
+        return statisticsService;
+    }
+
+    public static GraphQueryService graphQueryService(BuildingService buildingService) {
+        return new GraphQueryService((TripleIndex) read(buildingService, "tripleIndex"));
+    }
+
+    public static BuildingController buildingController(BuildingService buildingService) {
+        BuildingController controller = new BuildingController();
+        inject(controller, "buildingService", buildingService);
+        inject(controller, "accessRightsService", accessRightsService(buildingService));
+        inject(controller, "statisticsService", statisticsService(buildingService));
+        inject(controller, "reprojectionService", new ReprojectionService());
+        return controller;
+    }
+
+    public static BuildingJsonConverter buildingJsonConverter(BuildingService buildingService) {
+        BuildingJsonConverter converter = new BuildingJsonConverter();
+        inject(converter, "buildingService", buildingService);
+        inject(converter, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        return converter;
+    }
+
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            field(target, fieldName).set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + fieldName + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static Object read(Object target, String fieldName) {
+        try {
+            return field(target, fieldName).get(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read " + fieldName + " of " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static Field field(Object target, String fieldName) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // Declared further up the hierarchy
+            }
+        }
+        throw new IllegalStateException("No field " + fieldName + " on " + target.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,24 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for mvn -Pbenchmark compile exec:exec. Accepts the usual JMH command
+ * line arguments and always attaches the GC profiler, so every result reports
+ * allocation rate (gc.alloc.rate.norm) next to throughput.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Dlogback.configurationFile=logback-benchmark.xml")
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,273 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gisbackend.buildingstreamer.model.AccessRight;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+import com.gisbackend.buildingstreamer.model.UseCase;
+
+/**
+ * Deterministic generator for synthetic IBPDI portfolios. The same seed and index
+ * always produce the same building, so benchmark runs are comparable.
+ */
+public class BuildingDataGenerator {
+
+    public static final String IBPDI = "https://ibpdi.datacat.org/class/";
+
+    private static final String[][] CITIES = {
+        { "Dresden", "01067", "51.0504", "13.7373" },
+        { "Leipzig", "04109", "51.3397", "12.3731" },
+        { "Berlin", "10115", "52.5200", "13.4050" },
+        { "Hamburg", "20095", "53.5511", "9.9937" },
+        { "München", "80331", "48.1351", "11.5820" },
+        { "Köln", "50667", "50.9375", "6.9603" },
+        { "Frankfurt am Main", "60311", "50.1109", "8.6821" },
+        { "Stuttgart", "70173", "48.7758", "9.1829" },
+        { "Düsseldorf", "40213", "51.2277", "6.7735" },
+        { "Chemnitz", "09111", "50.8278", "12.9214" }
+    };
+    private static final String[] STREETS = {
+        "Hauptstraße", "Bahnhofstraße", "Schillerstraße", "Goethestraße", "Friedrich-List-Platz",
+        "Lindenallee", "Am Markt", "Bergstraße", "Gartenweg", "Dorfstraße"
+    };
+    private static final String[] ENERGY_CLASSES = { "A+", "A", "B", "C", "D", "E", "F", "G", "H" };
+    private static final String[] HEATING_TYPES = { "Gas", "Oil", "District heating", "Heat pump", "Pellets", "Electric" };
+    private static final String[] BUILDING_TYPES = { "Office", "Residential", "Retail", "Logistics", "Hotel", "Mixed use" };
+
+    private static final String TEMPLATE = "@prefix ibpdi: <" + IBPDI + "> .\n"
+        + "@prefix sh: <http://www.w3.org/ns/shacl#> .\n"
+        + "ibpdi:BuildingShape a sh:NodeShape ; sh:targetClass ibpdi:Building .\n";
+
+    private final long seed;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public BuildingDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public BuildingDataGenerator() {
+        this(42L);
+    }
+
+    public String buildingId(int index) {
+        return new UUID(seed, index * 3L).toString();
+    }
+
+    public String addressId(int index) {
+        return new UUID(seed, index * 3L + 1).toString();
+    }
+
+    public String geoCoordinateId(int index) {
+        return new UUID(seed, index * 3L + 2).toString();
+    }
+
+    public GraphDataModel graphDataModel(int index) {
+        return graphDataModel(index, true);
+    }
+
+    /**
+     * One IBPDI message with a Building, its Address and GeoCoordinate node, the
+     * linking triples and a small set of access rights. Without coordinates the
+     * GeoCoordinate node is left out, so ingest has to geocode the address.
+     */
+    public GraphDataModel graphDataModel(int index, boolean withCoordinates) {
+        SplittableRandom random = random(index);
+        String[] city = pick(random, CITIES);
+        double[] point = jitter(random, city);
+
+        MetaDataNode buildingNode = node(buildingId(index), "Building");
+        buildingNode.getPropertiesValues().put("BuildingId", "B-" + index);
+        buildingNode.getPropertiesValues().put("Name", pick(random, BUILDING_TYPES) + " " + city[0] + " " + index);
+        buildingNode.getPropertiesValues().put("BuildingCode", String.format(Locale.ROOT, "%s-%06d", city[1], index));
+        buildingNode.getPropertiesValues().put("ValidFrom", "2024-01-01");
+        buildingNode.getPropertiesValues().put("ConstructionYear", Integer.toString(1900 + random.nextInt(125)));
+        buildingNode.getPropertiesValues().put("ParkingSpaces", Integer.toString(random.nextInt(200)));
+        buildingNode.getPropertiesValues().put("PrimaryHeatingType", pick(random, HEATING_TYPES));
+        buildingNode.getPropertiesValues().put("EnergyEfficiencyClass", pick(random, ENERGY_CLASSES));
+        buildingNode.getPropertiesValues().put("PrimaryTypeOfBuilding", pick(random, BUILDING_TYPES));
+        buildingNode.getPropertiesValues().put("NetFloorArea", Integer.toString(200 + random.nextInt(20000)));
+
+        MetaDataNode addressNode = node(addressId(index), "Address");
+        addressNode.getPropertiesValues().put("Country", "Germany");
+        addressNode.getPropertiesValues().put("City", city[0]);
+        addressNode.getPropertiesValues().put("PostalCode", city[1]);
+        addressNode.getPropertiesValues().put("StreetName", pick(random, STREETS));
+        addressNode.getPropertiesValues().put("HouseNumber", Integer.toString(1 + random.nextInt(150)));
+        if (withCoordinates) {
+            addressNode.getPropertiesValues().put("DeprecatedLatitude", format(point[0]));
+            addressNode.getPropertiesValues().put("DeprecatedLongitude", format(point[1]));
+        }
+
+        MetaDataNode geoNode = node(geoCoordinateId(index), "GeoCoordinate");
+        geoNode.getPropertiesValues().put("Latitude", format(point[0]));
+        geoNode.getPropertiesValues().put("Longitude", format(point[1]));
+        geoNode.getPropertiesValues().put("CoordinateReferenceSystem", "EPSG:4326");
+
+        List<MetaDataNode> nodes = new ArrayList<>();
+        nodes.add(buildingNode);
+        nodes.add(addressNode);
+        if (withCoordinates) {
+            nodes.add(geoNode);
+        }
+
+        GraphDataModel model = new GraphDataModel();
+        model.setGraphTemplate(TEMPLATE);
+        model.setGraphData(graphData(index, withCoordinates));
+        model.setGraphMetadata(nodes);
+        model.setAccessRights(accessRights(index));
+        model.setUseCase(UseCase.builder().id("usecase-portfolio").name("Portfolio").build());
+        return model;
+    }
+
+    /**
+     * One bulk message with the buildings first to first + count - 1, their
+     * nodes and linking triples concatenated as in a portfolio export.
+     */
+    public GraphDataModel bulkGraphDataModel(int first, int count) {
+        return bulkGraphDataModel(first, count, true);
+    }
+
+    public GraphDataModel bulkGraphDataModel(int first, int count, boolean withCoordinates) {
+        List<MetaDataNode> nodes = new ArrayList<>();
+        StringBuilder graph = new StringBuilder("@prefix inst: <https://example.org/instance/> .\n"
+            + "@prefix ibpdi: <" + IBPDI + "> .\n");
+        for (int index = first; index < first + count; index++) {
+            nodes.addAll(graphDataModel(index, withCoordinates).getGraphMetadata());
+            String data = graphData(index, withCoordinates);
+            graph.append(data, data.indexOf("\ninst:") + 1, data.length());
+        }
+        GraphDataModel model = graphDataModel(first);
+        model.setGraphData(graph.toString());
+        model.setGraphMetadata(nodes);
+        return model;
+    }
+
+    public String graphDataModelJson(int index) {
+        return graphDataModelJson(index, true);
+    }
+
+    public String graphDataModelJson(int index, boolean withCoordinates) {
+        try {
+            return mapper.writeValueAsString(graphDataModel(index, withCoordinates));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The decoded building as KafkaService would store it.
+     */
+    public Building building(int index) {
+        SplittableRandom random = random(index);
+        String[] city = pick(random, CITIES);
+        double[] point = jitter(random, city);
+
+        GeoCoordinate geoCoordinate = GeoCoordinate.builder()
+            .id(geoCoordinateId(index))
+            .latitude(format(point[0]))
+            .longitude(format(point[1]))
+            .coordinateReferenceSystem("EPSG:4326")
+            .build();
+
+        Address.AddressBuilder address = Address.builder()
+            .id(addressId(index))
+            .country("Germany")
+            .city(city[0])
+            .postalCode(city[1])
+            .deprecatedLatitude(geoCoordinate.getLatitude())
+            .deprecatedLongitude(geoCoordinate.getLongitude());
+
+        // Built in this order so every index draws the same random values
+        Building.BuildingBuilder building = Building.builder()
+            .id(buildingId(index))
+            .buildingId("B-" + index)
+            .name(pick(random, BUILDING_TYPES) + " " + city[0] + " " + index)
+            .buildingCode(String.format(Locale.ROOT, "%s-%06d", city[1], index))
+            .validFrom("2024-01-01")
+            .constructionYear(Integer.toString(1900 + random.nextInt(125)))
+            .parkingSpaces(Integer.toString(random.nextInt(200)))
+            .primaryHeatingType(pick(random, HEATING_TYPES))
+            .energyEfficiencyClass(pick(random, ENERGY_CLASSES))
+            .primaryTypeOfBuilding(pick(random, BUILDING_TYPES))
+            .additionalAttribute("NetFloorArea", Integer.toString(200 + random.nextInt(20000)));
+        address.streetName(pick(random, STREETS))
+            .houseNumber(Integer.toString(1 + random.nextInt(150)))
+            .geoCoordinate(geoCoordinate);
+        return building.address(address.build()).build();
+    }
+
+    public String[] cities() {
+        String[] names = new String[CITIES.length];
+        for (int i = 0; i < CITIES.length; i++) {
+            names[i] = CITIES[i][0];
+        }
+        return names;
+    }
+
+    public String[] energyClasses() {
+        return ENERGY_CLASSES.clone();
+    }
+
+    private String graphData(int index, boolean withCoordinates) {
+        String graph = "@prefix inst: <https://example.org/instance/> .\n"
+            + "@prefix ibpdi: <" + IBPDI + "> .\n"
+            + "inst:" + buildingId(index) + " a ibpdi:Building .\n"
+            + "inst:" + addressId(index) + " a ibpdi:Address .\n"
+            + "inst:" + buildingId(index) + " <" + IBPDI + "hasAddress> inst:" + addressId(index) + " .\n";
+        if (withCoordinates) {
+            graph += "inst:" + geoCoordinateId(index) + " a ibpdi:GeoCoordinate .\n"
+                + "inst:" + addressId(index) + " <" + IBPDI + "hasGeoCoordinate> inst:" + geoCoordinateId(index) + " .\n";
+        }
+        return graph;
+    }
+
+    private List<AccessRight> accessRights(int index) {
+        List<AccessRight> rights = new ArrayList<>();
+        for (String type : new String[] { "Building", "Address" }) {
+            rights.add(AccessRight.builder()
+                .id("ar-" + type + "-" + (index % 4))
+                .name(type + " read")
+                .guidelineClassificationId(IBPDI + type)
+                .userGroupId("group-" + (index % 4))
+                .useCaseId("usecase-portfolio")
+                .right(1)
+                .build());
+        }
+        return rights;
+    }
+
+    private MetaDataNode node(String id, String type) {
+        MetaDataNode node = new MetaDataNode();
+        node.setId(id);
+        node.setClassType(IBPDI + type);
+        return node;
+    }
+
+    private SplittableRandom random(int index) {
+        return new SplittableRandom(seed * 31 + index);
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static double[] jitter(SplittableRandom random, String[] city) {
+        double lat = Double.parseDouble(city[2]) + (random.nextDouble() - 0.5) * 0.2;
+        double lon = Double.parseDouble(city[3]) + (random.nextDouble() - 0.5) * 0.3;
+        return new double[] { lat, lon };
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
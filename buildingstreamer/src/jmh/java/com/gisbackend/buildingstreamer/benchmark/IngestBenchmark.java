@@ -0,0 +1,133 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+import com.gisbackend.buildingstreamer.service.KafkaService;
+
+/**
+ * Consumer side of the ingest path: JSON decoding as done by the listener
+ * container and KafkaService.publish on already decoded messages. Every round
+ * over the messages alternates between two versions of each building, so
+ * publish always stores a change; publishUnchanged re-sends the stored version.
+ * publishBulk ingests messages of BULK_SIZE buildings each, decoded in parallel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+    private static final int MESSAGES = 1024;
+    private static final int BULK_SIZE = 128;
+
+    private final BuildingDataGenerator generator = new BuildingDataGenerator();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[][][] payloads;
+    private GraphDataModel[][] messages;
+    private GraphDataModel[][] bulkMessages;
+    private JsonDeserializer<GraphDataModel> deserializer;
+    private KafkaService kafkaService;
+    private KafkaService unchangedKafkaService;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        payloads = new byte[2][MESSAGES][];
+        messages = new GraphDataModel[2][MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[0][i] = generator.graphDataModel(i);
+            payloads[0][i] = generator.graphDataModelJson(i).getBytes(StandardCharsets.UTF_8);
+            messages[1][i] = generator.graphDataModel(i);
+            for (MetaDataNode node : messages[1][i].getGraphMetadata()) {
+                if (node.getClassType().endsWith("/Building")) {
+                    node.getPropertiesValues().put("ParkingSpaces", Integer.toString(1000 + i));
+                }
+            }
+            payloads[1][i] = mapper.writeValueAsBytes(messages[1][i]);
+        }
+        bulkMessages = new GraphDataModel[2][MESSAGES / BULK_SIZE];
+        for (int i = 0; i < bulkMessages[0].length; i++) {
+            bulkMessages[0][i] = generator.bulkGraphDataModel(i * BULK_SIZE, BULK_SIZE);
+            bulkMessages[1][i] = generator.bulkGraphDataModel(i * BULK_SIZE, BULK_SIZE);
+            for (MetaDataNode node : bulkMessages[1][i].getGraphMetadata()) {
+                if (node.getClassType().endsWith("/Building")) {
+                    node.getPropertiesValues().put("ParkingSpaces", "1000");
+                }
+            }
+        }
+        deserializer = new JsonDeserializer<>(GraphDataModel.class);
+        deserializer.addTrustedPackages("*");
+        kafkaService = BenchmarkFixtures.kafkaService(BenchmarkFixtures.buildingService(generator, 0));
+        unchangedKafkaService = BenchmarkFixtures.kafkaService(BenchmarkFixtures.buildingService(generator, 0));
+        for (int i = 0; i < MESSAGES; i++) {
+            unchangedKafkaService.publish(messages[0][i], new ConsumerRecord<>("benchmark", 0, i, null, null));
+        }
+    }
+
+    @Benchmark
+    public GraphDataModel deserialize() {
+        next();
+        return deserializer.deserialize("benchmark", payloads[version()][index()]);
+    }
+
+    @Benchmark
+    public void publish() {
+        next();
+        kafkaService.publish(messages[version()][index()], new ConsumerRecord<>("benchmark", 0, cursor, null, null));
+    }
+
+    @Benchmark
+    public void deserializeAndPublish() {
+        next();
+        GraphDataModel model = deserializer.deserialize("benchmark", payloads[version()][index()]);
+        kafkaService.publish(model, new ConsumerRecord<>("benchmark", 0, cursor, null, null));
+    }
+
+    // Throughput in messages, BULK_SIZE buildings each
+    @Benchmark
+    public void publishBulk() {
+        next();
+        int index = cursor % bulkMessages[0].length;
+        kafkaService.publish(bulkMessages[(cursor / bulkMessages[0].length) & 1][index],
+            new ConsumerRecord<>("benchmark", 0, cursor, null, null));
+    }
+
+    // Re-import of an unchanged portfolio
+    @Benchmark
+    public void publishUnchanged() {
+        next();
+        unchangedKafkaService.publish(messages[0][index()], new ConsumerRecord<>("benchmark", 0, cursor, null, null));
+    }
+
+    private void next() {
+        cursor = (cursor + 1) & (2 * MESSAGES - 1);
+    }
+
+    private int index() {
+        return cursor & (MESSAGES - 1);
+    }
+
+    private int version() {
+        return cursor / MESSAGES;
+    }
+}
@@ -0,0 +1,324 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import com.gisbackend.buildingstreamer.BuildingStreamerApplication;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.service.NominatimService;
+
+/**
+ * End-to-end ingest load test that runs fully locally. Starts an embedded KRaft
+ * broker and the real application (KafkaService listener included) with a stub
+ * geocoder, produces GraphDataModel messages at a series of target rates and
+ * reports latency percentiles, consumer lag and the highest sustained rate.
+ * <p>
+ * Arguments are key=value pairs:
+ * rates (messages/s, comma separated), duration (s per step), partitions,
+ * geocodeLatencyMs, geocodeJitterMs, geocodeFraction (share of messages without
+ * coordinates), replay (file with one GraphDataModel JSON per line), distinct
+ * (number of distinct generated buildings; repeated messages are skipped as
+ * unchanged by the service), drain (s grace period per step),
+ * virtualThreads (true to run the service in virtual-thread mode).
+ */
+public class IngestLoadHarness {
+
+    static final String TOPIC = "load-harness";
+    static final String GROUP_ID = "gis_group";
+    static final String SENT_HEADER = "x-harness-sent-nanos";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        int[] rates = Arrays.stream(settings.getOrDefault("rates", "25,50,100,200,400").split(","))
+            .mapToInt(rate -> Integer.parseInt(rate.trim())).toArray();
+        int durationSeconds = Integer.parseInt(settings.getOrDefault("duration", "15"));
+        int partitions = Integer.parseInt(settings.getOrDefault("partitions", "1"));
+        int drainSeconds = Integer.parseInt(settings.getOrDefault("drain", "5"));
+
+        List<String> messages = loadMessages(settings);
+        System.out.printf("Prepared %d distinct messages%n", messages.size());
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, partitions, TOPIC);
+        broker.afterPropertiesSet();
+        LatencyRecorder recorder = new LatencyRecorder();
+        StubNominatimService geocoder = new StubNominatimService(
+            Long.parseLong(settings.getOrDefault("geocodeLatencyMs", "0")),
+            Long.parseLong(settings.getOrDefault("geocodeJitterMs", "0")));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BuildingStreamerApplication.class)
+            .initializers(applicationContext -> {
+                GenericApplicationContext generic = (GenericApplicationContext) applicationContext;
+                generic.registerBean("stubNominatimService", NominatimService.class, () -> geocoder,
+                    definition -> definition.setPrimary(true));
+                generic.registerBean("harnessInterceptorInstaller", InterceptorInstaller.class,
+                    () -> new InterceptorInstaller(recorder));
+            })
+            // Command line arguments so they win over application.yml
+            .run("--SPRING_KAFKA_BOOTSTRAP_SERVERS=" + broker.getBrokersAsString(),
+                "--KAFKA_TOPIC=" + TOPIC,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.kafka=WARN",
+                "--spring.threads.virtual.enabled=" + settings.getOrDefault("virtualThreads", "false"));
+
+        KafkaListenerEndpointRegistry registry = context.getBean(KafkaListenerEndpointRegistry.class);
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            // The retry topics have their own container
+            if (Arrays.asList(container.getContainerProperties().getTopics()).contains(TOPIC)) {
+                ContainerTestUtils.waitForAssignment(container, partitions);
+            }
+        }
+
+        Map<String, Object> producerProps = Map.of(
+            ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+            ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+            ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+            ProducerConfig.LINGER_MS_CONFIG, 1);
+        ScheduledExecutorService lagSampler = Executors.newSingleThreadScheduledExecutor();
+
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(producerProps);
+             AdminClient admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+
+            AtomicLong currentLag = new AtomicLong();
+            AtomicLong maxLag = new AtomicLong();
+            lagSampler.scheduleAtFixedRate(() -> {
+                long lag = consumerLag(admin);
+                currentLag.set(lag);
+                maxLag.accumulateAndGet(lag, Math::max);
+            }, 500, 500, TimeUnit.MILLISECONDS);
+
+            System.out.printf("%8s %9s %9s %10s %9s %9s %9s %9s %9s %8s %8s %6s %9s%n",
+                "target/s", "produced", "processed", "achieved/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms",
+                "max ms", "max lag", "end lag", "echoes", "sustained");
+
+            int sustainedRate = 0;
+            int cursor = 0;
+            for (int rate : rates) {
+                recorder.reset(rate * durationSeconds);
+                maxLag.set(0);
+
+                long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+                long total = (long) rate * durationSeconds;
+                long start = System.nanoTime();
+                for (long i = 0; i < total; i++) {
+                    long due = start + i * intervalNanos;
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    ProducerRecord<String, String> record = new ProducerRecord<>(TOPIC, null, messages.get(cursor++ % messages.size()));
+                    record.headers().add(SENT_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).array());
+                    producer.send(record);
+                }
+                producer.flush();
+
+                long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds);
+                while (recorder.count() < total && System.nanoTime() < drainDeadline) {
+                    Thread.sleep(20);
+                }
+                long processed = recorder.count();
+                double elapsedSeconds = (recorder.lastProcessedNanos() - start) / 1e9;
+                boolean sustained = processed >= total;
+                if (sustained) {
+                    sustainedRate = rate;
+                }
+
+                long[] percentiles = recorder.percentiles(0.50, 0.90, 0.99, 0.999, 1.0);
+                System.out.printf("%8d %9d %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d %8d %6d %9s%n",
+                    rate, total, processed, processed / Math.max(elapsedSeconds, 1e-9),
+                    percentiles[0] / 1e6, percentiles[1] / 1e6, percentiles[2] / 1e6, percentiles[3] / 1e6,
+                    percentiles[4] / 1e6, maxLag.get(), currentLag.get(), recorder.echoes(), sustained ? "yes" : "NO");
+
+                if (!sustained) {
+                    break;
+                }
+            }
+
+            System.out.printf("Max sustainable throughput: %d messages/s (geocoder requests: %d)%n",
+                sustainedRate, geocoder.getRequests());
+        } finally {
+            lagSampler.shutdownNow();
+            context.close();
+            broker.destroy();
+        }
+    }
+
+    private static List<String> loadMessages(Map<String, String> settings) throws Exception {
+        String replay = settings.get("replay");
+        if (replay != null) {
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(Path.of(replay), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    // Fail early on captures that are not GraphDataModel messages
+                    GraphDataModel.deserializeFromJson(line);
+                    lines.add(line);
+                }
+            }
+            if (lines.isEmpty()) {
+                throw new IllegalArgumentException("Replay file contains no messages: " + replay);
+            }
+            return lines;
+        }
+
+        int distinct = Integer.parseInt(settings.getOrDefault("distinct", "10000"));
+        double geocodeFraction = Double.parseDouble(settings.getOrDefault("geocodeFraction", "0"));
+        BuildingDataGenerator generator = new BuildingDataGenerator();
+        List<String> messages = new ArrayList<>(distinct);
+        for (int i = 0; i < distinct; i++) {
+            boolean withCoordinates = (i % 1000) >= Math.round(geocodeFraction * 1000);
+            messages.add(generator.graphDataModelJson(i, withCoordinates));
+        }
+        return messages;
+    }
+
+    private static long consumerLag(AdminClient admin) {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(GROUP_ID)
+                .partitionsToOffsetAndMetadata().get(2, TimeUnit.SECONDS);
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            committed.keySet().forEach(partition -> latest.put(partition, OffsetSpec.latest()));
+            long lag = 0;
+            for (var entry : admin.listOffsets(latest).all().get(2, TimeUnit.SECONDS).entrySet()) {
+                OffsetAndMetadata offset = committed.get(entry.getKey());
+                lag += entry.getValue().offset() - (offset != null ? offset.offset() : 0);
+            }
+            return lag;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            settings.put(arg.substring(0, separator).replaceFirst("^--", ""), arg.substring(separator + 1));
+        }
+        return settings;
+    }
+
+    /**
+     * Installs the latency interceptor on the listener container factory before
+     * the listener containers are created.
+     */
+    static class InterceptorInstaller implements BeanPostProcessor {
+
+        private final LatencyRecorder recorder;
+
+        InterceptorInstaller(LatencyRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof ConcurrentKafkaListenerContainerFactory<?, ?> factory) {
+                ((ConcurrentKafkaListenerContainerFactory<Object, Object>) factory).setRecordInterceptor(recorder);
+            }
+            return bean;
+        }
+    }
+
+    /**
+     * Records the time from producer send to the end of KafkaService.publish for
+     * every harness message. Messages without the harness header are the
+     * service's own re-published output and are only counted.
+     */
+    static class LatencyRecorder implements RecordInterceptor<Object, Object> {
+
+        private volatile long[] latencies = new long[0];
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong echoes = new AtomicLong();
+        private volatile long lastProcessedNanos;
+
+        void reset(int capacity) {
+            latencies = new long[capacity];
+            count.set(0);
+            echoes.set(0);
+            lastProcessedNanos = System.nanoTime();
+        }
+
+        @Override
+        public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+            return record;
+        }
+
+        @Override
+        public void afterRecord(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+            Header sent = record.headers().lastHeader(SENT_HEADER);
+            if (sent == null) {
+                echoes.incrementAndGet();
+                return;
+            }
+            long now = System.nanoTime();
+            long[] target = latencies;
+            int index = count.getAndIncrement();
+            if (index < target.length) {
+                target[index] = now - ByteBuffer.wrap(sent.value()).getLong();
+            }
+            lastProcessedNanos = now;
+        }
+
+        long count() {
+            return Math.min(count.get(), latencies.length);
+        }
+
+        long echoes() {
+            return echoes.get();
+        }
+
+        long lastProcessedNanos() {
+            return lastProcessedNanos;
+        }
+
+        long[] percentiles(double... quantiles) {
+            long[] sorted = Arrays.copyOf(latencies, (int) count());
+            Arrays.sort(sorted);
+            long[] result = new long[quantiles.length];
+            for (int i = 0; i < quantiles.length && sorted.length > 0; i++) {
+                result[i] = sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantiles[i] * sorted.length) - 1)];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.gisbackend.buildingstreamer.index.TemporalIndex;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.BuildingDistance;
+import com.gisbackend.buildingstreamer.model.BuildingFilter;
+import com.gisbackend.buildingstreamer.model.BuildingGrid;
+import com.gisbackend.buildingstreamer.model.BuildingQueryResult;
+import com.gisbackend.buildingstreamer.model.BuildingSearchResult;
+import com.gisbackend.buildingstreamer.model.BuildingStatistics;
+import com.gisbackend.buildingstreamer.model.ChangeFeed;
+import com.gisbackend.buildingstreamer.model.GeoJsonGeometry;
+import com.gisbackend.buildingstreamer.model.GraphQueryResult;
+import com.gisbackend.buildingstreamer.service.BuildingService;
+import com.gisbackend.buildingstreamer.service.GraphQueryService;
+import com.gisbackend.buildingstreamer.service.StatisticsService;
+
+/**
+ * BuildingService read queries against portfolios of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class QueryBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int size;
+
+    private final BuildingDataGenerator generator = new BuildingDataGenerator();
+    private BuildingService buildingService;
+    private StatisticsService statisticsService;
+    private GraphQueryService graphQueryService;
+    private String[] cities;
+    private String[] energyClasses;
+    // Autocomplete keystrokes, multi-term, typo and building code lookups
+    private final String[] searchQueries = {
+        "b", "ber", "bahnhofstr", "office berlin", "hauptstrase", "dusseldorf", "01067-0004", "goethestraße 04109"
+    };
+    // Points around Dresden, Berlin and München
+    private final double[][] points = { { 51.06, 13.72 }, { 52.50, 13.42 }, { 48.14, 11.60 } };
+    private BuildingFilter dashboardFilter;
+    private GeoJsonGeometry district;
+    private long[] asOfTimes;
+    private String[] ids;
+    private long changesSince;
+    private String[] coordinateQueries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buildingService = BenchmarkFixtures.buildingService(generator, size);
+        statisticsService = BenchmarkFixtures.statisticsService(buildingService);
+        graphQueryService = BenchmarkFixtures.graphQueryService(buildingService);
+        cities = generator.cities();
+        energyClasses = generator.energyClasses();
+        dashboardFilter = and(range("energyEfficiencyClass", "E", "G"), equal("primaryHeatingType", "Gas"),
+                in("city", cities[0], cities[2], cities[4]));
+        district = polygon(52.52, 13.405, 0.04, 2000);
+        // Two later versions of every building, queried before, between and after them; the last with its graph data
+        for (String validFrom : new String[] { "2025-01-01", "2026-01-01" }) {
+            for (int i = 0; i < size; i++) {
+                Building building = generator.building(i).toBuilder().validFrom(validFrom).build();
+                if (validFrom.startsWith("2026")) {
+                    buildingService.addBuilding(building, generator.graphDataModel(i));
+                } else {
+                    buildingService.addBuilding(building);
+                }
+            }
+        }
+        asOfTimes = new long[] { TemporalIndex.parseTime("2024-06-30"), TemporalIndex.parseTime("2025-06-30"),
+            System.currentTimeMillis() };
+        ids = new String[Math.min(size, 1024)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.buildingId(i * (size / ids.length));
+        }
+        changesSince = buildingService.getChanges(0, 1).next() - 100;
+        coordinateQueries = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            coordinateQueries[i] = "PREFIX ibpdi: <https://ibpdi.datacat.org/class/> "
+                + "PREFIX inst: <https://example.org/instance/> "
+                + "SELECT ?coordinate WHERE { inst:" + ids[i] + " ibpdi:hasAddress ?address . "
+                + "?address ibpdi:hasGeoCoordinate ?coordinate }";
+        }
+    }
+
+    @Benchmark
+    public List<Building> byCity() {
+        return buildingService.getBuildingsByCity(cities[cursor++ % cities.length]);
+    }
+
+    @Benchmark
+    public List<Building> all() {
+        return buildingService.getAllBuildings();
+    }
+
+    @Benchmark
+    public List<Building> allAsOf() {
+        return buildingService.getAllBuildings(asOfTimes[cursor++ % asOfTimes.length]);
+    }
+
+    @Benchmark
+    public Building byIdAsOf() {
+        int i = cursor++;
+        return buildingService.getBuildingById(ids[i % ids.length], asOfTimes[i % asOfTimes.length]);
+    }
+
+    // The last 100 changes, what a polling client fetches at moderate churn
+    @Benchmark
+    public ChangeFeed changes() {
+        return buildingService.getChanges(changesSince, 1000);
+    }
+
+    @Benchmark
+    public List<Building> byEnergyClass() {
+        return buildingService.getBuildingsByEnergyClass(energyClasses[cursor++ % energyClasses.length]);
+    }
+
+    @Benchmark
+    public List<Building> byRanges() {
+        return buildingService.getBuildingsMatching(Map.of("constructionYear", "1950..1980", "parkingSpaces", ">=150"));
+    }
+
+    @Benchmark
+    public BuildingQueryResult query() {
+        return buildingService.queryBuildings(dashboardFilter, 0, 100);
+    }
+
+    @Benchmark
+    public List<BuildingSearchResult> search() {
+        return buildingService.searchBuildings(searchQueries[cursor++ % searchQueries.length], 10);
+    }
+
+    @Benchmark
+    public List<BuildingDistance> nearest() {
+        double[] point = points[cursor++ % points.length];
+        return buildingService.getNearestBuildings(point[0], point[1], 10);
+    }
+
+    @Benchmark
+    public List<BuildingDistance> within() {
+        double[] point = points[cursor++ % points.length];
+        return buildingService.getBuildingsWithin(point[0], point[1], 500, 1000);
+    }
+
+    @Benchmark
+    public BuildingQueryResult withinPolygon() {
+        return buildingService.getBuildingsWithinPolygon(district, 0, 100);
+    }
+
+    @Benchmark
+    public BuildingGrid grid() {
+        return buildingService.getBuildingGrid(12, 5.8, 47.2, 15.1, 55.1);
+    }
+
+    // One changed building per call, so every call pays the incremental rebuild
+    @Benchmark
+    public byte[] points() {
+        buildingService.addBuilding(generator.building(cursor++ % size));
+        return buildingService.getBuildingPoints(true);
+    }
+
+    // Two-hop join from one building to its coordinate node
+    @Benchmark
+    public GraphQueryResult graphPath() {
+        return graphQueryService.query(coordinateQueries[cursor++ % coordinateQueries.length], 100);
+    }
+
+    // Join over all buildings, first page only
+    @Benchmark
+    public GraphQueryResult graphJoin() {
+        return graphQueryService.query("PREFIX ibpdi: <https://ibpdi.datacat.org/class/> "
+            + "SELECT ?building ?coordinate WHERE { ?building a ibpdi:Building ; ibpdi:hasAddress ?address . "
+            + "?address ibpdi:hasGeoCoordinate ?coordinate }", 100);
+    }
+
+    @Benchmark
+    public BuildingStatistics statistics() {
+        return statisticsService.getStatistics("energyEfficiencyClass", Set.of("count", "avg", "histogram", "percentiles"),
+                "constructionYear", 10, new double[] { 50, 90, 99 }, Map.of());
+    }
+
+    @Benchmark
+    public Map<String, Long> countByType() {
+        return buildingService.getBuildingCountByType();
+    }
+
+    private static BuildingFilter and(BuildingFilter... filters) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setAnd(List.of(filters));
+        return filter;
+    }
+
+    private static BuildingFilter equal(String field, String value) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setField(field);
+        filter.setEq(value);
+        return filter;
+    }
+
+    private static BuildingFilter in(String field, String... values) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setField(field);
+        filter.setIn(List.of(values));
+        return filter;
+    }
+
+    private static BuildingFilter range(String field, String from, String to) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setField(field);
+        filter.setFrom(from);
+        filter.setTo(to);
+        return filter;
+    }
+
+    // Wavy ring with the given number of vertices around a center
+    private static GeoJsonGeometry polygon(double lat, double lon, double radius, int vertices) {
+        ArrayNode ring = JsonNodeFactory.instance.arrayNode();
+        for (int i = 0; i <= vertices; i++) {
+            double angle = 2 * Math.PI * (i % vertices) / vertices;
+            double r = radius * (1 + 0.2 * Math.sin(7 * angle));
+            ring.add(JsonNodeFactory.instance.arrayNode().add(lon + 1.5 * r * Math.cos(angle)).add(lat + r * Math.sin(angle)));
+        }
+        GeoJsonGeometry geometry = new GeoJsonGeometry();
+        geometry.setType("Polygon");
+        geometry.setCoordinates(JsonNodeFactory.instance.arrayNode().add(ring));
+        return geometry;
+    }
+}
@@ -0,0 +1,128 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gisbackend.buildingstreamer.config.BuildingCborConverter;
+import com.gisbackend.buildingstreamer.config.BuildingJsonConverter;
+import com.gisbackend.buildingstreamer.controller.BuildingController;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.service.BuildingService;
+
+/**
+ * GraphDataModel JSON round-trips and BuildingController list responses encoded
+ * with the ObjectMapper configuration Spring MVC uses, through the cached
+ * building encodings, reprojected and as CBOR.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final Type LIST_OF_BUILDINGS = ResolvableType.forClassWithGenerics(List.class, Building.class).getType();
+
+    @Param({ "1000", "10000" })
+    public int responseSize;
+
+    private final BuildingDataGenerator generator = new BuildingDataGenerator();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper webMapper = Jackson2ObjectMapperBuilder.json().build();
+    private GraphDataModel message;
+    private String messageJson;
+    private BuildingController controller;
+    private BuildingJsonConverter converter;
+    private final BuildingCborConverter cborConverter = new BuildingCborConverter();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        message = generator.graphDataModel(1);
+        messageJson = generator.graphDataModelJson(1);
+        BuildingService buildingService = BenchmarkFixtures.buildingService(generator, responseSize);
+        controller = BenchmarkFixtures.buildingController(buildingService);
+        converter = BenchmarkFixtures.buildingJsonConverter(buildingService);
+    }
+
+    @Benchmark
+    public GraphDataModel graphDataModelRoundTrip() throws Exception {
+        return mapper.readValue(mapper.writeValueAsString(message), GraphDataModel.class);
+    }
+
+    @Benchmark
+    public GraphDataModel graphDataModelRead() throws Exception {
+        return mapper.readValue(messageJson, GraphDataModel.class);
+    }
+
+    @Benchmark
+    public byte[] getAllBuildingsResponse() throws Exception {
+        return webMapper.writeValueAsBytes(controller.getAllBuildings(Map.of()).getBody());
+    }
+
+    // Same response through the converter Spring MVC uses for buildings, into a
+    // reused buffer like the servlet response buffer
+    @Benchmark
+    public int getAllBuildingsCachedResponse() throws Exception {
+        body.reset();
+        converter.write(controller.getAllBuildings(Map.of()).getBody(), LIST_OF_BUILDINGS, MediaType.APPLICATION_JSON,
+                outputMessage());
+        return body.size();
+    }
+
+    @Benchmark
+    public int getAllBuildingsCborResponse() throws Exception {
+        body.reset();
+        cborConverter.write(controller.getAllBuildings(Map.of()).getBody(), LIST_OF_BUILDINGS, MediaType.APPLICATION_CBOR,
+                outputMessage());
+        return body.size();
+    }
+
+    // Same response with coordinates in ETRS89 / UTM zone 32N
+    @Benchmark
+    public int getAllBuildingsUtmResponse() throws Exception {
+        body.reset();
+        converter.write(controller.getAllBuildings(Map.of("crs", "EPSG:25832")).getBody(), LIST_OF_BUILDINGS,
+                MediaType.APPLICATION_JSON, outputMessage());
+        return body.size();
+    }
+
+    private HttpOutputMessage outputMessage() {
+        return new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.service.NominatimService;
+
+/**
+ * Geocoder stand-in that never leaves the JVM. Each lookup blocks the calling
+ * thread for the configured latency (plus uniform jitter) like a remote call
+ * would, then returns a coordinate derived from the address.
+ */
+public class StubNominatimService extends NominatimService {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final AtomicLong requests = new AtomicLong();
+
+    public StubNominatimService(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    @Override
+    public Address enrichAddressWithCoordinates(Address address) {
+        requests.incrementAndGet();
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return address;
+            }
+        }
+        int hash = String.valueOf(address.getStreetName()).hashCode() ^ String.valueOf(address.getCity()).hashCode();
+        return address.toBuilder()
+            .deprecatedLatitude(String.format(Locale.ROOT, "%.6f", 47.5 + Math.floorMod(hash, 5000) / 1000.0))
+            .deprecatedLongitude(String.format(Locale.ROOT, "%.6f", 6.0 + Math.floorMod(hash >>> 7, 9000) / 1000.0))
+            .build();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+}
@@ -0,0 +1,83 @@
+package com.gisbackend.buildingstreamer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gisbackend.buildingstreamer.config.BoundedExecutor;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+import com.gisbackend.buildingstreamer.service.KafkaService;
+
+/**
+ * Platform vs. virtual thread mode of the group executor: a bulk message whose
+ * addresses have no coordinates, ingested by KafkaService.publish as the
+ * listener does, against a geocoding stub with fixed latency. Each invocation
+ * alternates between two versions of the message, so every building is
+ * decoded and geocoded again. Reports time per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ThreadModeBenchmark {
+
+    private static final int BULK_SIZE = 2000;
+
+    @Param({ "platform", "virtual" })
+    public String mode;
+
+    @Param({ "64", "1024" })
+    public int maxConcurrency;
+
+    @Param({ "20" })
+    public long geocodeLatencyMs;
+
+    private BoundedExecutor groupExecutor;
+    private KafkaService kafkaService;
+    private GraphDataModel[] messages;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        groupExecutor = new BoundedExecutor("benchmark-group", "virtual".equals(mode), maxConcurrency);
+        BuildingDataGenerator generator = new BuildingDataGenerator();
+        kafkaService = BenchmarkFixtures.kafkaService(BenchmarkFixtures.buildingService(generator, 0),
+            new StubNominatimService(geocodeLatencyMs, 0), groupExecutor);
+        messages = new GraphDataModel[2];
+        for (int version = 0; version < messages.length; version++) {
+            messages[version] = generator.bulkGraphDataModel(0, BULK_SIZE, false);
+            for (MetaDataNode node : messages[version].getGraphMetadata()) {
+                if (node.getClassType().endsWith("/Building")) {
+                    node.getPropertiesValues().put("ParkingSpaces", Integer.toString(version));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        groupExecutor.close();
+    }
+
+    @Benchmark
+    public void publishBulk() {
+        cursor++;
+        kafkaService.publish(messages[cursor & 1], new ConsumerRecord<>("benchmark", 0, cursor, null, null));
+    }
+}
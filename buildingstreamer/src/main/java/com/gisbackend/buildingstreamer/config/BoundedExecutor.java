@@ -0,0 +1,66 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Executor for blocking outbound work (geocoding, Kafka sends). In virtual mode
+ * every task gets its own virtual thread and concurrency is bounded by a
+ * semaphore only; in platform mode a fixed pool of the same size is used.
+ * Permits are acquired on the worker thread, so callers never block.
+ */
+public class BoundedExecutor implements Executor, AutoCloseable {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+    private final int maxConcurrency;
+
+    public BoundedExecutor(String name, boolean virtualThreads, int maxConcurrency) {
+        this.virtualThreads = virtualThreads;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.delegate = virtualThreads
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory())
+            : Executors.newFixedThreadPool(maxConcurrency, new CustomizableThreadFactory(name + "-"));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, this);
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+    }
+}
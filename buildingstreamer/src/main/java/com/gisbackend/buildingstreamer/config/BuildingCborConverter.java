@@ -0,0 +1,341 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+
+/**
+ * Writes buildings and lists of buildings as application/cbor when the client
+ * asks for it. The document is
+ * <pre>
+ * { "version": 1,
+ *   "fields": { "building": [...], "address": [...], "geoCoordinate": [...] },
+ *   "strings": [ text, ... ],
+ *   "buildings": [ [ field values in "fields" order ], ... ] }
+ * </pre>
+ * Identifiers, names and house numbers are written as text. Other text fields,
+ * attribute keys and text attribute values are indexes into "strings".
+ * parkingSpaces, constructionYear and coordinates are numbers, or text when the
+ * value does not round-trip as a number. Numeric attributes are split into a
+ * separate map, so every value keeps a single meaning. A detail response is a
+ * document with one building.
+ */
+@Component
+public class BuildingCborConverter implements GenericHttpMessageConverter<Object> {
+
+    public static final int VERSION = 1;
+
+    private static final List<String> BUILDING_FIELDS = List.of("id", "buildingId", "name", "validFrom", "buildingCode",
+        "parkingSpaces", "constructionYear", "primaryHeatingType", "energyEfficiencyClass", "primaryTypeOfBuilding",
+        "address", "additionalAttributes", "numericAttributes");
+    private static final List<String> ADDRESS_FIELDS = List.of("id", "country", "city", "postalCode", "streetName",
+        "houseNumber", "deprecatedLatitude", "deprecatedLongitude", "geoCoordinate");
+    private static final List<String> GEO_COORDINATE_FIELDS = List.of("id", "coordinateReferenceSystem", "latitude",
+        "longitude", "originalCoordinateReferenceSystem", "originalLatitude", "originalLongitude");
+
+    private final CBORFactory factory = CBORFactory.builder()
+        .enable(CBORGenerator.Feature.WRITE_MINIMAL_DOUBLES)
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
+    /**
+     * Text to index into the "strings" array, in order of first use.
+     */
+    private static final class Strings {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        void add(String value) {
+            if (value != null && !codes.containsKey(value)) {
+                codes.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int code(String value) {
+            return codes.get(value);
+        }
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == Building.class && isCbor(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (type != null ? BuildingJsonConverter.isBuildings(type) : clazz == Building.class) && isCbor(mediaType);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.of(MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public Object read(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Buildings are not read by this converter", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Buildings are not read by this converter", inputMessage);
+    }
+
+    @Override
+    public void write(Object body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        write(body, null, contentType, outputMessage);
+    }
+
+    @Override
+    public void write(Object body, Type type, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        Collection<?> buildings = body instanceof Collection<?> collection ? collection : List.of(body);
+        // First pass collects the dictionary, so it can precede the buildings
+        Strings strings = new Strings();
+        for (Object building : buildings) {
+            collect((Building) building, strings);
+        }
+        outputMessage.getHeaders().setContentType(MediaType.APPLICATION_CBOR);
+        try (CBORGenerator generator = factory.createGenerator(outputMessage.getBody())) {
+            generator.writeStartObject();
+            generator.writeNumberField("version", VERSION);
+            generator.writeFieldName("fields");
+            generator.writeStartObject();
+            writeNames(generator, "building", BUILDING_FIELDS);
+            writeNames(generator, "address", ADDRESS_FIELDS);
+            writeNames(generator, "geoCoordinate", GEO_COORDINATE_FIELDS);
+            generator.writeEndObject();
+            generator.writeFieldName("strings");
+            generator.writeStartArray(strings.values, strings.values.size());
+            for (String value : strings.values) {
+                generator.writeString(value);
+            }
+            generator.writeEndArray();
+            generator.writeFieldName("buildings");
+            generator.writeStartArray(buildings, buildings.size());
+            for (Object building : buildings) {
+                writeBuilding(generator, (Building) building, strings);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private static void collect(Building building, Strings strings) {
+        strings.add(building.getValidFrom());
+        strings.add(building.getPrimaryHeatingType());
+        strings.add(building.getEnergyEfficiencyClass());
+        strings.add(building.getPrimaryTypeOfBuilding());
+        Address address = building.getAddress();
+        if (address != null) {
+            strings.add(address.getCountry());
+            strings.add(address.getCity());
+            strings.add(address.getPostalCode());
+            strings.add(address.getStreetName());
+            if (address.getGeoCoordinate() != null) {
+                strings.add(address.getGeoCoordinate().getCoordinateReferenceSystem());
+                strings.add(address.getGeoCoordinate().getOriginalCoordinateReferenceSystem());
+            }
+        }
+        if (building.getAdditionalAttributes() != null) {
+            for (Map.Entry<String, String> attribute : building.getAdditionalAttributes().entrySet()) {
+                strings.add(attribute.getKey());
+                if (number(attribute.getValue()) == null) {
+                    strings.add(attribute.getValue());
+                }
+            }
+        }
+    }
+
+    private static void writeBuilding(CBORGenerator generator, Building building, Strings strings) throws IOException {
+        generator.writeStartArray(building, BUILDING_FIELDS.size());
+        generator.writeString(building.getId());
+        generator.writeString(building.getBuildingId());
+        generator.writeString(building.getName());
+        writeCode(generator, building.getValidFrom(), strings);
+        generator.writeString(building.getBuildingCode());
+        writeNumber(generator, building.getParkingSpaces());
+        writeNumber(generator, building.getConstructionYear());
+        writeCode(generator, building.getPrimaryHeatingType(), strings);
+        writeCode(generator, building.getEnergyEfficiencyClass(), strings);
+        writeCode(generator, building.getPrimaryTypeOfBuilding(), strings);
+        writeAddress(generator, building.getAddress(), strings);
+        writeAttributes(generator, building.getAdditionalAttributes(), strings);
+        generator.writeEndArray();
+    }
+
+    private static void writeAddress(CBORGenerator generator, Address address, Strings strings) throws IOException {
+        if (address == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray(address, ADDRESS_FIELDS.size());
+        generator.writeString(address.getId());
+        writeCode(generator, address.getCountry(), strings);
+        writeCode(generator, address.getCity(), strings);
+        writeCode(generator, address.getPostalCode(), strings);
+        writeCode(generator, address.getStreetName(), strings);
+        generator.writeString(address.getHouseNumber());
+        writeNumber(generator, address.getDeprecatedLatitude());
+        writeNumber(generator, address.getDeprecatedLongitude());
+        GeoCoordinate geoCoordinate = address.getGeoCoordinate();
+        if (geoCoordinate == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray(geoCoordinate, GEO_COORDINATE_FIELDS.size());
+            generator.writeString(geoCoordinate.getId());
+            writeCode(generator, geoCoordinate.getCoordinateReferenceSystem(), strings);
+            writeNumber(generator, geoCoordinate.getLatitude());
+            writeNumber(generator, geoCoordinate.getLongitude());
+            writeCode(generator, geoCoordinate.getOriginalCoordinateReferenceSystem(), strings);
+            writeNumber(generator, geoCoordinate.getOriginalLatitude());
+            writeNumber(generator, geoCoordinate.getOriginalLongitude());
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+    }
+
+    // Text attributes and numeric attributes as two maps keyed by string index
+    private static void writeAttributes(CBORGenerator generator, Map<String, String> attributes, Strings strings)
+            throws IOException {
+        Map<String, String> values = attributes != null ? attributes : Map.of();
+        Map<String, Number> numeric = new HashMap<>();
+        for (Map.Entry<String, String> attribute : values.entrySet()) {
+            Number number = number(attribute.getValue());
+            if (number != null) {
+                numeric.put(attribute.getKey(), number);
+            }
+        }
+        generator.writeStartObject(values, values.size() - numeric.size());
+        for (Map.Entry<String, String> attribute : values.entrySet()) {
+            if (!numeric.containsKey(attribute.getKey())) {
+                generator.writeFieldId(strings.code(attribute.getKey()));
+                writeCode(generator, attribute.getValue(), strings);
+            }
+        }
+        generator.writeEndObject();
+        generator.writeStartObject(numeric, numeric.size());
+        for (Map.Entry<String, Number> attribute : numeric.entrySet()) {
+            generator.writeFieldId(strings.code(attribute.getKey()));
+            if (attribute.getValue() instanceof Long integer) {
+                generator.writeNumber(integer);
+            } else {
+                generator.writeNumber((Double) attribute.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeNames(CBORGenerator generator, String name, List<String> fields) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeStartArray(fields, fields.size());
+        for (String field : fields) {
+            generator.writeString(field);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeCode(CBORGenerator generator, String value, Strings strings) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(strings.code(value));
+        }
+    }
+
+    private static void writeNumber(CBORGenerator generator, String value) throws IOException {
+        Number number = number(value);
+        if (number instanceof Long integer) {
+            generator.writeNumber(integer);
+        } else if (number instanceof Double decimal) {
+            generator.writeNumber(decimal);
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    /**
+     * The value as Long or Double if it is written exactly as Java would print
+     * the number, so it reads back to the same text, otherwise null. Plain
+     * decimals with up to 15 significant digits and an integer part below 10^7
+     * are the shortest form of their double, so no formatting round trip is
+     * needed.
+     */
+    static Number number(String value) {
+        if (value == null) {
+            return null;
+        }
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        int point = -1;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && point < 0) {
+                point = i;
+            } else if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        int integerDigits = (point < 0 ? length : point) - start;
+        // No leading zeros, no negative zero
+        if (integerDigits == 0 || integerDigits > 1 && value.charAt(start) == '0') {
+            return null;
+        }
+        if (point < 0) {
+            if (integerDigits > 18 || start == 1 && value.charAt(1) == '0') {
+                return null;
+            }
+            return Long.parseLong(value);
+        }
+        int fractionDigits = length - point - 1;
+        if (fractionDigits == 0 || integerDigits > 7 || value.charAt(length - 1) == '0' && fractionDigits > 1) {
+            return null;
+        }
+        int significant = integerDigits + fractionDigits;
+        if (value.charAt(start) == '0') {
+            // 0.00ddd: leading fraction zeros are not significant, and below
+            // 10^-3 Java switches to exponent notation
+            int zeros = 0;
+            while (zeros < fractionDigits && value.charAt(point + 1 + zeros) == '0') {
+                zeros++;
+            }
+            if (zeros > 2 || zeros == fractionDigits && start == 1) {
+                return null;
+            }
+            significant = fractionDigits - zeros;
+        }
+        return significant <= 15 ? Double.parseDouble(value) : null;
+    }
+
+    private static boolean isCbor(MediaType mediaType) {
+        return mediaType == null || mediaType.isWildcardType() || mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR);
+    }
+}
@@ -0,0 +1,122 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.service.BuildingService;
+
+/**
+ * Writes buildings and lists of buildings as JSON from the per-building
+ * encoding cache, so unchanged buildings are not serialized again. The output
+ * is the same as the Jackson converter's; buildings that are not the current
+ * snapshot fall back to the ObjectMapper. Registered ahead of the default
+ * converters by Spring Boot, and ahead of the other building converters so
+ * JSON stays the default.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BuildingJsonConverter implements GenericHttpMessageConverter<Object> {
+
+    @Autowired
+    private BuildingService buildingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == Building.class && isJson(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (type != null ? isBuildings(type) : clazz == Building.class) && isJson(mediaType);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.of(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public Object read(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Buildings are not read by this converter", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Buildings are not read by this converter", inputMessage);
+    }
+
+    @Override
+    public void write(Object body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        write(body, null, contentType, outputMessage);
+    }
+
+    @Override
+    public void write(Object body, Type type, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        OutputStream out = outputMessage.getBody();
+        if (body instanceof Collection<?> buildings) {
+            out.write('[');
+            boolean first = true;
+            for (Object building : buildings) {
+                if (!first) {
+                    out.write(',');
+                }
+                out.write(encode((Building) building));
+                first = false;
+            }
+            out.write(']');
+        } else {
+            out.write(encode((Building) body));
+        }
+        out.flush();
+    }
+
+    private byte[] encode(Building building) throws IOException {
+        byte[] cached = buildingService.getBuildingJson(building);
+        return cached != null ? cached : objectMapper.writeValueAsBytes(building);
+    }
+
+    // Building or a collection of buildings
+    static boolean isBuildings(Type type) {
+        if (type == Building.class) {
+            return true;
+        }
+        return type instanceof ParameterizedType parameterized
+            && parameterized.getRawType() instanceof Class<?> raw
+            && Collection.class.isAssignableFrom(raw)
+            && parameterized.getActualTypeArguments()[0] == Building.class;
+    }
+
+    private static boolean isJson(MediaType mediaType) {
+        return mediaType == null || mediaType.isWildcardType() || mediaType.isCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+}
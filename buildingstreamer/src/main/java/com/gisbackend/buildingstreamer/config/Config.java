@@ -1,5 +1,6 @@
 package com.gisbackend.buildingstreamer.config;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.time.Duration;
 
@@ -9,16 +10,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import com.gisbackend.buildingstreamer.metrics.IngestStage;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.metrics.TimedDeserializer;
 import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.service.FailedMessageRouter;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableKafka
@@ -29,50 +43,172 @@ public class Config {
     @Value("${SPRING_KAFKA_BOOTSTRAP_SERVERS:localhost:9092}")
     private String kafkaBootstrapServers;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.kafka.parallel.max-poll-records:500}")
+    private int parallelMaxPollRecords;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private MessageOrigin messageOrigin;
+
+    @Autowired
+    private FailedMessageRouter failedMessageRouter;
+
     @Bean
     public ConsumerFactory<String, GraphDataModel> graphModelConsumer() {
-        Map<String, Object> props = Map.of(
-            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers,
-            ConsumerConfig.GROUP_ID_CONFIG, "gis_group",
-            ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
-            ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class,
+        return consumerFactory(Map.of(
             ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
             ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true,
             ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, 1000,
-            ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000,
             ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1
-        );
+        ));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> graphModelListener() {
+        ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(graphModelConsumer());
+        configureListener(factory);
+        return factory;
+    }
+
+    /**
+     * Container factory of the parallel consumer. Offsets are committed by the
+     * container once the future returned by the listener completes; it commits
+     * only up to the lowest record still in process, so a restart replays
+     * unfinished records but never skips one.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.kafka.parallel.enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> parallelGraphModelListener() {
+        ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(Map.of(
+            ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+            ConsumerConfig.MAX_POLL_RECORDS_CONFIG, parallelMaxPollRecords
+        )));
+        configureListener(factory);
+
+        // Filtered records have no future, acknowledge them right away
+        factory.setAckDiscarded(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+
+        // Records that fail before the listener, i.e. cannot be decoded, are acknowledged
+        // once forwarded; the rest of the poll stays in place, as async acks require
+        DefaultErrorHandler errorHandler = errorHandler();
+        errorHandler.setSeekAfterError(false);
+        errorHandler.setCommitRecovered(true);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+
+    /**
+     * Container factory of the retry topics, see RetryLaneListener. Records
+     * are acknowledged by the listener once processed or forwarded; a record
+     * that is not due yet is left unacknowledged and consumed again later.
+     * Starts from the earliest offset so no retry is lost to a new group.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> retryListener() {
+        ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory(Map.of(
+            ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+            ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1
+        )));
+        configureListener(factory);
+        factory.setAckDiscarded(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    /**
+     * Container factory of the dead-letter topic, see QuarantineService. Every
+     * instance is assigned all partitions without a consumer group and reads
+     * them from the start, so each one builds the same quarantine, also after
+     * a restart, and no group is left behind.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> deadLetterListener() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers,
+            ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false
+        ), new StringDeserializer(), new StringDeserializer()));
+        // Never acknowledged, without a group there is nothing to commit to
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Not forwarded like ingest failures, that would only add to the dead-letter topic
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new org.springframework.util.backoff.FixedBackOff(0L, 0L)));
+        return factory;
+    }
+
+    private ConsumerFactory<String, GraphDataModel> consumerFactory(Map<String, Object> commitSettings) {
+        Map<String, Object> props = new HashMap<>(Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers,
+            ConsumerConfig.GROUP_ID_CONFIG, "gis_group",
+            ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+            ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class,
+            ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000
+        ));
+        props.putAll(commitSettings);
 
             JsonDeserializer<GraphDataModel> deserializer = new JsonDeserializer<>(GraphDataModel.class);
     deserializer.addTrustedPackages("*");
 
-        return new DefaultKafkaConsumerFactory<>(
+        DefaultKafkaConsumerFactory<String, GraphDataModel> consumerFactory = new DefaultKafkaConsumerFactory<>(
             props,
             new StringDeserializer(),
-            deserializer
+            // Records that fail to decode reach the error handler instead of stopping the consumer
+            new ErrorHandlingDeserializer<>(new TimedDeserializer<>(
+                new OwnMessageSkippingDeserializer<>(new RawValueRecordingDeserializer<>(deserializer), messageOrigin),
+                pipelineMetrics.stageTimer(IngestStage.DESERIALIZE)))
         );
+        // Exposes the Kafka client metrics, including records-lag per partition, via Micrometer
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return consumerFactory;
     }
 
-    @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> graphModelListener() {
-        ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(graphModelConsumer());
+    private void configureListener(ConcurrentKafkaListenerContainerFactory<String, GraphDataModel> factory) {
+        // Run the consumer loops on virtual threads when enabled
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
         
-        // Configure error handling and retry behavior
-        factory.setCommonErrorHandler(new org.springframework.kafka.listener.DefaultErrorHandler(
-            (record, exception) -> {
-                logger.error("Error processing record with Offset {}: {} - Exception: {}", 
-                    record.offset(), record.value(), exception.getMessage());
-            },
-            new org.springframework.util.backoff.FixedBackOff(0L, 0L) // No retries
-        ));
+        // Messages this instance produced are already applied to the local store
+        factory.setRecordFilterStrategy(record -> {
+            if (messageOrigin.isOwn(record.headers())) {
+                pipelineMetrics.messageSkipped(PipelineMetrics.SKIPPED_OWN_MESSAGE);
+                return true;
+            }
+            return false;
+        });
+
+        factory.setCommonErrorHandler(errorHandler());
 
         // factory.setRecordInterceptor((record, consumer) -> {
         //     logger.info("Raw Kafka message before deserialization: {}", record.value());
         //     return record;
         // });
-        
-        return factory;
+    }
+
+    // Failed records move on to the retry topics or the quarantine without
+    // blocking the partition, see RetryTopology
+    private DefaultErrorHandler errorHandler() {
+        return new DefaultErrorHandler(
+            failedMessageRouter,
+            new org.springframework.util.backoff.FixedBackOff(0L, 0L) // No retries in place
+        );
     }
 
     @Bean("nominatimRestTemplate")
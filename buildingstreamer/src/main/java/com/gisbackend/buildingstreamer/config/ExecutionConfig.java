@@ -0,0 +1,55 @@
+package com.gisbackend.buildingstreamer.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Thread model of the service. spring.threads.virtual.enabled switches Tomcat,
+ * the Kafka listener containers and the outbound, ingest and group executors
+ * to virtual threads.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.outbound.max-concurrency:64}")
+    private int outboundMaxConcurrency;
+
+    @Value("${app.kafka.parallel.max-concurrency:64}")
+    private int ingestMaxConcurrency;
+
+    @Value("${app.kafka.group.max-concurrency:16}")
+    private int groupMaxConcurrency;
+
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor outboundExecutor() {
+        logger.info("Outbound work runs on {} threads with at most {} concurrent tasks",
+            virtualThreads ? "virtual" : "platform", outboundMaxConcurrency);
+        return new BoundedExecutor("outbound", virtualThreads, outboundMaxConcurrency);
+    }
+
+    // Workers of the parallel consumer, see ParallelIngestListener
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "app.kafka.parallel.enabled", havingValue = "true")
+    public BoundedExecutor ingestExecutor() {
+        logger.info("Parallel ingest runs on {} threads with at most {} records in process",
+            virtualThreads ? "virtual" : "platform", ingestMaxConcurrency);
+        return new BoundedExecutor("ingest", virtualThreads, ingestMaxConcurrency);
+    }
+
+    // Decodes and geocodes the buildings of bulk messages, see KafkaService
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor groupExecutor() {
+        logger.info("Bulk messages are decoded on {} threads with at most {} buildings in process",
+            virtualThreads ? "virtual" : "platform", groupMaxConcurrency);
+        return new BoundedExecutor("group", virtualThreads, groupMaxConcurrency);
+    }
+}
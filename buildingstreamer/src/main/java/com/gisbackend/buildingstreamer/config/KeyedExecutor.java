@@ -0,0 +1,76 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks with the same key one after another in submission order and tasks
+ * with different keys concurrently on the given executor. A task with several
+ * keys waits for the pending tasks of all of them and holds back the later
+ * tasks of each. Only keys with pending tasks are tracked; a failed task does
+ * not stop the ones queued after it.
+ */
+public class KeyedExecutor {
+
+    private final Executor executor;
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues the task behind the pending tasks of its key. The future completes
+     * when the task has run, exceptionally if it threw.
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        CompletableFuture<Void> future = tails.compute(key, (k, tail) -> tail == null
+            ? CompletableFuture.runAsync(task, executor)
+            : tail.handle((result, exception) -> null).thenRunAsync(task, executor));
+        future.whenComplete((result, exception) -> tails.remove(key, future));
+        return future;
+    }
+
+    /**
+     * Queues the task behind the pending tasks of all its keys, the later tasks
+     * of any of them run after it. Tasks with several keys are queued one at a
+     * time, so two of them cannot end up waiting for each other.
+     */
+    public CompletableFuture<Void> submit(Collection<String> keys, Runnable task) {
+        if (keys.size() == 1) {
+            return submit(keys.iterator().next(), task);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<CompletableFuture<Void>> previous = new ArrayList<>(keys.size());
+        synchronized (this) {
+            for (String key : keys) {
+                tails.compute(key, (k, tail) -> {
+                    if (tail != null) {
+                        previous.add(tail.handle((result, exception) -> null));
+                    }
+                    return future;
+                });
+            }
+        }
+        CompletableFuture.allOf(previous.toArray(CompletableFuture[]::new))
+            .thenRunAsync(task, executor)
+            .whenComplete((result, exception) -> {
+                if (exception != null) {
+                    future.completeExceptionally(exception);
+                } else {
+                    future.complete(null);
+                }
+            });
+        future.whenComplete((result, exception) -> keys.forEach(key -> tails.remove(key, future)));
+        return future;
+    }
+
+    public int getPendingKeys() {
+        return tails.size();
+    }
+}
@@ -0,0 +1,55 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identity of this instance on the Kafka topic. Messages the service produces
+ * carry it in the origin header, so they can be recognized when they come back
+ * on the topic the service consumes. A random id per process unless
+ * app.kafka.instance-id is set; messages produced before a restart are then
+ * consumed like any other message.
+ */
+@Component
+public class MessageOrigin {
+
+    public static final String ORIGIN_HEADER = "buildingstreamer-origin";
+    public static final String MESSAGE_TYPE_HEADER = "buildingstreamer-message-type";
+
+    private final String instanceId;
+    private final byte[] instanceIdBytes;
+
+    public MessageOrigin(@Value("${app.kafka.instance-id:}") String instanceId) {
+        this.instanceId = instanceId == null || instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.instanceIdBytes = this.instanceId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Adds the origin and message type headers to a record to be sent.
+     */
+    public void stamp(Headers headers, String messageType) {
+        headers.add(ORIGIN_HEADER, instanceIdBytes);
+        headers.add(MESSAGE_TYPE_HEADER, messageType.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether a consumed record was produced by this instance.
+     */
+    public boolean isOwn(Headers headers) {
+        if (headers == null) {
+            return false;
+        }
+        Header origin = headers.lastHeader(ORIGIN_HEADER);
+        return origin != null && Arrays.equals(origin.value(), instanceIdBytes);
+    }
+}
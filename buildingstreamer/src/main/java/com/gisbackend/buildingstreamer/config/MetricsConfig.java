@@ -0,0 +1,48 @@
+package com.gisbackend.buildingstreamer.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.service.AccessRightsService;
+import com.gisbackend.buildingstreamer.service.BuildingService;
+import com.gisbackend.buildingstreamer.service.ParallelIngestListener;
+import com.gisbackend.buildingstreamer.service.QuarantineService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricsConfig {
+
+    // Sizes of the in-memory stores, sampled on scrape
+    @Bean
+    public MeterBinder storeSizeMetrics(BuildingService buildingService, AccessRightsService accessRightsService,
+            QuarantineService quarantineService) {
+        return registry -> {
+            Gauge.builder(PipelineMetrics.PREFIX + ".store.size", buildingService, BuildingService::getBuildingCount)
+                .description("Number of entries in an in-memory store")
+                .tag("store", "buildings")
+                .register(registry);
+            Gauge.builder(PipelineMetrics.PREFIX + ".store.size", accessRightsService, AccessRightsService::getAccessRightCount)
+                .description("Number of entries in an in-memory store")
+                .tag("store", "access_rights")
+                .register(registry);
+            Gauge.builder(PipelineMetrics.PREFIX + ".store.size", quarantineService, QuarantineService::getMessageCount)
+                .description("Number of entries in an in-memory store")
+                .tag("store", "quarantine")
+                .register(registry);
+        };
+    }
+
+    // Buildings with records queued or in process in the parallel consumer
+    @Bean
+    @ConditionalOnProperty(name = "app.kafka.parallel.enabled", havingValue = "true")
+    public MeterBinder parallelIngestMetrics(ParallelIngestListener parallelIngestListener) {
+        return registry -> Gauge.builder(PipelineMetrics.PREFIX + ".ingest.pending.keys", parallelIngestListener,
+                ParallelIngestListener::getPendingKeys)
+            .description("Ordering keys with records in process in the parallel consumer")
+            .register(registry);
+    }
+}
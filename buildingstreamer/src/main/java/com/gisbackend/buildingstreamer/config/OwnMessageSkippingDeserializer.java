@@ -0,0 +1,48 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Deserializer wrapper that returns null for records this instance produced
+ * itself instead of decoding them. The listener container filters those
+ * records by the same header before they reach the listener.
+ */
+public class OwnMessageSkippingDeserializer<T> implements Deserializer<T> {
+
+    private final Deserializer<T> delegate;
+    private final MessageOrigin messageOrigin;
+
+    public OwnMessageSkippingDeserializer(Deserializer<T> delegate, MessageOrigin messageOrigin) {
+        this.delegate = delegate;
+        this.messageOrigin = messageOrigin;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        return messageOrigin.isOwn(headers) ? null : delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        return messageOrigin.isOwn(headers) ? null : delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
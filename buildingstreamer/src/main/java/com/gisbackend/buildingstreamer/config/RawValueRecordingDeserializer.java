@@ -0,0 +1,59 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Deserializer wrapper that keeps the received bytes of a value in the raw
+ * value header before decoding them. A record that fails later on is
+ * forwarded with these bytes, not with the decoded value encoded again, which
+ * the listener may have changed in the meantime. The header lives only as long
+ * as the consumed record and is not forwarded.
+ */
+public class RawValueRecordingDeserializer<T> implements Deserializer<T> {
+
+    public static final String RAW_VALUE_HEADER = "buildingstreamer-raw-value";
+
+    private final Deserializer<T> delegate;
+
+    public RawValueRecordingDeserializer(Deserializer<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (data != null) {
+            headers.add(RAW_VALUE_HEADER, data);
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data != null) {
+            // The buffer may be a view of the fetched batch, copy without moving its position
+            byte[] bytes = new byte[data.remaining()];
+            data.duplicate().get(bytes);
+            headers.add(RAW_VALUE_HEADER, bytes);
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
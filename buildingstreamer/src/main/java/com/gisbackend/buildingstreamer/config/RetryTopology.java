@@ -0,0 +1,120 @@
+package com.gisbackend.buildingstreamer.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.MessagePosition;
+
+/**
+ * Topics failed messages move through. A message that failed on the building
+ * topic is forwarded to the first retry topic, and from there to the next one
+ * each time it fails again; every retry topic holds its messages back for a
+ * fixed delay (app.kafka.retry.delays, 1s, 30s and 5m by default). Messages
+ * that fail permanently or on the last retry topic end up on the dead-letter
+ * topic. Retry topics are named after the building topic with the delay in
+ * milliseconds, e.g. buildings-retry-30000, the dead-letter topic is
+ * buildings-dlt. Its partitions are read without a consumer group, so their
+ * number has to be configured (app.kafka.dead-letter.partitions, 1 by default).
+ */
+@Component
+public class RetryTopology {
+
+    // Headers of forwarded messages
+    public static final String ATTEMPT_HEADER = "buildingstreamer-attempt";
+    public static final String DUE_HEADER = "buildingstreamer-retry-due";
+    public static final String ORIGINAL_TOPIC_HEADER = "buildingstreamer-original-topic";
+    public static final String ORIGINAL_PARTITION_HEADER = "buildingstreamer-original-partition";
+    public static final String ORIGINAL_OFFSET_HEADER = "buildingstreamer-original-offset";
+    public static final String ERROR_HEADER = "buildingstreamer-error";
+
+    private final String mainTopic;
+    private final Duration[] delays;
+    private final String[] retryTopics;
+    private final String deadLetterTopic;
+    private final int deadLetterPartitions;
+
+    public RetryTopology(@Value("${KAFKA_TOPIC}") String mainTopic,
+            @Value("${app.kafka.retry.delays:1s,30s,5m}") List<Duration> delays,
+            @Value("${app.kafka.dead-letter.partitions:1}") int deadLetterPartitions) {
+        if (deadLetterPartitions < 1) {
+            throw new IllegalArgumentException("The dead-letter topic needs at least one partition");
+        }
+        this.mainTopic = mainTopic;
+        this.delays = delays.toArray(Duration[]::new);
+        this.retryTopics = new String[this.delays.length];
+        for (int i = 0; i < retryTopics.length; i++) {
+            retryTopics[i] = mainTopic + "-retry-" + this.delays[i].toMillis();
+        }
+        this.deadLetterTopic = mainTopic + "-dlt";
+        this.deadLetterPartitions = deadLetterPartitions;
+    }
+
+    public String getMainTopic() {
+        return mainTopic;
+    }
+
+    public String[] getRetryTopics() {
+        return retryTopics.clone();
+    }
+
+    public String getDeadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    // Partitions of the dead-letter topic as a range, e.g. 0-2
+    public String getDeadLetterPartitions() {
+        return "0-" + (deadLetterPartitions - 1);
+    }
+
+    public int getRetryCount() {
+        return retryTopics.length;
+    }
+
+    // Topic of the given retry, counted from 0
+    public String getRetryTopic(int retry) {
+        return retryTopics[retry];
+    }
+
+    public Duration getDelay(int retry) {
+        return delays[retry];
+    }
+
+    /**
+     * Number of times a consumed message was already retried, 0 for messages
+     * from the building topic.
+     */
+    public static int attempts(Headers headers) {
+        String attempts = header(headers, ATTEMPT_HEADER);
+        return attempts != null ? Integer.parseInt(attempts) : 0;
+    }
+
+    public static String header(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Position a message was first consumed at: the original position of a
+     * forwarded message, the record's own otherwise.
+     */
+    public static MessagePosition originalPosition(ConsumerRecord<?, ?> record) {
+        String topic = header(record.headers(), ORIGINAL_TOPIC_HEADER);
+        if (topic == null) {
+            return new MessagePosition(record.topic(), record.partition(), record.offset());
+        }
+        return new MessagePosition(topic, Integer.parseInt(header(record.headers(), ORIGINAL_PARTITION_HEADER)),
+            Long.parseLong(header(record.headers(), ORIGINAL_OFFSET_HEADER)));
+    }
+
+    public static void setHeader(Headers headers, String name, Object value) {
+        headers.remove(name);
+        headers.add(name, String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+}
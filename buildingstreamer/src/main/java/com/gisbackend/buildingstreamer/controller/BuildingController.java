@@ -1,10 +1,14 @@
 package com.gisbackend.buildingstreamer.controller;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,13 +18,26 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.gisbackend.buildingstreamer.crs.CoordinateReferenceSystem;
+import com.gisbackend.buildingstreamer.index.TemporalIndex;
 import com.gisbackend.buildingstreamer.model.AccessRight;
 import com.gisbackend.buildingstreamer.model.Address;
 import com.gisbackend.buildingstreamer.model.Building;
 import com.gisbackend.buildingstreamer.model.BuildingAttributeRequest;
+import com.gisbackend.buildingstreamer.model.BuildingDistance;
+import com.gisbackend.buildingstreamer.model.BuildingGrid;
+import com.gisbackend.buildingstreamer.model.BuildingQueryRequest;
+import com.gisbackend.buildingstreamer.model.BuildingQueryResult;
+import com.gisbackend.buildingstreamer.model.BuildingSearchResult;
+import com.gisbackend.buildingstreamer.model.BuildingStatistics;
+import com.gisbackend.buildingstreamer.model.ChangeFeed;
+import com.gisbackend.buildingstreamer.model.GeoJsonGeometry;
 import com.gisbackend.buildingstreamer.service.AccessRightsService;
 import com.gisbackend.buildingstreamer.service.BuildingService;
+import com.gisbackend.buildingstreamer.service.ReprojectionService;
+import com.gisbackend.buildingstreamer.service.StatisticsService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -37,41 +54,320 @@ import lombok.extern.slf4j.Slf4j;
 @RequestMapping("/api/buildings")
 public class BuildingController {
 
+    private static final String CRS_PARAMETER = "crs";
+    private static final String CRS_DESCRIPTION = "EPSG code of the coordinates in the response, e.g. EPSG:25832; "
+        + "projected coordinates are northing in latitude and easting in longitude. Default WGS84";
+    private static final String AS_OF_PARAMETER = "asOf";
+    private static final String AS_OF_DESCRIPTION = "Point in time as ISO date (UTC), date-time or instant, "
+        + "e.g. 2024-06-30 or 2024-06-30T12:00:00Z; the version of each building valid then is returned";
+
     @Autowired
     private BuildingService buildingService;
     
     @Autowired
     private AccessRightsService accessRightsService;
 
-    @Operation(summary = "Get all buildings")
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private ReprojectionService reprojectionService;
+
+    @Operation(summary = "Get all buildings",
+        description = "Optional filters: numeric ranges on constructionYear and parkingSpaces, "
+            + "e.g. ?constructionYear=1950..1980 or ?parkingSpaces>=10, and values of indexed fields, e.g. ?city=Berlin,Dresden. "
+            + "?asOf= returns the buildings as they were valid at that time instead, without filters. "
+            + "Unknown parameters are ignored")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", content = @Content(
-            mediaType = "application/json",
-            schema = @Schema(implementation = Building.class))),
+        @ApiResponse(responseCode = "200", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = Building.class)),
+            @Content(mediaType = "application/cbor") }),
+        @ApiResponse(responseCode = "400", description = "Invalid filter or time, filter combined with asOf, "
+            + "or unsupported coordinate reference system"),
         @ApiResponse(responseCode = "404", description = "No buildings found")
     })
     @GetMapping
-    public ResponseEntity<List<Building>> getAllBuildings() {
-        List<Building> buildings = buildingService.getAllBuildings();
-        return ResponseEntity.ok(buildings);
+    public ResponseEntity<List<Building>> getAllBuildings(
+            @Parameter(description = "Filters: min..max, >=n, <=n, >n, <n or a single value for numeric fields, "
+                + "comma-separated values otherwise; crs=EPSG code of the coordinates in the response; "
+                + "asOf=" + AS_OF_DESCRIPTION)
+            @RequestParam Map<String, String> parameters) {
+        String crs = parameters.get(CRS_PARAMETER);
+        String asOf = parameters.get(AS_OF_PARAMETER);
+        Map<String, String> filters = filters(parameters, Set.of(CRS_PARAMETER, AS_OF_PARAMETER));
+        if (asOf != null) {
+            Long time = parseAsOf(asOf);
+            if (time == null || !filters.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            return inCrs(buildingService.getAllBuildings(time), crs);
+        }
+        if (filters.isEmpty()) {
+            return inCrs(buildingService.getAllBuildings(), crs);
+        }
+        try {
+            return inCrs(buildingService.getBuildingsMatching(filters), crs);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected building filter {}: {}", filters, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @Operation(summary = "Get a building by its ID")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", content = @Content(
-            mediaType = "application/json",
-            schema = @Schema(implementation = Building.class))),
-        @ApiResponse(responseCode = "404", description = "Building not found")
+        @ApiResponse(responseCode = "200", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = Building.class)),
+            @Content(mediaType = "application/cbor") }),
+        @ApiResponse(responseCode = "400", description = "Invalid time or unsupported coordinate reference system"),
+        @ApiResponse(responseCode = "404", description = "Building not found, or not valid at the given time")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<Building> getBuildingById(@Parameter(description = "ID of the building to retrieve", required = true) @PathVariable String id) {
-        Building building = buildingService.getBuildingById(id);
-        if (building != null) {
+    public ResponseEntity<Building> getBuildingById(@Parameter(description = "ID of the building to retrieve", required = true) @PathVariable String id,
+            @Parameter(description = CRS_DESCRIPTION) @RequestParam(required = false) String crs,
+            @Parameter(description = AS_OF_DESCRIPTION) @RequestParam(required = false) String asOf) {
+        Building building;
+        if (asOf != null) {
+            Long time = parseAsOf(asOf);
+            if (time == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            building = buildingService.getBuildingById(id, time);
+        } else {
+            building = buildingService.getBuildingById(id);
+        }
+        if (building == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (crs == null) {
             return ResponseEntity.ok(building);
         }
-        return ResponseEntity.notFound().build();
+        CoordinateReferenceSystem target = CoordinateReferenceSystem.forCode(crs);
+        if (target == null) {
+            log.warn("Rejected coordinate reference system {}", crs);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(reprojectionService.reproject(List.of(building), target).get(0));
     }
     
+    @Operation(summary = "Get the changes since a sequence number",
+        description = "Added and replaced buildings, attribute changes and access right changes after the given "
+            + "sequence, oldest first. Continue with the returned next sequence. If resyncRequired is set the changes "
+            + "are no longer retained: download the full state, then continue from next; changes carry full "
+            + "buildings, so applying one twice is harmless")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ChangeFeed.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request")
+    })
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeed> getChanges(
+            @Parameter(description = "Sequence of the last change already applied, 0 for all retained changes", required = true)
+            @RequestParam long since,
+            @Parameter(description = "Maximum number of changes") @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 1 || limit > 10000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(buildingService.getChanges(since, limit));
+    }
+
+    @Operation(summary = "Search buildings by name, building code, street, city or postal code",
+        description = "Every term has to match, the last one may be incomplete; small typos are tolerated")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingSearchResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<BuildingSearchResult>> searchBuildings(
+            @Parameter(description = "Search text", required = true) @RequestParam String q,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(buildingService.searchBuildings(q, limit));
+    }
+
+    @Operation(summary = "Get the buildings nearest to a point",
+        description = "Sorted by great-circle distance in meters")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingDistance.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid coordinates or k")
+    })
+    @GetMapping("/nearest")
+    public ResponseEntity<List<BuildingDistance>> getNearestBuildings(
+            @Parameter(description = "Latitude (WGS84)", required = true) @RequestParam double lat,
+            @Parameter(description = "Longitude (WGS84)", required = true) @RequestParam double lon,
+            @Parameter(description = "Number of buildings") @RequestParam(defaultValue = "10") int k) {
+        if (!isValidPoint(lat, lon) || k < 1 || k > 1000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(buildingService.getNearestBuildings(lat, lon, k));
+    }
+
+    @Operation(summary = "Get the buildings within a radius around a point",
+        description = "Sorted by great-circle distance in meters")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingDistance.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid coordinates, radius or limit")
+    })
+    @GetMapping("/within")
+    public ResponseEntity<List<BuildingDistance>> getBuildingsWithin(
+            @Parameter(description = "Latitude (WGS84)", required = true) @RequestParam double lat,
+            @Parameter(description = "Longitude (WGS84)", required = true) @RequestParam double lon,
+            @Parameter(description = "Radius in meters", required = true) @RequestParam double radiusMeters,
+            @Parameter(description = "Maximum number of results") @RequestParam(defaultValue = "1000") int limit) {
+        if (!isValidPoint(lat, lon) || !(radiusMeters >= 0 && radiusMeters <= 1_000_000)
+                || limit < 1 || limit > 100000) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(buildingService.getBuildingsWithin(lat, lon, radiusMeters, limit));
+    }
+
+    @Operation(summary = "Get the buildings inside a polygon",
+        description = "Request body is a GeoJSON Polygon or MultiPolygon in WGS84; holes are excluded")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingQueryResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid geometry, offset or limit")
+    })
+    @PostMapping("/within-polygon")
+    public ResponseEntity<BuildingQueryResult> getBuildingsWithinPolygon(@RequestBody GeoJsonGeometry geometry,
+            @Parameter(description = "Number of matches to skip") @RequestParam(defaultValue = "0") int offset,
+            @Parameter(description = "Maximum number of buildings") @RequestParam(defaultValue = "1000") int limit) {
+        if (offset < 0 || limit < 0 || limit > 10000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(buildingService.getBuildingsWithinPolygon(geometry, offset, limit));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected polygon query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get building density per map tile",
+        description = "Counts, energy class and building type distributions per quadkey tile of the given zoom level")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingGrid.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid precision or bounding box")
+    })
+    @GetMapping("/grid")
+    public ResponseEntity<BuildingGrid> getBuildingGrid(
+            @Parameter(description = "Quadkey zoom level, 1 to 16") @RequestParam(defaultValue = "10") int precision,
+            @Parameter(description = "minLon,minLat,maxLon,maxLat") @RequestParam(required = false) String bbox) {
+        double[] bounds = { -180, -90, 180, 90 };
+        if (bbox != null) {
+            String[] parts = bbox.split(",");
+            if (parts.length != 4) {
+                return ResponseEntity.badRequest().build();
+            }
+            try {
+                for (int i = 0; i < 4; i++) {
+                    bounds[i] = Double.parseDouble(parts[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (precision < 1 || precision > 16 || !isValidPoint(bounds[1], bounds[0])
+                || !isValidPoint(bounds[3], bounds[2]) || bounds[0] > bounds[2] || bounds[1] > bounds[3]) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(buildingService.getBuildingGrid(precision, bounds[0], bounds[1], bounds[2], bounds[3]));
+    }
+
+    @Operation(summary = "Get all building markers as a packed binary buffer",
+        description = "Quantized, delta-encoded coordinates in Hilbert order with dictionary-coded building type and "
+            + "energy class, optionally with ids; the layout is documented on PointIndex. Supports If-None-Match.")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(mediaType = "application/octet-stream")),
+        @ApiResponse(responseCode = "304", description = "Markers unchanged since the given ETag")
+    })
+    @GetMapping(value = "/points", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getBuildingPoints(
+            @Parameter(description = "Include building ids") @RequestParam(defaultValue = "true") boolean ids,
+            WebRequest request) {
+        // Read before the buffer, so the tag is never newer than the content
+        String eTag = "\"" + buildingService.getStoreTag() + (ids ? "-ids" : "") + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(buildingService.getBuildingPoints(ids));
+    }
+
+    private static boolean isValidPoint(double lat, double lon) {
+        return lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+
+    // Filter conditions of the query, leaving out the named parameters; unknown ones are ignored, not rejected
+    private static Map<String, String> filters(Map<String, String> parameters, Set<String> named) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        parameters.forEach((key, value) -> {
+            if (BuildingService.isFilterKey(key)) {
+                filters.put(key, value);
+            } else if (!named.contains(key)) {
+                log.info("Ignoring unknown query parameter {}", key);
+            }
+        });
+        return filters;
+    }
+
+    // Epoch milliseconds of ?asOf=, null if it is not a valid time
+    private static Long parseAsOf(String asOf) {
+        try {
+            return TemporalIndex.parseTime(asOf);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected point in time {}", asOf);
+            return null;
+        }
+    }
+
+    // Buildings in the reference system of ?crs=, 400 for an unsupported one
+    private ResponseEntity<List<Building>> inCrs(List<Building> buildings, String crs) {
+        if (crs == null) {
+            return ResponseEntity.ok(buildings);
+        }
+        CoordinateReferenceSystem target = CoordinateReferenceSystem.forCode(crs);
+        if (target == null) {
+            log.warn("Rejected coordinate reference system {}", crs);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(reprojectionService.reproject(buildings, target));
+    }
+
+    @Operation(summary = "Query buildings with a filter expression",
+        description = "Combine and/or/not with eq, in and inclusive from/to conditions on primaryTypeOfBuilding, "
+            + "primaryHeatingType, energyEfficiencyClass, constructionYear, parkingSpaces, city, postalCode, country "
+            + "or attributes.<key>")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingQueryResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid filter")
+    })
+    @PostMapping("/query")
+    public ResponseEntity<BuildingQueryResult> queryBuildings(@RequestBody BuildingQueryRequest request) {
+        if (request.getOffset() < 0 || request.getLimit() < 0 || request.getLimit() > 10000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(buildingService.queryBuildings(request.getFilter(), request.getOffset(),
+                    request.getLimit()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected building query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Get all cities with buildings")
     @ApiResponses({
         @ApiResponse(responseCode = "200", content = @Content(
@@ -91,28 +387,48 @@ public class BuildingController {
 
     @Operation(summary = "Get all buildings in a specific city")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", content = @Content(
-            mediaType = "application/json",
-            schema = @Schema(implementation = Building.class))),
+        @ApiResponse(responseCode = "200", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = Building.class)),
+            @Content(mediaType = "application/cbor") }),
+        @ApiResponse(responseCode = "400", description = "Invalid time or unsupported coordinate reference system"),
         @ApiResponse(responseCode = "404", description = "No buildings found in the specified city")
     })
     @GetMapping("/by-city/{city}")
-    public ResponseEntity<List<Building>> getBuildingsByCity(@Parameter(description = "City to filter buildings", required = true) @PathVariable String city) {
+    public ResponseEntity<List<Building>> getBuildingsByCity(@Parameter(description = "City to filter buildings", required = true) @PathVariable String city,
+            @Parameter(description = CRS_DESCRIPTION) @RequestParam(required = false) String crs,
+            @Parameter(description = AS_OF_DESCRIPTION) @RequestParam(required = false) String asOf) {
+        if (asOf != null) {
+            Long time = parseAsOf(asOf);
+            if (time == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return inCrs(buildingService.getBuildingsByCity(city, time), crs);
+        }
         List<Building> buildings = buildingService.getBuildingsByCity(city);
-        return ResponseEntity.ok(buildings);
+        return inCrs(buildings, crs);
     }
 
     @Operation(summary = "Get all buildings with a specific energy efficiency class")
     @ApiResponses({
-        @ApiResponse(responseCode = "200", content = @Content(
-            mediaType = "application/json",
-            schema = @Schema(implementation = Building.class))),
+        @ApiResponse(responseCode = "200", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = Building.class)),
+            @Content(mediaType = "application/cbor") }),
+        @ApiResponse(responseCode = "400", description = "Invalid time or unsupported coordinate reference system"),
         @ApiResponse(responseCode = "404", description = "No buildings found with the specified energy class")
     })
     @GetMapping("/by-energy-class/{energyClass}")
-    public ResponseEntity<List<Building>> getBuildingsByEnergyClass(@Parameter(description = "Energy class to filter buildings", required = true) @PathVariable String energyClass) {
+    public ResponseEntity<List<Building>> getBuildingsByEnergyClass(@Parameter(description = "Energy class to filter buildings", required = true) @PathVariable String energyClass,
+            @Parameter(description = CRS_DESCRIPTION) @RequestParam(required = false) String crs,
+            @Parameter(description = AS_OF_DESCRIPTION) @RequestParam(required = false) String asOf) {
+        if (asOf != null) {
+            Long time = parseAsOf(asOf);
+            if (time == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return inCrs(buildingService.getBuildingsByEnergyClass(energyClass, time), crs);
+        }
         List<Building> buildings = buildingService.getBuildingsByEnergyClass(energyClass);
-        return ResponseEntity.ok(buildings);
+        return inCrs(buildings, crs);
     }
 
     @Tag(name = "Statistics", description = "Get Building Statistics")
@@ -129,6 +445,47 @@ public class BuildingController {
         return ResponseEntity.ok(statistics);
     }
 
+    @Tag(name = "Statistics", description = "Get Building Statistics")
+    @Operation(summary = "Aggregate buildings, optionally grouped by a field",
+        description = "Metrics count, min, max, avg, histogram and percentiles over constructionYear or parkingSpaces, "
+            + "grouped by an indexed field or attributes.<key>. Further parameters filter like on /api/buildings")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = BuildingStatistics.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid metric, field or filter")
+    })
+    @GetMapping("/statistics")
+    public ResponseEntity<BuildingStatistics> getStatistics(
+            @Parameter(description = "Field to group by, e.g. energyEfficiencyClass or attributes.Status")
+            @RequestParam(required = false) String groupBy,
+            @Parameter(description = "Comma-separated metrics: count, min, max, avg, histogram, percentiles")
+            @RequestParam(defaultValue = "count") String metric,
+            @Parameter(description = "Numeric field the metrics are computed on")
+            @RequestParam(defaultValue = "constructionYear") String field,
+            @Parameter(description = "Histogram bucket width")
+            @RequestParam(defaultValue = "10") int bucketWidth,
+            @Parameter(description = "Comma-separated percentiles")
+            @RequestParam(defaultValue = "50,90,99") String percentiles,
+            @Parameter(hidden = true) @RequestParam Map<String, String> parameters) {
+        Map<String, String> filters = filters(parameters,
+            Set.of("groupBy", "metric", "field", "bucketWidth", "percentiles"));
+        try {
+            double[] percentileValues = Arrays.stream(percentiles.split(","))
+                .map(String::trim)
+                .mapToDouble(Double::parseDouble)
+                .toArray();
+            Set<String> metrics = Arrays.stream(metric.split(","))
+                .map(String::trim)
+                .collect(Collectors.toSet());
+            return ResponseEntity.ok(statisticsService.getStatistics(groupBy, metrics, field, bucketWidth,
+                    percentileValues, filters));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected statistics request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Get address by building ID")
     @ApiResponses({
         @ApiResponse(responseCode = "200", content = @Content(
@@ -0,0 +1,53 @@
+package com.gisbackend.buildingstreamer.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gisbackend.buildingstreamer.model.GraphQueryRequest;
+import com.gisbackend.buildingstreamer.model.GraphQueryResult;
+import com.gisbackend.buildingstreamer.service.GraphQueryService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Tag(name = "Graph", description = "Query the triples of the stored graph data")
+@RestController
+@RequestMapping("/api/graph")
+public class GraphController {
+
+    @Autowired
+    private GraphQueryService graphQueryService;
+
+    @Operation(summary = "Query the graph data with triple patterns",
+        description = "SPARQL subset: PREFIX declarations, SELECT [DISTINCT] with variables or *, "
+            + "a WHERE block of triple patterns with ';' and ',' lists, and LIMIT, e.g. "
+            + "SELECT ?building ?address WHERE { ?building <https://ibpdi.datacat.org/class/hasAddress> ?address }")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = GraphQueryResult.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid or unsupported query")
+    })
+    @PostMapping("/query")
+    public ResponseEntity<GraphQueryResult> queryGraph(@RequestBody GraphQueryRequest request) {
+        if (request.getLimit() < 0 || request.getLimit() > 10000) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(graphQueryService.query(request.getQuery(), request.getLimit()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected graph query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.gisbackend.buildingstreamer.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gisbackend.buildingstreamer.model.QuarantinedMessage;
+import com.gisbackend.buildingstreamer.service.QuarantineService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Tag(name = "Quarantine", description = "Inspect and replay Kafka messages that could not be ingested")
+@RestController
+@RequestMapping("/api/admin/quarantine")
+public class QuarantineController {
+
+    @Autowired
+    private QuarantineService quarantineService;
+
+    @Operation(summary = "List quarantined messages", description = "Oldest first")
+    @GetMapping
+    public ResponseEntity<List<QuarantinedMessage>> getQuarantinedMessages(
+            @Parameter(description = "Maximum number of messages to return") @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(quarantineService.getMessages(limit));
+    }
+
+    @Operation(summary = "Get a quarantined message by its ID")
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Message with payload and last error"),
+        @ApiResponse(responseCode = "404", description = "Message not found")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<QuarantinedMessage> getQuarantinedMessage(
+            @Parameter(description = "ID of the message: topic-partition-offset", required = true) @PathVariable String id) {
+        QuarantinedMessage message = quarantineService.getMessage(id);
+        return message != null ? ResponseEntity.ok(message) : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Replay a quarantined message",
+        description = "Sends the message to the building topic again and removes it from the quarantine")
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Message sent"),
+        @ApiResponse(responseCode = "404", description = "Message not found"),
+        @ApiResponse(responseCode = "409", description = "Message has no payload to replay"),
+        @ApiResponse(responseCode = "503", description = "Message could not be sent")
+    })
+    @PostMapping("/{id}/replay")
+    public ResponseEntity<Void> replayQuarantinedMessage(
+            @Parameter(description = "ID of the message: topic-partition-offset", required = true) @PathVariable String id) {
+        QuarantinedMessage message = quarantineService.getMessage(id);
+        if (message == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (message.payload() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        try {
+            return quarantineService.replay(id) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to replay quarantined message {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @Operation(summary = "Discard a quarantined message",
+        description = "Removes the message from the quarantine of all instances, it stays on the dead-letter topic")
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "Message removed"),
+        @ApiResponse(responseCode = "404", description = "Message not found"),
+        @ApiResponse(responseCode = "503", description = "Removal could not be sent")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> discardQuarantinedMessage(
+            @Parameter(description = "ID of the message: topic-partition-offset", required = true) @PathVariable String id) {
+        try {
+            return quarantineService.discard(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to discard quarantined message {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
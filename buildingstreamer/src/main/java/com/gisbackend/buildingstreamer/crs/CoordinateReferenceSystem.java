@@ -0,0 +1,120 @@
+package com.gisbackend.buildingstreamer.crs;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Coordinate reference systems buildings are delivered and exported in:
+ * WGS84 and ETRS89 geographic, Web Mercator, ETRS89 LAEA Europe, UTM zones on
+ * ETRS89 and WGS84, and DHDN Gauss-Krüger zones 2 to 5. Instances are created
+ * once per EPSG code and shared.
+ */
+public final class CoordinateReferenceSystem {
+
+    public static final CoordinateReferenceSystem WGS84 =
+        new CoordinateReferenceSystem(4326, "WGS 84", Datum.WGS84, null);
+
+    // EPSG:n, urn:ogc:def:crs:EPSG::n, http://www.opengis.net/def/crs/EPSG/0/n or just n
+    private static final Pattern EPSG_CODE = Pattern.compile("(?:.*EPSG(?:.*\\D)?)?(\\d{4,5})");
+
+    private static final Map<Integer, CoordinateReferenceSystem> BY_CODE = new ConcurrentHashMap<>();
+
+    private final int code;
+    private final String name;
+    private final Datum datum;
+    private final Projection projection;
+
+    private CoordinateReferenceSystem(int code, String name, Datum datum, Projection projection) {
+        this.code = code;
+        this.name = name;
+        this.datum = datum;
+        this.projection = projection;
+    }
+
+    /**
+     * Reference system for an EPSG identifier in one of the usual notations, or
+     * null if it is not supported.
+     */
+    public static CoordinateReferenceSystem forCode(String identifier) {
+        if (identifier == null) {
+            return null;
+        }
+        String normalized = identifier.strip().toUpperCase(Locale.ROOT);
+        if (normalized.equals("WGS84") || normalized.equals("WGS 84") || normalized.endsWith("CRS84")) {
+            return WGS84;
+        }
+        Matcher matcher = EPSG_CODE.matcher(normalized);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return BY_CODE.computeIfAbsent(Integer.parseInt(matcher.group(1)), CoordinateReferenceSystem::create);
+    }
+
+    private static CoordinateReferenceSystem create(int code) {
+        if (code == 4326) {
+            return WGS84;
+        }
+        if (code == 4258) {
+            return new CoordinateReferenceSystem(code, "ETRS89", Datum.ETRS89, null);
+        }
+        if (code == 3857) {
+            return new CoordinateReferenceSystem(code, "WGS 84 / Pseudo-Mercator", Datum.WGS84, new WebMercator());
+        }
+        if (code == 3035) {
+            return new CoordinateReferenceSystem(code, "ETRS89-extended / LAEA Europe", Datum.ETRS89,
+                new LambertAzimuthalEqualArea(Ellipsoid.GRS80, 52, 10, 4321000, 3210000));
+        }
+        if (code >= 25828 && code <= 25838) {
+            return utm(code, "ETRS89", Datum.ETRS89, code - 25800);
+        }
+        if (code >= 32601 && code <= 32660) {
+            return utm(code, "WGS 84", Datum.WGS84, code - 32600);
+        }
+        if (code >= 31466 && code <= 31469) {
+            int zone = code - 31464;
+            return new CoordinateReferenceSystem(code, "DHDN / 3-degree Gauss-Kruger zone " + zone, Datum.DHDN,
+                new TransverseMercator(Datum.DHDN.ellipsoid(), 3 * zone, 1, zone * 1_000_000 + 500_000, 0));
+        }
+        return null;
+    }
+
+    private static CoordinateReferenceSystem utm(int code, String datumName, Datum datum, int zone) {
+        return new CoordinateReferenceSystem(code, datumName + " / UTM zone " + zone + "N", datum,
+            new TransverseMercator(datum.ellipsoid(), 6 * zone - 183, 0.9996, 500_000, 0));
+    }
+
+    /**
+     * Identifier in the form used on GeoCoordinate, e.g. EPSG:25832.
+     */
+    public String getCode() {
+        return "EPSG:" + code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether coordinates are longitude and latitude in degrees rather than
+     * easting and northing in meters.
+     */
+    public boolean isGeographic() {
+        return projection == null;
+    }
+
+    Datum datum() {
+        return datum;
+    }
+
+    Projection projection() {
+        return projection;
+    }
+
+    @Override
+    public String toString() {
+        return getCode() + " (" + name + ")";
+    }
+}
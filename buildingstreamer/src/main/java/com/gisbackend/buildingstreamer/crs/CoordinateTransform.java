@@ -0,0 +1,77 @@
+package com.gisbackend.buildingstreamer.crs;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conversion between two reference systems, applied in place to arrays of
+ * coordinates so a whole batch goes through each step in one loop: unproject
+ * the source, shift the datum through WGS84 where needed, project to the
+ * target. Transforms are immutable and cached per pair of systems.
+ */
+public final class CoordinateTransform {
+
+    private static final Map<String, CoordinateTransform> CACHE = new ConcurrentHashMap<>();
+
+    private final CoordinateReferenceSystem source;
+    private final CoordinateReferenceSystem target;
+    private final boolean shiftSource;
+    private final boolean shiftTarget;
+
+    private CoordinateTransform(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+        this.source = source;
+        this.target = target;
+        boolean sameDatum = source.datum() == target.datum();
+        this.shiftSource = !sameDatum && source.datum().isShifted();
+        this.shiftTarget = !sameDatum && target.datum().isShifted();
+    }
+
+    public static CoordinateTransform between(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+        return CACHE.computeIfAbsent(source.getCode() + ">" + target.getCode(),
+            key -> new CoordinateTransform(source, target));
+    }
+
+    public CoordinateReferenceSystem getSource() {
+        return source;
+    }
+
+    public CoordinateReferenceSystem getTarget() {
+        return target;
+    }
+
+    public boolean isIdentity() {
+        return source == target;
+    }
+
+    /**
+     * Transforms the first count points in place: longitudes or eastings in xs,
+     * latitudes or northings in ys. NaN stays NaN.
+     */
+    public void transform(double[] xs, double[] ys, int count) {
+        if (isIdentity()) {
+            return;
+        }
+        if (source.projection() != null) {
+            source.projection().unproject(xs, ys, count);
+        }
+        if (shiftSource) {
+            source.datum().toWgs84(xs, ys, count);
+        }
+        if (shiftTarget) {
+            target.datum().fromWgs84(xs, ys, count);
+        }
+        if (target.projection() != null) {
+            target.projection().project(xs, ys, count);
+        }
+    }
+
+    /**
+     * Transforms a single point, returned as { x, y }.
+     */
+    public double[] transform(double x, double y) {
+        double[] xs = { x };
+        double[] ys = { y };
+        transform(xs, ys, 1);
+        return new double[] { xs[0], ys[0] };
+    }
+}
@@ -0,0 +1,113 @@
+package com.gisbackend.buildingstreamer.crs;
+
+/**
+ * Geodetic datum: an ellipsoid and the seven-parameter Helmert shift of its
+ * earth-centered frame to WGS84 (position vector convention, translations in
+ * meters, rotations in arc seconds, scale in ppm). ETRS89 differs from WGS84 by
+ * less than a meter and is treated as identical, as in most GIS tools.
+ */
+final class Datum {
+
+    static final Datum WGS84 = new Datum(Ellipsoid.WGS84, null);
+    static final Datum ETRS89 = new Datum(Ellipsoid.GRS80, null);
+    // The shift PROJ and most GIS tools apply to Gauss-Krüger coordinates by default
+    static final Datum DHDN = new Datum(Ellipsoid.BESSEL_1841,
+        new double[] { 598.1, 73.7, 418.2, 0.202, 0.045, -2.455, 6.7 });
+
+    private static final double ARC_SECOND = Math.PI / (180 * 3600);
+
+    private final Ellipsoid ellipsoid;
+    private final boolean shifted;
+    private final double tx;
+    private final double ty;
+    private final double tz;
+    private final double rx;
+    private final double ry;
+    private final double rz;
+    private final double scale;
+
+    private Datum(Ellipsoid ellipsoid, double[] toWgs84) {
+        this.ellipsoid = ellipsoid;
+        this.shifted = toWgs84 != null;
+        double[] p = shifted ? toWgs84 : new double[7];
+        this.tx = p[0];
+        this.ty = p[1];
+        this.tz = p[2];
+        this.rx = p[3] * ARC_SECOND;
+        this.ry = p[4] * ARC_SECOND;
+        this.rz = p[5] * ARC_SECOND;
+        this.scale = 1 + p[6] * 1e-6;
+    }
+
+    Ellipsoid ellipsoid() {
+        return ellipsoid;
+    }
+
+    /**
+     * Whether coordinates on this datum need a shift to be used as WGS84.
+     */
+    boolean isShifted() {
+        return shifted;
+    }
+
+    /**
+     * Geographic coordinates on this datum to WGS84, in place.
+     */
+    void toWgs84(double[] lons, double[] lats, int count) {
+        shift(lons, lats, count, ellipsoid, Ellipsoid.WGS84, false);
+    }
+
+    /**
+     * Geographic WGS84 coordinates to this datum, in place.
+     */
+    void fromWgs84(double[] lons, double[] lats, int count) {
+        shift(lons, lats, count, Ellipsoid.WGS84, ellipsoid, true);
+    }
+
+    private void shift(double[] lons, double[] lats, int count, Ellipsoid from, Ellipsoid to, boolean inverse) {
+        double a = from.semiMajorAxis();
+        double e2 = from.eccentricitySquared();
+        double toA = to.semiMajorAxis();
+        double toE2 = to.eccentricitySquared();
+        double toB = toA * (1 - to.flattening());
+        double toEp2 = toE2 / (1 - toE2);
+        for (int i = 0; i < count; i++) {
+            // Geodetic to earth-centered, at height zero
+            double lambda = Math.toRadians(lons[i]);
+            double phi = Math.toRadians(lats[i]);
+            double sinPhi = Math.sin(phi);
+            double cosPhi = Math.cos(phi);
+            double radius = a / Math.sqrt(1 - e2 * sinPhi * sinPhi);
+            double x = radius * cosPhi * Math.cos(lambda);
+            double y = radius * cosPhi * Math.sin(lambda);
+            double z = radius * (1 - e2) * sinPhi;
+
+            double x2;
+            double y2;
+            double z2;
+            if (inverse) {
+                // Undo translation and scale, then rotate back; the rotation
+                // angles are small enough for the transpose to be the inverse
+                x = (x - tx) / scale;
+                y = (y - ty) / scale;
+                z = (z - tz) / scale;
+                x2 = x + rz * y - ry * z;
+                y2 = -rz * x + y + rx * z;
+                z2 = ry * x - rx * y + z;
+            } else {
+                x2 = tx + scale * (x - rz * y + ry * z);
+                y2 = ty + scale * (rz * x + y - rx * z);
+                z2 = tz + scale * (-ry * x + rx * y + z);
+            }
+
+            // Back to geodetic with Bowring's formula, sub-millimeter near the surface
+            double p = Math.hypot(x2, y2);
+            double theta = Math.atan2(z2 * toA, p * toB);
+            double sinTheta = Math.sin(theta);
+            double cosTheta = Math.cos(theta);
+            lats[i] = Math.toDegrees(Math.atan2(z2 + toEp2 * toB * sinTheta * sinTheta * sinTheta,
+                p - toE2 * toA * cosTheta * cosTheta * cosTheta));
+            lons[i] = Math.toDegrees(Math.atan2(y2, x2));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.gisbackend.buildingstreamer.crs;
+
+/**
+ * Reference ellipsoid given by its semi-major axis in meters and flattening.
+ */
+record Ellipsoid(double semiMajorAxis, double flattening) {
+
+    static final Ellipsoid WGS84 = new Ellipsoid(6378137.0, 1 / 298.257223563);
+    static final Ellipsoid GRS80 = new Ellipsoid(6378137.0, 1 / 298.257222101);
+    static final Ellipsoid BESSEL_1841 = new Ellipsoid(6377397.155, 1 / 299.1528128);
+
+    /**
+     * Square of the first eccentricity.
+     */
+    double eccentricitySquared() {
+        return flattening * (2 - flattening);
+    }
+
+    /**
+     * Third flattening n = (a - b) / (a + b).
+     */
+    double thirdFlattening() {
+        return flattening / (2 - flattening);
+    }
+}
@@ -0,0 +1,94 @@
+package com.gisbackend.buildingstreamer.crs;
+
+/**
+ * Oblique Lambert azimuthal equal-area projection on the ellipsoid (Snyder,
+ * Map Projections - A Working Manual, p. 187), the projection of the
+ * pan-European grid EPSG:3035.
+ */
+final class LambertAzimuthalEqualArea implements Projection {
+
+    private final double eccentricity;
+    private final double eccentricitySquared;
+    private final double originLatitude;
+    private final double centralMeridian;
+    private final double falseEasting;
+    private final double falseNorthing;
+    private final double polarQ;
+    private final double authalicRadius;
+    private final double sinBeta1;
+    private final double cosBeta1;
+    private final double d;
+    // Series from authalic to geodetic latitude
+    private final double[] inverse;
+
+    LambertAzimuthalEqualArea(Ellipsoid ellipsoid, double originLatitude, double centralMeridian,
+            double falseEasting, double falseNorthing) {
+        double e2 = ellipsoid.eccentricitySquared();
+        double a = ellipsoid.semiMajorAxis();
+        this.eccentricitySquared = e2;
+        this.eccentricity = Math.sqrt(e2);
+        this.originLatitude = originLatitude;
+        this.centralMeridian = Math.toRadians(centralMeridian);
+        this.falseEasting = falseEasting;
+        this.falseNorthing = falseNorthing;
+        this.polarQ = q(1);
+        this.authalicRadius = a * Math.sqrt(polarQ / 2);
+        double phi1 = Math.toRadians(originLatitude);
+        double sinPhi1 = Math.sin(phi1);
+        double beta1 = Math.asin(q(sinPhi1) / polarQ);
+        this.sinBeta1 = Math.sin(beta1);
+        this.cosBeta1 = Math.cos(beta1);
+        this.d = a * Math.cos(phi1) / (Math.sqrt(1 - e2 * sinPhi1 * sinPhi1) * authalicRadius * cosBeta1);
+        double e4 = e2 * e2;
+        double e6 = e4 * e2;
+        this.inverse = new double[] {
+            e2 / 3 + 31 * e4 / 180 + 517 * e6 / 5040,
+            23 * e4 / 360 + 251 * e6 / 3780,
+            761 * e6 / 45360 };
+    }
+
+    @Override
+    public void project(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            double lambda = Math.toRadians(xs[i]) - centralMeridian;
+            double beta = Math.asin(q(Math.sin(Math.toRadians(ys[i]))) / polarQ);
+            double sinBeta = Math.sin(beta);
+            double cosBeta = Math.cos(beta);
+            double cosLambda = Math.cos(lambda);
+            double b = authalicRadius * Math.sqrt(2 / (1 + sinBeta1 * sinBeta + cosBeta1 * cosBeta * cosLambda));
+            xs[i] = falseEasting + b * d * cosBeta * Math.sin(lambda);
+            ys[i] = falseNorthing + b / d * (cosBeta1 * sinBeta - sinBeta1 * cosBeta * cosLambda);
+        }
+    }
+
+    @Override
+    public void unproject(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            double x = xs[i] - falseEasting;
+            double y = ys[i] - falseNorthing;
+            double rho = Math.hypot(x / d, d * y);
+            if (rho == 0) {
+                xs[i] = Math.toDegrees(centralMeridian);
+                ys[i] = originLatitude;
+                continue;
+            }
+            double c = 2 * Math.asin(rho / (2 * authalicRadius));
+            double sinC = Math.sin(c);
+            double cosC = Math.cos(c);
+            double beta = Math.asin(cosC * sinBeta1 + d * y * sinC * cosBeta1 / rho);
+            double lambda = Math.atan2(x * sinC, d * rho * cosBeta1 * cosC - d * d * y * sinBeta1 * sinC);
+            xs[i] = Math.toDegrees(centralMeridian + lambda);
+            ys[i] = Math.toDegrees(beta + series(beta));
+        }
+    }
+
+    private double series(double beta) {
+        return inverse[0] * Math.sin(2 * beta) + inverse[1] * Math.sin(4 * beta) + inverse[2] * Math.sin(6 * beta);
+    }
+
+    private double q(double sinPhi) {
+        double esinPhi = eccentricity * sinPhi;
+        return (1 - eccentricitySquared) * (sinPhi / (1 - esinPhi * esinPhi)
+            - Math.log((1 - esinPhi) / (1 + esinPhi)) / (2 * eccentricity));
+    }
+}
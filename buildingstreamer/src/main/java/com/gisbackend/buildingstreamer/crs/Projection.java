@@ -0,0 +1,14 @@
+package com.gisbackend.buildingstreamer.crs;
+
+/**
+ * Map projection between geographic coordinates on its ellipsoid and projected
+ * coordinates in meters. Both directions work in place on whole arrays:
+ * longitudes and eastings in xs, latitudes and northings in ys, angles in
+ * degrees.
+ */
+interface Projection {
+
+    void project(double[] xs, double[] ys, int count);
+
+    void unproject(double[] xs, double[] ys, int count);
+}
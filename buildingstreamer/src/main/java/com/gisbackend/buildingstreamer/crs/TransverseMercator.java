@@ -0,0 +1,131 @@
+package com.gisbackend.buildingstreamer.crs;
+
+/**
+ * Transverse Mercator in the Krüger series form (fourth order in n), the
+ * projection behind UTM and Gauss-Krüger. Accurate to well below a millimeter
+ * within a few degrees of the central meridian.
+ */
+final class TransverseMercator implements Projection {
+
+    private final double centralMeridian;
+    private final double scaledRadius;
+    private final double falseEasting;
+    private final double falseNorthing;
+    // 2 sqrt(n) / (1 + n), the first eccentricity
+    private final double eccentricity;
+    private final double[] alpha;
+    private final double[] beta;
+    private final double[] delta;
+
+    TransverseMercator(Ellipsoid ellipsoid, double centralMeridian, double scale, double falseEasting,
+            double falseNorthing) {
+        double n = ellipsoid.thirdFlattening();
+        double n2 = n * n;
+        double n3 = n2 * n;
+        this.centralMeridian = Math.toRadians(centralMeridian);
+        this.scaledRadius = scale * ellipsoid.semiMajorAxis() / (1 + n) * (1 + n2 / 4 + n2 * n2 / 64);
+        this.falseEasting = falseEasting;
+        this.falseNorthing = falseNorthing;
+        this.eccentricity = 2 * Math.sqrt(n) / (1 + n);
+        double n4 = n3 * n;
+        this.alpha = new double[] {
+            n / 2 - 2 * n2 / 3 + 5 * n3 / 16 + 41 * n4 / 180,
+            13 * n2 / 48 - 3 * n3 / 5 + 557 * n4 / 1440,
+            61 * n3 / 240 - 103 * n4 / 140,
+            49561 * n4 / 161280 };
+        this.beta = new double[] {
+            n / 2 - 2 * n2 / 3 + 37 * n3 / 96 - n4 / 360,
+            n2 / 48 + n3 / 15 - 437 * n4 / 1440,
+            17 * n3 / 480 - 37 * n4 / 840,
+            4397 * n4 / 161280 };
+        this.delta = new double[] {
+            2 * n - 2 * n2 / 3 - 2 * n3 + 116 * n4 / 45,
+            7 * n2 / 3 - 8 * n3 / 5 - 227 * n4 / 45,
+            56 * n3 / 15 - 136 * n4 / 35,
+            4279 * n4 / 630 };
+    }
+
+    @Override
+    public void project(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            double lambda = Math.toRadians(xs[i]) - centralMeridian;
+            double sinPhi = Math.sin(Math.toRadians(ys[i]));
+            double t = Math.sinh(atanh(sinPhi) - eccentricity * atanh(eccentricity * sinPhi));
+            double xiPrime = Math.atan2(t, Math.cos(lambda));
+            double etaPrime = atanh(Math.sin(lambda) / Math.sqrt(1 + t * t));
+            // Harmonics 2j of xi' and eta' by angle addition from the first one
+            double sin2 = Math.sin(2 * xiPrime);
+            double cos2 = Math.cos(2 * xiPrime);
+            double exp2 = Math.exp(2 * etaPrime);
+            double sinh2 = (exp2 - 1 / exp2) / 2;
+            double cosh2 = (exp2 + 1 / exp2) / 2;
+            double sin = sin2;
+            double cos = cos2;
+            double sinh = sinh2;
+            double cosh = cosh2;
+            double xi = xiPrime;
+            double eta = etaPrime;
+            for (int j = 0; j < 4; j++) {
+                xi += alpha[j] * sin * cosh;
+                eta += alpha[j] * cos * sinh;
+                double nextSin = sin * cos2 + cos * sin2;
+                cos = cos * cos2 - sin * sin2;
+                sin = nextSin;
+                double nextSinh = sinh * cosh2 + cosh * sinh2;
+                cosh = cosh * cosh2 + sinh * sinh2;
+                sinh = nextSinh;
+            }
+            xs[i] = falseEasting + scaledRadius * eta;
+            ys[i] = falseNorthing + scaledRadius * xi;
+        }
+    }
+
+    @Override
+    public void unproject(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            double xi = (ys[i] - falseNorthing) / scaledRadius;
+            double eta = (xs[i] - falseEasting) / scaledRadius;
+            double sin2 = Math.sin(2 * xi);
+            double cos2 = Math.cos(2 * xi);
+            double exp2 = Math.exp(2 * eta);
+            double sinh2 = (exp2 - 1 / exp2) / 2;
+            double cosh2 = (exp2 + 1 / exp2) / 2;
+            double sin = sin2;
+            double cos = cos2;
+            double sinh = sinh2;
+            double cosh = cosh2;
+            double xiPrime = xi;
+            double etaPrime = eta;
+            for (int j = 0; j < 4; j++) {
+                xiPrime -= beta[j] * sin * cosh;
+                etaPrime -= beta[j] * cos * sinh;
+                double nextSin = sin * cos2 + cos * sin2;
+                cos = cos * cos2 - sin * sin2;
+                sin = nextSin;
+                double nextSinh = sinh * cosh2 + cosh * sinh2;
+                cosh = cosh * cosh2 + sinh * sinh2;
+                sinh = nextSinh;
+            }
+            double sinhEtaPrime = Math.sinh(etaPrime);
+            double coshEtaPrime = Math.sqrt(1 + sinhEtaPrime * sinhEtaPrime);
+            double chi = Math.asin(Math.sin(xiPrime) / coshEtaPrime);
+            double sinChi2 = Math.sin(2 * chi);
+            double cosChi2 = Math.cos(2 * chi);
+            sin = sinChi2;
+            cos = cosChi2;
+            double phi = chi;
+            for (int j = 0; j < 4; j++) {
+                phi += delta[j] * sin;
+                double nextSin = sin * cosChi2 + cos * sinChi2;
+                cos = cos * cosChi2 - sin * sinChi2;
+                sin = nextSin;
+            }
+            xs[i] = Math.toDegrees(centralMeridian + Math.atan2(sinhEtaPrime, Math.cos(xiPrime)));
+            ys[i] = Math.toDegrees(phi);
+        }
+    }
+
+    private static double atanh(double x) {
+        return 0.5 * Math.log((1 + x) / (1 - x));
+    }
+}
@@ -0,0 +1,28 @@
+package com.gisbackend.buildingstreamer.crs;
+
+/**
+ * Spherical Mercator on the WGS84 semi-major axis as used by web maps
+ * (EPSG:3857). Latitudes are clamped to the square extent of the tile pyramid.
+ */
+final class WebMercator implements Projection {
+
+    private static final double RADIUS = Ellipsoid.WGS84.semiMajorAxis();
+    private static final double MAX_LATITUDE = 85.0511287798066;
+
+    @Override
+    public void project(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            double latitude = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, ys[i]));
+            xs[i] = RADIUS * Math.toRadians(xs[i]);
+            ys[i] = RADIUS * Math.log(Math.tan(Math.PI / 4 + Math.toRadians(latitude) / 2));
+        }
+    }
+
+    @Override
+    public void unproject(double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            xs[i] = Math.toDegrees(xs[i] / RADIUS);
+            ys[i] = Math.toDegrees(2 * Math.atan(Math.exp(ys[i] / RADIUS)) - Math.PI / 2);
+        }
+    }
+}
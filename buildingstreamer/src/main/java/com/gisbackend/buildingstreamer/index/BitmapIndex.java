@@ -0,0 +1,384 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.BuildingFilter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One compressed bitmap of row ids per value of the low-cardinality building
+ * fields and additional attributes. Filters are evaluated as bitmap AND / OR /
+ * ANDNOT. A field that exceeds {@link #MAX_VALUES} distinct values is no longer
+ * low-cardinality; its bitmaps are dropped and filters on it scan the rows.
+ * Values are matched case-insensitively.
+ * <p>
+ * Readers never lock. Every bitmap is replaced by a changed copy on update and
+ * never modified once published, so a query reads each bitmap in one state.
+ * A query running during an update may see the building with its old value in
+ * one field and its new value in another. Writers are serialized.
+ */
+@Slf4j
+@Component
+public class BitmapIndex implements BuildingIndex {
+
+    public static final String ATTRIBUTE_PREFIX = "attributes.";
+
+    private static final int MAX_VALUES = 4096;
+
+    private static final Map<String, Function<Building, String>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("primaryTypeOfBuilding", Building::getPrimaryTypeOfBuilding);
+        FIELDS.put("primaryHeatingType", Building::getPrimaryHeatingType);
+        FIELDS.put("energyEfficiencyClass", Building::getEnergyEfficiencyClass);
+        FIELDS.put("constructionYear", Building::getConstructionYear);
+        FIELDS.put("parkingSpaces", Building::getParkingSpaces);
+        FIELDS.put("city", building -> building.getAddress() != null ? building.getAddress().getCity() : null);
+        FIELDS.put("postalCode", building -> building.getAddress() != null ? building.getAddress().getPostalCode() : null);
+        FIELDS.put("country", building -> building.getAddress() != null ? building.getAddress().getCountry() : null);
+    }
+
+    // Numbers in numeric order before all other values, so ranges over years work
+    static final Comparator<String> VALUE_ORDER = (a, b) -> compare(a, parseNumber(a), b, parseNumber(b));
+
+    private final Map<String, FieldIndex> fields = new ConcurrentHashMap<>();
+    private volatile RoaringBitmap all = new RoaringBitmap();
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        Map<String, String> oldValues = values(previous);
+        Map<String, String> newValues = values(current);
+        if (previous != null && oldValues.equals(newValues)) {
+            return;
+        }
+        synchronized (this) {
+            if (previous == null) {
+                all = all.with(rowId);
+            }
+            oldValues.forEach((field, value) -> {
+                if (!value.equals(newValues.get(field))) {
+                    fields.get(field).remove(value, rowId);
+                }
+            });
+            newValues.forEach((field, value) -> {
+                if (!value.equals(oldValues.get(field))) {
+                    fields.computeIfAbsent(field, FieldIndex::new).add(value, valueOf(current, field).trim(), rowId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rows matching the filter. {@code rows} resolves row ids for fields that
+     * fell back to scanning.
+     *
+     * @throws IllegalArgumentException for unknown fields or malformed filters
+     */
+    public RoaringBitmap evaluate(BuildingFilter filter, IntFunction<Building> rows) {
+        RoaringBitmap scope = all;
+        return filter == null ? scope.copy() : evaluateFilter(filter, rows, scope);
+    }
+
+    /**
+     * Rows in scope grouped by their value of the field, in value order. Keys
+     * are the first spelling seen of each value; rows without a value are left
+     * out.
+     *
+     * @throws IllegalArgumentException for unknown fields
+     */
+    public Map<String, RoaringBitmap> groups(String field, RoaringBitmap scope, IntFunction<Building> rows) {
+        if (!isQueryable(field)) {
+            throw new IllegalArgumentException("Unknown group field: " + field);
+        }
+        Map<String, RoaringBitmap> groups = new LinkedHashMap<>();
+        FieldIndex index = fields.get(field);
+        if (index == null) {
+            return groups;
+        }
+        if (index.overflow) {
+            NavigableMap<String, RoaringBitmap> scanned = new TreeMap<>(VALUE_ORDER);
+            Map<String, String> display = new HashMap<>();
+            scope.forEach(row -> {
+                String raw = valueOf(rows.apply(row), field);
+                String value = normalize(raw);
+                if (value != null) {
+                    display.putIfAbsent(value, raw.trim());
+                    scanned.computeIfAbsent(value, key -> new RoaringBitmap()).add(row);
+                }
+            });
+            scanned.forEach((value, bitmap) -> groups.put(display.get(value), bitmap));
+            return groups;
+        }
+        index.values.forEach((value, posting) -> {
+            RoaringBitmap inScope = posting.rows().and(scope);
+            if (!inScope.isEmpty()) {
+                groups.put(posting.display(), inScope);
+            }
+        });
+        return groups;
+    }
+
+    public static boolean isQueryable(String field) {
+        return FIELDS.containsKey(field)
+            || (field != null && field.startsWith(ATTRIBUTE_PREFIX) && field.length() > ATTRIBUTE_PREFIX.length());
+    }
+
+    public static String valueOf(Building building, String field) {
+        if (building == null) {
+            return null;
+        }
+        Function<Building, String> extractor = FIELDS.get(field);
+        if (extractor != null) {
+            return extractor.apply(building);
+        }
+        return building.getAdditionalAttributes() != null
+            ? building.getAdditionalAttributes().get(field.substring(ATTRIBUTE_PREFIX.length()))
+            : null;
+    }
+
+    /**
+     * Scans only visit rows in {@code scope}; results may contain rows outside
+     * of it, callers intersect with the scope.
+     */
+    private RoaringBitmap evaluateFilter(BuildingFilter filter, IntFunction<Building> rows, RoaringBitmap scope) {
+        if (filter.getAnd() != null) {
+            List<RoaringBitmap> operands = new ArrayList<>();
+            List<BuildingFilter> scanned = new ArrayList<>();
+            for (BuildingFilter child : filter.getAnd()) {
+                if (isScanned(child)) {
+                    scanned.add(child);
+                } else {
+                    operands.add(evaluateFilter(child, rows, scope));
+                }
+            }
+            // Smallest first keeps the intermediate results small
+            operands.sort(Comparator.comparingInt(RoaringBitmap::cardinality));
+            RoaringBitmap result = operands.isEmpty() ? scope.copy() : operands.get(0);
+            for (int i = 1; i < operands.size() && !result.isEmpty(); i++) {
+                result = result.and(operands.get(i));
+            }
+            // Scanned conditions only look at the rows the indexed ones left
+            for (int i = 0; i < scanned.size() && !result.isEmpty(); i++) {
+                result = result.and(evaluateFilter(scanned.get(i), rows, result));
+            }
+            return result;
+        }
+        if (filter.getOr() != null) {
+            List<RoaringBitmap> operands = new ArrayList<>();
+            for (BuildingFilter child : filter.getOr()) {
+                operands.add(evaluateFilter(child, rows, scope));
+            }
+            return RoaringBitmap.or(operands);
+        }
+        if (filter.getNot() != null) {
+            return scope.andNot(evaluateFilter(filter.getNot(), rows, scope));
+        }
+        return evaluateField(filter, rows, scope);
+    }
+
+    private boolean isScanned(BuildingFilter filter) {
+        FieldIndex index = filter.getField() != null ? fields.get(filter.getField()) : null;
+        return index != null && index.overflow;
+    }
+
+    private RoaringBitmap evaluateField(BuildingFilter filter, IntFunction<Building> rows, RoaringBitmap scope) {
+        String field = filter.getField();
+        if (!isQueryable(field)) {
+            throw new IllegalArgumentException("Unknown filter field: " + field);
+        }
+        boolean hasRange = filter.getFrom() != null || filter.getTo() != null;
+        int criteria = (filter.getEq() != null ? 1 : 0) + (filter.getIn() != null ? 1 : 0) + (hasRange ? 1 : 0);
+        if (criteria != 1) {
+            throw new IllegalArgumentException("Filter on " + field + " needs exactly one of eq, in or from/to");
+        }
+
+        FieldIndex index = fields.get(field);
+        if (index == null) {
+            return new RoaringBitmap();
+        }
+        if (index.overflow) {
+            return scan(scope, field, matcher(filter), rows);
+        }
+        if (hasRange) {
+            return index.range(normalize(filter.getFrom()), normalize(filter.getTo()));
+        }
+        List<String> values = filter.getEq() != null ? List.of(filter.getEq()) : filter.getIn();
+        List<RoaringBitmap> matches = new ArrayList<>();
+        for (String value : values) {
+            String normalized = normalize(value);
+            Posting posting = normalized != null ? index.values.get(normalized) : null;
+            if (posting != null) {
+                matches.add(posting.rows());
+            }
+        }
+        return RoaringBitmap.or(matches);
+    }
+
+    private RoaringBitmap scan(RoaringBitmap scope, String field, Predicate<String> matcher, IntFunction<Building> rows) {
+        RoaringBitmap result = new RoaringBitmap();
+        scope.forEach(row -> {
+            String value = normalize(valueOf(rows.apply(row), field));
+            if (value != null && matcher.test(value)) {
+                result.add(row);
+            }
+        });
+        return result;
+    }
+
+    private static Predicate<String> matcher(BuildingFilter filter) {
+        if (filter.getEq() != null) {
+            String expected = normalize(filter.getEq());
+            return expected::equals;
+        }
+        if (filter.getIn() != null) {
+            Set<String> expected = new HashSet<>();
+            filter.getIn().forEach(value -> expected.add(normalize(value)));
+            return expected::contains;
+        }
+        // Bounds are parsed once, every scanned value once
+        String from = normalize(filter.getFrom());
+        String to = normalize(filter.getTo());
+        Double fromNumber = from != null ? parseNumber(from) : null;
+        Double toNumber = to != null ? parseNumber(to) : null;
+        return value -> {
+            Double number = parseNumber(value);
+            return (from == null || compare(value, number, from, fromNumber) >= 0)
+                && (to == null || compare(value, number, to, toNumber) <= 0);
+        };
+    }
+
+    private static int compare(String a, Double aNumber, String b, Double bNumber) {
+        if (aNumber != null && bNumber != null) {
+            int compared = Double.compare(aNumber, bNumber);
+            return compared != 0 ? compared : a.compareTo(b);
+        }
+        if (aNumber != null || bNumber != null) {
+            return aNumber != null ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    private static Map<String, String> values(Building building) {
+        Map<String, String> values = new HashMap<>();
+        if (building == null) {
+            return values;
+        }
+        FIELDS.forEach((field, extractor) -> {
+            String value = normalize(extractor.apply(building));
+            if (value != null) {
+                values.put(field, value);
+            }
+        });
+        if (building.getAdditionalAttributes() != null) {
+            building.getAdditionalAttributes().forEach((key, value) -> {
+                String normalized = normalize(value);
+                if (key != null && normalized != null) {
+                    values.put(ATTRIBUTE_PREFIX + key, normalized);
+                }
+            });
+        }
+        return values;
+    }
+
+    // Trimmed and lower-cased, null if blank; how indexed values are compared
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static Double parseNumber(String value) {
+        if (value.isEmpty() || !(Character.isDigit(value.charAt(0)) || value.charAt(0) == '-')) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Rows with one value of a field, and the first spelling seen of the value
+    private record Posting(String display, RoaringBitmap rows) {
+    }
+
+    // Changed only by the serialized writers, read concurrently
+    private static final class FieldIndex {
+
+        private final String name;
+        private final ConcurrentNavigableMap<String, Posting> values = new ConcurrentSkipListMap<>(VALUE_ORDER);
+        private volatile boolean overflow;
+        // Size of values, which the skip list only counts by walking it
+        private int valueCount;
+
+        FieldIndex(String name) {
+            this.name = name;
+        }
+
+        void add(String value, String displayValue, int rowId) {
+            if (overflow) {
+                return;
+            }
+            Posting posting = values.get(value);
+            if (posting == null) {
+                if (valueCount >= MAX_VALUES) {
+                    log.info("Field {} exceeds {} distinct values, filters on it will scan", name, MAX_VALUES);
+                    overflow = true;
+                    values.clear();
+                    return;
+                }
+                posting = new Posting(displayValue, new RoaringBitmap());
+                valueCount++;
+            }
+            values.put(value, new Posting(posting.display(), posting.rows().with(rowId)));
+        }
+
+        void remove(String value, int rowId) {
+            Posting posting = values.get(value);
+            if (posting != null) {
+                RoaringBitmap rows = posting.rows().without(rowId);
+                if (rows.isEmpty()) {
+                    values.remove(value);
+                    valueCount--;
+                } else {
+                    values.put(value, new Posting(posting.display(), rows));
+                }
+            }
+        }
+
+        RoaringBitmap range(String from, String to) {
+            NavigableMap<String, Posting> selected = values;
+            if (from != null) {
+                selected = selected.tailMap(from, true);
+            }
+            if (to != null) {
+                selected = selected.headMap(to, true);
+            }
+            List<RoaringBitmap> bitmaps = new ArrayList<>();
+            selected.values().forEach(posting -> bitmaps.add(posting.rows()));
+            return RoaringBitmap.or(bitmaps);
+        }
+    }
+}
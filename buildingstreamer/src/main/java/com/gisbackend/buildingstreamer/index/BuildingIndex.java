@@ -0,0 +1,21 @@
+package com.gisbackend.buildingstreamer.index;
+
+import com.gisbackend.buildingstreamer.model.Building;
+
+/**
+ * Secondary index over the building store. BuildingService calls
+ * {@link #update} for every published change of a building, in order per
+ * building; implementations have to be safe for concurrent updates of
+ * different buildings and concurrent reads.
+ *
+ * @see com.gisbackend.buildingstreamer.service.BuildingService
+ */
+public interface BuildingIndex {
+
+    /**
+     * @param rowId    dense, stable row id of the building
+     * @param previous the replaced snapshot, or null when the building is new
+     * @param current  the newly published snapshot
+     */
+    void update(int rowId, Building previous, Building current);
+}
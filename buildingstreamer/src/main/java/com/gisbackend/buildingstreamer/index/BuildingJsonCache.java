@@ -0,0 +1,46 @@
+package com.gisbackend.buildingstreamer.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gisbackend.buildingstreamer.model.Building;
+
+/**
+ * JSON encoding of the published snapshot of every building, produced with the
+ * application ObjectMapper on first read and dropped whenever the building
+ * changes. Published snapshots are never mutated, so an entry is valid exactly
+ * as long as it belongs to the same snapshot instance.
+ */
+@Component
+public class BuildingJsonCache implements BuildingIndex {
+
+    private record Encoded(Building building, byte[] json) {
+    }
+
+    private final RowTable<Encoded> entries = new RowTable<>();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        entries.set(rowId, null);
+    }
+
+    /**
+     * Encoded snapshot, shared between callers and not to be modified.
+     */
+    public byte[] get(int rowId, Building building) throws JsonProcessingException {
+        Encoded encoded = entries.get(rowId);
+        if (encoded != null && encoded.building() == building) {
+            return encoded.json();
+        }
+        byte[] json = objectMapper.writeValueAsBytes(building);
+        // Only ever replaces an entry of an older or the same snapshot; a
+        // concurrent update is caught by the identity check on the next read
+        entries.set(rowId, new Encoded(building, json));
+        return json;
+    }
+}
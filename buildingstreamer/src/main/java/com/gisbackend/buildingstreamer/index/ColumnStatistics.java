@@ -0,0 +1,11 @@
+package com.gisbackend.buildingstreamer.index;
+
+/**
+ * Per-group reduction of an int column, arrays are indexed by group code.
+ * {@code rows} counts all rows of a group, {@code counts} only those with a
+ * value. The histogram holds {@code bucketCount} buckets per group starting at
+ * {@code bucketStart}; it and {@code sortedValues} are null unless requested.
+ */
+public record ColumnStatistics(long[] rows, long[] counts, long[] sums, int[] mins, int[] maxs,
+        int bucketStart, int bucketWidth, int bucketCount, long[] histogram, int[][] sortedValues) {
+}
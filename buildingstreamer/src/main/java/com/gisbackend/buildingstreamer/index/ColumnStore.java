@@ -0,0 +1,401 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+
+/**
+ * Numeric building fields parsed once at ingest into primitive columns indexed
+ * by row id. Missing or unparsable values are {@link #MISSING}. The columns
+ * additionally keep a sorted index for range queries. Coordinates are indexed
+ * by the {@link SpatialIndex}.
+ * <p>
+ * Readers never lock. Each column publishes its arrays as one snapshot, which
+ * a reader takes once per query; a value written during a query may or may not
+ * be seen by it. Writers are serialized.
+ */
+@Component
+public class ColumnStore implements BuildingIndex {
+
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private static final int MAX_BUCKETS = 10_000;
+    // Rows per fork-join leaf, large enough to amortize the per-task arrays
+    private static final int LEAF_ROWS = 1 << 16;
+
+    public enum IntField {
+        CONSTRUCTION_YEAR("constructionYear"), PARKING_SPACES("parkingSpaces");
+
+        private final String fieldName;
+
+        IntField(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public static IntField of(String fieldName) {
+            for (IntField field : values()) {
+                if (field.fieldName.equals(fieldName)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final IntColumn constructionYear = new IntColumn();
+    private final IntColumn parkingSpaces = new IntColumn();
+    private volatile int rowCount;
+
+    @Override
+    public synchronized void update(int rowId, Building previous, Building current) {
+        int year = parseInt(current.getConstructionYear());
+        int parking = parseInt(current.getParkingSpaces());
+        constructionYear.set(rowId, year);
+        parkingSpaces.set(rowId, parking);
+        rowCount = Math.max(rowCount, rowId + 1);
+    }
+
+    /**
+     * Rows whose value lies in [min, max], from the sorted index.
+     */
+    public RoaringBitmap range(IntField field, int min, int max) {
+        return column(field).snapshot.range(min, max);
+    }
+
+    /**
+     * Per-group reductions of an int column. {@code groupCodes[row]} is the
+     * group of a row, or -1 for rows to leave out. Count, sum, min, max and the
+     * histogram are reduced in parallel over row ranges.
+     *
+     * @throws IllegalArgumentException if the histogram would exceed 10,000 buckets
+     */
+    public ColumnStatistics aggregate(IntField field, int[] groupCodes, int groupCount, int bucketWidth,
+            boolean histogram, boolean sortedValues) {
+        int[] values = column(field).snapshot.values;
+        int rows = Math.min(Math.min(rowCount, values.length), groupCodes.length);
+        Summary summary = new SummaryTask(values, groupCodes, groupCount, 0, rows).invoke();
+
+        int globalMin = Integer.MAX_VALUE;
+        int globalMax = Integer.MIN_VALUE;
+        for (int group = 0; group < groupCount; group++) {
+            if (summary.counts[group] > 0) {
+                globalMin = Math.min(globalMin, summary.mins[group]);
+                globalMax = Math.max(globalMax, summary.maxs[group]);
+            }
+        }
+        int bucketStart = 0;
+        int bucketCount = 0;
+        long[] buckets = null;
+        if (histogram && globalMin <= globalMax) {
+            bucketStart = Math.floorDiv(globalMin, bucketWidth) * bucketWidth;
+            long span = ((long) globalMax - bucketStart) / bucketWidth + 1;
+            if (span * groupCount > MAX_BUCKETS * 16L || span > MAX_BUCKETS) {
+                throw new IllegalArgumentException("Histogram of " + field.getFieldName() + " needs " + span
+                        + " buckets, use a larger bucket width");
+            }
+            bucketCount = (int) span;
+            buckets = new HistogramTask(values, groupCodes, groupCount, bucketStart, bucketWidth, bucketCount,
+                    0, rows).invoke();
+        }
+        int[][] sorted = sortedValues ? sortedValues(values, groupCodes, groupCount, summary.counts, rows) : null;
+        return new ColumnStatistics(summary.rows, summary.counts, summary.sums, summary.mins, summary.maxs,
+                bucketStart, bucketWidth, bucketCount, buckets, sorted);
+    }
+
+    private static int[][] sortedValues(int[] values, int[] groupCodes, int groupCount, long[] counts, int rows) {
+        int[][] sorted = new int[groupCount][];
+        int[] sizes = new int[groupCount];
+        for (int group = 0; group < groupCount; group++) {
+            sorted[group] = new int[(int) counts[group]];
+        }
+        for (int row = 0; row < rows; row++) {
+            int group = groupCodes[row];
+            int value = values[row];
+            // Values written since the counts were taken don't fit and are left out
+            if (group >= 0 && value != MISSING && sizes[group] < sorted[group].length) {
+                sorted[group][sizes[group]++] = value;
+            }
+        }
+        for (int group = 0; group < groupCount; group++) {
+            if (sizes[group] < sorted[group].length) {
+                sorted[group] = Arrays.copyOf(sorted[group], sizes[group]);
+            }
+            Arrays.parallelSort(sorted[group]);
+        }
+        return sorted;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private IntColumn column(IntField field) {
+        return field == IntField.CONSTRUCTION_YEAR ? constructionYear : parkingSpaces;
+    }
+
+    // GeoCoordinate first, the deprecated address fields as fallback; NaN if missing
+    static double[] coordinates(Address address) {
+        if (address == null) {
+            return new double[] { Double.NaN, Double.NaN };
+        }
+        GeoCoordinate geoCoordinate = address.getGeoCoordinate();
+        double lat = geoCoordinate != null ? parseDouble(geoCoordinate.getLatitude()) : Double.NaN;
+        double lon = geoCoordinate != null ? parseDouble(geoCoordinate.getLongitude()) : Double.NaN;
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
+            lat = parseDouble(address.getDeprecatedLatitude());
+            lon = parseDouble(address.getDeprecatedLongitude());
+        }
+        return new double[] { lat, lon };
+    }
+
+    static int parseInt(String value) {
+        double parsed = parseDouble(value);
+        return Double.isNaN(parsed) || parsed != Math.rint(parsed) || Math.abs(parsed) >= Integer.MAX_VALUE
+            ? MISSING
+            : (int) parsed;
+    }
+
+    static double parseDouble(String value) {
+        if (value == null || value.isBlank()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static final class Summary {
+
+        private final long[] rows;
+        private final long[] counts;
+        private final long[] sums;
+        private final int[] mins;
+        private final int[] maxs;
+
+        Summary(int groupCount) {
+            rows = new long[groupCount];
+            counts = new long[groupCount];
+            sums = new long[groupCount];
+            mins = new int[groupCount];
+            maxs = new int[groupCount];
+            Arrays.fill(mins, Integer.MAX_VALUE);
+            Arrays.fill(maxs, Integer.MIN_VALUE);
+        }
+
+        Summary merge(Summary other) {
+            for (int group = 0; group < rows.length; group++) {
+                rows[group] += other.rows[group];
+                counts[group] += other.counts[group];
+                sums[group] += other.sums[group];
+                mins[group] = Math.min(mins[group], other.mins[group]);
+                maxs[group] = Math.max(maxs[group], other.maxs[group]);
+            }
+            return this;
+        }
+    }
+
+    private static final class SummaryTask extends RecursiveTask<Summary> {
+
+        private final int[] values;
+        private final int[] groupCodes;
+        private final int groupCount;
+        private final int from;
+        private final int to;
+
+        SummaryTask(int[] values, int[] groupCodes, int groupCount, int from, int to) {
+            this.values = values;
+            this.groupCodes = groupCodes;
+            this.groupCount = groupCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                SummaryTask left = new SummaryTask(values, groupCodes, groupCount, from, middle);
+                left.fork();
+                Summary right = new SummaryTask(values, groupCodes, groupCount, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Summary summary = new Summary(groupCount);
+            for (int row = from; row < to; row++) {
+                int group = groupCodes[row];
+                if (group < 0) {
+                    continue;
+                }
+                summary.rows[group]++;
+                int value = values[row];
+                if (value != MISSING) {
+                    summary.counts[group]++;
+                    summary.sums[group] += value;
+                    summary.mins[group] = Math.min(summary.mins[group], value);
+                    summary.maxs[group] = Math.max(summary.maxs[group], value);
+                }
+            }
+            return summary;
+        }
+    }
+
+    // Bucket counts flattened as group * bucketCount + bucket
+    private static final class HistogramTask extends RecursiveTask<long[]> {
+
+        private final int[] values;
+        private final int[] groupCodes;
+        private final int groupCount;
+        private final int bucketStart;
+        private final int bucketWidth;
+        private final int bucketCount;
+        private final int from;
+        private final int to;
+
+        HistogramTask(int[] values, int[] groupCodes, int groupCount, int bucketStart, int bucketWidth,
+                int bucketCount, int from, int to) {
+            this.values = values;
+            this.groupCodes = groupCodes;
+            this.groupCount = groupCount;
+            this.bucketStart = bucketStart;
+            this.bucketWidth = bucketWidth;
+            this.bucketCount = bucketCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > LEAF_ROWS) {
+                int middle = (from + to) >>> 1;
+                HistogramTask left = new HistogramTask(values, groupCodes, groupCount, bucketStart, bucketWidth,
+                        bucketCount, from, middle);
+                left.fork();
+                long[] right = new HistogramTask(values, groupCodes, groupCount, bucketStart, bucketWidth,
+                        bucketCount, middle, to).compute();
+                long[] merged = left.join();
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i] += right[i];
+                }
+                return merged;
+            }
+            long[] buckets = new long[groupCount * bucketCount];
+            for (int row = from; row < to; row++) {
+                int group = groupCodes[row];
+                int value = values[row];
+                if (group >= 0 && value != MISSING) {
+                    buckets[group * bucketCount + (int) (((long) value - bucketStart) / bucketWidth)]++;
+                }
+            }
+            return buckets;
+        }
+    }
+
+    /**
+     * Values by row plus a sorted index of (value, row) pairs packed into longs.
+     * New pairs go to an unsorted delta that range queries scan linearly and
+     * that is merged into the sorted part once it grows too large. Entries whose
+     * value no longer matches the column are stale and skipped.
+     * <p>
+     * Readers work on the published {@link Snapshot}. The writer sets values
+     * and appends to the delta past the published size in place, and publishes
+     * a new snapshot after every change; a grown or merged array is a new
+     * array, so a reader never sees a half-merged index.
+     */
+    private static final class IntColumn {
+
+        private static final int MIN_DELTA = 4096;
+
+        private volatile Snapshot snapshot = new Snapshot(new int[0], new long[0], new long[MIN_DELTA], 0);
+
+        void set(int row, int value) {
+            Snapshot current = snapshot;
+            int[] values = current.values;
+            if (row >= values.length) {
+                int capacity = Math.max(row + 1, Math.max(1024, values.length * 2));
+                int previous = values.length;
+                values = Arrays.copyOf(values, capacity);
+                Arrays.fill(values, previous, capacity, MISSING);
+            } else if (values[row] == value) {
+                return;
+            }
+            values[row] = value;
+            long[] sorted = current.sorted;
+            long[] delta = current.delta;
+            int deltaSize = current.deltaSize;
+            if (value != MISSING) {
+                if (deltaSize == delta.length) {
+                    delta = Arrays.copyOf(delta, deltaSize * 2);
+                }
+                delta[deltaSize++] = pack(value, row);
+                if (deltaSize > Math.max(MIN_DELTA, sorted.length / 8)) {
+                    sorted = merge(values, sorted, delta, deltaSize);
+                    delta = new long[MIN_DELTA];
+                    deltaSize = 0;
+                }
+            }
+            snapshot = new Snapshot(values, sorted, delta, deltaSize);
+        }
+
+        private static long[] merge(int[] values, long[] sorted, long[] delta, int deltaSize) {
+            long[] pending = Arrays.copyOf(delta, deltaSize);
+            Arrays.sort(pending);
+            long[] merged = new long[sorted.length + deltaSize];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < sorted.length || j < deltaSize) {
+                long next = j >= deltaSize || (i < sorted.length && sorted[i] <= pending[j]) ? sorted[i++] : pending[j++];
+                // Drop stale and duplicate entries
+                if (values[(int) next] == (int) (next >> 32) && (size == 0 || merged[size - 1] != next)) {
+                    merged[size++] = next;
+                }
+            }
+            return Arrays.copyOf(merged, size);
+        }
+
+        private static long pack(int value, int row) {
+            return ((long) value << 32) | row;
+        }
+    }
+
+    private record Snapshot(int[] values, long[] sorted, long[] delta, int deltaSize) {
+
+        RoaringBitmap range(int min, int max) {
+            // Matches arrive in value order, collect them in a bitset first
+            long[] bits = new long[(values.length + 63) >>> 6];
+            for (int i = firstAtLeast(min); i < sorted.length; i++) {
+                int value = (int) (sorted[i] >> 32);
+                if (value > max) {
+                    break;
+                }
+                int row = (int) sorted[i];
+                if (values[row] == value) {
+                    bits[row >>> 6] |= 1L << row;
+                }
+            }
+            for (int i = 0; i < deltaSize; i++) {
+                int value = (int) (delta[i] >> 32);
+                int row = (int) delta[i];
+                if (value >= min && value <= max && values[row] == value) {
+                    bits[row >>> 6] |= 1L << row;
+                }
+            }
+            return RoaringBitmap.fromBits(bits);
+        }
+
+        private int firstAtLeast(int min) {
+            int index = Arrays.binarySearch(sorted, IntColumn.pack(min, 0));
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GridCell;
+
+/**
+ * Building counts and attribute distributions per Web Mercator tile (quadkey)
+ * for every zoom level up to {@value #MAX_PRECISION}. Cells are updated
+ * incrementally, so a grid query costs the number of cells, not buildings.
+ */
+@Component
+public class GridIndex implements BuildingIndex {
+
+    public static final int MAX_PRECISION = 16;
+
+    private static final double MAX_LATITUDE = 85.05112878;
+    // Energy classes best to worst, the average is taken over these positions
+    private static final String[] ENERGY_SCALE = { "A+++", "A++", "A+", "A", "B", "C", "D", "E", "F", "G", "H" };
+
+    // Tile at MAX_PRECISION and dictionary codes of the counted attributes
+    private record Entry(int x, int y, int energyClass, int buildingType, int energyScore) {
+    }
+
+    private static final class Cell {
+        private int count;
+        private int[] energyClasses = new int[0];
+        private int[] buildingTypes = new int[0];
+        private long energyScoreSum;
+        private int energyScored;
+    }
+
+    /**
+     * Normalized value to code, labelled with the first spelling seen.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        int code(String value) {
+            String normalized = BitmapIndex.normalize(value);
+            if (normalized == null) {
+                return -1;
+            }
+            return codes.computeIfAbsent(normalized, key -> {
+                labels.add(value.trim());
+                return labels.size() - 1;
+            });
+        }
+    }
+
+    // levels.get(z) maps (x << 32 | y) of zoom z to its cell
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+    private final Dictionary energyClasses = new Dictionary();
+    private final Dictionary buildingTypes = new Dictionary();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GridIndex() {
+        for (int z = 0; z <= MAX_PRECISION; z++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        lock.writeLock().lock();
+        try {
+            Entry before = previous != null ? entry(previous) : null;
+            Entry after = entry(current);
+            if (before != null && before.equals(after)) {
+                return;
+            }
+            if (before != null) {
+                count(before, -1);
+            }
+            if (after != null) {
+                count(after, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Populated cells of the zoom level that intersect the bounding box, in
+     * quadkey order.
+     */
+    public List<GridCell> cells(int precision, double minLon, double minLat, double maxLon, double maxLat) {
+        int shift = MAX_PRECISION - precision;
+        int[] min = tile(maxLat, minLon);
+        int[] max = tile(minLat, maxLon);
+        int x0 = min[0] >> shift;
+        int y0 = min[1] >> shift;
+        int x1 = max[0] >> shift;
+        int y1 = max[1] >> shift;
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> level = levels.get(precision);
+            List<long[]> selected = new ArrayList<>();
+            long tiles = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+            if (tiles < level.size()) {
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = y0; y <= y1; y++) {
+                        if (level.containsKey(key(x, y))) {
+                            selected.add(new long[] { morton(precision, x, y), x, y });
+                        }
+                    }
+                }
+            } else {
+                for (long key : level.keySet()) {
+                    int x = (int) (key >>> 32);
+                    int y = (int) key;
+                    if (x >= x0 && x <= x1 && y >= y0 && y <= y1) {
+                        selected.add(new long[] { morton(precision, x, y), x, y });
+                    }
+                }
+            }
+            selected.sort(Comparator.comparingLong(tile -> tile[0]));
+            List<GridCell> cells = new ArrayList<>(selected.size());
+            for (long[] tile : selected) {
+                int x = (int) tile[1];
+                int y = (int) tile[2];
+                cells.add(toGridCell(precision, x, y, level.get(key(x, y))));
+            }
+            return cells;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Entry entry(Building building) {
+        double[] coordinates = ColumnStore.coordinates(building.getAddress());
+        if (Double.isNaN(coordinates[0]) || Double.isNaN(coordinates[1])
+                || Math.abs(coordinates[0]) > 90 || Math.abs(coordinates[1]) > 180) {
+            return null;
+        }
+        int[] tile = tile(coordinates[0], coordinates[1]);
+        String energyClass = building.getEnergyEfficiencyClass();
+        return new Entry(tile[0], tile[1], energyClasses.code(energyClass), buildingTypes.code(building.getPrimaryTypeOfBuilding()),
+                energyScore(energyClass));
+    }
+
+    private void count(Entry entry, int delta) {
+        for (int z = 0; z <= MAX_PRECISION; z++) {
+            int shift = MAX_PRECISION - z;
+            long key = key(entry.x() >> shift, entry.y() >> shift);
+            Map<Long, Cell> level = levels.get(z);
+            Cell cell = level.computeIfAbsent(key, k -> new Cell());
+            cell.count += delta;
+            if (cell.count == 0) {
+                level.remove(key);
+                continue;
+            }
+            if (entry.energyClass() >= 0) {
+                cell.energyClasses = add(cell.energyClasses, entry.energyClass(), delta);
+            }
+            if (entry.buildingType() >= 0) {
+                cell.buildingTypes = add(cell.buildingTypes, entry.buildingType(), delta);
+            }
+            if (entry.energyScore() >= 0) {
+                cell.energyScoreSum += (long) entry.energyScore() * delta;
+                cell.energyScored += delta;
+            }
+        }
+    }
+
+    private static int[] add(int[] counts, int code, int delta) {
+        int[] target = code < counts.length ? counts : Arrays.copyOf(counts, code + 1);
+        target[code] += delta;
+        return target;
+    }
+
+    private GridCell toGridCell(int precision, int x, int y, Cell cell) {
+        String averageEnergyClass = cell.energyScored > 0
+            ? ENERGY_SCALE[(int) Math.round((double) cell.energyScoreSum / cell.energyScored)]
+            : null;
+        return new GridCell(quadkey(precision, x, y), bounds(precision, x, y), cell.count, averageEnergyClass,
+                distribution(cell.energyClasses, energyClasses), distribution(cell.buildingTypes, buildingTypes));
+    }
+
+    private static Map<String, Integer> distribution(int[] counts, Dictionary dictionary) {
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                distribution.put(dictionary.labels.get(code), counts[code]);
+            }
+        }
+        return distribution;
+    }
+
+    private static int energyScore(String energyClass) {
+        if (energyClass == null) {
+            return -1;
+        }
+        String label = energyClass.trim().toUpperCase(Locale.ROOT);
+        for (int score = 0; score < ENERGY_SCALE.length; score++) {
+            if (ENERGY_SCALE[score].equals(label)) {
+                return score;
+            }
+        }
+        return -1;
+    }
+
+    // Web Mercator tile x, y at MAX_PRECISION
+    private static int[] tile(double lat, double lon) {
+        int size = 1 << MAX_PRECISION;
+        double phi = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat)));
+        double x = (lon + 180) / 360 * size;
+        double y = (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2 * size;
+        return new int[] { clamp((int) Math.floor(x), size), clamp((int) Math.floor(y), size) };
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    // Interleaved bits, ordered like the quadkeys of one zoom level
+    private static long morton(int precision, int x, int y) {
+        long code = 0;
+        for (int bit = precision - 1; bit >= 0; bit--) {
+            code = (code << 2) | ((x >> bit) & 1) | (((y >> bit) & 1) << 1);
+        }
+        return code;
+    }
+
+    private static String quadkey(int precision, int x, int y) {
+        StringBuilder quadkey = new StringBuilder(precision);
+        for (int bit = precision - 1; bit >= 0; bit--) {
+            quadkey.append((char) ('0' + ((x >> bit) & 1) + 2 * ((y >> bit) & 1)));
+        }
+        return quadkey.toString();
+    }
+
+    private static double[] bounds(int precision, int x, int y) {
+        double size = 1 << precision;
+        return new double[] { x / size * 360 - 180, latitude(y + 1, size), (x + 1) / size * 360 - 180, latitude(y, size) };
+    }
+
+    private static double latitude(int y, double size) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / size))));
+    }
+}
@@ -0,0 +1,488 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Building;
+
+/**
+ * Marker data of all buildings with coordinates as one packed buffer for map
+ * rendering. Integers are big-endian, varints unsigned LEB128 and signed
+ * values zigzag encoded:
+ * <pre>
+ * int32  "BPTS"
+ * int32  format version (1)
+ * int32  flags, bit 0: ids included
+ * int32  point count
+ * int32  coordinate units per degree
+ * 2 x    dictionary (building types, energy classes):
+ *        varint size, then per entry varint byte length and UTF-8 text
+ * count x zigzag varint lon delta, zigzag varint lat delta
+ * count x varint building type, 0 for none, otherwise dictionary index + 1
+ * count x varint energy class, likewise
+ * count x id if included: varint 0 and 16 bytes for a lowercase UUID,
+ *         otherwise varint UTF-8 length + 1 and the text
+ * </pre>
+ * Points are in Hilbert order, so consecutive points are close and their
+ * deltas short. The order is kept as a list of blocks that each cache their
+ * encoded sections; a change re-encodes only the blocks it touches, and the
+ * buffer is assembled by concatenation.
+ */
+@Component
+public class PointIndex implements BuildingIndex {
+
+    public static final int UNITS_PER_DEGREE = 100_000;
+
+    private static final int MAGIC = 0x42505453;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FLAG_IDS = 1;
+    private static final int MISSING = Integer.MIN_VALUE;
+    private static final int BLOCK_SIZE = 1024;
+    private static final long NOT_PLACED = -1;
+
+    /**
+     * Normalized value to code, labelled with the first spelling seen.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        // 0 for no value, otherwise index + 1
+        int code(String value) {
+            String normalized = BitmapIndex.normalize(value);
+            if (normalized == null) {
+                return 0;
+            }
+            return codes.computeIfAbsent(normalized, key -> {
+                labels.add(value.trim());
+                return labels.size();
+            });
+        }
+    }
+
+    /**
+     * Consecutive points of the curve order with their values and, once
+     * encoded, their parts of every buffer section. The coordinate part starts
+     * at the second point; the first point's delta depends on the block before.
+     */
+    private static final class Block {
+        // curve position << 32 | row
+        private long[] keys;
+        private int[] lons;
+        private int[] lats;
+        private int[] types;
+        private int[] energyClasses;
+        private byte[][] ids;
+        private int size;
+        private byte[] coordinates;
+        private byte[] typeCodes;
+        private byte[] energyCodes;
+        private byte[] idBytes;
+
+        Block(int capacity) {
+            keys = new long[capacity];
+            lons = new int[capacity];
+            lats = new int[capacity];
+            types = new int[capacity];
+            energyClasses = new int[capacity];
+            ids = new byte[capacity][];
+        }
+
+        void insert(int index, long key, int lon, int lat, int type, int energyClass, byte[] id) {
+            if (size == keys.length) {
+                int capacity = Math.max(16, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                lons = Arrays.copyOf(lons, capacity);
+                lats = Arrays.copyOf(lats, capacity);
+                types = Arrays.copyOf(types, capacity);
+                energyClasses = Arrays.copyOf(energyClasses, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            int moved = size - index;
+            System.arraycopy(keys, index, keys, index + 1, moved);
+            System.arraycopy(lons, index, lons, index + 1, moved);
+            System.arraycopy(lats, index, lats, index + 1, moved);
+            System.arraycopy(types, index, types, index + 1, moved);
+            System.arraycopy(energyClasses, index, energyClasses, index + 1, moved);
+            System.arraycopy(ids, index, ids, index + 1, moved);
+            keys[index] = key;
+            lons[index] = lon;
+            lats[index] = lat;
+            types[index] = type;
+            energyClasses[index] = energyClass;
+            ids[index] = id;
+            size++;
+            coordinates = null;
+        }
+
+        void remove(int index) {
+            int moved = size - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(lons, index + 1, lons, index, moved);
+            System.arraycopy(lats, index + 1, lats, index, moved);
+            System.arraycopy(types, index + 1, types, index, moved);
+            System.arraycopy(energyClasses, index + 1, energyClasses, index, moved);
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            size--;
+            ids[size] = null;
+            coordinates = null;
+        }
+
+        // Moves the upper half into a new block
+        Block split() {
+            int half = size / 2;
+            Block upper = new Block(size - half + BLOCK_SIZE / 2);
+            for (int i = half; i < size; i++) {
+                upper.insert(upper.size, keys[i], lons[i], lats[i], types[i], energyClasses[i], ids[i]);
+                ids[i] = null;
+            }
+            size = half;
+            coordinates = null;
+            return upper;
+        }
+
+        void encode() {
+            if (coordinates != null) {
+                return;
+            }
+            Output coordinateOut = new Output(size * 4);
+            Output typeOut = new Output(size);
+            Output energyOut = new Output(size);
+            Output idOut = new Output(size * 17);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    coordinateOut.writeSignedVarint(lons[i] - lons[i - 1]);
+                    coordinateOut.writeSignedVarint(lats[i] - lats[i - 1]);
+                }
+                typeOut.writeVarint(types[i]);
+                energyOut.writeVarint(energyClasses[i]);
+                idOut.writeBytes(ids[i]);
+            }
+            coordinates = coordinateOut.toByteArray();
+            typeCodes = typeOut.toByteArray();
+            energyCodes = energyOut.toByteArray();
+            idBytes = idOut.toByteArray();
+        }
+    }
+
+    private int[] lons = new int[0];
+    private int[] lats = new int[0];
+    private int[] types = new int[0];
+    private int[] energyClasses = new int[0];
+    // Ids already in their buffer encoding
+    private byte[][] ids = new byte[0][];
+    private BitSet dirty = new BitSet();
+    private final Dictionary typeDictionary = new Dictionary();
+    private final Dictionary energyDictionary = new Dictionary();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by this
+    private final List<Block> blocks = new ArrayList<>();
+    // Key each row is stored under in the blocks, or NOT_PLACED
+    private long[] placed = new long[0];
+    private int pointCount;
+    private final byte[][] encoded = new byte[2][];
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        double[] coordinates = ColumnStore.coordinates(current.getAddress());
+        byte[] id = encodeId(current.getId());
+        boolean valid = Math.abs(coordinates[0]) <= 90 && Math.abs(coordinates[1]) <= 180;
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(rowId + 1);
+            lons[rowId] = valid ? (int) Math.round(coordinates[1] * UNITS_PER_DEGREE) : MISSING;
+            lats[rowId] = valid ? (int) Math.round(coordinates[0] * UNITS_PER_DEGREE) : MISSING;
+            types[rowId] = typeDictionary.code(current.getPrimaryTypeOfBuilding());
+            energyClasses[rowId] = energyDictionary.code(current.getEnergyEfficiencyClass());
+            ids[rowId] = id;
+            dirty.set(rowId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The packed buffer, rebuilt only after changes. Callers share the array
+     * and must not modify it.
+     */
+    public synchronized byte[] points(boolean includeIds) {
+        BitSet changed;
+        lock.writeLock().lock();
+        try {
+            changed = dirty;
+            dirty = new BitSet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lock.readLock().lock();
+        try {
+            if (!changed.isEmpty()) {
+                apply(changed);
+                Arrays.fill(encoded, null);
+            }
+            int variant = includeIds ? 1 : 0;
+            if (encoded[variant] == null) {
+                encoded[variant] = encode(includeIds);
+            }
+            return encoded[variant];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Moves the changed rows to their new place in the blocks
+    private void apply(BitSet changed) {
+        if (placed.length < lons.length) {
+            int previous = placed.length;
+            placed = Arrays.copyOf(placed, lons.length);
+            Arrays.fill(placed, previous, placed.length, NOT_PLACED);
+        }
+        // Bulk changes sort everything at once instead of inserting one by one
+        if (changed.cardinality() > pointCount / 8) {
+            rebuild();
+            return;
+        }
+        for (int row = changed.nextSetBit(0); row >= 0; row = changed.nextSetBit(row + 1)) {
+            if (placed[row] != NOT_PLACED) {
+                remove(placed[row]);
+                placed[row] = NOT_PLACED;
+            }
+            if (lons[row] != MISSING) {
+                placed[row] = key(row);
+                insert(placed[row], row);
+            }
+        }
+    }
+
+    private void rebuild() {
+        long[] keys = new long[lons.length];
+        int count = 0;
+        Arrays.fill(placed, NOT_PLACED);
+        for (int row = 0; row < lons.length; row++) {
+            if (lons[row] != MISSING) {
+                placed[row] = key(row);
+                keys[count++] = placed[row];
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        blocks.clear();
+        for (int start = 0; start < count; start += BLOCK_SIZE) {
+            int end = Math.min(count, start + BLOCK_SIZE);
+            Block block = new Block(end - start + BLOCK_SIZE / 2);
+            for (int i = start; i < end; i++) {
+                int row = (int) keys[i];
+                block.insert(block.size, keys[i], lons[row], lats[row], types[row], energyClasses[row], ids[row]);
+            }
+            blocks.add(block);
+        }
+        pointCount = count;
+    }
+
+    private void insert(long key, int row) {
+        if (blocks.isEmpty()) {
+            blocks.add(new Block(BLOCK_SIZE));
+        }
+        int blockIndex = blockIndex(key);
+        Block block = blocks.get(blockIndex);
+        int index = -Arrays.binarySearch(block.keys, 0, block.size, key) - 1;
+        block.insert(index, key, lons[row], lats[row], types[row], energyClasses[row], ids[row]);
+        if (block.size > 2 * BLOCK_SIZE) {
+            blocks.add(blockIndex + 1, block.split());
+        }
+        pointCount++;
+    }
+
+    private void remove(long key) {
+        int blockIndex = blockIndex(key);
+        Block block = blocks.get(blockIndex);
+        block.remove(Arrays.binarySearch(block.keys, 0, block.size, key));
+        if (block.size == 0) {
+            blocks.remove(blockIndex);
+        }
+        pointCount--;
+    }
+
+    // Last block whose first key is not above the key, or the first block
+    private int blockIndex(long key) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blocks.get(middle).keys[0] <= key) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private long key(int row) {
+        long position = SpatialIndex.hilbert((double) lons[row] / UNITS_PER_DEGREE, (double) lats[row] / UNITS_PER_DEGREE)
+            & 0xFFFFFFFFL;
+        return ((position >>> 1) << 32) | row;
+    }
+
+    private byte[] encode(boolean includeIds) {
+        int capacity = 256;
+        for (Block block : blocks) {
+            block.encode();
+            capacity += block.coordinates.length + block.typeCodes.length + block.energyCodes.length + 10
+                + (includeIds ? block.idBytes.length : 0);
+        }
+        Output out = new Output(capacity);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(includeIds ? FLAG_IDS : 0);
+        out.writeInt(pointCount);
+        out.writeInt(UNITS_PER_DEGREE);
+        writeDictionary(out, typeDictionary);
+        writeDictionary(out, energyDictionary);
+        int lon = 0;
+        int lat = 0;
+        for (Block block : blocks) {
+            out.writeSignedVarint(block.lons[0] - lon);
+            out.writeSignedVarint(block.lats[0] - lat);
+            out.writeBytes(block.coordinates);
+            lon = block.lons[block.size - 1];
+            lat = block.lats[block.size - 1];
+        }
+        for (Block block : blocks) {
+            out.writeBytes(block.typeCodes);
+        }
+        for (Block block : blocks) {
+            out.writeBytes(block.energyCodes);
+        }
+        if (includeIds) {
+            for (Block block : blocks) {
+                out.writeBytes(block.idBytes);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeDictionary(Output out, Dictionary dictionary) {
+        out.writeVarint(dictionary.labels.size());
+        for (String label : dictionary.labels) {
+            byte[] text = label.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(text.length);
+            out.writeBytes(text);
+        }
+    }
+
+    private static byte[] encodeId(String id) {
+        Output out = new Output(17);
+        if (id != null && isUuid(id)) {
+            out.writeVarint(0);
+            int high = -1;
+            for (int i = 0; i < id.length(); i++) {
+                char c = id.charAt(i);
+                if (c == '-') {
+                    continue;
+                }
+                // isUuid admits only 0-9 and a-f
+                int digit = c <= '9' ? c - '0' : c - 'a' + 10;
+                if (high < 0) {
+                    high = digit;
+                } else {
+                    out.writeByte(high << 4 | digit);
+                    high = -1;
+                }
+            }
+        } else {
+            byte[] text = id != null ? id.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            out.writeVarint(text.length + 1);
+            out.writeBytes(text);
+        }
+        return out.toByteArray();
+    }
+
+    // Canonical lowercase form, so the 16 bytes print back to the same id
+    private static boolean isUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= lons.length) {
+            return;
+        }
+        int previous = lons.length;
+        int capacity = Math.max(rows, previous * 2);
+        lons = Arrays.copyOf(lons, capacity);
+        lats = Arrays.copyOf(lats, capacity);
+        Arrays.fill(lons, previous, capacity, MISSING);
+        types = Arrays.copyOf(types, capacity);
+        energyClasses = Arrays.copyOf(energyClasses, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    /**
+     * Growable big-endian byte buffer.
+     */
+    private static final class Output {
+        private byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void writeByte(int value) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeSignedVarint(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        void writeBytes(byte[] value) {
+            if (size + value.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + value.length));
+            }
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        byte[] toByteArray() {
+            return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Polygon (or multipolygon) in lon/lat prepared for many point-in-polygon
+ * tests, using the even-odd rule over all rings so holes are excluded.
+ * <p>
+ * The bounding box is divided into a grid. Every grid row lists the edges that
+ * cross its latitude band, and every cell is marked inside, outside or
+ * boundary. Points in inside or outside cells are answered from the grid; only
+ * boundary cells cast a ray, and then only against the edges of their row.
+ */
+public final class PreparedPolygon {
+
+    private static final byte OUTSIDE = 0;
+    private static final byte INSIDE = 1;
+    private static final byte BOUNDARY = 2;
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int gridSize;
+    private final double cellWidth;
+    private final double cellHeight;
+    // x1, y1, x2, y2 per edge
+    private final double[] edges;
+    private final int[][] rowEdges;
+    private final byte[] cells;
+
+    /**
+     * @param rings rings as flat [lon0, lat0, lon1, lat1, ...] arrays, closed
+     *              or not
+     */
+    public PreparedPolygon(List<double[]> rings) {
+        int edgeCount = 0;
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (double[] ring : rings) {
+            edgeCount += ring.length / 2;
+            for (int i = 0; i + 1 < ring.length; i += 2) {
+                x0 = Math.min(x0, ring[i]);
+                x1 = Math.max(x1, ring[i]);
+                y0 = Math.min(y0, ring[i + 1]);
+                y1 = Math.max(y1, ring[i + 1]);
+            }
+        }
+        double[] collected = new double[edgeCount * 4];
+        int count = 0;
+        for (double[] ring : rings) {
+            int points = ring.length / 2;
+            for (int i = 0; i < points; i++) {
+                int next = (i + 1) % points;
+                if (ring[2 * i] == ring[2 * next] && ring[2 * i + 1] == ring[2 * next + 1]) {
+                    continue;
+                }
+                collected[count * 4] = ring[2 * i];
+                collected[count * 4 + 1] = ring[2 * i + 1];
+                collected[count * 4 + 2] = ring[2 * next];
+                collected[count * 4 + 3] = ring[2 * next + 1];
+                count++;
+            }
+        }
+        this.edges = Arrays.copyOf(collected, count * 4);
+        this.minX = x0;
+        this.minY = y0;
+        this.maxX = x1;
+        this.maxY = y1;
+        this.gridSize = Math.max(8, Math.min(1024, 2 * (int) Math.ceil(Math.sqrt(count))));
+        this.cellWidth = Math.max(maxX - minX, 1e-12) / gridSize;
+        this.cellHeight = Math.max(maxY - minY, 1e-12) / gridSize;
+        this.rowEdges = new int[gridSize][];
+        this.cells = new byte[gridSize * gridSize];
+        index(count);
+    }
+
+    public double getMinLon() {
+        return minX;
+    }
+
+    public double getMinLat() {
+        return minY;
+    }
+
+    public double getMaxLon() {
+        return maxX;
+    }
+
+    public double getMaxLat() {
+        return maxY;
+    }
+
+    public boolean contains(double lon, double lat) {
+        if (!(lon >= minX && lon <= maxX && lat >= minY && lat <= maxY)) {
+            return false;
+        }
+        int row = row(lat);
+        byte state = cells[row * gridSize + column(lon)];
+        return state == BOUNDARY ? crosses(lon, lat, row) : state == INSIDE;
+    }
+
+    // Assigns edges to the rows they cross and marks the cells they pass through
+    private void index(int count) {
+        int[] rowCounts = new int[gridSize];
+        int[][] rows = new int[gridSize][4];
+        for (int edge = 0; edge < count; edge++) {
+            double ax = edges[edge * 4];
+            double ay = edges[edge * 4 + 1];
+            double bx = edges[edge * 4 + 2];
+            double by = edges[edge * 4 + 3];
+            double low = Math.min(ay, by);
+            double high = Math.max(ay, by);
+            for (int row = row(low); row <= row(high); row++) {
+                if (rowCounts[row] == rows[row].length) {
+                    rows[row] = Arrays.copyOf(rows[row], rowCounts[row] * 2);
+                }
+                rows[row][rowCounts[row]++] = edge;
+                // Part of the edge inside this row's band, as an x range
+                double bandLow = Math.max(low, minY + row * cellHeight);
+                double bandHigh = Math.min(high, minY + (row + 1) * cellHeight);
+                double xLow;
+                double xHigh;
+                if (ay == by) {
+                    xLow = Math.min(ax, bx);
+                    xHigh = Math.max(ax, bx);
+                } else {
+                    double atLow = ax + (bandLow - ay) * (bx - ax) / (by - ay);
+                    double atHigh = ax + (bandHigh - ay) * (bx - ax) / (by - ay);
+                    xLow = Math.min(atLow, atHigh);
+                    xHigh = Math.max(atLow, atHigh);
+                }
+                // Widened slightly so rounding never leaves a crossed cell unmarked
+                double margin = cellWidth * 1e-6;
+                for (int column = column(xLow - margin); column <= column(xHigh + margin); column++) {
+                    cells[row * gridSize + column] = BOUNDARY;
+                }
+            }
+        }
+        for (int row = 0; row < gridSize; row++) {
+            rowEdges[row] = Arrays.copyOf(rows[row], rowCounts[row]);
+            double centerY = minY + (row + 0.5) * cellHeight;
+            for (int column = 0; column < gridSize; column++) {
+                if (cells[row * gridSize + column] != BOUNDARY) {
+                    double centerX = minX + (column + 0.5) * cellWidth;
+                    cells[row * gridSize + column] = crosses(centerX, centerY, row) ? INSIDE : OUTSIDE;
+                }
+            }
+        }
+    }
+
+    // Even-odd ray cast towards +x against the edges of the point's row
+    private boolean crosses(double x, double y, int row) {
+        boolean inside = false;
+        for (int edge : rowEdges[row]) {
+            double ax = edges[edge * 4];
+            double ay = edges[edge * 4 + 1];
+            double bx = edges[edge * 4 + 2];
+            double by = edges[edge * 4 + 3];
+            if ((ay > y) != (by > y) && x < ax + (y - ay) * (bx - ax) / (by - ay)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private int row(double lat) {
+        return Math.max(0, Math.min(gridSize - 1, (int) ((lat - minY) / cellHeight)));
+    }
+
+    private int column(double lon) {
+        return Math.max(0, Math.min(gridSize - 1, (int) ((lon - minX) / cellWidth)));
+    }
+}
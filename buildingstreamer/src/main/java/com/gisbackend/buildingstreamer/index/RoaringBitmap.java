@@ -0,0 +1,588 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the style of Roaring bitmaps: values
+ * are split by their upper 16 bits into chunks, each chunk is stored as a
+ * sorted array while sparse and as a 2^16 bit bitmap once it holds more than
+ * 4096 values. Binary operations return new bitmaps and never modify their
+ * operands. Not thread-safe, except that bitmaps which are only read and
+ * derived from with {@link #with} and {@link #without} can be shared freely.
+ */
+public final class RoaringBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    private RoaringBitmap(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    // Builds the bitmap from a plain bitset, bit i of words[i / 64] is value i
+    public static RoaringBitmap fromBits(long[] words) {
+        RoaringBitmap result = new RoaringBitmap();
+        for (int start = 0; start < words.length; start += 1024) {
+            long[] chunk = Arrays.copyOfRange(words, start, start + 1024);
+            int cardinality = 0;
+            for (long word : chunk) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality > 0) {
+                result.append((char) (start >>> 10), BitmapContainer.shrink(chunk, cardinality));
+            }
+        }
+        return result;
+    }
+
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) value);
+            return;
+        }
+        insert(-index - 1, key, new ArrayContainer().add((char) value));
+    }
+
+    public void remove(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) value);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    /**
+     * Copy with the value added, this bitmap if it already holds it. Only the
+     * chunk of the value is copied, the others are shared, so neither bitmap
+     * may be modified in place afterwards.
+     */
+    public RoaringBitmap with(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index >= 0 && containers[index].contains((char) value)) {
+            return this;
+        }
+        RoaringBitmap result = new RoaringBitmap(Arrays.copyOf(keys, size + 1), Arrays.copyOf(containers, size + 1),
+            size);
+        if (index >= 0) {
+            result.containers[index] = containers[index].copy().add((char) value);
+        } else {
+            result.insert(-index - 1, key, new ArrayContainer().add((char) value));
+        }
+        return result;
+    }
+
+    /**
+     * Copy without the value, this bitmap if it does not hold it. Shares the
+     * other chunks like {@link #with}.
+     */
+    public RoaringBitmap without(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0 || !containers[index].contains((char) value)) {
+            return this;
+        }
+        RoaringBitmap result = new RoaringBitmap(Arrays.copyOf(keys, Math.max(size, 1)),
+            Arrays.copyOf(containers, Math.max(size, 1)), size);
+        result.containers[index] = containers[index].copy();
+        result.remove(value);
+        return result;
+    }
+
+    public boolean contains(int value) {
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(new char[Math.min(size, other.size)],
+                new Container[Math.min(size, other.size)], 0);
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(new char[size + other.size], new Container[size + other.size], 0);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Pairwise union, avoids copying a growing result once per operand
+    public static RoaringBitmap or(List<RoaringBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return new RoaringBitmap();
+        }
+        List<RoaringBitmap> level = bitmaps;
+        while (level.size() > 1) {
+            List<RoaringBitmap> next = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                next.add(i + 1 < level.size() ? level.get(i).or(level.get(i + 1)) : level.get(i));
+            }
+            level = next;
+        }
+        return level.get(0) == bitmaps.get(0) ? level.get(0).copy() : level.get(0);
+    }
+
+    public RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap(new char[size], new Container[size], 0);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Container container = j < other.size && other.keys[j] == keys[i]
+                ? containers[i].andNot(other.containers[j])
+                : containers[i].copy();
+            if (container.cardinality() > 0) {
+                result.append(keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    public RoaringBitmap copy() {
+        Container[] copied = new Container[Math.max(size, 1)];
+        for (int i = 0; i < size; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new RoaringBitmap(Arrays.copyOf(keys, Math.max(size, 1)), copied, size);
+    }
+
+    // Visits all values in ascending order
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    // Values in ascending order, skipping the first offset ones
+    public int[] toArray(int offset, int limit) {
+        int[] result = new int[Math.max(0, Math.min(limit, cardinality() - offset))];
+        int skipped = 0;
+        int count = 0;
+        for (int i = 0; i < size && count < result.length; i++) {
+            int cardinality = containers[i].cardinality();
+            if (skipped + cardinality <= offset) {
+                skipped += cardinality;
+                continue;
+            }
+            count = containers[i].copyTo(keys[i] << 16, offset - skipped, result, count);
+            skipped = offset;
+        }
+        return result;
+    }
+
+    private int indexOf(char key) {
+        // Appends are the common case, check the last chunk first
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+            containers = Arrays.copyOf(containers, Math.max(4, size * 2));
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        insert(size, key, container);
+    }
+
+    private abstract static sealed class Container permits ArrayContainer, BitmapContainer {
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer consumer);
+
+        // Copies values starting at the skip-th one into target, returns the new target position
+        abstract int copyTo(int high, int skip, int[] target, int position);
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = cardinality > 0 && values[cardinality - 1] < value
+                ? -(cardinality + 1)
+                : Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality >= ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            int insertAt = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, cardinality - insertAt);
+            values[insertAt] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j >= array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer merged = new ArrayContainer(result, count);
+            return count > ARRAY_LIMIT ? merged.toBitmap() : merged;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        int copyTo(int high, int skip, int[] target, int position) {
+            for (int i = skip; i < cardinality && position < target.length; i++) {
+                target[position++] = high | values[i];
+            }
+            return position;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            words[value >>> 6] = after;
+            if (before != after) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            words[value >>> 6] = after;
+            if (before != after) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_LIMIT ? toArray() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[1024];
+            int count = 0;
+            for (int i = 0; i < result.length; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = Arrays.copyOf(words, words.length);
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] |= 1L << array.values[i];
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < result.length; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            int count = 0;
+            for (long word : result) {
+                count += Long.bitCount(word);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = Arrays.copyOf(words, words.length);
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.cardinality; i++) {
+                    result[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < result.length; i++) {
+                    result[i] &= ~otherWords[i];
+                }
+            }
+            int count = 0;
+            for (long word : result) {
+                count += Long.bitCount(word);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, words.length), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        int copyTo(int high, int skip, int[] target, int position) {
+            int seen = 0;
+            for (int i = 0; i < words.length && position < target.length; i++) {
+                long word = words[i];
+                int bits = Long.bitCount(word);
+                if (seen + bits <= skip) {
+                    seen += bits;
+                    continue;
+                }
+                while (word != 0 && position < target.length) {
+                    if (seen++ >= skip) {
+                        target[position++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    }
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+
+        private Container toArray() {
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+
+        private static Container shrink(long[] words, int cardinality) {
+            BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_LIMIT ? bitmap.toArray() : bitmap;
+        }
+    }
+}
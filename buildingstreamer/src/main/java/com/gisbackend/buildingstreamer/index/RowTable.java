@@ -0,0 +1,65 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Growable table indexed by dense row id. Storage is chunked, so growing never
+ * copies entries and concurrent writes to different rows are never lost;
+ * reads are plain volatile array reads.
+ */
+public class RowTable<T> {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicReferenceArray<T>[] chunks;
+    private volatile int size;
+
+    @SuppressWarnings("unchecked")
+    public RowTable() {
+        chunks = new AtomicReferenceArray[0];
+    }
+
+    public T get(int row) {
+        AtomicReferenceArray<T>[] current = chunks;
+        int chunk = row >>> CHUNK_BITS;
+        return chunk < current.length ? current[chunk].get(row & CHUNK_MASK) : null;
+    }
+
+    public void set(int row, T value) {
+        int chunk = row >>> CHUNK_BITS;
+        if (chunk >= chunks.length) {
+            grow(chunk);
+        }
+        chunks[chunk].set(row & CHUNK_MASK, value);
+        if (row >= size) {
+            raiseSize(row + 1);
+        }
+    }
+
+    // Number of rows ever written, i.e. one past the highest row id
+    public int size() {
+        return size;
+    }
+
+    private synchronized void grow(int chunk) {
+        AtomicReferenceArray<T>[] current = chunks;
+        if (chunk < current.length) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        AtomicReferenceArray<T>[] grown = new AtomicReferenceArray[Math.max(chunk + 1, current.length * 2)];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        for (int i = current.length; i < grown.length; i++) {
+            grown[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+        }
+        chunks = grown;
+    }
+
+    private synchronized void raiseSize(int newSize) {
+        if (newSize > size) {
+            size = newSize;
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+
+/**
+ * Inverted index for free-text search over name, building code, street, city
+ * and postal code. Terms are kept sorted for prefix (autocomplete) lookups,
+ * alphabetic terms are additionally indexed by trigram for typo-tolerant
+ * matching. Postings are sorted row id arrays, so multi-term queries probe the
+ * other terms by binary search instead of building intermediate sets.
+ * <p>
+ * Readers never lock. Postings are immutable snapshots that an update
+ * replaces, see {@link Postings}; a query reads every posting in one state.
+ * Writers are serialized.
+ */
+@Component
+public class SearchIndex implements BuildingIndex {
+
+    // Upper bound of terms a single query token expands to
+    private static final int MAX_EXPANSIONS = 128;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    // Postings up to this size are merged into one sorted array when probed
+    private static final int MERGE_THRESHOLD = 256;
+
+    private static final double EXACT_SCORE = 1.0;
+    private static final double FUZZY_SCORE = 0.6;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private enum Field {
+        CODE(3.0), NAME(2.0), STREET(1.5), CITY(1.0), POSTAL_CODE(1.0);
+
+        private final double weight;
+        private final int bit;
+
+        Field(double weight) {
+            this.weight = weight;
+            this.bit = 1 << ordinal();
+        }
+
+        static double weight(int mask) {
+            for (Field field : values()) {
+                if ((mask & field.bit) != 0) {
+                    return field.weight;
+                }
+            }
+            return 0;
+        }
+    }
+
+    public record SearchHit(int rowId, double score) {
+    }
+
+    private final ConcurrentNavigableMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+    // Size of terms, which the skip list only counts by walking it
+    private volatile int termCount;
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        Map<String, Integer> oldTerms = terms(previous);
+        Map<String, Integer> newTerms = terms(current);
+        if (oldTerms.equals(newTerms)) {
+            return;
+        }
+        synchronized (this) {
+            oldTerms.forEach((term, mask) -> {
+                if (!newTerms.containsKey(term)) {
+                    removePosting(term, rowId);
+                }
+            });
+            newTerms.forEach((term, mask) -> {
+                if (!mask.equals(oldTerms.get(term))) {
+                    addPosting(term, rowId, mask);
+                }
+            });
+        }
+    }
+
+    /**
+     * All query tokens have to match, the last one may be a prefix (autocomplete).
+     * Tokens without an exact or prefix match fall back to terms within edit
+     * distance 1-2. Hits are ranked by match quality weighted by the field
+     * that matched, summed over the tokens.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<List<Expansion>> expanded = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            List<Expansion> expansions = expand(tokens.get(i), i == tokens.size() - 1);
+            if (expansions.isEmpty()) {
+                return List.of();
+            }
+            expanded.add(expansions);
+        }
+        return rank(expanded, limit);
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    private List<SearchHit> rank(List<List<Expansion>> expanded, int limit) {
+        // Drive the evaluation with the token that has the fewest postings
+        int driver = 0;
+        for (int i = 1; i < expanded.size(); i++) {
+            if (postingCount(expanded.get(i)) < postingCount(expanded.get(driver))) {
+                driver = i;
+            }
+        }
+        List<Probe> probes = new ArrayList<>();
+        double otherBounds = 0;
+        for (int i = 0; i < expanded.size(); i++) {
+            if (i != driver) {
+                probes.add(new Probe(expanded.get(i)));
+                otherBounds += expanded.get(i).get(0).bound();
+            }
+        }
+
+        PriorityQueue<SearchHit> top = new PriorityQueue<>(Comparator.comparingDouble(SearchHit::score));
+        Map<Integer, SearchHit> inTop = new HashMap<>();
+        for (Expansion expansion : expanded.get(driver)) {
+            // Expansions are ordered by bound, nothing below can enter the top hits anymore
+            double bound = expansion.bound() + otherBounds;
+            if (top.size() >= limit && bound <= top.peek().score()) {
+                break;
+            }
+            Postings postings = expansion.postings();
+            for (int i = 0; i < postings.size; i++) {
+                // Top hits all reached the best possible score, later rows only tie
+                if (top.size() >= limit && bound <= top.peek().score()) {
+                    break;
+                }
+                int row = postings.rows[i];
+                double score = expansion.score() * Field.weight(postings.masks[i]);
+                for (int t = 0; t < probes.size() && score > 0; t++) {
+                    double tokenScore = probes.get(t).bestScore(row);
+                    score = tokenScore > 0 ? score + tokenScore : 0;
+                }
+                if (score <= 0 || (top.size() >= limit && score <= top.peek().score())) {
+                    continue;
+                }
+                SearchHit existing = inTop.get(row);
+                if (existing != null) {
+                    if (existing.score() >= score) {
+                        continue;
+                    }
+                    top.remove(existing);
+                }
+                SearchHit hit = new SearchHit(row, score);
+                top.add(hit);
+                inTop.put(row, hit);
+                if (top.size() > limit) {
+                    inTop.remove(top.poll().rowId());
+                }
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(top);
+        hits.sort(Comparator.comparingDouble(SearchHit::score).reversed().thenComparingInt(SearchHit::rowId));
+        return hits;
+    }
+
+    private static long postingCount(List<Expansion> expansions) {
+        long count = 0;
+        for (Expansion expansion : expansions) {
+            count += expansion.postings().size;
+        }
+        return count;
+    }
+
+    // Exact term, then prefix completions; fuzzy matches only when nothing else matched
+    private List<Expansion> expand(String token, boolean prefix) {
+        Postings exact = terms.get(token);
+        if (exact != null && !prefix) {
+            return List.of(new Expansion(exact, EXACT_SCORE));
+        }
+        List<Expansion> expansions = new ArrayList<>();
+        for (Map.Entry<String, Postings> entry : terms.tailMap(token, true).entrySet()) {
+            String term = entry.getKey();
+            if (!term.startsWith(token) || expansions.size() >= MAX_EXPANSIONS) {
+                break;
+            }
+            double score = term.length() == token.length()
+                ? EXACT_SCORE
+                : 0.5 + 0.4 * token.length() / term.length();
+            expansions.add(new Expansion(entry.getValue(), score));
+        }
+        if (expansions.isEmpty() && token.length() >= MIN_FUZZY_LENGTH && isAlphabetic(token)) {
+            int maxDistance = token.length() >= 8 ? 2 : 1;
+            for (String term : fuzzyCandidates(token, maxDistance)) {
+                int distance = distance(token, term, maxDistance);
+                Postings postings = terms.get(term);
+                // The term may have been removed since the trigrams were read
+                if (distance <= maxDistance && postings != null) {
+                    expansions.add(new Expansion(postings, FUZZY_SCORE / distance));
+                }
+            }
+        }
+        expansions.sort(Comparator.comparingDouble(Expansion::bound).reversed());
+        return expansions.size() > MAX_EXPANSIONS ? expansions.subList(0, MAX_EXPANSIONS) : expansions;
+    }
+
+    // One edit destroys at most three trigrams, candidates need to share the rest
+    private List<String> fuzzyCandidates(String token, int maxDistance) {
+        Set<String> tokenTrigrams = trigramsOf(token);
+        int required = Math.max(1, tokenTrigrams.size() - 3 * maxDistance);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : tokenTrigrams) {
+            Set<String> candidates = trigrams.get(trigram);
+            if (candidates != null) {
+                for (String candidate : candidates) {
+                    shared.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> result = new ArrayList<>();
+        shared.forEach((candidate, count) -> {
+            if (count >= required && Math.abs(candidate.length() - token.length()) <= maxDistance) {
+                result.add(candidate);
+            }
+        });
+        return result;
+    }
+
+    private void addPosting(String term, int rowId, int mask) {
+        Postings postings = terms.get(term);
+        if (postings == null) {
+            terms.put(term, Postings.EMPTY.with(rowId, mask));
+            termCount++;
+            if (isAlphabetic(term) && term.length() >= MIN_FUZZY_LENGTH - 1) {
+                for (String trigram : trigramsOf(term)) {
+                    trigrams.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(term);
+                }
+            }
+            return;
+        }
+        terms.put(term, postings.with(rowId, mask));
+    }
+
+    private void removePosting(String term, int rowId) {
+        Postings postings = terms.get(term);
+        Postings remaining = postings != null ? postings.without(rowId) : null;
+        if (remaining == postings) {
+            return;
+        }
+        if (remaining.size > 0) {
+            terms.put(term, remaining);
+            return;
+        }
+        terms.remove(term);
+        termCount--;
+        for (String trigram : trigramsOf(term)) {
+            Set<String> candidates = trigrams.get(trigram);
+            if (candidates != null && candidates.remove(term) && candidates.isEmpty()) {
+                trigrams.remove(trigram);
+            }
+        }
+    }
+
+    private static Map<String, Integer> terms(Building building) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        if (building == null) {
+            return result;
+        }
+        addTerms(result, building.getBuildingCode(), Field.CODE);
+        addTerms(result, building.getName(), Field.NAME);
+        Address address = building.getAddress();
+        if (address != null) {
+            addTerms(result, address.getStreetName(), Field.STREET);
+            addTerms(result, address.getCity(), Field.CITY);
+            addTerms(result, address.getPostalCode(), Field.POSTAL_CODE);
+        }
+        return result;
+    }
+
+    private static void addTerms(Map<String, Integer> result, String value, Field field) {
+        List<String> tokens = tokenize(value);
+        for (String token : tokens) {
+            result.merge(token, field.bit, (a, b) -> a | b);
+        }
+        // Codes are also searchable without their separators, e.g. "BER-0042" as "ber0042"
+        if (field == Field.CODE && tokens.size() > 1) {
+            result.merge(String.join("", tokens), field.bit, (a, b) -> a | b);
+        }
+    }
+
+    static List<String> tokenize(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(value.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("").replace("ß", "ss");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigramsOf(String term) {
+        String padded = "$" + term + "$";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static boolean isAlphabetic(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isLetter(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Optimal string alignment distance, gives up once maxDistance is exceeded
+    static int distance(String a, String b, int maxDistance) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private record Expansion(Postings postings, double score) {
+
+        // Best score any row of this term can reach
+        double bound() {
+            return score * Field.weight(postings.fields);
+        }
+    }
+
+    /**
+     * Scores rows of the driving token against another query token. Large
+     * postings are binary searched, the long tail of small prefix completions
+     * is merged into one sorted array up front.
+     */
+    private static final class Probe {
+
+        private final List<Expansion> large = new ArrayList<>();
+        private final int[] rows;
+        private final double[] scores;
+
+        Probe(List<Expansion> expansions) {
+            List<Expansion> small = new ArrayList<>();
+            int smallCount = 0;
+            for (Expansion expansion : expansions) {
+                if (expansion.postings().size > MERGE_THRESHOLD) {
+                    large.add(expansion);
+                } else {
+                    small.add(expansion);
+                    smallCount += expansion.postings().size;
+                }
+            }
+            // Sort (row, entry) pairs packed into longs, keep the best score per row
+            long[] packed = new long[smallCount];
+            double[] entryScores = new double[smallCount];
+            int entry = 0;
+            for (Expansion expansion : small) {
+                Postings postings = expansion.postings();
+                for (int i = 0; i < postings.size; i++) {
+                    packed[entry] = ((long) postings.rows[i] << 32) | entry;
+                    entryScores[entry++] = expansion.score() * Field.weight(postings.masks[i]);
+                }
+            }
+            Arrays.sort(packed);
+            int[] mergedRows = new int[smallCount];
+            double[] mergedScores = new double[smallCount];
+            int size = 0;
+            for (long value : packed) {
+                int row = (int) (value >>> 32);
+                double score = entryScores[(int) value];
+                if (size > 0 && mergedRows[size - 1] == row) {
+                    mergedScores[size - 1] = Math.max(mergedScores[size - 1], score);
+                } else {
+                    mergedRows[size] = row;
+                    mergedScores[size++] = score;
+                }
+            }
+            rows = Arrays.copyOf(mergedRows, size);
+            scores = Arrays.copyOf(mergedScores, size);
+        }
+
+        double bestScore(int row) {
+            double best = 0;
+            for (Expansion expansion : large) {
+                if (expansion.bound() <= best) {
+                    break;
+                }
+                int index = expansion.postings().indexOf(row);
+                if (index >= 0) {
+                    best = Math.max(best, expansion.score() * Field.weight(expansion.postings().masks[index]));
+                }
+            }
+            int index = rows.length > 0 ? Arrays.binarySearch(rows, row) : -1;
+            return index >= 0 ? Math.max(best, scores[index]) : best;
+        }
+    }
+
+    /**
+     * Sorted row ids with the fields the term occurs in per row. Row ids are
+     * handed out ascending, so inserts of new buildings are appends.
+     * <p>
+     * Immutable: an update returns a new snapshot. Appending to the latest
+     * snapshot writes past the end of the shared arrays, which no earlier
+     * snapshot reads, so an append costs no copy until the arrays are full;
+     * other changes copy the arrays. Only the serialized writers derive new
+     * snapshots, always from the latest one.
+     */
+    private static final class Postings {
+
+        static final Postings EMPTY = new Postings(new int[2], new byte[2], 0, 0);
+
+        private final int[] rows;
+        private final byte[] masks;
+        private final int size;
+        // Union of all masks ever added, only used as an upper bound
+        private final int fields;
+
+        private Postings(int[] rows, byte[] masks, int size, int fields) {
+            this.rows = rows;
+            this.masks = masks;
+            this.size = size;
+            this.fields = fields;
+        }
+
+        int indexOf(int row) {
+            return Arrays.binarySearch(rows, 0, size, row);
+        }
+
+        Postings with(int row, int mask) {
+            int index = size > 0 && rows[size - 1] < row ? -(size + 1) : indexOf(row);
+            if (index >= 0) {
+                if (masks[index] == (byte) mask) {
+                    return this;
+                }
+                byte[] changed = Arrays.copyOf(masks, masks.length);
+                changed[index] = (byte) mask;
+                return new Postings(Arrays.copyOf(rows, rows.length), changed, size, fields | mask);
+            }
+            int insertAt = -(index + 1);
+            if (insertAt == size && size < rows.length && this != EMPTY) {
+                rows[size] = row;
+                masks[size] = (byte) mask;
+                return new Postings(rows, masks, size + 1, fields | mask);
+            }
+            int capacity = size < rows.length ? rows.length : Math.max(2, size * 2);
+            int[] newRows = new int[capacity];
+            byte[] newMasks = new byte[capacity];
+            System.arraycopy(rows, 0, newRows, 0, insertAt);
+            System.arraycopy(masks, 0, newMasks, 0, insertAt);
+            System.arraycopy(rows, insertAt, newRows, insertAt + 1, size - insertAt);
+            System.arraycopy(masks, insertAt, newMasks, insertAt + 1, size - insertAt);
+            newRows[insertAt] = row;
+            newMasks[insertAt] = (byte) mask;
+            return new Postings(newRows, newMasks, size + 1, fields | mask);
+        }
+
+        // This snapshot if the row is not in it
+        Postings without(int row) {
+            int index = indexOf(row);
+            if (index < 0) {
+                return this;
+            }
+            int[] newRows = new int[Math.max(2, size - 1)];
+            byte[] newMasks = new byte[newRows.length];
+            System.arraycopy(rows, 0, newRows, 0, index);
+            System.arraycopy(masks, 0, newMasks, 0, index);
+            System.arraycopy(rows, index + 1, newRows, index, size - index - 1);
+            System.arraycopy(masks, index + 1, newMasks, index, size - index - 1);
+            return new Postings(newRows, newMasks, size - 1, fields);
+        }
+    }
+}
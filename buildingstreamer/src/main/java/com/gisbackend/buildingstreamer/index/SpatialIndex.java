@@ -0,0 +1,718 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Building;
+
+/**
+ * Point index over the building coordinates for nearest-neighbour and radius
+ * queries with great-circle distances.
+ * <p>
+ * Coordinates are stored as unit vectors: the straight-line (chord) distance
+ * between two of them grows with the great-circle distance, so the search
+ * compares squared chords without trigonometry and converts only the results
+ * to meters (equal to the haversine distance).
+ * <p>
+ * Points live in packed R-trees: sorted along a Hilbert curve, grouped into
+ * leaves of {@value #NODE_SIZE} points and bounded by boxes level by level.
+ * Trees are immutable, so updates go to a small buffer that is flushed into a
+ * new tree, and the smaller trees are merged once they outgrow the next larger
+ * one, which keeps O(log n) of them. Every row records which tree holds its
+ * current position; entries in other trees are stale and skipped until a merge
+ * drops them. Large merges are built outside the lock.
+ */
+@Component
+public class SpatialIndex implements BuildingIndex {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private static final int NODE_SIZE = 32;
+    private static final int BUFFER_SIZE = 256;
+    private static final int LOCKED_MERGE_LIMIT = 65536;
+    private static final int NONE = 0;
+    private static final int BUFFERED = 1;
+
+    public record Neighbor(int rowId, double distanceMeters) {
+    }
+
+    @FunctionalInterface
+    public interface PointVisitor {
+        void visit(int rowId, double lat, double lon);
+    }
+
+    // Current position by row as unit vector, NaN for rows without one
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] zs = new double[0];
+    // Id of the tree holding the row's current position, or NONE / BUFFERED
+    private int[] owners = new int[0];
+
+    private final int[] buffer = new int[BUFFER_SIZE];
+    private int bufferSize;
+    // Rows in the buffer, which keeps a row that moved away or lost its position until the flush
+    private final BitSet buffered = new BitSet();
+    // Largest first; replaced, never modified, so a merge can read it unlocked
+    private List<PackedTree> trees = List.of();
+    private int nextTreeId = BUFFERED + 1;
+    private boolean merging;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        double[] coordinates = ColumnStore.coordinates(current.getAddress());
+        double[] point = valid(coordinates[0], 90) && valid(coordinates[1], 180)
+            ? unitVector(coordinates[0], coordinates[1])
+            : new double[] { Double.NaN, Double.NaN, Double.NaN };
+        Merge merge;
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(rowId + 1);
+            if (Double.compare(xs[rowId], point[0]) == 0 && Double.compare(ys[rowId], point[1]) == 0
+                    && Double.compare(zs[rowId], point[2]) == 0) {
+                return;
+            }
+            xs[rowId] = point[0];
+            ys[rowId] = point[1];
+            zs[rowId] = point[2];
+            if (Double.isNaN(point[0])) {
+                owners[rowId] = NONE;
+                return;
+            }
+            owners[rowId] = BUFFERED;
+            if (!buffered.get(rowId)) {
+                buffered.set(rowId);
+                buffer[bufferSize++] = rowId;
+            }
+            if (bufferSize < BUFFER_SIZE) {
+                return;
+            }
+            flushBuffer();
+            merge = planMerge();
+            if (merge == null) {
+                return;
+            }
+            if (merge.count <= LOCKED_MERGE_LIMIT) {
+                install(merge, merge.build());
+                return;
+            }
+            merging = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        PackedTree merged;
+        try {
+            merged = merge.build();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            merging = false;
+            lock.writeLock().unlock();
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            install(merge, merged);
+            merging = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushBuffer() {
+        Merge flush = new Merge(nextTreeId++, List.of(), bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            int row = buffer[i];
+            buffered.clear(row);
+            // Rows that lost their position since are dropped, a NaN point would spoil the boxes
+            if (owners[row] == BUFFERED && !Double.isNaN(xs[row])) {
+                flush.add(row, xs[row], ys[row], zs[row], BUFFERED);
+            }
+        }
+        bufferSize = 0;
+        install(flush, flush.build());
+    }
+
+    /**
+     * Merges the smallest trees once together they are at least as large as
+     * the next larger one, keeping only entries that are still current. Null if
+     * nothing is due or a merge is already running.
+     */
+    private Merge planMerge() {
+        if (merging || trees.size() < 2) {
+            return null;
+        }
+        int first = trees.size() - 1;
+        long smaller = trees.get(first).size;
+        for (int i = trees.size() - 2; i >= 0; i--) {
+            if (trees.get(i).size <= smaller) {
+                first = i;
+            }
+            smaller += trees.get(i).size;
+        }
+        if (first == trees.size() - 1) {
+            return null;
+        }
+        List<PackedTree> sources = List.copyOf(trees.subList(first, trees.size()));
+        int capacity = 0;
+        for (PackedTree tree : sources) {
+            capacity += tree.size;
+        }
+        Merge merge = new Merge(nextTreeId++, sources, capacity);
+        for (PackedTree tree : sources) {
+            for (int point = 0; point < tree.size; point++) {
+                int row = tree.rows[point];
+                if (owners[row] == tree.id) {
+                    merge.add(row, tree.xs[point], tree.ys[point], tree.zs[point], tree.id);
+                }
+            }
+        }
+        return merge;
+    }
+
+    // Replaces the merged trees; rows that moved while the tree was built keep their newer entry
+    private void install(Merge merge, PackedTree merged) {
+        for (int point = 0; point < merged.size; point++) {
+            int row = merged.rows[point];
+            if (owners[row] == merge.sourceIds[point]) {
+                owners[row] = merged.id;
+            }
+        }
+        List<PackedTree> updated = new ArrayList<>(trees.size() + 1);
+        for (PackedTree tree : trees) {
+            if (!merge.sources.contains(tree)) {
+                updated.add(tree);
+            }
+        }
+        if (merged.size > 0) {
+            updated.add(merged);
+        }
+        updated.sort(Comparator.comparingInt((PackedTree tree) -> tree.size).reversed());
+        trees = List.copyOf(updated);
+    }
+
+    /**
+     * The k rows closest to the point, nearest first. Best-first traversal over
+     * all trees: nodes are visited in order of their minimum possible distance
+     * until that exceeds the k-th best distance found.
+     */
+    public List<Neighbor> nearest(double lat, double lon, int k) {
+        double[] q = unitVector(lat, lon);
+        lock.readLock().lock();
+        try {
+            // Max-heap of the best k squared chords (negated keys)
+            DistanceHeap best = new DistanceHeap(k + 1);
+            for (int i = 0; i < bufferSize; i++) {
+                int row = buffer[i];
+                if (owners[row] == BUFFERED) {
+                    offer(best, k, row, chord2(q, xs[row], ys[row], zs[row]));
+                }
+            }
+            // Queue entries are (tree index << 24) | node
+            DistanceHeap queue = new DistanceHeap(64);
+            for (int t = 0; t < trees.size(); t++) {
+                PackedTree tree = trees.get(t);
+                queue.push(tree.boxChord2(tree.root(), q), (t << 24) | tree.root());
+            }
+            while (queue.size() > 0) {
+                if (best.size() >= k && queue.peekKey() >= -best.peekKey()) {
+                    break;
+                }
+                int entry = queue.pop();
+                PackedTree tree = trees.get(entry >>> 24);
+                int node = entry & 0xFFFFFF;
+                int level = tree.levelOf(node);
+                int from = (node - tree.levelStart[level]) * NODE_SIZE;
+                if (level == 0) {
+                    int to = Math.min(from + NODE_SIZE, tree.size);
+                    for (int point = from; point < to; point++) {
+                        if (owners[tree.rows[point]] == tree.id) {
+                            offer(best, k, tree.rows[point], chord2(q, tree.xs[point], tree.ys[point], tree.zs[point]));
+                        }
+                    }
+                } else {
+                    int to = Math.min(from + NODE_SIZE, tree.levelStart[level] - tree.levelStart[level - 1]);
+                    for (int child = from; child < to; child++) {
+                        int childNode = tree.levelStart[level - 1] + child;
+                        double bound = tree.boxChord2(childNode, q);
+                        if (best.size() < k || bound < -best.peekKey()) {
+                            queue.push(bound, (entry & 0xFF000000) | childNode);
+                        }
+                    }
+                }
+            }
+            Neighbor[] result = new Neighbor[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                double chord2 = -best.peekKey();
+                result[i] = new Neighbor(best.pop(), meters(chord2));
+            }
+            return Arrays.asList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rows within the radius, nearest first, at most limit of them.
+     */
+    public List<Neighbor> within(double lat, double lon, double radiusMeters, int limit) {
+        double[] q = unitVector(lat, lon);
+        double chord = 2 * Math.sin(Math.min(radiusMeters / EARTH_RADIUS_METERS, Math.PI) / 2);
+        double maxChord2 = chord * chord;
+        lock.readLock().lock();
+        try {
+            List<Neighbor> result = new ArrayList<>();
+            for (int i = 0; i < bufferSize; i++) {
+                int row = buffer[i];
+                double chord2 = chord2(q, xs[row], ys[row], zs[row]);
+                if (owners[row] == BUFFERED && chord2 <= maxChord2) {
+                    result.add(new Neighbor(row, meters(chord2)));
+                }
+            }
+            int[] stack = new int[64];
+            for (PackedTree tree : trees) {
+                int depth = 0;
+                stack[depth++] = tree.root();
+                while (depth > 0) {
+                    int node = stack[--depth];
+                    if (tree.boxChord2(node, q) > maxChord2) {
+                        continue;
+                    }
+                    int level = tree.levelOf(node);
+                    int from = (node - tree.levelStart[level]) * NODE_SIZE;
+                    if (level == 0) {
+                        int to = Math.min(from + NODE_SIZE, tree.size);
+                        for (int point = from; point < to; point++) {
+                            double chord2 = chord2(q, tree.xs[point], tree.ys[point], tree.zs[point]);
+                            if (chord2 <= maxChord2 && owners[tree.rows[point]] == tree.id) {
+                                result.add(new Neighbor(tree.rows[point], meters(chord2)));
+                            }
+                        }
+                    } else {
+                        int to = Math.min(from + NODE_SIZE, tree.levelStart[level] - tree.levelStart[level - 1]);
+                        for (int child = from; child < to; child++) {
+                            if (depth == stack.length) {
+                                stack = Arrays.copyOf(stack, depth * 2);
+                            }
+                            stack[depth++] = tree.levelStart[level - 1] + child;
+                        }
+                    }
+                }
+            }
+            result.sort(Comparator.comparingDouble(Neighbor::distanceMeters));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every row whose position may lie in the lat/lon box (a superset,
+     * callers test the coordinates they are given). Runs under the read lock.
+     */
+    public void forEachInBox(double minLat, double minLon, double maxLat, double maxLon, PointVisitor visitor) {
+        double[] box = unitVectorBox(minLat, minLon, maxLat, maxLon);
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < bufferSize; i++) {
+                int row = buffer[i];
+                if (owners[row] == BUFFERED && inBox(box, xs[row], ys[row], zs[row])) {
+                    visit(visitor, row, xs[row], ys[row], zs[row]);
+                }
+            }
+            int[] stack = new int[64];
+            for (PackedTree tree : trees) {
+                int depth = 0;
+                stack[depth++] = tree.root();
+                while (depth > 0) {
+                    int node = stack[--depth];
+                    if (!tree.overlaps(node, box)) {
+                        continue;
+                    }
+                    int level = tree.levelOf(node);
+                    int from = (node - tree.levelStart[level]) * NODE_SIZE;
+                    if (level == 0) {
+                        int to = Math.min(from + NODE_SIZE, tree.size);
+                        for (int point = from; point < to; point++) {
+                            if (inBox(box, tree.xs[point], tree.ys[point], tree.zs[point])
+                                    && owners[tree.rows[point]] == tree.id) {
+                                visit(visitor, tree.rows[point], tree.xs[point], tree.ys[point], tree.zs[point]);
+                            }
+                        }
+                    } else {
+                        int to = Math.min(from + NODE_SIZE, tree.levelStart[level] - tree.levelStart[level - 1]);
+                        for (int child = from; child < to; child++) {
+                            if (depth == stack.length) {
+                                stack = Arrays.copyOf(stack, depth * 2);
+                            }
+                            stack[depth++] = tree.levelStart[level - 1] + child;
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Position on a Hilbert curve over a 2^16 x 2^16 grid
+    static int hilbert(double lon, double lat) {
+        int x = (int) ((lon + 180) / 360 * 65535);
+        int y = (int) ((lat + 90) / 180 * 65535);
+        int position = 0;
+        for (int s = 1 << 15; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            position += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return position;
+    }
+
+    private static void visit(PointVisitor visitor, int row, double x, double y, double z) {
+        visitor.visit(row, Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, z)))), Math.toDegrees(Math.atan2(y, x)));
+    }
+
+    /**
+     * Smallest [minX, maxX, minY, maxY, minZ, maxZ] box containing the unit
+     * vectors of the lat/lon box: x = cos(lat) cos(lon) and y = cos(lat) sin(lon)
+     * are products of non-negative cos(lat) with the range of cos(lon) or
+     * sin(lon), z = sin(lat) is monotonic.
+     */
+    private static double[] unitVectorBox(double minLat, double minLon, double maxLat, double maxLon) {
+        double a = Math.toRadians(minLat);
+        double b = Math.toRadians(maxLat);
+        double c = Math.toRadians(minLon);
+        double d = Math.toRadians(maxLon);
+        double cosLatMin = Math.min(Math.cos(a), Math.cos(b));
+        double cosLatMax = a <= 0 && b >= 0 ? 1 : Math.max(Math.cos(a), Math.cos(b));
+        double cosLonMin = Math.min(Math.cos(c), Math.cos(d));
+        double cosLonMax = c <= 0 && d >= 0 ? 1 : Math.max(Math.cos(c), Math.cos(d));
+        double sinLonMin = c <= -Math.PI / 2 && d >= -Math.PI / 2 ? -1 : Math.min(Math.sin(c), Math.sin(d));
+        double sinLonMax = c <= Math.PI / 2 && d >= Math.PI / 2 ? 1 : Math.max(Math.sin(c), Math.sin(d));
+        double margin = 1e-12;
+        return new double[] {
+            (cosLonMin >= 0 ? cosLatMin : cosLatMax) * cosLonMin - margin,
+            (cosLonMax >= 0 ? cosLatMax : cosLatMin) * cosLonMax + margin,
+            (sinLonMin >= 0 ? cosLatMin : cosLatMax) * sinLonMin - margin,
+            (sinLonMax >= 0 ? cosLatMax : cosLatMin) * sinLonMax + margin,
+            Math.sin(a) - margin,
+            Math.sin(b) + margin
+        };
+    }
+
+    private static boolean inBox(double[] box, double x, double y, double z) {
+        return x >= box[0] && x <= box[1] && y >= box[2] && y <= box[3] && z >= box[4] && z <= box[5];
+    }
+
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static double[] unitVector(double lat, double lon) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+        return new double[] { cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi) };
+    }
+
+    private static double chord2(double[] q, double x, double y, double z) {
+        double dx = q[0] - x;
+        double dy = q[1] - y;
+        double dz = q[2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Great-circle distance for a squared chord between unit vectors
+    private static double meters(double chord2) {
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(chord2) / 2));
+    }
+
+    private static void offer(DistanceHeap best, int k, int row, double chord2) {
+        if (best.size() < k) {
+            best.push(-chord2, row);
+        } else if (chord2 < -best.peekKey()) {
+            best.pop();
+            best.push(-chord2, row);
+        }
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows > xs.length) {
+            int capacity = Math.max(rows, Math.max(1024, xs.length * 2));
+            int previous = xs.length;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            Arrays.fill(xs, previous, capacity, Double.NaN);
+            Arrays.fill(ys, previous, capacity, Double.NaN);
+            Arrays.fill(zs, previous, capacity, Double.NaN);
+        }
+    }
+
+    private static boolean valid(double value, double limit) {
+        return !Double.isNaN(value) && value >= -limit && value <= limit;
+    }
+
+    /**
+     * Points collected for a new tree together with the id of the structure
+     * each one came from. {@link #build()} sorts them along the Hilbert curve.
+     */
+    private static final class Merge {
+
+        private final int id;
+        private final List<PackedTree> sources;
+        private double[] xs;
+        private double[] ys;
+        private double[] zs;
+        private int[] rows;
+        private int[] sourceIds;
+        private int count;
+
+        Merge(int id, List<PackedTree> sources, int capacity) {
+            this.id = id;
+            this.sources = sources;
+            xs = new double[capacity];
+            ys = new double[capacity];
+            zs = new double[capacity];
+            rows = new int[capacity];
+            sourceIds = new int[capacity];
+        }
+
+        void add(int row, double x, double y, double z, int sourceId) {
+            xs[count] = x;
+            ys[count] = y;
+            zs[count] = z;
+            rows[count] = row;
+            sourceIds[count] = sourceId;
+            count++;
+        }
+
+        PackedTree build() {
+            // Sort along the Hilbert curve over lon/lat, packed as (curve position, point)
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                double lon = Math.toDegrees(Math.atan2(ys[i], xs[i]));
+                double lat = Math.toDegrees(Math.asin(Math.max(-1, Math.min(1, zs[i]))));
+                long position = hilbert(lon, lat) & 0xFFFFFFFFL;
+                keys[i] = ((position >>> 1) << 32) | i;
+            }
+            Arrays.sort(keys);
+            double[] sortedXs = new double[count];
+            double[] sortedYs = new double[count];
+            double[] sortedZs = new double[count];
+            int[] sortedRows = new int[count];
+            int[] sortedSources = new int[count];
+            for (int i = 0; i < count; i++) {
+                int point = (int) keys[i];
+                sortedXs[i] = xs[point];
+                sortedYs[i] = ys[point];
+                sortedZs[i] = zs[point];
+                sortedRows[i] = rows[point];
+                sortedSources[i] = sourceIds[point];
+            }
+            xs = sortedXs;
+            ys = sortedYs;
+            zs = sortedZs;
+            rows = sortedRows;
+            sourceIds = sortedSources;
+            return new PackedTree(id, count, sortedXs, sortedYs, sortedZs, sortedRows);
+        }
+    }
+
+    /**
+     * Immutable packed R-tree over unit vectors. Node boxes are stored level by
+     * level, leaves (level 0) first; the children of node i on a level are the
+     * nodes (or points) i * NODE_SIZE up to (i + 1) * NODE_SIZE one level below.
+     */
+    private static final class PackedTree {
+
+        private final int id;
+        private final int size;
+        private final double[] xs;
+        private final double[] ys;
+        private final double[] zs;
+        private final int[] rows;
+        private final int[] levelStart;
+        // Per node: min x, max x, min y, max y, min z, max z
+        private final double[] boxes;
+
+        PackedTree(int id, int size, double[] xs, double[] ys, double[] zs, int[] rows) {
+            this.id = id;
+            this.size = size;
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+            this.rows = rows;
+            this.levelStart = levelStarts(size);
+            this.boxes = new double[levelStart[levelStart.length - 1] * 6];
+            computeBoxes();
+        }
+
+        // levelStart[l] is the first node of level l, the last entry the node count
+        private static int[] levelStarts(int size) {
+            List<Integer> starts = new ArrayList<>();
+            starts.add(0);
+            int levelNodes = Math.max(1, (size + NODE_SIZE - 1) / NODE_SIZE);
+            int total = 0;
+            while (true) {
+                total += levelNodes;
+                starts.add(total);
+                if (levelNodes == 1) {
+                    break;
+                }
+                levelNodes = (levelNodes + NODE_SIZE - 1) / NODE_SIZE;
+            }
+            return starts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private void computeBoxes() {
+            for (int base = 0; base < boxes.length; base += 2) {
+                boxes[base] = Double.POSITIVE_INFINITY;
+                boxes[base + 1] = Double.NEGATIVE_INFINITY;
+            }
+            for (int point = 0; point < size; point++) {
+                extend(point / NODE_SIZE * 6, xs[point], ys[point], zs[point], xs[point], ys[point], zs[point]);
+            }
+            for (int level = 1; level < levelStart.length - 1; level++) {
+                for (int child = levelStart[level - 1]; child < levelStart[level]; child++) {
+                    int parent = levelStart[level] + (child - levelStart[level - 1]) / NODE_SIZE;
+                    int c = child * 6;
+                    extend(parent * 6, boxes[c], boxes[c + 2], boxes[c + 4], boxes[c + 1], boxes[c + 3], boxes[c + 5]);
+                }
+            }
+        }
+
+        private void extend(int base, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+            boxes[base] = Math.min(boxes[base], minX);
+            boxes[base + 1] = Math.max(boxes[base + 1], maxX);
+            boxes[base + 2] = Math.min(boxes[base + 2], minY);
+            boxes[base + 3] = Math.max(boxes[base + 3], maxY);
+            boxes[base + 4] = Math.min(boxes[base + 4], minZ);
+            boxes[base + 5] = Math.max(boxes[base + 5], maxZ);
+        }
+
+        int root() {
+            return levelStart[levelStart.length - 1] - 1;
+        }
+
+        int levelOf(int node) {
+            int level = 0;
+            while (node >= levelStart[level + 1]) {
+                level++;
+            }
+            return level;
+        }
+
+        // Squared chord to the nearest point of the node's box, a lower bound for all points in it
+        double boxChord2(int node, double[] q) {
+            int base = node * 6;
+            double dx = gap(q[0], boxes[base], boxes[base + 1]);
+            double dy = gap(q[1], boxes[base + 2], boxes[base + 3]);
+            double dz = gap(q[2], boxes[base + 4], boxes[base + 5]);
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        boolean overlaps(int node, double[] box) {
+            int base = node * 6;
+            return boxes[base] <= box[1] && boxes[base + 1] >= box[0]
+                && boxes[base + 2] <= box[3] && boxes[base + 3] >= box[2]
+                && boxes[base + 4] <= box[5] && boxes[base + 5] >= box[4];
+        }
+
+        private static double gap(double value, double min, double max) {
+            return value < min ? min - value : value > max ? value - max : 0;
+        }
+    }
+
+    /**
+     * Binary min-heap of (key, value) pairs in parallel primitive arrays.
+     */
+    private static final class DistanceHeap {
+
+        private double[] keys;
+        private int[] values;
+        private int size;
+
+        DistanceHeap(int capacity) {
+            keys = new double[Math.max(capacity, 2)];
+            values = new int[Math.max(capacity, 2)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[index] = keys[parent];
+                values[index] = values[parent];
+                index = parent;
+            }
+            keys[index] = key;
+            values[index] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            double key = keys[--size];
+            int value = values[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[index] = keys[child];
+                values[index] = values[child];
+                index = child;
+            }
+            if (size > 0) {
+                keys[index] = key;
+                values[index] = value;
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.Building;
+
+/**
+ * Version history of every building, for as-of queries. Each published
+ * snapshot becomes the version valid from its validFrom, or from its ingest
+ * time if it has none; a later snapshot with the same validFrom corrects that
+ * version rather than adding one. The version of a building as of a point in
+ * time is the one with the latest validFrom at or before it, found by binary
+ * search in the building's chain, so point-in-time reads cost about the same
+ * as current-state reads.
+ * <p>
+ * Chains are immutable arrays replaced on every update. Versions whose
+ * validity ended more than app.history.retention ago are dropped, and at most
+ * app.history.max-versions are kept per building, so as-of queries are only
+ * answered within the retention window.
+ * <p>
+ * For the fields in {@link #HISTORY_FIELDS} the rows of every kept version
+ * are indexed by value, so as-of queries by city or energy class only look up
+ * the versions of buildings that ever had the value.
+ */
+@Component
+public class TemporalIndex implements BuildingIndex {
+
+    // Versions ordered by validFrom, all arrays of the same length
+    private record Chain(long[] validFrom, long[] ingestedAt, Building[] buildings) {
+
+        // Index of the version valid at the given time, -1 if none
+        int floor(long time) {
+            int index = Arrays.binarySearch(validFrom, time);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+
+    public static final List<String> HISTORY_FIELDS = List.of("city", "energyEfficiencyClass");
+
+    private final RowTable<Chain> chains = new RowTable<>();
+    // Rows with a kept version having the value, by field and normalized value; bitmaps are replaced, not changed
+    private final Map<String, Map<String, RoaringBitmap>> postings = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private final int maxVersions;
+
+    public TemporalIndex(@Value("${app.history.retention:P3650D}") Duration retention,
+            @Value("${app.history.max-versions:64}") int maxVersions) {
+        this.retentionMillis = retention.toMillis();
+        this.maxVersions = Math.max(1, maxVersions);
+        for (String field : HISTORY_FIELDS) {
+            postings.put(field, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void update(int rowId, Building previous, Building current) {
+        long now = System.currentTimeMillis();
+        long validFrom = parseValidFrom(current.getValidFrom(), now);
+        Chain previousChain = chains.get(rowId);
+        Chain chain = add(previousChain, validFrom, now, current);
+
+        // Postings of new values before the chain is published, of dropped ones after, so readers miss no row
+        for (String field : HISTORY_FIELDS) {
+            Set<String> before = values(previousChain, field);
+            for (String value : values(chain, field)) {
+                if (!before.contains(value)) {
+                    postings.get(field).compute(value,
+                        (key, rows) -> rows == null ? new RoaringBitmap().with(rowId) : rows.with(rowId));
+                }
+            }
+        }
+        chains.set(rowId, chain);
+        for (String field : HISTORY_FIELDS) {
+            Set<String> after = values(chain, field);
+            for (String value : values(previousChain, field)) {
+                if (!after.contains(value)) {
+                    postings.get(field).computeIfPresent(value, (key, rows) -> {
+                        RoaringBitmap remaining = rows.without(rowId);
+                        return remaining.isEmpty() ? null : remaining;
+                    });
+                }
+            }
+        }
+    }
+
+    // Normalized values of the field in the kept versions
+    private static Set<String> values(Chain chain, String field) {
+        Set<String> values = new HashSet<>();
+        if (chain != null) {
+            for (Building building : chain.buildings()) {
+                String value = BitmapIndex.normalize(BitmapIndex.valueOf(building, field));
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Version of the building in this row valid at the given time in epoch
+     * milliseconds, null if there is none.
+     */
+    public Building get(int rowId, long asOf) {
+        Chain chain = chains.get(rowId);
+        if (chain == null) {
+            return null;
+        }
+        int index = chain.floor(asOf);
+        return index >= 0 ? chain.buildings()[index] : null;
+    }
+
+    /**
+     * Versions of all buildings valid at the given time, in row order.
+     */
+    public List<Building> getAll(long asOf) {
+        return getAll(asOf, building -> true);
+    }
+
+    /**
+     * Versions valid at the given time that match the filter, in row order.
+     */
+    public List<Building> getAll(long asOf, Predicate<Building> filter) {
+        int size = chains.size();
+        List<Building> buildings = new ArrayList<>();
+        for (int rowId = 0; rowId < size; rowId++) {
+            Building building = get(rowId, asOf);
+            if (building != null && filter.test(building)) {
+                buildings.add(building);
+            }
+        }
+        return buildings;
+    }
+
+    /**
+     * Versions valid at the given time whose field has the value, compared
+     * like the bitmap index compares values, in row order. Only the buildings
+     * that had the value in a kept version are looked up.
+     *
+     * @throws IllegalArgumentException if the field is not in
+     *                                  {@link #HISTORY_FIELDS}
+     */
+    public List<Building> getAll(long asOf, String field, String value) {
+        Map<String, RoaringBitmap> values = postings.get(field);
+        if (values == null) {
+            throw new IllegalArgumentException("No history is indexed for field " + field);
+        }
+        String normalized = BitmapIndex.normalize(value);
+        RoaringBitmap rows = normalized != null ? values.get(normalized) : null;
+        List<Building> buildings = new ArrayList<>();
+        if (rows != null) {
+            rows.forEach(rowId -> {
+                Building building = get(rowId, asOf);
+                if (building != null && normalized.equals(BitmapIndex.normalize(BitmapIndex.valueOf(building, field)))) {
+                    buildings.add(building);
+                }
+            });
+        }
+        return buildings;
+    }
+
+    public int getVersionCount(int rowId) {
+        Chain chain = chains.get(rowId);
+        return chain != null ? chain.buildings().length : 0;
+    }
+
+    private Chain add(Chain chain, long validFrom, long ingestedAt, Building building) {
+        if (chain == null) {
+            return new Chain(new long[] { validFrom }, new long[] { ingestedAt }, new Building[] { building });
+        }
+        int length = chain.validFrom().length;
+        int index = Arrays.binarySearch(chain.validFrom(), validFrom);
+        long[] validFroms;
+        long[] ingestedAts;
+        Building[] buildings;
+        if (index >= 0) {
+            // Correction of an existing version
+            validFroms = chain.validFrom();
+            ingestedAts = chain.ingestedAt().clone();
+            buildings = chain.buildings().clone();
+        } else {
+            index = -index - 1;
+            validFroms = insert(chain.validFrom(), index, validFrom);
+            ingestedAts = insert(chain.ingestedAt(), index, 0);
+            buildings = new Building[length + 1];
+            System.arraycopy(chain.buildings(), 0, buildings, 0, index);
+            System.arraycopy(chain.buildings(), index, buildings, index + 1, length - index);
+        }
+        ingestedAts[index] = ingestedAt;
+        buildings[index] = building;
+
+        // Drop versions superseded before the retention window, and the oldest beyond the cap
+        long cutoff = ingestedAt - retentionMillis;
+        int drop = 0;
+        while (drop < validFroms.length - 1 && validFroms[drop + 1] < cutoff) {
+            drop++;
+        }
+        drop = Math.max(drop, validFroms.length - maxVersions);
+        if (drop > 0) {
+            return new Chain(Arrays.copyOfRange(validFroms, drop, validFroms.length),
+                Arrays.copyOfRange(ingestedAts, drop, ingestedAts.length),
+                Arrays.copyOfRange(buildings, drop, buildings.length));
+        }
+        return new Chain(validFroms, ingestedAts, buildings);
+    }
+
+    private static long[] insert(long[] values, int index, long value) {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(values, index, result, index + 1, values.length - index);
+        return result;
+    }
+
+    private static long parseValidFrom(String validFrom, long fallback) {
+        if (validFrom == null || validFrom.isBlank()) {
+            return fallback;
+        }
+        try {
+            return parseTime(validFrom);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Epoch milliseconds of an ISO date (start of day, UTC), local date-time
+     * (UTC), offset date-time or instant.
+     *
+     * @throws IllegalArgumentException if the value is none of these
+     */
+    public static long parseTime(String value) {
+        String text = value.trim();
+        try {
+            if (text.length() == 10) {
+                return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            }
+            if (text.endsWith("Z") || text.endsWith("z")) {
+                return Instant.parse(text.toUpperCase()).toEpochMilli();
+            }
+            int time = text.indexOf('T');
+            if (time > 0 && (text.indexOf('+', time) > 0 || text.indexOf('-', time) > 0)) {
+                return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+            }
+            return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date or time: " + value);
+        }
+    }
+}
@@ -0,0 +1,618 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Triples of the GraphData of every building, for graph pattern queries.
+ * Terms are dictionary encoded as ints, and the triples of all buildings are
+ * kept in three sorted orders, SPO, POS and OSP, so every pattern with bound
+ * positions is a prefix range found by binary search.
+ * <p>
+ * The sorted base is immutable. A building's new triples replace its row,
+ * which is then served from a delta over the changed rows. The delta is built
+ * by the first query after a change and shared with later snapshots: those
+ * add only the rows changed since as a small sorted level of their own, and
+ * fold it into the shared delta once it grows beyond an eighth of it, so an
+ * ingest does not make the next query sort all changed rows again. Once more
+ * than app.graph.rebuild-threshold rows, or a sixteenth of all rows, have
+ * changed, the delta is merged into a new base in the background, in time
+ * linear in the number of triples. Dictionary entries are never removed.
+ * <p>
+ * Graph data is parsed by {@link #encode} before the row is updated, so the
+ * caller can do it outside of its own locks.
+ */
+@Slf4j
+@Component
+public class TripleIndex {
+
+    private static final int[] NO_TRIPLES = new int[0];
+    private static final int RUN = 16;
+    // Changed rows a snapshot keeps in a level of its own before folding them into the shared delta
+    private static final int MIN_RECENT_ROWS = 256;
+    private static final int MAX_LOG_SIZE = 1 << 16;
+
+    /**
+     * Receives matching triples, returns false to stop.
+     */
+    @FunctionalInterface
+    public interface TripleConsumer {
+        boolean accept(int subject, int predicate, int object);
+    }
+
+    private enum Order {
+        // Positions of subject, predicate and object in the keys of each order
+        SPO(0, 1, 2), POS(2, 0, 1), OSP(1, 2, 0);
+
+        final int subject;
+        final int predicate;
+        final int object;
+
+        Order(int subject, int predicate, int object) {
+            this.subject = subject;
+            this.predicate = predicate;
+            this.object = object;
+        }
+    }
+
+    // Triples of some rows as (key0, key1, key2, row) quads, one sorted array per order
+    private static final class Sorted {
+
+        final int[][] quads = new int[Order.values().length][];
+
+        Sorted(int[] triples, int[] tripleRows) {
+            int count = tripleRows.length;
+            for (Order order : Order.values()) {
+                int[] quads = new int[count * 4];
+                for (int i = 0; i < count; i++) {
+                    quads[i * 4 + order.subject] = triples[i * 3];
+                    quads[i * 4 + order.predicate] = triples[i * 3 + 1];
+                    quads[i * 4 + order.object] = triples[i * 3 + 2];
+                    quads[i * 4 + 3] = tripleRows[i];
+                }
+                this.quads[order.ordinal()] = sort(quads);
+            }
+        }
+
+        private Sorted(int[][] quads) {
+            System.arraycopy(quads, 0, this.quads, 0, quads.length);
+        }
+
+        // Base without the quads of the replaced rows merged with their new quads, linear in the size
+        static Sorted merge(Sorted base, int[] replacedRows, Sorted replacement) {
+            BitSet replaced = new BitSet();
+            for (int row : replacedRows) {
+                replaced.set(row);
+            }
+            int[][] merged = new int[Order.values().length][];
+            for (int o = 0; o < merged.length; o++) {
+                int[] a = base.quads[o];
+                int[] b = replacement.quads[o];
+                int[] out = new int[a.length + b.length];
+                int i = 0;
+                int j = 0;
+                int n = 0;
+                while (i < a.length || j < b.length) {
+                    if (i < a.length && replaced.get(a[i + 3])) {
+                        i += 4;
+                        continue;
+                    }
+                    boolean fromBase = j >= b.length || (i < a.length && compareQuads(a, i / 4, b, j / 4) <= 0);
+                    int[] source = fromBase ? a : b;
+                    int from = fromBase ? i : j;
+                    System.arraycopy(source, from, out, n, 4);
+                    n += 4;
+                    if (fromBase) {
+                        i += 4;
+                    } else {
+                        j += 4;
+                    }
+                }
+                merged[o] = n == out.length ? out : Arrays.copyOf(out, n);
+            }
+            return new Sorted(merged);
+        }
+
+        int size() {
+            return quads[0].length / 4;
+        }
+
+        // First quad index at or after the given key prefix
+        static int lowerBound(int[] quads, int[] key, int keyLength) {
+            int low = 0;
+            int high = quads.length / 4;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(quads, middle, key, keyLength) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // First quad index after the given key prefix
+        static int upperBound(int[] quads, int[] key, int keyLength) {
+            int low = 0;
+            int high = quads.length / 4;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(quads, middle, key, keyLength) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static int compare(int[] quads, int index, int[] key, int keyLength) {
+            for (int k = 0; k < keyLength; k++) {
+                int c = Integer.compare(quads[index * 4 + k], key[k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        // Insertion sorted runs of RUN quads, then bottom-up merge sort by all four ints
+        private static int[] sort(int[] quads) {
+            int count = quads.length / 4;
+            for (int start = 0; start < count; start += RUN) {
+                int end = Math.min(start + RUN, count);
+                for (int i = start + 1; i < end; i++) {
+                    int j = i;
+                    while (j > start && compareQuads(quads, j - 1, quads, j) > 0) {
+                        swap(quads, j - 1, j);
+                        j--;
+                    }
+                }
+            }
+            int[] source = quads;
+            int[] target = new int[quads.length];
+            for (int width = RUN; width < count; width *= 2) {
+                for (int start = 0; start < count; start += 2 * width) {
+                    int middle = Math.min(start + width, count);
+                    int end = Math.min(start + 2 * width, count);
+                    if (middle >= end || compareQuads(source, middle - 1, source, middle) <= 0) {
+                        // Already in order
+                        System.arraycopy(source, start * 4, target, start * 4, (end - start) * 4);
+                        continue;
+                    }
+                    int left = start;
+                    int right = middle;
+                    for (int out = start * 4; out < end * 4; out += 4) {
+                        int from = right >= end || (left < middle && compareQuads(source, left, source, right) <= 0)
+                            ? left++ * 4 : right++ * 4;
+                        target[out] = source[from];
+                        target[out + 1] = source[from + 1];
+                        target[out + 2] = source[from + 2];
+                        target[out + 3] = source[from + 3];
+                    }
+                }
+                int[] swap = source;
+                source = target;
+                target = swap;
+            }
+            return source;
+        }
+
+        private static void swap(int[] quads, int a, int b) {
+            for (int k = 0; k < 4; k++) {
+                int value = quads[a * 4 + k];
+                quads[a * 4 + k] = quads[b * 4 + k];
+                quads[b * 4 + k] = value;
+            }
+        }
+
+        private static int compareQuads(int[] a, int indexA, int[] b, int indexB) {
+            for (int k = 0; k < 4; k++) {
+                int c = Integer.compare(a[indexA * 4 + k], b[indexB * 4 + k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+    }
+
+    // Sorted triples without the quads of the hidden rows, whose current triples are in a later level
+    private record Level(Sorted sorted, int[] hiddenRows) {
+    }
+
+    // Delta over the rows changed since a base, as of an update count; shared by the snapshots after it
+    private record Delta(Sorted base, long version, int rowCount, Sorted sorted) {
+    }
+
+    /**
+     * Consistent view of the index for one query: the base without the
+     * changed rows, merged with the current triples of those rows.
+     */
+    public final class Snapshot {
+
+        private final Sorted base;
+        private final int[] changedRows;
+        private final long version;
+        private volatile Level[] levels;
+
+        private Snapshot(Sorted base, int[] changedRows, long version) {
+            this.base = base;
+            this.changedRows = changedRows;
+            this.version = version;
+        }
+
+        /**
+         * Calls the consumer with every distinct triple matching the pattern,
+         * -1 meaning unbound, until it returns false.
+         */
+        public void match(int subject, int predicate, int object, TripleConsumer consumer) {
+            Order order = order(subject, predicate, object);
+            int[] key = key(order, subject, predicate, object);
+            int keyLength = keyLength(order, subject, predicate, object);
+            Level[] levels = levels();
+            int[][] quads = new int[levels.length][];
+            int[] positions = new int[levels.length];
+            int[] ends = new int[levels.length];
+            for (int l = 0; l < levels.length; l++) {
+                quads[l] = levels[l].sorted().quads[order.ordinal()];
+                positions[l] = skipHidden(levels[l], quads[l], Sorted.lowerBound(quads[l], key, keyLength),
+                    ends[l] = Sorted.upperBound(quads[l], key, keyLength));
+            }
+
+            // Merge the ranges of all levels in key order, dropping hidden rows and duplicate triples
+            int[] last = null;
+            int lastIndex = 0;
+            while (true) {
+                int next = -1;
+                for (int l = 0; l < levels.length; l++) {
+                    if (positions[l] < ends[l]
+                            && (next < 0 || compareKeys(quads[l], positions[l], quads[next], positions[next]) < 0)) {
+                        next = l;
+                    }
+                }
+                if (next < 0) {
+                    return;
+                }
+                int index = positions[next];
+                positions[next] = skipHidden(levels[next], quads[next], index + 1, ends[next]);
+                if (last != null && compareKeys(last, lastIndex, quads[next], index) == 0) {
+                    continue;
+                }
+                last = quads[next];
+                lastIndex = index;
+                if (!consumer.accept(last[index * 4 + order.subject], last[index * 4 + order.predicate],
+                        last[index * 4 + order.object])) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Upper bound of the number of triples matching the pattern, from the
+         * sizes of its index ranges.
+         */
+        public int estimate(int subject, int predicate, int object) {
+            Order order = order(subject, predicate, object);
+            int[] key = key(order, subject, predicate, object);
+            int keyLength = keyLength(order, subject, predicate, object);
+            int estimate = 0;
+            for (Level level : levels()) {
+                int[] quads = level.sorted().quads[order.ordinal()];
+                estimate += Sorted.upperBound(quads, key, keyLength) - Sorted.lowerBound(quads, key, keyLength);
+            }
+            return estimate;
+        }
+
+        // First position at or after from whose row is not hidden
+        private static int skipHidden(Level level, int[] quads, int from, int end) {
+            int[] hidden = level.hiddenRows();
+            while (from < end && hidden.length > 0 && Arrays.binarySearch(hidden, quads[from * 4 + 3]) >= 0) {
+                from++;
+            }
+            return from;
+        }
+
+        private Level[] levels() {
+            Level[] current = levels;
+            if (current == null) {
+                synchronized (this) {
+                    current = levels;
+                    if (current == null) {
+                        current = resolveLevels();
+                        levels = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        // Reuses the latest shared delta of the same base, adding the rows changed since it was built
+        private Level[] resolveLevels() {
+            Delta shared = latestDelta.get();
+            int[] since = shared != null && shared.base() == base && shared.version() <= version
+                ? changedBetween(shared.version(), version)
+                : null;
+            if (since == null) {
+                Sorted delta = build(changedRows);
+                share(new Delta(base, version, changedRows.length, delta));
+                return new Level[] { new Level(base, changedRows), new Level(delta, NO_TRIPLES) };
+            }
+            if (since.length == 0) {
+                return new Level[] { new Level(base, changedRows), new Level(shared.sorted(), NO_TRIPLES) };
+            }
+            if (since.length <= Math.max(MIN_RECENT_ROWS, shared.rowCount() / 8)) {
+                return new Level[] { new Level(base, changedRows), new Level(shared.sorted(), since),
+                    new Level(build(since), NO_TRIPLES) };
+            }
+            Sorted delta = Sorted.merge(shared.sorted(), since, build(since));
+            share(new Delta(base, version, changedRows.length, delta));
+            return new Level[] { new Level(base, changedRows), new Level(delta, NO_TRIPLES) };
+        }
+    }
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final RowTable<String> terms = new RowTable<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    // Distinct triples of each row as flattened subject, predicate, object ids
+    private final RowTable<int[]> rowTriples = new RowTable<>();
+    private final int rebuildThreshold;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("triple-index-rebuild").daemon().factory());
+
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot;
+    // Sorted rows changed since the base was built, and since the running rebuild started
+    private int[] changedRows = NO_TRIPLES;
+    private int[] changedDuringRebuild;
+    // Number of updates so far; update logStart + i + 1 changed row changeLog[i]
+    private long version;
+    private int[] changeLog = new int[1024];
+    private int changeLogSize;
+    private long logStart;
+    private final AtomicReference<Delta> latestDelta = new AtomicReference<>();
+
+    public TripleIndex(@Value("${app.graph.rebuild-threshold:4096}") int rebuildThreshold) {
+        this.rebuildThreshold = Math.max(1, rebuildThreshold);
+        this.snapshot = new Snapshot(new Sorted(NO_TRIPLES, NO_TRIPLES), NO_TRIPLES, 0);
+    }
+
+    /**
+     * Triples parsed from the graph data of the model, for {@link #update}.
+     * Statements that cannot be parsed are skipped. Blank node labels are
+     * scoped by the building id, so those of different buildings do not
+     * collide.
+     */
+    public int[] encode(String buildingId, GraphDataModel graphDataModel) {
+        String graphData = graphDataModel != null ? graphDataModel.getGraphData() : null;
+        if (graphData == null || graphData.isBlank()) {
+            return NO_TRIPLES;
+        }
+        List<String[]> parsed;
+        try {
+            parsed = new TripleParser(TurtleTokenizer.tokenize(graphData), new HashMap<>(), buildingId + "_")
+                .parseDocument();
+        } catch (IllegalArgumentException e) {
+            log.warn("Failed to parse graph data of building {}: {}", buildingId, e.getMessage());
+            return NO_TRIPLES;
+        }
+        int[] triples = new int[parsed.size() * 3];
+        for (int i = 0; i < parsed.size(); i++) {
+            for (int k = 0; k < 3; k++) {
+                triples[i * 3 + k] = intern(parsed.get(i)[k]);
+            }
+        }
+        return triples;
+    }
+
+    /**
+     * Replaces the triples of a row with ones from {@link #encode}.
+     */
+    public void update(int rowId, int[] triples) {
+        rowTriples.set(rowId, triples);
+        Snapshot rebuild = null;
+        synchronized (lock) {
+            changedRows = insert(changedRows, rowId);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild = insert(changedDuringRebuild, rowId);
+            }
+            logChange(rowId);
+            snapshot = new Snapshot(snapshot.base, changedRows, version);
+            if (changedDuringRebuild == null
+                    && changedRows.length > Math.max(rebuildThreshold, rowTriples.size() / 16)) {
+                changedDuringRebuild = NO_TRIPLES;
+                rebuild = snapshot;
+            }
+        }
+        if (rebuild != null) {
+            Snapshot merged = rebuild;
+            rebuildExecutor.execute(() -> rebuild(merged.base, merged.changedRows));
+        }
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Id of a term in N-Triples notation, -1 if no triple ever used it.
+     */
+    public int id(String term) {
+        Integer id = ids.get(term);
+        return id != null ? id : -1;
+    }
+
+    public String term(int id) {
+        return terms.get(id);
+    }
+
+    public int getTermCount() {
+        return nextId.get();
+    }
+
+    // New base from the old one and the current triples of the changed rows, rows changed meanwhile stay changed
+    private void rebuild(Sorted base, int[] rows) {
+        try {
+            long start = System.nanoTime();
+            Sorted merged = Sorted.merge(base, rows, build(rows));
+            synchronized (lock) {
+                changedRows = changedDuringRebuild;
+                changedDuringRebuild = null;
+                // The change log only serves deltas of the current base
+                version++;
+                logStart = version;
+                changeLogSize = 0;
+                snapshot = new Snapshot(merged, changedRows, version);
+            }
+            log.debug("Rebuilt triple index with {} triples in {} ms", merged.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            log.error("Failed to rebuild triple index: {}", e.getMessage());
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    private Sorted build(int[] rows) {
+        int count = 0;
+        for (int row : rows) {
+            int[] triples = rowTriples.get(row);
+            count += triples != null ? triples.length : 0;
+        }
+        int[] triples = new int[count];
+        int[] tripleRows = new int[count / 3];
+        int offset = 0;
+        for (int row : rows) {
+            int[] rowValues = rowTriples.get(row);
+            if (rowValues != null) {
+                System.arraycopy(rowValues, 0, triples, offset, rowValues.length);
+                Arrays.fill(tripleRows, offset / 3, (offset + rowValues.length) / 3, row);
+                offset += rowValues.length;
+            }
+        }
+        return new Sorted(triples, tripleRows);
+    }
+
+    // Called under the lock; drops the oldest entries once the log is full, their snapshots build their own delta
+    private void logChange(int rowId) {
+        if (changeLogSize == changeLog.length) {
+            Delta shared = latestDelta.get();
+            long keepFrom = shared != null && shared.base() == snapshot.base ? Math.max(shared.version(), logStart)
+                : version;
+            if (changeLogSize - (keepFrom - logStart) > MAX_LOG_SIZE / 2) {
+                keepFrom = version - MAX_LOG_SIZE / 2;
+            }
+            int dropped = (int) (keepFrom - logStart);
+            if (dropped > 0) {
+                System.arraycopy(changeLog, dropped, changeLog, 0, changeLogSize - dropped);
+                changeLogSize -= dropped;
+                logStart = keepFrom;
+            }
+            if (changeLogSize == changeLog.length) {
+                changeLog = Arrays.copyOf(changeLog, changeLog.length * 2);
+            }
+        }
+        changeLog[changeLogSize++] = rowId;
+        version++;
+    }
+
+    // Sorted distinct rows changed by the updates after from up to to, null if the log no longer reaches back
+    private int[] changedBetween(long from, long to) {
+        int[] rows;
+        synchronized (lock) {
+            if (from < logStart || to > logStart + changeLogSize) {
+                return null;
+            }
+            rows = Arrays.copyOfRange(changeLog, (int) (from - logStart), (int) (to - logStart));
+        }
+        Arrays.sort(rows);
+        int distinct = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (distinct == 0 || rows[i] != rows[distinct - 1]) {
+                rows[distinct++] = rows[i];
+            }
+        }
+        return distinct == rows.length ? rows : Arrays.copyOf(rows, distinct);
+    }
+
+    // Keeps the newest delta
+    private void share(Delta delta) {
+        latestDelta.accumulateAndGet(delta,
+            (current, offered) -> current == null || offered.version() > current.version() ? offered : current);
+    }
+
+    private int intern(String term) {
+        return ids.computeIfAbsent(term, key -> {
+            int id = nextId.getAndIncrement();
+            terms.set(id, key);
+            return id;
+        });
+    }
+
+    private static Order order(int subject, int predicate, int object) {
+        if (subject >= 0) {
+            return object >= 0 && predicate < 0 ? Order.OSP : Order.SPO;
+        }
+        if (predicate >= 0) {
+            return Order.POS;
+        }
+        return object >= 0 ? Order.OSP : Order.SPO;
+    }
+
+    private static int[] key(Order order, int subject, int predicate, int object) {
+        int[] key = new int[3];
+        key[order.subject] = subject;
+        key[order.predicate] = predicate;
+        key[order.object] = object;
+        return key;
+    }
+
+    // Number of leading bound positions, the order is chosen so that they are contiguous
+    private static int keyLength(Order order, int subject, int predicate, int object) {
+        int[] key = key(order, subject, predicate, object);
+        int length = 0;
+        while (length < 3 && key[length] >= 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int compareKeys(int[] a, int indexA, int[] b, int indexB) {
+        for (int k = 0; k < 3; k++) {
+            int c = Integer.compare(a[indexA * 4 + k], b[indexB * 4 + k]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return sorted;
+        }
+        index = -index - 1;
+        int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(sorted, index, result, index + 1, sorted.length - index);
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Token;
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Type;
+
+/**
+ * Parses tokens of Turtle, or of the triple patterns of a query, into triples
+ * of terms in N-Triples notation: {@code <iri>}, {@code "literal"} with an
+ * optional {@code @lang} or {@code ^^<datatype>}, and {@code _:label}.
+ * Variables become {@code ?name}. Supports prefix and base directives in Turtle
+ * and SPARQL style, predicate lists with ';', object lists with ',' and the
+ * keyword 'a'; blank node property lists and collections are not supported.
+ */
+public final class TripleParser {
+
+    public static final String RDF_TYPE = "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>";
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+    private final List<Token> tokens;
+    private final Map<String, String> prefixes;
+    private final String blankNodePrefix;
+    private int position;
+
+    /**
+     * @param prefixes        known prefixes, extended by the directives parsed
+     * @param blankNodePrefix prepended to blank node labels, so labels of
+     *                        different documents do not collide
+     */
+    public TripleParser(List<Token> tokens, Map<String, String> prefixes, String blankNodePrefix) {
+        this.tokens = tokens;
+        this.prefixes = prefixes;
+        this.blankNodePrefix = blankNodePrefix;
+    }
+
+    /**
+     * All triples of a Turtle document. Malformed statements are skipped up to
+     * their closing '.', so one bad statement does not lose the others.
+     */
+    public List<String[]> parseDocument() {
+        List<String[]> triples = new ArrayList<>();
+        while (position < tokens.size()) {
+            int start = position;
+            int parsed = triples.size();
+            try {
+                if (!directive()) {
+                    statement(triples, false);
+                }
+            } catch (IllegalArgumentException e) {
+                // Drop the triples of the statement read before the error
+                triples.subList(parsed, triples.size()).clear();
+                position = start;
+                while (position < tokens.size() && !tokens.get(position++).is(".")) {
+                    // skip the rest of the statement
+                }
+            }
+        }
+        return triples;
+    }
+
+    /**
+     * Triple patterns with variables up to the end of the tokens.
+     *
+     * @throws IllegalArgumentException if a pattern is malformed
+     */
+    public List<String[]> parsePatterns() {
+        List<String[]> patterns = new ArrayList<>();
+        while (position < tokens.size()) {
+            statement(patterns, true);
+        }
+        return patterns;
+    }
+
+    private boolean directive() {
+        Token token = tokens.get(position);
+        boolean turtleStyle = token.isWord("@prefix") || token.isWord("@base");
+        if (!turtleStyle && !token.isWord("prefix") && !token.isWord("base")) {
+            return false;
+        }
+        position++;
+        if (token.text().toLowerCase().endsWith("prefix")) {
+            Token name = expect(Type.PREFIXED_NAME);
+            if (!name.text().endsWith(":")) {
+                throw new IllegalArgumentException("Invalid prefix " + name.text());
+            }
+            prefixes.put(name.text().substring(0, name.text().length() - 1), expect(Type.IRI).text());
+        } else {
+            // Relative IRIs are kept as written
+            expect(Type.IRI);
+        }
+        if (turtleStyle) {
+            expectPunctuation(".");
+        }
+        return true;
+    }
+
+    // subject predicate object (, object)* (; predicate object (, object)*)* [.]
+    private void statement(List<String[]> triples, boolean variables) {
+        String subject = term(next(), variables, false);
+        do {
+            if (position < tokens.size() && (tokens.get(position).is(".") || tokens.get(position).is(";"))) {
+                // Trailing or repeated ';'
+                continue;
+            }
+            String predicate = term(next(), variables, true);
+            do {
+                triples.add(new String[] { subject, predicate, term(next(), variables, false) });
+            } while (accept(","));
+        } while (accept(";"));
+        if (!accept(".") && (!variables || position < tokens.size())) {
+            throw new IllegalArgumentException("Expected '.' after statement");
+        }
+    }
+
+    private String term(Token token, boolean variables, boolean predicate) {
+        return switch (token.type()) {
+            case IRI -> "<" + token.text() + ">";
+            case PREFIXED_NAME -> "<" + expand(token.text()) + ">";
+            case LITERAL -> literal(token);
+            case NUMBER -> "\"" + token.text() + "\"^^<" + XSD + numberType(token.text()) + ">";
+            case BLANK_NODE -> "_:" + blankNodePrefix + token.text();
+            case VARIABLE -> {
+                if (!variables) {
+                    throw new IllegalArgumentException("Unexpected variable ?" + token.text());
+                }
+                yield "?" + token.text();
+            }
+            case WORD -> {
+                if (predicate && token.text().equals("a")) {
+                    yield RDF_TYPE;
+                }
+                if (token.text().equals("true") || token.text().equals("false")) {
+                    yield "\"" + token.text() + "\"^^<" + XSD + "boolean>";
+                }
+                throw new IllegalArgumentException("Unexpected " + token.text());
+            }
+            case PUNCTUATION -> throw new IllegalArgumentException("Unexpected '" + token.text() + "'");
+        };
+    }
+
+    private String literal(Token token) {
+        String suffix = token.suffix();
+        if (suffix == null) {
+            return "\"" + token.text() + "\"";
+        }
+        if (suffix.startsWith("@")) {
+            return "\"" + token.text() + "\"" + suffix.toLowerCase();
+        }
+        String datatype = suffix.substring(2);
+        datatype = datatype.startsWith("<") ? datatype.substring(1, datatype.length() - 1) : expand(datatype);
+        // xsd:string is the datatype of plain literals
+        return (XSD + "string").equals(datatype)
+            ? "\"" + token.text() + "\""
+            : "\"" + token.text() + "\"^^<" + datatype + ">";
+    }
+
+    private String expand(String prefixedName) {
+        int colon = prefixedName.indexOf(':');
+        String namespace = prefixes.get(prefixedName.substring(0, colon));
+        if (namespace == null) {
+            throw new IllegalArgumentException("Unknown prefix in " + prefixedName);
+        }
+        return namespace + prefixedName.substring(colon + 1);
+    }
+
+    private static String numberType(String number) {
+        if (number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+            return "double";
+        }
+        return number.indexOf('.') >= 0 ? "decimal" : "integer";
+    }
+
+    private Token next() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of input");
+        }
+        return tokens.get(position++);
+    }
+
+    private Token expect(Type type) {
+        Token token = next();
+        if (token.type() != type) {
+            throw new IllegalArgumentException("Expected " + type + " but found " + token.text());
+        }
+        return token;
+    }
+
+    private void expectPunctuation(String punctuation) {
+        if (!accept(punctuation)) {
+            throw new IllegalArgumentException("Expected '" + punctuation + "'");
+        }
+    }
+
+    private boolean accept(String punctuation) {
+        if (position < tokens.size() && tokens.get(position).is(punctuation)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+}
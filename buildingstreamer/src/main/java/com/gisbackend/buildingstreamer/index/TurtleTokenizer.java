@@ -0,0 +1,177 @@
+package com.gisbackend.buildingstreamer.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tokenizer for the Turtle in GraphData and for the SPARQL subset of graph
+ * queries. Literals keep their escapes, so the same literal always yields the
+ * same term; a language tag or datatype is kept as suffix. Prefixed names are
+ * left for the parser to expand.
+ */
+public final class TurtleTokenizer {
+
+    public enum Type {
+        IRI, PREFIXED_NAME, LITERAL, NUMBER, BLANK_NODE, VARIABLE, WORD, PUNCTUATION
+    }
+
+    /**
+     * One token. For IRIs the text is without angle brackets, for literals the
+     * content without quotes and the suffix an @language tag or ^^datatype as
+     * written, for variables the name without ? or $. Start and end are the
+     * offsets of the token in the tokenized text, suffix included.
+     */
+    public record Token(Type type, String text, String suffix, int start, int end) {
+
+        public boolean is(String punctuation) {
+            return type == Type.PUNCTUATION && text.equals(punctuation);
+        }
+
+        public boolean isWord(String word) {
+            return type == Type.WORD && text.equalsIgnoreCase(word);
+        }
+    }
+
+    private final String text;
+    private int position;
+
+    private TurtleTokenizer(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @throws IllegalArgumentException on an unterminated IRI or literal
+     */
+    public static List<Token> tokenize(String text) {
+        TurtleTokenizer tokenizer = new TurtleTokenizer(text);
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        while ((token = tokenizer.next()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private Token next() {
+        skipWhitespaceAndComments();
+        if (position >= text.length()) {
+            return null;
+        }
+        int start = position;
+        char c = text.charAt(position);
+        if (c == '<') {
+            int end = text.indexOf('>', position);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated IRI at " + position);
+            }
+            String iri = text.substring(position + 1, end);
+            position = end + 1;
+            return new Token(Type.IRI, iri, null, start, position);
+        }
+        if (c == '"' || c == '\'') {
+            return literal(c);
+        }
+        if (c == '?' || c == '$') {
+            position++;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                position++;
+            }
+            return new Token(Type.VARIABLE, text.substring(start + 1, position), null, start, position);
+        }
+        if (".;,{}[]()*".indexOf(c) >= 0 && !(c == '.' && startsNumber(position))) {
+            position++;
+            return new Token(Type.PUNCTUATION, String.valueOf(c), null, start, position);
+        }
+        while (position < text.length() && !isDelimiter(position)) {
+            position++;
+        }
+        String word = text.substring(start, position);
+        if (word.startsWith("_:")) {
+            return new Token(Type.BLANK_NODE, word.substring(2), null, start, position);
+        }
+        if (startsNumber(start)) {
+            return new Token(Type.NUMBER, word, null, start, position);
+        }
+        if (word.indexOf(':') >= 0) {
+            return new Token(Type.PREFIXED_NAME, word, null, start, position);
+        }
+        return new Token(Type.WORD, word, null, start, position);
+    }
+
+    private Token literal(char quote) {
+        int tokenStart = position;
+        boolean longQuote = text.startsWith(String.valueOf(quote).repeat(3), position);
+        int quoteLength = longQuote ? 3 : 1;
+        int start = position + quoteLength;
+        int end = start;
+        while (true) {
+            if (end >= text.length()) {
+                throw new IllegalArgumentException("Unterminated literal at " + position);
+            }
+            char c = text.charAt(end);
+            if (c == '\\') {
+                end += 2;
+            } else if (c == quote && (!longQuote || text.startsWith(String.valueOf(quote).repeat(3), end))) {
+                break;
+            } else {
+                end++;
+            }
+        }
+        String content = text.substring(start, end);
+        position = end + quoteLength;
+        String suffix = null;
+        if (position < text.length() && text.charAt(position) == '@') {
+            int suffixStart = position++;
+            while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position))
+                    || text.charAt(position) == '-')) {
+                position++;
+            }
+            suffix = text.substring(suffixStart, position);
+        } else if (text.startsWith("^^", position)) {
+            position += 2;
+            Token datatype = next();
+            if (datatype == null || (datatype.type() != Type.IRI && datatype.type() != Type.PREFIXED_NAME)) {
+                throw new IllegalArgumentException("Missing datatype at " + position);
+            }
+            suffix = "^^" + (datatype.type() == Type.IRI ? "<" + datatype.text() + ">" : datatype.text());
+        }
+        return new Token(Type.LITERAL, content, suffix, tokenStart, position);
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '#') {
+                while (position < text.length() && text.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // A dot ends a name unless more name characters follow, as in inst:a.b
+    private boolean isDelimiter(int index) {
+        char c = text.charAt(index);
+        if (Character.isWhitespace(c) || ";,{}[]()<\"'#".indexOf(c) >= 0) {
+            return true;
+        }
+        return c == '.' && (index + 1 >= text.length() || !isNameChar(text.charAt(index + 1)));
+    }
+
+    private boolean startsNumber(int index) {
+        char c = text.charAt(index);
+        if (c == '+' || c == '-' || c == '.') {
+            return index + 1 < text.length() && Character.isDigit(text.charAt(index + 1));
+        }
+        return Character.isDigit(c);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == ':' || c == '.' || c == '%';
+    }
+}
@@ -0,0 +1,23 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+/**
+ * Processing stages of a Kafka record on its way into the building store.
+ */
+public enum IngestStage {
+
+    DESERIALIZE("deserialize"),
+    DECODE("decode"),
+    GEOCODE("geocode"),
+    STORE("store"),
+    ACCESS_RIGHTS("access_rights");
+
+    private final String tagValue;
+
+    IngestStage(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+}
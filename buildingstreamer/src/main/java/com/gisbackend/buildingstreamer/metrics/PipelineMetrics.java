@@ -0,0 +1,164 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters of the ingest pipeline. Meters are created once up front so
+ * recording on the hot path is a plain method call without registry lookups.
+ * All tags have a small, fixed set of values; percentiles and histograms are
+ * configured for the {@value #PREFIX} prefix in application.yml.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String PREFIX = "buildingstreamer";
+    // Reasons for records that are consumed without running the ingest pipeline
+    public static final String SKIPPED_OWN_MESSAGE = "own_message";
+    public static final String SKIPPED_UNCHANGED = "unchanged";
+    public static final String SKIPPED_SUPERSEDED = "superseded";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<IngestStage, Timer> stageTimers = new EnumMap<>(IngestStage.class);
+    private final Timer messagesProcessed;
+    private final Timer messagesFailed;
+    private final Counter buildingsStored;
+    private final Counter skippedOwnMessages;
+    private final Counter skippedUnchanged;
+    private final Counter skippedSuperseded;
+    private final Counter failedRetried;
+    private final Counter failedQuarantined;
+    private final Timer geocodingSuccess;
+    private final Timer geocodingEmpty;
+    private final Timer geocodingError;
+    private final Counter geocodingRetries;
+    private final Counter geocodingFailures;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (IngestStage stage : IngestStage.values()) {
+            stageTimers.put(stage, Timer.builder(PREFIX + ".ingest.stage")
+                .description("Time spent per ingest stage of a Kafka record")
+                .tag("stage", stage.getTagValue())
+                .register(meterRegistry));
+        }
+        messagesProcessed = messageTimer("success");
+        messagesFailed = messageTimer("error");
+        buildingsStored = Counter.builder(PREFIX + ".ingest.buildings")
+            .description("Buildings added or replaced by ingest")
+            .register(meterRegistry);
+        skippedOwnMessages = skippedCounter(SKIPPED_OWN_MESSAGE);
+        skippedUnchanged = skippedCounter(SKIPPED_UNCHANGED);
+        skippedSuperseded = skippedCounter(SKIPPED_SUPERSEDED);
+        failedRetried = failedCounter("retry");
+        failedQuarantined = failedCounter("quarantine");
+        geocodingSuccess = geocodingTimer("success");
+        geocodingEmpty = geocodingTimer("empty");
+        geocodingError = geocodingTimer("error");
+        geocodingRetries = Counter.builder(PREFIX + ".geocoding.retries")
+            .description("Nominatim requests that were retried")
+            .register(meterRegistry);
+        geocodingFailures = Counter.builder(PREFIX + ".geocoding.failures")
+            .description("Addresses that could not be geocoded after all attempts")
+            .register(meterRegistry);
+    }
+
+    public void recordStage(IngestStage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordMessage(boolean success, long nanos) {
+        (success ? messagesProcessed : messagesFailed).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void buildingStored() {
+        buildingsStored.increment();
+    }
+
+    // Reason is SKIPPED_OWN_MESSAGE, SKIPPED_UNCHANGED or SKIPPED_SUPERSEDED
+    public void messageSkipped(String reason) {
+        Counter counter = switch (reason) {
+            case SKIPPED_OWN_MESSAGE -> skippedOwnMessages;
+            case SKIPPED_SUPERSEDED -> skippedSuperseded;
+            default -> skippedUnchanged;
+        };
+        counter.increment();
+    }
+
+    // Failed message forwarded to a retry topic
+    public void messageRetried() {
+        failedRetried.increment();
+    }
+
+    // Failed message moved to the dead-letter topic and the quarantine
+    public void messageQuarantined() {
+        failedQuarantined.increment();
+    }
+
+    // Outcome of a single Nominatim request: "success", "empty" or "error"
+    public void recordGeocodingRequest(String outcome, long nanos) {
+        Timer timer = switch (outcome) {
+            case "success" -> geocodingSuccess;
+            case "empty" -> geocodingEmpty;
+            default -> geocodingError;
+        };
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void geocodingRetry() {
+        geocodingRetries.increment();
+    }
+
+    public void geocodingFailure() {
+        geocodingFailures.increment();
+    }
+
+    // Sends are rare compared to consumed records, the registry lookup is acceptable here
+    public void recordSend(String messageType, boolean success, long nanos) {
+        Timer.builder(PREFIX + ".kafka.send")
+            .description("Latency until the broker acknowledged a produced message")
+            .tag("message", messageType)
+            .tag("outcome", success ? "success" : "error")
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer stageTimer(IngestStage stage) {
+        return stageTimers.get(stage);
+    }
+
+    private Timer messageTimer(String outcome) {
+        return Timer.builder(PREFIX + ".ingest.messages")
+            .description("Total processing time of a Kafka record in KafkaService.publish")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private Counter skippedCounter(String reason) {
+        return Counter.builder(PREFIX + ".ingest.skipped")
+            .description("Records consumed without running the ingest pipeline")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    private Counter failedCounter(String outcome) {
+        return Counter.builder(PREFIX + ".ingest.failed")
+            .description("Records that failed to ingest, by where they were forwarded")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private Timer geocodingTimer(String outcome) {
+        return Timer.builder(PREFIX + ".geocoding.requests")
+            .description("Latency of single Nominatim requests")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
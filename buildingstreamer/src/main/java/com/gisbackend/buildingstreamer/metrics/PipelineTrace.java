@@ -0,0 +1,22 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Read-side copy of one traced Kafka record. Stage and geocoding timings are in
+ * nanoseconds.
+ */
+public record PipelineTrace(
+        long sequence,
+        int partition,
+        long offset,
+        Instant startedAt,
+        boolean success,
+        int buildings,
+        long totalNanos,
+        Map<String, Long> stageNanos,
+        int geocodingRequests,
+        int geocodingRetries,
+        long geocodingRequestNanos) {
+}
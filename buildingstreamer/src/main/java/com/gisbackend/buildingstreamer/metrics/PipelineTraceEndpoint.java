@@ -0,0 +1,38 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint /actuator/pipelinetraces listing the slowest and the most
+ * recent traced Kafka records.
+ */
+@Component
+@Endpoint(id = "pipelinetraces")
+public class PipelineTraceEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final PipelineTracer pipelineTracer;
+
+    public PipelineTraceEndpoint(PipelineTracer pipelineTracer) {
+        this.pipelineTracer = pipelineTracer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> traces(@Nullable Integer limit) {
+        int n = (limit != null && limit > 0) ? limit : DEFAULT_LIMIT;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", pipelineTracer.isEnabled());
+        result.put("capacity", pipelineTracer.getBuffer().capacity());
+        result.put("recorded", pipelineTracer.getBuffer().recorded());
+        result.put("slowest", pipelineTracer.slowest(n));
+        result.put("recent", pipelineTracer.recent(n));
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records per Kafka record partition, offset and nanosecond stage timings of
+ * KafkaService.publish and NominatimService into a {@link TraceRingBuffer}.
+ * The record in flight is tracked in a reused thread-local context, so the only
+ * per-record cost is a few primitive writes. Work for the record on other
+ * threads is traced into a {@link Branch} of its own, which the thread of the
+ * record adds to its trace once the work is done.
+ */
+@Component
+public class PipelineTracer {
+
+    private final boolean enabled;
+    private final TraceRingBuffer buffer;
+    private final ThreadLocal<TraceContext> contexts = ThreadLocal.withInitial(TraceContext::new);
+
+    /**
+     * Trace context of work done for the record in flight on another thread.
+     */
+    public static final class Branch {
+
+        private final TraceContext context = new TraceContext();
+
+        private Branch(boolean active) {
+            context.active = active;
+        }
+    }
+
+    public PipelineTracer(
+            @Value("${app.tracing.enabled:true}") boolean enabled,
+            @Value("${app.tracing.capacity:1024}") int capacity) {
+        this.enabled = enabled;
+        this.buffer = new TraceRingBuffer(capacity);
+    }
+
+    public void begin(int partition, long offset) {
+        if (enabled) {
+            contexts.get().reset(partition, offset);
+        }
+    }
+
+    public void stage(IngestStage stage, long nanos) {
+        if (enabled) {
+            TraceContext context = contexts.get();
+            if (context.active) {
+                context.stageNanos[stage.ordinal()] += nanos;
+            }
+        }
+    }
+
+    public void buildingStored() {
+        if (enabled) {
+            TraceContext context = contexts.get();
+            if (context.active) {
+                context.buildings++;
+            }
+        }
+    }
+
+    public void geocodingRequest(long nanos, boolean retry) {
+        if (enabled) {
+            TraceContext context = contexts.get();
+            if (context.active) {
+                context.geocodingRequests++;
+                context.geocodingRequestNanos += nanos;
+                if (retry) {
+                    context.geocodingRetries++;
+                }
+            }
+        }
+    }
+
+    /**
+     * New branch of the record in flight on this thread, inactive if there is none.
+     */
+    public Branch branch() {
+        return new Branch(enabled && contexts.get().active);
+    }
+
+    /**
+     * Runs the task on this thread with the branch as trace context.
+     */
+    public <T> T trace(Branch branch, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        TraceContext previous = contexts.get();
+        contexts.set(branch.context);
+        try {
+            return task.get();
+        } finally {
+            contexts.set(previous);
+        }
+    }
+
+    /**
+     * Adds what was traced into the branch to the record in flight on this
+     * thread. The branch must be done.
+     */
+    public void merge(Branch branch) {
+        if (enabled) {
+            TraceContext context = contexts.get();
+            TraceContext traced = branch.context;
+            if (context.active && traced.active) {
+                context.buildings += traced.buildings;
+                for (int i = 0; i < context.stageNanos.length; i++) {
+                    context.stageNanos[i] += traced.stageNanos[i];
+                }
+                context.geocodingRequests += traced.geocodingRequests;
+                context.geocodingRetries += traced.geocodingRetries;
+                context.geocodingRequestNanos += traced.geocodingRequestNanos;
+            }
+        }
+    }
+
+    public void end(boolean success) {
+        if (enabled) {
+            TraceContext context = contexts.get();
+            if (context.active) {
+                buffer.write(context, System.nanoTime() - context.startedNanos, success);
+                context.active = false;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public TraceRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    public List<PipelineTrace> recent(int limit) {
+        List<PipelineTrace> traces = buffer.snapshot();
+        return traces.subList(0, Math.min(limit, traces.size()));
+    }
+
+    public List<PipelineTrace> slowest(int limit) {
+        return buffer.snapshot().stream()
+            .sorted(Comparator.comparingLong(PipelineTrace::totalNanos).reversed())
+            .limit(limit)
+            .toList();
+    }
+}
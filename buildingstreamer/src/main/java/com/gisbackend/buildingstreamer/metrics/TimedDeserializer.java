@@ -0,0 +1,64 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Deserializer wrapper that records the time spent decoding record values.
+ */
+public class TimedDeserializer<T> implements Deserializer<T> {
+
+    private final Deserializer<T> delegate;
+    private final Timer timer;
+
+    public TimedDeserializer(Deserializer<T> delegate, Timer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deserialize(topic, data);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deserialize(topic, headers, data);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deserialize(topic, headers, data);
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
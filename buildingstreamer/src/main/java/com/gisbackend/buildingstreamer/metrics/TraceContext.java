@@ -0,0 +1,34 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Mutable per-thread scratch space for the record currently being processed.
+ * Reused for every record so tracing does not allocate on the hot path.
+ */
+class TraceContext {
+
+    boolean active;
+    int partition;
+    long offset;
+    long startedAtMillis;
+    long startedNanos;
+    int buildings;
+    final long[] stageNanos = new long[IngestStage.values().length];
+    int geocodingRequests;
+    int geocodingRetries;
+    long geocodingRequestNanos;
+
+    void reset(int partition, long offset) {
+        this.active = true;
+        this.partition = partition;
+        this.offset = offset;
+        this.startedAtMillis = System.currentTimeMillis();
+        this.startedNanos = System.nanoTime();
+        this.buildings = 0;
+        Arrays.fill(stageNanos, 0L);
+        this.geocodingRequests = 0;
+        this.geocodingRetries = 0;
+        this.geocodingRequestNanos = 0;
+    }
+}
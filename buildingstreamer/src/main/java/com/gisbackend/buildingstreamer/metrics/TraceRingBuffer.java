@@ -0,0 +1,114 @@
+package com.gisbackend.buildingstreamer.metrics;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free ring of pipeline traces stored as primitive columns.
+ * Writers claim a slot with a single atomic increment and overwrite the oldest
+ * entry; every slot carries a sequence lock (odd while being written), so
+ * readers copy a slot optimistically and drop it if it changed underneath them.
+ */
+public class TraceRingBuffer {
+
+    private static final int STAGES = IngestStage.values().length;
+
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLongArray versions;
+    private final long[] sequences;
+    private final int[] partitions;
+    private final long[] offsets;
+    private final long[] startedAtMillis;
+    private final boolean[] successes;
+    private final int[] buildings;
+    private final long[] totalNanos;
+    private final long[] stageNanos;
+    private final int[] geocodingRequests;
+    private final int[] geocodingRetries;
+    private final long[] geocodingRequestNanos;
+
+    public TraceRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.versions = new AtomicLongArray(capacity);
+        this.sequences = new long[capacity];
+        this.partitions = new int[capacity];
+        this.offsets = new long[capacity];
+        this.startedAtMillis = new long[capacity];
+        this.successes = new boolean[capacity];
+        this.buildings = new int[capacity];
+        this.totalNanos = new long[capacity];
+        this.stageNanos = new long[capacity * STAGES];
+        this.geocodingRequests = new int[capacity];
+        this.geocodingRetries = new int[capacity];
+        this.geocodingRequestNanos = new long[capacity];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long recorded() {
+        return head.get();
+    }
+
+    void write(TraceContext context, long total, boolean success) {
+        long sequence = head.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        versions.set(slot, 2 * sequence + 1);
+        VarHandle.storeStoreFence();
+        sequences[slot] = sequence;
+        partitions[slot] = context.partition;
+        offsets[slot] = context.offset;
+        startedAtMillis[slot] = context.startedAtMillis;
+        successes[slot] = success;
+        buildings[slot] = context.buildings;
+        totalNanos[slot] = total;
+        System.arraycopy(context.stageNanos, 0, stageNanos, slot * STAGES, STAGES);
+        geocodingRequests[slot] = context.geocodingRequests;
+        geocodingRetries[slot] = context.geocodingRetries;
+        geocodingRequestNanos[slot] = context.geocodingRequestNanos;
+        versions.setRelease(slot, 2 * sequence + 2);
+    }
+
+    /**
+     * Consistent copies of all currently held traces, newest first.
+     */
+    public List<PipelineTrace> snapshot() {
+        long newest = head.get() - 1;
+        List<PipelineTrace> traces = new ArrayList<>();
+        for (long sequence = newest; sequence >= 0 && sequence > newest - capacity(); sequence--) {
+            PipelineTrace trace = read((int) (sequence & mask), sequence);
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    private PipelineTrace read(int slot, long expectedSequence) {
+        long before = versions.getAcquire(slot);
+        if (before != 2 * expectedSequence + 2) {
+            return null;
+        }
+        Map<String, Long> stages = new LinkedHashMap<>();
+        for (IngestStage stage : IngestStage.values()) {
+            long nanos = stageNanos[slot * STAGES + stage.ordinal()];
+            if (nanos > 0) {
+                stages.put(stage.getTagValue(), nanos);
+            }
+        }
+        PipelineTrace trace = new PipelineTrace(sequences[slot], partitions[slot], offsets[slot],
+            Instant.ofEpochMilli(startedAtMillis[slot]), successes[slot], buildings[slot], totalNanos[slot], stages,
+            geocodingRequests[slot], geocodingRetries[slot], geocodingRequestNanos[slot]);
+        VarHandle.loadLoadFence();
+        return versions.get(slot) == before ? trace : null;
+    }
+}
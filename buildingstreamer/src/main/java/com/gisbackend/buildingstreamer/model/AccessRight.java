@@ -3,30 +3,34 @@ package com.gisbackend.buildingstreamer.model;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class AccessRight {
 
     @JsonProperty("Id")
-    private String id;
+    String id;
 
     @JsonProperty("Name")
-    private String name;
+    String name;
 
     @JsonProperty("GuidelineClassificationId")
-    private String guidelineClassificationId;
+    String guidelineClassificationId;
 
     @JsonProperty("UserGroupId")
-    private String userGroupId;
+    String userGroupId;
 
     @JsonProperty("UseCaseId")
-    private String useCaseId;
+    String useCaseId;
 
     @JsonProperty("GuidlineClassificationPropertyId")
-    private String guidlineClassificationPropertyId;
+    String guidlineClassificationPropertyId;
 
     @JsonProperty("Right")
-    private int right;
+    int right;
 }
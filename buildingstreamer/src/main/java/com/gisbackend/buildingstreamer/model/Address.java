@@ -1,18 +1,21 @@
 package com.gisbackend.buildingstreamer.model;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 public class Address {
 
-    private String id;
-    private String country;
-    private String city;
-    private String postalCode;
-    private String streetName;
-    private String houseNumber;
-    private String deprecatedLatitude;
-    private String deprecatedLongitude;
-    private GeoCoordinate geoCoordinate;
-
+    String id;
+    String country;
+    String city;
+    String postalCode;
+    String streetName;
+    String houseNumber;
+    String deprecatedLatitude;
+    String deprecatedLongitude;
+    GeoCoordinate geoCoordinate;
 }
@@ -1,37 +1,49 @@
 package com.gisbackend.buildingstreamer.model;
 
 import com.fasterxml.jackson.annotation.JsonAnySetter;
-import java.util.HashMap;
 import java.util.Map;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+/**
+ * Read-only; changed copies are made with toBuilder(). The additional
+ * attributes are an unmodifiable map.
+ */
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 public class Building {
     
-    private String id;
-    private String buildingId;
-    private String name;
-    private String validFrom;
-    private String buildingCode;
-    private String parkingSpaces;
-    private String constructionYear;
-    private String primaryHeatingType;
-    private String energyEfficiencyClass;
-    private String primaryTypeOfBuilding;
-    private Address address;
-    private Map<String, String> additionalAttributes = new HashMap<>();
+    String id;
+    String buildingId;
+    String name;
+    String validFrom;
+    String buildingCode;
+    String parkingSpaces;
+    String constructionYear;
+    String primaryHeatingType;
+    String energyEfficiencyClass;
+    String primaryTypeOfBuilding;
+    Address address;
+    @Singular
+    Map<String, String> additionalAttributes;
 
-    @JsonAnySetter
-    public void setAdditionalAttribute(String key, String value) {
-        this.additionalAttributes.put(key, value);
+    /**
+     * Copy of this building whose additional attributes are the given map.
+     */
+    public Building withAdditionalAttributes(Map<String, String> additionalAttributes) {
+        return toBuilder().clearAdditionalAttributes().additionalAttributes(additionalAttributes).build();
     }
 
-    public Map<String, String> getAdditionalAttributes() {
-        return additionalAttributes;
-    }
+    public static class BuildingBuilder {
 
-    public void setAdditionalAttributes(Map<String, String> additionalAttributes) {
-        this.additionalAttributes = additionalAttributes;
+        // Properties without a field of their own
+        @JsonAnySetter
+        private BuildingBuilder unknownProperty(String key, String value) {
+            return additionalAttribute(key, value);
+        }
     }
 }
@@ -0,0 +1,7 @@
+package com.gisbackend.buildingstreamer.model;
+
+/**
+ * Building returned by a proximity query with its great-circle distance in meters.
+ */
+public record BuildingDistance(double distanceMeters, Building building) {
+}
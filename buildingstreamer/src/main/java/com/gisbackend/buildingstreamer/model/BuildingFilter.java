@@ -0,0 +1,23 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Filter expression for the building query. Either a combination
+ * ({@code and}, {@code or}, {@code not}) or a condition on one field with
+ * exactly one of {@code eq}, {@code in} or an inclusive {@code from}/{@code to}
+ * range. Fields are the indexed building fields or {@code attributes.<key>}.
+ */
+@Data
+public class BuildingFilter {
+    private List<BuildingFilter> and;
+    private List<BuildingFilter> or;
+    private BuildingFilter not;
+    private String field;
+    private String eq;
+    private List<String> in;
+    private String from;
+    private String to;
+}
@@ -0,0 +1,10 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.List;
+
+/**
+ * Buildings binned into quadkey tiles of one zoom level, {@code total} is the
+ * sum over the returned cells.
+ */
+public record BuildingGrid(int precision, long total, List<GridCell> cells) {
+}
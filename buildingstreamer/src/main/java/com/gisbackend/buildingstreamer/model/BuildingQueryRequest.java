@@ -0,0 +1,10 @@
+package com.gisbackend.buildingstreamer.model;
+
+import lombok.Data;
+
+@Data
+public class BuildingQueryRequest {
+    private BuildingFilter filter;
+    private int offset = 0;
+    private int limit = 100;
+}
@@ -0,0 +1,9 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.List;
+
+/**
+ * One page of buildings matching a query, {@code total} counts all matches.
+ */
+public record BuildingQueryResult(int total, int offset, List<Building> buildings) {
+}
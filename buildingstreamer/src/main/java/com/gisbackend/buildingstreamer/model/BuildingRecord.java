@@ -0,0 +1,24 @@
+package com.gisbackend.buildingstreamer.model;
+
+/**
+ * Immutable, versioned snapshot of a stored building together with the
+ * GraphDataModel it was ingested from. A new record is published for every
+ * change; published records and the objects they reference are never mutated,
+ * the GraphDataModel is a {@link GraphDataModel#frozen() read-only} copy.
+ * The row id is assigned once per building and used as key by the secondary
+ * indexes. The content hash identifies the message the record was ingested
+ * from, and is 0 when the record was changed otherwise since. The source is
+ * the position of the message the building was last ingested from, null if it
+ * never was; other changes keep it.
+ */
+public record BuildingRecord(String id, int rowId, long version, Building building, GraphDataModel graphDataModel,
+        long contentHash, MessagePosition source) {
+
+    public BuildingRecord withBuilding(Building building) {
+        return new BuildingRecord(id, rowId, version + 1, building, graphDataModel, 0, source);
+    }
+
+    public BuildingRecord withGraphDataModel(GraphDataModel graphDataModel) {
+        return new BuildingRecord(id, rowId, version + 1, building, graphDataModel, 0, source);
+    }
+}
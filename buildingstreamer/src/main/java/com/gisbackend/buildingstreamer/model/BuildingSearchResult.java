@@ -0,0 +1,7 @@
+package com.gisbackend.buildingstreamer.model;
+
+/**
+ * Search hit returned by the building search, higher scores rank first.
+ */
+public record BuildingSearchResult(double score, Building building) {
+}
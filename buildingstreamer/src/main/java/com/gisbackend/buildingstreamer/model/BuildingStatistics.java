@@ -0,0 +1,13 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Result of an ad-hoc aggregation, {@code total} counts all buildings that
+ * passed the filters.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BuildingStatistics(String groupBy, String field, long total, List<GroupStatistics> groups) {
+}
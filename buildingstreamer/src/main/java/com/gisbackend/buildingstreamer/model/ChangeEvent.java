@@ -0,0 +1,21 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One entry of the change feed. Building events carry the building as it was
+ * published, attribute changes also the attributes that were set; access right
+ * events carry the added access right, or nothing when all were cleared. The
+ * id is the building or access right id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChangeEvent(long sequence, Type type, String id, Instant time, Building building,
+        Map<String, String> attributes, AccessRight accessRight) {
+
+    public enum Type {
+        BUILDING_ADDED, BUILDING_REPLACED, BUILDING_ATTRIBUTES_CHANGED, ACCESS_RIGHT_ADDED, ACCESS_RIGHTS_CLEARED
+    }
+}
@@ -0,0 +1,13 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.List;
+
+/**
+ * Changes after a sequence number, oldest first. {@code next} is the sequence
+ * to ask for the following changes with, {@code more} tells whether further
+ * changes are already available. If {@code resyncRequired} is set the changes
+ * asked for are no longer retained, the client has to download the full state
+ * again and continue from {@code next}.
+ */
+public record ChangeFeed(boolean resyncRequired, long next, boolean more, List<ChangeEvent> changes) {
+}
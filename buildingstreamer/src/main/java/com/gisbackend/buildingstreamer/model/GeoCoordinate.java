@@ -1,12 +1,25 @@
 package com.gisbackend.buildingstreamer.model;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
-@Data
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 public class GeoCoordinate {
     
-    private String id;
-    private String coordinateReferenceSystem;
-    private String latitude;
-    private String longitude;
+    String id;
+    String coordinateReferenceSystem;
+    String latitude;
+    String longitude;
+    // As received, when the coordinate was converted to WGS84 at ingest
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    String originalCoordinateReferenceSystem;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    String originalLatitude;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    String originalLongitude;
 }
@@ -0,0 +1,14 @@
+package com.gisbackend.buildingstreamer.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.Data;
+
+/**
+ * GeoJSON geometry object, coordinates are nested [lon, lat] positions.
+ */
+@Data
+public class GeoJsonGeometry {
+    private String type;
+    private JsonNode coordinates;
+}
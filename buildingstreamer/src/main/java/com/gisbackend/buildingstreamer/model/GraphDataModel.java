@@ -26,11 +26,14 @@ public class GraphDataModel {
     @JsonProperty("UseCase")
     private UseCase useCase;
 
+    private boolean frozen;
+
     public String getGraphTemplate() {
         return graphTemplate;
     }
 
     public void setGraphTemplate(String graphTemplate) {
+        checkNotFrozen();
         if (isValidTurtle(graphTemplate)) {
             this.graphTemplate = graphTemplate;
         } else {
@@ -38,11 +41,24 @@ public class GraphDataModel {
         }
     }
 
+    /**
+     * Replaces the template with an equal instance, such as a pooled one,
+     * without re-validation.
+     */
+    public void replaceGraphTemplate(String equalGraphTemplate) {
+        checkNotFrozen();
+        if (!Objects.equals(graphTemplate, equalGraphTemplate)) {
+            throw new IllegalArgumentException("The replacement differs from the graph template.");
+        }
+        this.graphTemplate = equalGraphTemplate;
+    }
+
     public String getGraphData() {
         return graphData;
     }
 
     public void setGraphData(String graphData) {
+        checkNotFrozen();
         if (isValidTurtle(graphData)) {
             this.graphData = graphData;
         } else {
@@ -55,6 +71,7 @@ public class GraphDataModel {
     }
 
     public void setAccessRights(List<AccessRight> accessRights) {
+        checkNotFrozen();
         this.accessRights = accessRights;
     }
 
@@ -63,6 +80,7 @@ public class GraphDataModel {
     }
 
     public void setUseCase(UseCase useCase) {
+        checkNotFrozen();
         this.useCase = useCase;
     }
 
@@ -71,6 +89,7 @@ public class GraphDataModel {
     }
 
     public void setGraphMetadata(List<MetaDataNode> graphMetadata) {
+        checkNotFrozen();
         if (areValidMetadataEntries(graphMetadata)) {
             this.graphMetadata = graphMetadata;
         } else {
@@ -82,6 +101,62 @@ public class GraphDataModel {
         this.graphMetadata = new ArrayList<>();
     }
 
+    /**
+     * Creates a copy with its own metadata nodes so that the copy can be modified
+     * without touching a stored instance. Values are taken over without re-validation.
+     */
+    public GraphDataModel copy() {
+        GraphDataModel copy = new GraphDataModel();
+        copy.graphTemplate = graphTemplate;
+        copy.graphData = graphData;
+        for (MetaDataNode node : graphMetadata) {
+            copy.graphMetadata.add(node.copy());
+        }
+        copy.accessRights = accessRights != null ? new ArrayList<>(accessRights) : null;
+        copy.useCase = useCase;
+        return copy;
+    }
+
+    /**
+     * Read-only copy, as stored with a building. Its setters, metadata nodes
+     * and lists throw UnsupportedOperationException; changes are made on a
+     * copy(). Values are taken over without re-validation.
+     */
+    public GraphDataModel frozen() {
+        if (frozen) {
+            return this;
+        }
+        GraphDataModel frozenCopy = new GraphDataModel();
+        frozenCopy.graphTemplate = graphTemplate;
+        frozenCopy.graphData = graphData;
+        List<MetaDataNode> nodes = new ArrayList<>(graphMetadata.size());
+        for (MetaDataNode node : graphMetadata) {
+            nodes.add(node.frozen());
+        }
+        frozenCopy.graphMetadata = Collections.unmodifiableList(nodes);
+        frozenCopy.accessRights = accessRights != null
+            ? Collections.unmodifiableList(new ArrayList<>(accessRights))
+            : null;
+        frozenCopy.useCase = useCase;
+        frozenCopy.frozen = true;
+        return frozenCopy;
+    }
+
+    /**
+     * Creates a model for a part of this one, with the given graph data and
+     * metadata nodes and the template, access rights and use case of this
+     * one. Values are taken over without re-validation.
+     */
+    public GraphDataModel part(String graphData, List<MetaDataNode> graphMetadata) {
+        GraphDataModel part = new GraphDataModel();
+        part.graphTemplate = graphTemplate;
+        part.graphData = graphData;
+        part.graphMetadata = graphMetadata;
+        part.accessRights = accessRights;
+        part.useCase = useCase;
+        return part;
+    }
+
     public void serializeToFile(String filePath) throws IOException {
         ObjectMapper mapper = new ObjectMapper();
         mapper.writerWithDefaultPrettyPrinter().writeValue(new File(filePath), this);
@@ -106,6 +181,12 @@ public class GraphDataModel {
         return mapper.readValue(file, GraphDataModel.class);
     }
 
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The GraphDataModel is read-only, change a copy().");
+        }
+    }
+
     private static boolean isValidTurtle(String turtleContent) {
         if (turtleContent == null || turtleContent.trim().isEmpty()) {
             return false;
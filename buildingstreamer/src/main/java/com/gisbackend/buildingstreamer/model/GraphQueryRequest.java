@@ -0,0 +1,9 @@
+package com.gisbackend.buildingstreamer.model;
+
+import lombok.Data;
+
+@Data
+public class GraphQueryRequest {
+    private String query;
+    private int limit = 100;
+}
@@ -0,0 +1,12 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solutions of a graph pattern query, each binding the selected variables to
+ * terms in N-Triples notation. {@code truncated} is set when the limit cut off
+ * further solutions.
+ */
+public record GraphQueryResult(List<String> variables, List<Map<String, String>> bindings, boolean truncated) {
+}
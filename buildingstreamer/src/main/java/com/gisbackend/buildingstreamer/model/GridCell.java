@@ -0,0 +1,14 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One populated map tile. {@code bbox} is [minLon, minLat, maxLon, maxLat];
+ * the average energy class is left out when no building in the cell has one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GridCell(String quadkey, double[] bbox, int count, String averageEnergyClass,
+        Map<String, Integer> energyEfficiencyClasses, Map<String, Integer> buildingTypes) {
+}
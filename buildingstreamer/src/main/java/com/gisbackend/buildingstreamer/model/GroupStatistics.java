@@ -0,0 +1,14 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Aggregates of one group, metrics that were not requested are left out.
+ * Histogram keys are the lower bound of each bucket.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GroupStatistics(String group, long count, Integer min, Integer max, Double avg,
+        Map<Integer, Long> histogram, Map<String, Integer> percentiles) {
+}
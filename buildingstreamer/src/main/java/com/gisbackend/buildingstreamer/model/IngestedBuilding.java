@@ -0,0 +1,10 @@
+package com.gisbackend.buildingstreamer.model;
+
+/**
+ * Building decoded from a message, with the GraphDataModel it came from, the
+ * content hash of that model (0 if it should not be recognized as unchanged
+ * later) and the position of the message, null if it has none.
+ */
+public record IngestedBuilding(Building building, GraphDataModel graphDataModel, long contentHash,
+        MessagePosition source) {
+}
@@ -0,0 +1,14 @@
+package com.gisbackend.buildingstreamer.model;
+
+/**
+ * Position of a message on a Kafka topic. Unlike the versions of a store,
+ * positions mean the same on every instance; offsets only order the messages
+ * of one topic partition.
+ */
+public record MessagePosition(String topic, int partition, long offset) {
+
+    // Whether this message came after the other one on the same topic partition
+    public boolean isAfter(MessagePosition other) {
+        return topic.equals(other.topic) && partition == other.partition && offset > other.offset;
+    }
+}
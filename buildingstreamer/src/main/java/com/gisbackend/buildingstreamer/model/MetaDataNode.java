@@ -15,6 +15,8 @@ public class MetaDataNode {
     @JsonProperty("PropertiesValues")
     private Map<String, String> propertiesValues;
 
+    private boolean frozen;
+
     public MetaDataNode() {
         this.id = "";
         this.classType = "";
@@ -26,6 +28,7 @@ public class MetaDataNode {
     }
 
     public void setId(String id) {
+        checkNotFrozen();
         this.id = id;
     }
 
@@ -34,6 +37,7 @@ public class MetaDataNode {
     }
 
     public void setClassType(String classType) {
+        checkNotFrozen();
         this.classType = classType;
     }
 
@@ -42,6 +46,39 @@ public class MetaDataNode {
     }
 
     public void setPropertiesValues(Map<String, String> propertiesValues) {
+        checkNotFrozen();
         this.propertiesValues = propertiesValues;
     }
+
+    public MetaDataNode copy() {
+        MetaDataNode copy = new MetaDataNode();
+        copy.id = id;
+        copy.classType = classType;
+        copy.propertiesValues = new HashMap<>(propertiesValues);
+        return copy;
+    }
+
+    /**
+     * Read-only copy, whose setters and properties map throw
+     * UnsupportedOperationException. Property order is kept.
+     */
+    public MetaDataNode frozen() {
+        if (frozen) {
+            return this;
+        }
+        MetaDataNode frozenCopy = new MetaDataNode();
+        frozenCopy.id = id;
+        frozenCopy.classType = classType;
+        frozenCopy.propertiesValues = propertiesValues != null
+            ? Collections.unmodifiableMap(new LinkedHashMap<>(propertiesValues))
+            : null;
+        frozenCopy.frozen = true;
+        return frozenCopy;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The metadata node is read-only, change a copy().");
+        }
+    }
 }
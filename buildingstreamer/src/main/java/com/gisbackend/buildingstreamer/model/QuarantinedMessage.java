@@ -0,0 +1,12 @@
+package com.gisbackend.buildingstreamer.model;
+
+import java.time.Instant;
+
+/**
+ * Message from the building topic that could not be ingested, with where it
+ * was first received, how often it was retried and the last error. The id is
+ * derived from topic, partition and offset of the original record.
+ */
+public record QuarantinedMessage(String id, String topic, int partition, long offset, String key, int attempts,
+        String error, Instant quarantinedAt, String payload) {
+}
@@ -3,19 +3,23 @@ package com.gisbackend.buildingstreamer.model;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import lombok.Data;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class UseCase {
 
     @JsonProperty("Id")
-    private String id;
+    String id;
 
     @JsonProperty("Name")
-    private String name;
+    String name;
 
     @JsonProperty("Description")
-    private String description;
+    String description;
 
 }
@@ -2,19 +2,33 @@ package com.gisbackend.buildingstreamer.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.springframework.stereotype.Service;
 import com.gisbackend.buildingstreamer.model.AccessRight;
 
 @Service
 public class AccessRightsService {
 
-    private final List<AccessRight> accessRights = new ArrayList<>();
+    // Read on every request and written rarely, also from parallel ingest workers
+    private final List<AccessRight> accessRights = new CopyOnWriteArrayList<>();
+
+    private final ChangeLog changeLog;
+
+    public AccessRightsService(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
 
     // Retrieve all AccessRights
     public List<AccessRight> getAllAccessRights() {
         return new ArrayList<>(accessRights);
     }
 
+    // Number of stored AccessRights
+    public int getAccessRightCount() {
+        return accessRights.size();
+    }
+
     // Retrieve AccessRights by GuidelineClassificationId
     public List<AccessRight> getAccessRightsByGuidelineClassificationId(String guidelineClassificationId) {
         List<AccessRight> filteredAccessRights = new ArrayList<>();
@@ -29,10 +43,24 @@ public class AccessRightsService {
     // Add a new AccessRight
     public void addAccessRight(AccessRight accessRight) {
         accessRights.add(accessRight);
+        changeLog.accessRightAdded(accessRight);
+    }
+
+    // Add an AccessRight unless one with the same ID exists, true if it was added
+    public synchronized boolean addAccessRightIfAbsent(AccessRight accessRight) {
+        for (AccessRight existing : accessRights) {
+            if (existing.getId().equals(accessRight.getId())) {
+                return false;
+            }
+        }
+        accessRights.add(accessRight);
+        changeLog.accessRightAdded(accessRight);
+        return true;
     }
 
     // Clear all AccessRights (for testing or reset purposes)
     public void clearAccessRights() {
         accessRights.clear();
+        changeLog.accessRightsCleared();
     }
 }
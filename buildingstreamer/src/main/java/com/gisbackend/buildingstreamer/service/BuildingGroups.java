@@ -0,0 +1,271 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer;
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Token;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+
+/**
+ * Splits a message with several Building nodes into one GraphDataModel per
+ * building. A building's group holds the Building node and every node the
+ * hasAddress and hasGeoCoordinate triples of the graph data link it to, without
+ * crossing into another building, so an address shared by two buildings ends
+ * up in both groups. Nodes no triple links to a building go with the closest
+ * Building node before them in the message, or the first one.
+ * <p>
+ * Each group gets the prefixes and the graph data statements about its nodes.
+ * A statement is split off whole, from its subject to the closing '.', so its
+ * predicate and object lists and multi-line literals stay together. It goes
+ * to the groups of its subject, or of the nodes it mentions if the subject is
+ * no node of the message, and to every group if it mentions none. The
+ * template, use case and access rights are shared. Messages with at most one
+ * Building node are returned as they are.
+ */
+final class BuildingGroups {
+
+    static final String BUILDING_CLASS = "https://ibpdi.datacat.org/class/Building";
+    private static final String[] LINK_PREDICATES = { "hasAddress", "hasGeoCoordinate" };
+
+    private BuildingGroups() {
+    }
+
+    // Tokens of a directive or of a statement up to its '.', with its offsets in the graph data
+    private record Statement(List<Token> tokens, boolean directive, int start, int end) {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the graph data of a message with
+     *                                  several buildings has an unterminated
+     *                                  IRI or literal
+     */
+    static List<GraphDataModel> split(GraphDataModel graphDataModel) {
+        List<MetaDataNode> nodes = graphDataModel.getGraphMetadata();
+        int buildingCount = 0;
+        for (MetaDataNode node : nodes) {
+            if (BUILDING_CLASS.equals(node.getClassType())) {
+                buildingCount++;
+            }
+        }
+        if (buildingCount <= 1) {
+            return List.of(graphDataModel);
+        }
+
+        Map<String, Integer> nodeIndexes = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i).getId() != null) {
+                nodeIndexes.putIfAbsent(nodes.get(i).getId(), i);
+            }
+        }
+
+        // Node indexes each statement is about, and the links between nodes
+        String text = graphDataModel.getGraphData();
+        List<Statement> statements = text != null ? statements(text) : List.of();
+        int[][] statementNodes = new int[statements.size()][];
+        List<List<Integer>> links = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            links.add(new ArrayList<>(2));
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            if (statement.directive()) {
+                statementNodes[i] = new int[0];
+                continue;
+            }
+            Integer subjectNode = nodeIndexes.get(localName(statement.tokens().get(0)));
+            if (subjectNode != null) {
+                statementNodes[i] = new int[] { subjectNode };
+            } else {
+                int[] mentioned = new int[statement.tokens().size()];
+                int count = 0;
+                for (Token token : statement.tokens()) {
+                    Integer index = nodeIndexes.get(localName(token));
+                    if (index != null) {
+                        mentioned[count++] = index;
+                    }
+                }
+                statementNodes[i] = Arrays.copyOf(mentioned, count);
+            }
+            forEachTriple(statement.tokens(), (subject, predicate, object) -> {
+                if (isLink(predicate)) {
+                    Integer from = nodeIndexes.get(localName(subject));
+                    Integer to = nodeIndexes.get(localName(object));
+                    if (from != null && to != null) {
+                        links.get(from).add(to);
+                        links.get(to).add(from);
+                    }
+                }
+            });
+        }
+
+        // Nodes reachable from each building without passing another building, in message order
+        List<List<Integer>> members = new ArrayList<>(buildingCount);
+        int[] reachedBy = new int[nodes.size()];
+        Arrays.fill(reachedBy, -1);
+        boolean[] assigned = new boolean[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            if (!BUILDING_CLASS.equals(nodes.get(i).getClassType())) {
+                continue;
+            }
+            int group = members.size();
+            List<Integer> member = new ArrayList<>(4);
+            Deque<Integer> pending = new ArrayDeque<>();
+            reachedBy[i] = group;
+            member.add(i);
+            pending.add(i);
+            while (!pending.isEmpty()) {
+                for (int linked : links.get(pending.poll())) {
+                    if (reachedBy[linked] != group && !BUILDING_CLASS.equals(nodes.get(linked).getClassType())) {
+                        reachedBy[linked] = group;
+                        member.add(linked);
+                        pending.add(linked);
+                    }
+                }
+            }
+            for (int node : member) {
+                assigned[node] = true;
+            }
+            members.add(member);
+        }
+        int current = 0;
+        for (int i = 0, building = 0; i < nodes.size(); i++) {
+            if (BUILDING_CLASS.equals(nodes.get(i).getClassType())) {
+                current = building++;
+            } else if (!assigned[i]) {
+                members.get(current).add(i);
+            }
+        }
+
+        // Graph data of every group in one pass over the statements
+        List<List<Integer>> nodeGroups = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeGroups.add(new ArrayList<>(1));
+        }
+        for (int g = 0; g < members.size(); g++) {
+            members.get(g).sort(null);
+            for (int node : members.get(g)) {
+                nodeGroups.get(node).add(g);
+            }
+        }
+        StringBuilder[] graphData = new StringBuilder[members.size()];
+        for (int g = 0; g < graphData.length; g++) {
+            graphData[g] = new StringBuilder();
+        }
+        int[] appended = new int[members.size()];
+        Arrays.fill(appended, -1);
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            if (statementNodes[i].length == 0) {
+                for (StringBuilder data : graphData) {
+                    data.append(text, statement.start(), statement.end()).append('\n');
+                }
+                continue;
+            }
+            for (int node : statementNodes[i]) {
+                for (int g : nodeGroups.get(node)) {
+                    if (appended[g] != i) {
+                        appended[g] = i;
+                        graphData[g].append(text, statement.start(), statement.end()).append('\n');
+                    }
+                }
+            }
+        }
+
+        List<GraphDataModel> groups = new ArrayList<>(buildingCount);
+        for (int g = 0; g < members.size(); g++) {
+            List<MetaDataNode> groupNodes = new ArrayList<>(members.get(g).size());
+            for (int node : members.get(g)) {
+                groupNodes.add(nodes.get(node));
+            }
+            groups.add(graphDataModel.part(text != null ? graphData[g].toString() : null, groupNodes));
+        }
+        return groups;
+    }
+
+    // Directives and statements in order; prefix and base directives in SPARQL style have no closing '.'
+    private static List<Statement> statements(String graphData) {
+        List<Token> tokens = TurtleTokenizer.tokenize(graphData);
+        List<Statement> statements = new ArrayList<>();
+        int first = 0;
+        while (first < tokens.size()) {
+            Token token = tokens.get(first);
+            boolean directive = token.isWord("@prefix") || token.isWord("@base") || token.isWord("prefix")
+                || token.isWord("base");
+            int last = first;
+            if (directive && !token.text().startsWith("@")) {
+                last = first + (token.isWord("prefix") ? 2 : 1);
+            } else {
+                // The '.' of a nested blank node property list or collection does not end the statement
+                int depth = 0;
+                while (last < tokens.size() && !(depth == 0 && tokens.get(last).is("."))) {
+                    Token current = tokens.get(last++);
+                    if (current.is("[") || current.is("(")) {
+                        depth++;
+                    } else if ((current.is("]") || current.is(")")) && depth > 0) {
+                        depth--;
+                    }
+                }
+            }
+            last = Math.min(last, tokens.size() - 1);
+            statements.add(new Statement(tokens.subList(first, last + 1), directive, token.start(),
+                tokens.get(last).end()));
+            first = last + 1;
+        }
+        return statements;
+    }
+
+    @FunctionalInterface
+    private interface TripleVisitor {
+        void visit(Token subject, Token predicate, Token object);
+    }
+
+    // Triples of the statement's predicate and object lists, leaving out nested blank nodes and collections
+    private static void forEachTriple(List<Token> statement, TripleVisitor visitor) {
+        Token subject = statement.get(0);
+        Token predicate = null;
+        int depth = 0;
+        for (int i = 1; i < statement.size(); i++) {
+            Token token = statement.get(i);
+            if (token.is("[") || token.is("(")) {
+                depth++;
+            } else if (token.is("]") || token.is(")")) {
+                depth = Math.max(0, depth - 1);
+            } else if (depth > 0 || token.is(",")) {
+                continue;
+            } else if (token.is(";") || token.is(".")) {
+                predicate = null;
+            } else if (predicate == null) {
+                predicate = token;
+            } else {
+                visitor.visit(subject, predicate, token);
+            }
+        }
+    }
+
+    private static boolean isLink(Token term) {
+        String name = localName(term);
+        for (String predicate : LINK_PREDICATES) {
+            if (predicate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Local part of an IRI or prefixed name, null for other tokens
+    static String localName(Token token) {
+        String text = token.text();
+        return switch (token.type()) {
+            case IRI -> text.substring(Math.max(text.lastIndexOf('/'), text.lastIndexOf('#')) + 1);
+            case PREFIXED_NAME -> text.substring(text.indexOf(':') + 1);
+            default -> null;
+        };
+    }
+}
@@ -1,59 +1,324 @@
 package com.gisbackend.buildingstreamer.service;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gisbackend.buildingstreamer.index.BitmapIndex;
+import com.gisbackend.buildingstreamer.index.BuildingIndex;
+import com.gisbackend.buildingstreamer.index.BuildingJsonCache;
+import com.gisbackend.buildingstreamer.index.ColumnStore;
+import com.gisbackend.buildingstreamer.index.GridIndex;
+import com.gisbackend.buildingstreamer.index.PointIndex;
+import com.gisbackend.buildingstreamer.index.PreparedPolygon;
+import com.gisbackend.buildingstreamer.index.RoaringBitmap;
+import com.gisbackend.buildingstreamer.index.RowTable;
+import com.gisbackend.buildingstreamer.index.SearchIndex;
+import com.gisbackend.buildingstreamer.index.SpatialIndex;
+import com.gisbackend.buildingstreamer.index.TemporalIndex;
+import com.gisbackend.buildingstreamer.index.TripleIndex;
 import com.gisbackend.buildingstreamer.model.Address;
 import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.BuildingDistance;
+import com.gisbackend.buildingstreamer.model.BuildingFilter;
+import com.gisbackend.buildingstreamer.model.BuildingGrid;
+import com.gisbackend.buildingstreamer.model.BuildingQueryResult;
+import com.gisbackend.buildingstreamer.model.BuildingRecord;
+import com.gisbackend.buildingstreamer.model.BuildingSearchResult;
+import com.gisbackend.buildingstreamer.model.ChangeEvent;
+import com.gisbackend.buildingstreamer.model.ChangeFeed;
+import com.gisbackend.buildingstreamer.model.GeoJsonGeometry;
 import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.IngestedBuilding;
+import com.gisbackend.buildingstreamer.model.MessagePosition;
+import com.gisbackend.buildingstreamer.model.GridCell;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * In-memory building store. Every building is kept as an immutable, versioned
+ * {@link BuildingRecord}; writers publish new records atomically via
+ * {@code compute}, readers only dereference the current record and never lock.
+ * Secondary indexes are updated inside the same {@code compute}, so they see
+ * the changes of one building in publication order.
+ */
 @Slf4j
 @Service
 public class BuildingService {
 
-    private final Map<String, Building> buildingStorage = new ConcurrentHashMap<>();
-    private final Map<String, GraphDataModel> buildingGraphDataStorage = new HashMap<>();
+    private static final int POLYGON_CACHE_SIZE = 64;
 
+    private final Map<String, BuildingRecord> buildingStorage = new ConcurrentHashMap<>();
+    private final RowTable<BuildingRecord> rows = new RowTable<>();
+    private final AtomicInteger nextRowId = new AtomicInteger();
+    private final AtomicLong storeVersion = new AtomicLong();
+    // Random per process, so store versions of different boots and instances are told apart
+    private final String storeEpoch = Long.toUnsignedString(new SecureRandom().nextLong(), 36);
+    // Prepared polygons by content hash, least recently used evicted
+    private final Map<String, List<PreparedPolygon>> preparedPolygons = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<PreparedPolygon>> eldest) {
+                return size() > POLYGON_CACHE_SIZE;
+            }
+        });
+
+    // KafkaService depends on this service, so it is injected lazily after construction
     @Lazy
     @Autowired
     private KafkaService kafkaService;
 
+    private final List<BuildingIndex> buildingIndexes;
+    private final SearchIndex searchIndex;
+    private final BitmapIndex bitmapIndex;
+    private final ColumnStore columnStore;
+    private final SpatialIndex spatialIndex;
+    private final GridIndex gridIndex;
+    private final BuildingJsonCache jsonCache;
+    private final PointIndex pointIndex;
+    private final TemporalIndex temporalIndex;
+    private final ChangeLog changeLog;
+    private final TripleIndex tripleIndex;
+
+    /**
+     * @param buildingIndexes all indexes, updated on every change; the others
+     *                        are among them and queried directly
+     */
+    public BuildingService(List<BuildingIndex> buildingIndexes, SearchIndex searchIndex, BitmapIndex bitmapIndex,
+            ColumnStore columnStore, SpatialIndex spatialIndex, GridIndex gridIndex, BuildingJsonCache jsonCache,
+            PointIndex pointIndex, TemporalIndex temporalIndex, ChangeLog changeLog, TripleIndex tripleIndex) {
+        this.buildingIndexes = List.copyOf(buildingIndexes);
+        this.searchIndex = searchIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.columnStore = columnStore;
+        this.spatialIndex = spatialIndex;
+        this.gridIndex = gridIndex;
+        this.jsonCache = jsonCache;
+        this.pointIndex = pointIndex;
+        this.temporalIndex = temporalIndex;
+        this.changeLog = changeLog;
+        this.tripleIndex = tripleIndex;
+    }
+
     public void addBuilding(Building building) {
-        buildingStorage.put(building.getId(), building);
+        ChangeEvent[] change = new ChangeEvent[1];
+        buildingStorage.compute(building.getId(), (id, current) -> publish(current, current == null
+            ? new BuildingRecord(id, nextRowId.getAndIncrement(), 1, building, null, 0, null)
+            : current.withBuilding(building), null, change, null));
+        commit(change);
+        storeVersion.incrementAndGet();
+    }
+
+    // Publish building and source GraphDataModel as one version
+    public void addBuilding(Building building, GraphDataModel graphDataModel) {
+        addBuilding(building, graphDataModel, 0, null);
+    }
+
+    /**
+     * Publishes building and source GraphDataModel as one version, remembering
+     * the content hash and the position of the message they were decoded from.
+     */
+    public void addBuilding(Building building, GraphDataModel graphDataModel, long contentHash,
+            MessagePosition source) {
+        addBuildings(List.of(new IngestedBuilding(building, graphDataModel, contentHash, source)));
+    }
+
+    /**
+     * Publishes the buildings of a message as one batch: each building and its
+     * GraphDataModel become one version, their changes are committed to the
+     * change log once all of them are visible, and the store version moves
+     * once for the batch.
+     */
+    public void addBuildings(List<IngestedBuilding> buildings) {
+        // Parsed and copied before compute, which holds the lock of the map bucket
+        List<int[]> triples = new ArrayList<>(buildings.size());
+        List<GraphDataModel> stored = new ArrayList<>(buildings.size());
+        for (IngestedBuilding ingested : buildings) {
+            triples.add(encodeTriples(ingested.building().getId(), ingested.graphDataModel()));
+            stored.add(ingested.graphDataModel() != null ? ingested.graphDataModel().frozen() : null);
+        }
+        ChangeEvent[] changes = new ChangeEvent[buildings.size()];
+        for (int i = 0; i < buildings.size(); i++) {
+            IngestedBuilding ingested = buildings.get(i);
+            GraphDataModel graphDataModel = stored.get(i);
+            int[] encodedTriples = triples.get(i);
+            ChangeEvent[] change = new ChangeEvent[1];
+            buildingStorage.compute(ingested.building().getId(), (id, current) -> publish(current, current == null
+                ? new BuildingRecord(id, nextRowId.getAndIncrement(), 1, ingested.building(), graphDataModel,
+                    ingested.contentHash(), ingested.source())
+                : new BuildingRecord(id, current.rowId(), current.version() + 1, ingested.building(), graphDataModel,
+                    ingested.contentHash(), ingested.source()),
+                null, change, encodedTriples));
+            changes[i] = change[0];
+        }
+        for (ChangeEvent change : changes) {
+            if (change != null) {
+                changeLog.commit(change);
+            }
+        }
+        if (!buildings.isEmpty()) {
+            storeVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Whether the building is stored exactly as ingested from a message with
+     * this content hash, so ingesting it again would not change anything.
+     */
+    public boolean isStoredFrom(String id, long contentHash) {
+        BuildingRecord record = buildingStorage.get(id);
+        return record != null && contentHash != 0 && record.contentHash() == contentHash;
+    }
+
+    /**
+     * Runs inside compute, so updates of one building reach the indexes and
+     * the change log in order. A changed building reserves its change log
+     * event into change, which the caller commits once compute has returned
+     * and the record is visible. Attributes are the ones set by an attribute
+     * change, null otherwise. Triples are the encoded graph data of a new
+     * GraphDataModel, null if the record keeps the previous one.
+     */
+    private BuildingRecord publish(BuildingRecord previous, BuildingRecord record, Map<String, String> attributes,
+            ChangeEvent[] change, int[] triples) {
+        rows.set(record.rowId(), record);
+        if (triples != null) {
+            try {
+                tripleIndex.update(record.rowId(), triples);
+            } catch (Exception e) {
+                log.error("Failed to update TripleIndex for building {}: {}", record.id(), e.getMessage());
+            }
+        }
+        if (previous == null || previous.building() != record.building()) {
+            Building previousBuilding = previous != null ? previous.building() : null;
+            for (BuildingIndex index : buildingIndexes) {
+                try {
+                    index.update(record.rowId(), previousBuilding, record.building());
+                } catch (Exception e) {
+                    log.error("Failed to update {} for building {}: {}", index.getClass().getSimpleName(),
+                            record.id(), e.getMessage());
+                }
+            }
+            if (change != null) {
+                ChangeEvent.Type type = previous == null ? ChangeEvent.Type.BUILDING_ADDED
+                    : attributes != null ? ChangeEvent.Type.BUILDING_ATTRIBUTES_CHANGED : ChangeEvent.Type.BUILDING_REPLACED;
+                change[0] = changeLog.reserve(type, record.building(), attributes);
+            }
+        }
+        return record;
+    }
+
+    private int[] encodeTriples(String buildingId, GraphDataModel graphDataModel) {
+        try {
+            return tripleIndex.encode(buildingId, graphDataModel);
+        } catch (Exception e) {
+            log.error("Failed to encode triples for building {}: {}", buildingId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void commit(ChangeEvent[] change) {
+        if (change[0] != null) {
+            changeLog.commit(change[0]);
+        }
     }
 
     public List<Building> getAllBuildings() {
-        return buildingStorage.values().stream().collect(Collectors.toList());
+        return buildingStorage.values().stream()
+            .map(BuildingRecord::building)
+            .collect(Collectors.toList());
+    }
+
+    public int getBuildingCount() {
+        return buildingStorage.size();
     }
 
     public Building getBuildingById(String id) {
+        BuildingRecord record = buildingStorage.get(id);
+        return (record != null) ? record.building() : null;
+    }
+
+    /**
+     * Versions of all buildings valid at the given time in epoch milliseconds.
+     */
+    public List<Building> getAllBuildings(long asOf) {
+        return temporalIndex.getAll(asOf);
+    }
+
+    /**
+     * Version of the building valid at the given time in epoch milliseconds,
+     * null if it did not exist then.
+     */
+    public Building getBuildingById(String id, long asOf) {
+        BuildingRecord record = buildingStorage.get(id);
+        return record != null ? temporalIndex.get(record.rowId(), asOf) : null;
+    }
+
+    /**
+     * Cached JSON encoding of the building if it is the currently published
+     * snapshot, otherwise null.
+     */
+    public byte[] getBuildingJson(Building building) throws JsonProcessingException {
+        if (building.getId() == null) {
+            return null;
+        }
+        BuildingRecord record = buildingStorage.get(building.getId());
+        return record != null && record.building() == building ? jsonCache.get(record.rowId(), building) : null;
+    }
+
+    public BuildingRecord getBuildingRecord(String id) {
         return buildingStorage.get(id);
     }
 
+    // Resolves a row id handed out by a secondary index
+    public BuildingRecord getBuildingRecord(int rowId) {
+        return rows.get(rowId);
+    }
+
+    /**
+     * Versions valid at the given time of the buildings in the city.
+     */
+    public List<Building> getBuildingsByCity(String city, long asOf) {
+        return temporalIndex.getAll(asOf, "city", city);
+    }
+
     public List<Building> getBuildingsByCity(String city) {
-        return buildingStorage.values().stream()
-            .filter(building -> building.getAddress() != null && 
-                    city.equalsIgnoreCase(building.getAddress().getCity()))
-            .collect(Collectors.toList());
+        return getBuildings(bitmapIndex.evaluate(equalsFilter("city", city), this::getBuildingByRow));
+    }
+
+    /**
+     * Versions valid at the given time of the buildings with the energy class.
+     */
+    public List<Building> getBuildingsByEnergyClass(String energyClass, long asOf) {
+        return temporalIndex.getAll(asOf, "energyEfficiencyClass", energyClass);
     }
 
     public List<Building> getBuildingsByEnergyClass(String energyClass) {
-        return buildingStorage.values().stream()
-            .filter(building -> energyClass.equalsIgnoreCase(building.getEnergyEfficiencyClass()))
-            .collect(Collectors.toList());
+        return getBuildings(bitmapIndex.evaluate(equalsFilter("energyEfficiencyClass", energyClass),
+                this::getBuildingByRow));
     }
 
     public Map<String, Long> getBuildingCountByType() {
         return buildingStorage.values().stream()
+            .map(BuildingRecord::building)
             .filter(building -> building.getPrimaryTypeOfBuilding() != null)
             .collect(Collectors.groupingBy(
                 Building::getPrimaryTypeOfBuilding,
@@ -61,23 +326,335 @@ public class BuildingService {
             ));
     }
 
+    /**
+     * Evaluates the filter on the bitmap index and resolves one page of the
+     * matching buildings, in insertion order.
+     *
+     * @throws IllegalArgumentException if the filter is malformed
+     */
+    public BuildingQueryResult queryBuildings(BuildingFilter filter, int offset, int limit) {
+        RoaringBitmap matches = bitmapIndex.evaluate(filter, this::getBuildingByRow);
+        List<Building> page = new ArrayList<>();
+        for (int rowId : matches.toArray(offset, limit)) {
+            Building building = getBuildingByRow(rowId);
+            if (building != null) {
+                page.add(building);
+            }
+        }
+        return new BuildingQueryResult(matches.cardinality(), offset, page);
+    }
+
+    /**
+     * Buildings matching all conditions, see {@link #selectRows(Map)}.
+     *
+     * @throws IllegalArgumentException for unknown fields or malformed conditions
+     */
+    public List<Building> getBuildingsMatching(Map<String, String> conditions) {
+        return conditions.isEmpty() ? getAllBuildings() : getBuildings(selectRows(conditions));
+    }
+
+    /**
+     * Row ids matching all conditions, keyed by field name. Numeric columns
+     * take ranges: {@code min..max} (either end optional), {@code >=n},
+     * {@code <=n}, {@code >n}, {@code <n} or a single value; a key ending in
+     * {@code >} or {@code <} is the unencoded form {@code parkingSpaces>=10}.
+     * Other indexed fields take a value or a comma-separated list of values;
+     * values are trimmed and empty ones left out.
+     *
+     * @throws IllegalArgumentException for unknown fields or malformed conditions
+     */
+    public RoaringBitmap selectRows(Map<String, String> conditions) {
+        RoaringBitmap result = null;
+        for (Map.Entry<String, String> condition : conditions.entrySet()) {
+            String key = condition.getKey();
+            String expression = condition.getValue().trim();
+            if (key.endsWith(">") || key.endsWith("<")) {
+                expression = key.substring(key.length() - 1) + "=" + expression;
+                key = key.substring(0, key.length() - 1);
+            }
+            RoaringBitmap rows;
+            ColumnStore.IntField field = ColumnStore.IntField.of(key);
+            if (field != null) {
+                int[] range = parseRange(expression);
+                rows = columnStore.range(field, range[0], range[1]);
+            } else if (BitmapIndex.isQueryable(key)) {
+                List<String> values = new ArrayList<>();
+                for (String value : expression.split(",")) {
+                    if (!value.isBlank()) {
+                        values.add(value.trim());
+                    }
+                }
+                if (values.isEmpty()) {
+                    throw new IllegalArgumentException("No value for " + key);
+                }
+                BuildingFilter filter = new BuildingFilter();
+                filter.setField(key);
+                filter.setIn(values);
+                rows = bitmapIndex.evaluate(filter, this::getBuildingByRow);
+            } else {
+                throw new IllegalArgumentException("No index for " + key);
+            }
+            result = result == null ? rows : result.and(rows);
+        }
+        return result == null ? bitmapIndex.evaluate(null, this::getBuildingByRow) : result;
+    }
+
+    /**
+     * Whether {@link #selectRows(Map)} takes conditions with this key.
+     */
+    public static boolean isFilterKey(String key) {
+        String field = key.endsWith(">") || key.endsWith("<") ? key.substring(0, key.length() - 1) : key;
+        return ColumnStore.IntField.of(field) != null || BitmapIndex.isQueryable(field);
+    }
+
+    private static int[] parseRange(String expression) {
+        try {
+            if (expression.startsWith(">=")) {
+                return new int[] { Integer.parseInt(expression.substring(2).trim()), Integer.MAX_VALUE };
+            }
+            if (expression.startsWith("<=")) {
+                return new int[] { Integer.MIN_VALUE + 1, Integer.parseInt(expression.substring(2).trim()) };
+            }
+            if (expression.startsWith(">")) {
+                return new int[] { Math.addExact(Integer.parseInt(expression.substring(1).trim()), 1), Integer.MAX_VALUE };
+            }
+            if (expression.startsWith("<")) {
+                return new int[] { Integer.MIN_VALUE + 1, Math.subtractExact(Integer.parseInt(expression.substring(1).trim()), 1) };
+            }
+            int separator = expression.indexOf("..");
+            if (separator < 0) {
+                int value = Integer.parseInt(expression);
+                return new int[] { value, value };
+            }
+            String from = expression.substring(0, separator).trim();
+            String to = expression.substring(separator + 2).trim();
+            return new int[] {
+                from.isEmpty() ? Integer.MIN_VALUE + 1 : Integer.parseInt(from),
+                to.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(to)
+            };
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid range: " + expression);
+        }
+    }
+
+    private List<Building> getBuildings(RoaringBitmap rowIds) {
+        List<Building> buildings = new ArrayList<>(rowIds.cardinality());
+        rowIds.forEach(rowId -> {
+            Building building = getBuildingByRow(rowId);
+            if (building != null) {
+                buildings.add(building);
+            }
+        });
+        return buildings;
+    }
+
+    private Building getBuildingByRow(int rowId) {
+        BuildingRecord record = rows.get(rowId);
+        return (record != null) ? record.building() : null;
+    }
+
+    private static BuildingFilter equalsFilter(String field, String value) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setField(field);
+        filter.setEq(value);
+        return filter;
+    }
+
+    public List<BuildingSearchResult> searchBuildings(String query, int limit) {
+        List<BuildingSearchResult> results = new ArrayList<>();
+        for (SearchIndex.SearchHit hit : searchIndex.search(query, limit)) {
+            BuildingRecord record = rows.get(hit.rowId());
+            if (record != null) {
+                results.add(new BuildingSearchResult(hit.score(), record.building()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The k buildings closest to the point, nearest first.
+     */
+    public List<BuildingDistance> getNearestBuildings(double lat, double lon, int k) {
+        return toDistances(spatialIndex.nearest(lat, lon, k));
+    }
+
+    /**
+     * Buildings within the radius around the point, nearest first.
+     */
+    public List<BuildingDistance> getBuildingsWithin(double lat, double lon, double radiusMeters, int limit) {
+        return toDistances(spatialIndex.within(lat, lon, radiusMeters, limit));
+    }
+
+    /**
+     * Building counts and distributions per quadkey tile within the bounding box.
+     */
+    public BuildingGrid getBuildingGrid(int precision, double minLon, double minLat, double maxLon, double maxLat) {
+        List<GridCell> cells = gridIndex.cells(precision, minLon, minLat, maxLon, maxLat);
+        long total = cells.stream().mapToLong(GridCell::count).sum();
+        return new BuildingGrid(precision, total, cells);
+    }
+
+    /**
+     * Packed marker buffer of all buildings with coordinates, see
+     * {@link PointIndex}.
+     */
+    public byte[] getBuildingPoints(boolean includeIds) {
+        return pointIndex.points(includeIds);
+    }
+
+    /**
+     * One page of the buildings inside a GeoJSON Polygon or MultiPolygon, in
+     * insertion order. Candidates come from the spatial index within each
+     * polygon's bounding box, then pass that prepared polygon's test.
+     *
+     * @throws IllegalArgumentException if the geometry is not a valid polygon
+     */
+    public BuildingQueryResult getBuildingsWithinPolygon(GeoJsonGeometry geometry, int offset, int limit) {
+        List<List<double[]>> polygons = polygons(geometry);
+        String key = polygonHash(polygons);
+        List<PreparedPolygon> prepared = preparedPolygons.get(key);
+        if (prepared == null) {
+            prepared = polygons.stream().map(PreparedPolygon::new).toList();
+            preparedPolygons.put(key, prepared);
+        }
+        int[][] matches = { new int[256] };
+        int[] count = { 0 };
+        // Each polygon has its own grid and box, so far-apart parts don't span everything between them
+        for (PreparedPolygon part : prepared) {
+            spatialIndex.forEachInBox(part.getMinLat(), part.getMinLon(), part.getMaxLat(), part.getMaxLon(),
+                (rowId, lat, lon) -> {
+                    if (part.contains(lon, lat)) {
+                        if (count[0] == matches[0].length) {
+                            matches[0] = Arrays.copyOf(matches[0], count[0] * 2);
+                        }
+                        matches[0][count[0]++] = rowId;
+                    }
+                });
+        }
+        int[] rowIds = Arrays.copyOf(matches[0], count[0]);
+        Arrays.sort(rowIds);
+        if (polygons.size() > 1) {
+            // Overlapping parts report the same row more than once
+            int distinct = 0;
+            for (int i = 0; i < rowIds.length; i++) {
+                if (i == 0 || rowIds[i] != rowIds[i - 1]) {
+                    rowIds[distinct++] = rowIds[i];
+                }
+            }
+            rowIds = Arrays.copyOf(rowIds, distinct);
+        }
+        List<Building> page = new ArrayList<>();
+        for (int i = offset; i < rowIds.length && page.size() < limit; i++) {
+            Building building = getBuildingByRow(rowIds[i]);
+            if (building != null) {
+                page.add(building);
+            }
+        }
+        return new BuildingQueryResult(rowIds.length, offset, page);
+    }
+
+    // Polygons as lists of rings, each ring a flat [lon, lat, ...] array with the outer ring first
+    private static List<List<double[]>> polygons(GeoJsonGeometry geometry) {
+        if (geometry == null || geometry.getCoordinates() == null || !geometry.getCoordinates().isArray()) {
+            throw new IllegalArgumentException("Geometry with coordinates required");
+        }
+        List<List<double[]>> polygons = new ArrayList<>();
+        if ("Polygon".equals(geometry.getType())) {
+            polygons.add(rings(geometry.getCoordinates()));
+        } else if ("MultiPolygon".equals(geometry.getType())) {
+            for (JsonNode polygon : geometry.getCoordinates()) {
+                polygons.add(rings(polygon));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type " + geometry.getType());
+        }
+        if (polygons.isEmpty()) {
+            throw new IllegalArgumentException("MultiPolygon without polygons");
+        }
+        return polygons;
+    }
+
+    private static List<double[]> rings(JsonNode polygon) {
+        if (!polygon.isArray() || polygon.isEmpty()) {
+            throw new IllegalArgumentException("Polygon must be a non-empty array of rings");
+        }
+        List<double[]> rings = new ArrayList<>();
+        for (JsonNode ring : polygon) {
+            if (!ring.isArray() || ring.size() < 4) {
+                throw new IllegalArgumentException("Ring needs at least 4 positions");
+            }
+            double[] coordinates = new double[ring.size() * 2];
+            int i = 0;
+            for (JsonNode position : ring) {
+                if (!position.isArray() || position.size() < 2 || !position.get(0).isNumber() || !position.get(1).isNumber()) {
+                    throw new IllegalArgumentException("Position must be [lon, lat]");
+                }
+                double lon = position.get(0).asDouble();
+                double lat = position.get(1).asDouble();
+                if (!(lon >= -180 && lon <= 180 && lat >= -90 && lat <= 90)) {
+                    throw new IllegalArgumentException("Position out of range: " + position);
+                }
+                coordinates[i++] = lon;
+                coordinates[i++] = lat;
+            }
+            rings.add(coordinates);
+        }
+        return rings;
+    }
+
+    private static String polygonHash(List<List<double[]>> polygons) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (List<double[]> rings : polygons) {
+                digest.update(ByteBuffer.allocate(4).putInt(rings.size()).array());
+                for (double[] ring : rings) {
+                    ByteBuffer bytes = ByteBuffer.allocate(4 + ring.length * Double.BYTES);
+                    bytes.putInt(ring.length);
+                    for (double value : ring) {
+                        bytes.putDouble(value);
+                    }
+                    digest.update(bytes.array());
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<BuildingDistance> toDistances(List<SpatialIndex.Neighbor> neighbors) {
+        List<BuildingDistance> results = new ArrayList<>(neighbors.size());
+        for (SpatialIndex.Neighbor neighbor : neighbors) {
+            Building building = getBuildingByRow(neighbor.rowId());
+            if (building != null) {
+                results.add(new BuildingDistance(neighbor.distanceMeters(), building));
+            }
+        }
+        return results;
+    }
+
     public Address getAddressByBuildingId(String id) {
-        Building building = buildingStorage.get(id);
+        Building building = getBuildingById(id);
         return (building != null) ? building.getAddress() : null;
     }
 
     public boolean addAttributesToBuilding(String buildingId, Map<String, String> attributes) {
-        Building building = buildingStorage.get(buildingId);
-        if (building != null) {
-            if (building.getAdditionalAttributes() == null) {
-                building.setAdditionalAttributes(new java.util.HashMap<>());
-            }
-            building.getAdditionalAttributes().putAll(attributes);
+        // Copy-on-write: merge into a new snapshot instead of touching the published one
+        ChangeEvent[] change = new ChangeEvent[1];
+        Map<String, String> changed = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+        BuildingRecord updated = buildingStorage.computeIfPresent(buildingId, (id, current) -> {
+            Map<String, String> merged = new HashMap<>(current.building().getAdditionalAttributes());
+            merged.putAll(changed);
+            return publish(current, current.withBuilding(current.building().withAdditionalAttributes(merged)), changed, change, null);
+        });
+        commit(change);
+        if (updated != null) {
+            storeVersion.incrementAndGet();
             log.info("Added attributes to building with ID: {}", buildingId);
-            log.info("Current attributes: {}", building.getAdditionalAttributes());
+            log.info("Current attributes: {}", updated.building().getAdditionalAttributes());
 
             // Notify KafkaService to send updated attributes
-            kafkaService.sendBuildingAttributes(building);
+            kafkaService.sendBuildingAttributes(updated.building());
 
             return true;
         }
@@ -85,11 +662,37 @@ public class BuildingService {
     }
 
     public void saveGraphDataModelForBuilding(String buildingId, GraphDataModel graphDataModel) {
-        buildingGraphDataStorage.put(buildingId, graphDataModel);
+        int[] triples = encodeTriples(buildingId, graphDataModel);
+        GraphDataModel stored = graphDataModel != null ? graphDataModel.frozen() : null;
+        buildingStorage.computeIfPresent(buildingId,
+            (id, current) -> publish(current, current.withGraphDataModel(stored), null, null, triples));
+        storeVersion.incrementAndGet();
         log.info("Saved GraphDataModel for building with ID: {}", buildingId);
     }
 
     public GraphDataModel getGraphDataModelForBuilding(String buildingId) {
-        return buildingGraphDataStorage.get(buildingId);
+        BuildingRecord record = buildingStorage.get(buildingId);
+        return (record != null) ? record.graphDataModel() : null;
+    }
+
+    /**
+     * Up to limit changes after the given change log sequence, or a resync
+     * marker if they are no longer retained.
+     */
+    public ChangeFeed getChanges(long since, int limit) {
+        return changeLog.getChanges(since, limit);
+    }
+
+    // Incremented on every published change, lets callers detect a modified store
+    public long getStoreVersion() {
+        return storeVersion.get();
+    }
+
+    /**
+     * Store version prefixed with a random epoch of this process, unique
+     * across restarts and instances; for ETags.
+     */
+    public String getStoreTag() {
+        return storeEpoch + "-" + storeVersion.get();
     }
-}
\ No newline at end of file
+}
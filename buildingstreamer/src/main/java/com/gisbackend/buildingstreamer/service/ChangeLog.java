@@ -0,0 +1,129 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.model.AccessRight;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.ChangeEvent;
+import com.gisbackend.buildingstreamer.model.ChangeFeed;
+
+/**
+ * Ring of the last app.changes.capacity changes to buildings and access
+ * rights, numbered by a sequence starting at 1. A change is recorded in two
+ * steps: its sequence is reserved while the change is applied, e.g. inside the
+ * {@code compute} of the building, so changes of one building are numbered in
+ * the order they were applied, and the event is committed to the ring once the
+ * change is visible. Readers return events up to the first one that is not
+ * committed yet, so a client never skips a change that becomes visible later.
+ * Neither side locks, and reading the changes since a sequence costs only the
+ * number of changes, not the number of buildings.
+ * <p>
+ * The sequence starts over when the service restarts, so clients asking for a
+ * sequence beyond the latest one are told to resync as well.
+ */
+@Service
+public class ChangeLog {
+
+    private final AtomicLong sequence = new AtomicLong();
+    // Every change up to this sequence is committed
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicReferenceArray<ChangeEvent> events;
+    private final int capacity;
+
+    public ChangeLog(@Value("${app.changes.capacity:100000}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.events = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * Numbers a change of a building; it is only visible to readers after
+     * {@link #commit}, which has to follow. Attributes are the ones set by an
+     * attribute change, null otherwise.
+     */
+    public ChangeEvent reserve(ChangeEvent.Type type, Building building, Map<String, String> attributes) {
+        return reserve(type, building.getId(), building, attributes, null);
+    }
+
+    public void accessRightAdded(AccessRight accessRight) {
+        commit(reserve(ChangeEvent.Type.ACCESS_RIGHT_ADDED, accessRight.getId(), null, null, accessRight));
+    }
+
+    public void accessRightsCleared() {
+        commit(reserve(ChangeEvent.Type.ACCESS_RIGHTS_CLEARED, null, null, null, null));
+    }
+
+    private ChangeEvent reserve(ChangeEvent.Type type, String id, Building building, Map<String, String> attributes,
+            AccessRight accessRight) {
+        long next = sequence.incrementAndGet();
+        return new ChangeEvent(next, type, id, Instant.now(), building, attributes, accessRight);
+    }
+
+    public void commit(ChangeEvent event) {
+        // Never replaces a newer event, should the ring have wrapped around in the meantime
+        events.accumulateAndGet(slot(event.sequence()), event,
+            (current, committed) -> current == null || current.sequence() < committed.sequence() ? committed : current);
+        advanceCommitted();
+    }
+
+    // Moves the watermark over the committed events that follow it; any committer may do so for the others
+    private void advanceCommitted() {
+        long watermark = committed.get();
+        while (watermark < sequence.get()) {
+            ChangeEvent event = events.get(slot(watermark + 1));
+            // An event newer than the slot's sequence means the ring has wrapped past it
+            if (event == null || event.sequence() < watermark + 1) {
+                return;
+            }
+            committed.compareAndSet(watermark, watermark + 1);
+            watermark = committed.get();
+        }
+    }
+
+    // Sequence of the latest change, including changes still being written
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Up to limit changes with a sequence greater than since, oldest first.
+     */
+    public ChangeFeed getChanges(long since, int limit) {
+        long latest = sequence.get();
+        if (since < 0 || since > latest || latest - since > capacity) {
+            return resync();
+        }
+        List<ChangeEvent> changes = new ArrayList<>((int) Math.min(limit, latest - since));
+        long next = since;
+        while (next < latest && changes.size() < limit) {
+            ChangeEvent event = events.get(slot(next + 1));
+            if (event == null || event.sequence() < next + 1) {
+                // Sequence taken, event not stored yet
+                break;
+            }
+            if (event.sequence() > next + 1) {
+                // Overwritten while reading
+                return resync();
+            }
+            changes.add(event);
+            next++;
+        }
+        return new ChangeFeed(false, next, next < latest, changes);
+    }
+
+    // Continues after the last change before the first one still uncommitted, all earlier ones are visible
+    private ChangeFeed resync() {
+        return new ChangeFeed(true, committed.get(), false, List.of());
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,78 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.Map;
+
+import com.gisbackend.buildingstreamer.model.AccessRight;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+
+/**
+ * 64-bit hash of everything ingest reads from a message: metadata nodes with
+ * their properties, graph data and template, use case and access rights.
+ * Property order does not matter, node order does. Never 0, which marks
+ * records without a known source message.
+ */
+final class ContentHash {
+
+    private static final long NULL = 0x9e3779b97f4a7c15L;
+
+    private ContentHash() {
+    }
+
+    static long of(GraphDataModel graphDataModel) {
+        long hash = string(graphDataModel.getGraphTemplate());
+        hash = combine(hash, string(graphDataModel.getGraphData()));
+        if (graphDataModel.getGraphMetadata() != null) {
+            for (MetaDataNode node : graphDataModel.getGraphMetadata()) {
+                hash = combine(hash, string(node.getClassType()));
+                hash = combine(hash, string(node.getId()));
+                hash = combine(hash, properties(node.getPropertiesValues()));
+            }
+        }
+        if (graphDataModel.getAccessRights() != null) {
+            for (AccessRight accessRight : graphDataModel.getAccessRights()) {
+                hash = combine(hash, string(String.valueOf(accessRight)));
+            }
+        }
+        hash = combine(hash, string(String.valueOf(graphDataModel.getUseCase())));
+        return hash != 0 ? hash : 1;
+    }
+
+    // Sum of the entry hashes, so the order of a deserialized map does not matter
+    private static long properties(Map<String, String> properties) {
+        if (properties == null) {
+            return NULL;
+        }
+        long sum = 0;
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            sum += mix(string(entry.getKey()) * 31 + string(entry.getValue()));
+        }
+        return mix(sum ^ properties.size());
+    }
+
+    private static long combine(long hash, long value) {
+        return mix(hash * 31 + value);
+    }
+
+    // FNV-1a over the UTF-16 code units, finished with a mix of all bits
+    private static long string(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash ^ value.length());
+    }
+
+    // Finalizer of MurmurHash3
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,187 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gisbackend.buildingstreamer.config.MessageOrigin;
+import com.gisbackend.buildingstreamer.config.RawValueRecordingDeserializer;
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Forwards a record that failed to ingest along the {@link RetryTopology}: to
+ * the next retry topic while retries are left, otherwise to the dead-letter
+ * topic, which the {@link QuarantineService} reads. Messages that cannot be decoded or are invalid
+ * (IllegalArgumentException from the GraphDataModel setters) are quarantined
+ * right away, retrying them would fail the same way. The send is awaited, so
+ * the failed record is only committed once the forwarded copy is on the
+ * broker; if the send fails the exception makes the container deliver the
+ * record again.
+ * <p>
+ * A part of a bulk message, the group of one building, is forwarded the same
+ * way with the headers of its message, so it is retried as if it had been
+ * received on its own.
+ */
+@Slf4j
+@Component
+public class FailedMessageRouter implements ConsumerRecordRecoverer {
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(FailedMessageRouter.class);
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private RetryTopology retryTopology;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        String key = record.key() != null ? record.key().toString() : null;
+        forward(record, key, payload(record, exception), exception, "");
+    }
+
+    /**
+     * Forwards the part of the record that failed, given as its own message
+     * with key and JSON payload, while the rest of the record was ingested.
+     */
+    public void acceptPart(ConsumerRecord<?, ?> record, String key, String payload, Exception exception) {
+        forward(record, key, payload, exception, " (part " + key + ")");
+    }
+
+    private void forward(ConsumerRecord<?, ?> record, String key, String payload, Exception exception,
+            String part) {
+        int attempts = RetryTopology.attempts(record.headers());
+        Throwable cause = rootCause(exception);
+        String error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+
+        ProducerRecord<String, String> forwarded;
+        boolean retry = attempts < retryTopology.getRetryCount() && isRetryable(exception) && payload != null;
+        if (retry) {
+            forwarded = new ProducerRecord<>(retryTopology.getRetryTopic(attempts), key, payload);
+        } else {
+            forwarded = new ProducerRecord<>(retryTopology.getDeadLetterTopic(), key, payload);
+        }
+        Headers headers = forwarded.headers();
+        copyHeaders(record.headers(), headers);
+        if (attempts == 0) {
+            RetryTopology.setHeader(headers, RetryTopology.ORIGINAL_TOPIC_HEADER, record.topic());
+            RetryTopology.setHeader(headers, RetryTopology.ORIGINAL_PARTITION_HEADER, record.partition());
+            RetryTopology.setHeader(headers, RetryTopology.ORIGINAL_OFFSET_HEADER, record.offset());
+        }
+        RetryTopology.setHeader(headers, RetryTopology.ERROR_HEADER, error);
+        if (retry) {
+            long due = System.currentTimeMillis() + retryTopology.getDelay(attempts).toMillis();
+            RetryTopology.setHeader(headers, RetryTopology.ATTEMPT_HEADER, attempts + 1);
+            RetryTopology.setHeader(headers, RetryTopology.DUE_HEADER, due);
+        }
+
+        try {
+            kafkaTemplate.send(forwarded).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new KafkaException("Failed to forward record to " + forwarded.topic(), e);
+        }
+
+        if (retry) {
+            pipelineMetrics.messageRetried();
+            log.warn("Record {}-{}@{}{} failed ({}), retry {} in {}", record.topic(), record.partition(),
+                record.offset(), part, error, attempts + 1, retryTopology.getDelay(attempts));
+        } else {
+            String topic = RetryTopology.header(headers, RetryTopology.ORIGINAL_TOPIC_HEADER);
+            int partition = Integer.parseInt(RetryTopology.header(headers, RetryTopology.ORIGINAL_PARTITION_HEADER));
+            long offset = Long.parseLong(RetryTopology.header(headers, RetryTopology.ORIGINAL_OFFSET_HEADER));
+            pipelineMetrics.messageQuarantined();
+            log.error("Record {}-{}@{}{} failed after {} retries ({}), quarantined", topic, partition, offset,
+                part, attempts, error);
+        }
+    }
+
+    /**
+     * Whether a retry of the failed record can succeed. Records that could not
+     * be decoded or were rejected as invalid would fail the same way again.
+     */
+    static boolean isRetryable(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException || cause instanceof IllegalArgumentException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Message as received: the recorded raw value, the undecodable bytes, or as a last resort the decoded
+    // GraphDataModel encoded again, which misses what the listener changed on it
+    private String payload(ConsumerRecord<?, ?> record, Exception exception) {
+        Header rawValue = record.headers().lastHeader(RawValueRecordingDeserializer.RAW_VALUE_HEADER);
+        if (rawValue != null) {
+            return new String(rawValue.value(), StandardCharsets.UTF_8);
+        }
+        DeserializationException deserializationException = deserializationException(record, exception);
+        if (deserializationException != null) {
+            byte[] data = deserializationException.getData();
+            return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+        }
+        Object value = record.value();
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (Exception e) {
+            log.error("Failed to encode failed record {}-{}@{}: {}", record.topic(), record.partition(),
+                record.offset(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static DeserializationException deserializationException(ConsumerRecord<?, ?> record, Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException deserializationException) {
+                return deserializationException;
+            }
+        }
+        return SerializationUtils.getExceptionFromHeader(record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER,
+            LOG_ACCESSOR);
+    }
+
+    // Keeps the headers of the original record, except the ones added while consuming it. The origin is
+    // left out too, a retry sent by this instance is not an echo of its own to skip
+    private static void copyHeaders(Headers from, Headers to) {
+        for (Header header : from) {
+            if (!header.key().startsWith(SerializationUtils.DESERIALIZER_EXCEPTION_HEADER_PREFIX)
+                    && !header.key().equals(RawValueRecordingDeserializer.RAW_VALUE_HEADER)
+                    && !header.key().equals(MessageOrigin.ORIGIN_HEADER)) {
+                to.add(header);
+            }
+        }
+    }
+
+    private static Throwable rootCause(Throwable exception) {
+        Throwable cause = exception;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
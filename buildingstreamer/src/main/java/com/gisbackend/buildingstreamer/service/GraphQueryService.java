@@ -0,0 +1,273 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.index.TripleIndex;
+import com.gisbackend.buildingstreamer.index.TripleParser;
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer;
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Token;
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Type;
+import com.gisbackend.buildingstreamer.model.GraphQueryResult;
+
+/**
+ * Basic graph pattern queries over the {@link TripleIndex}, in the SPARQL
+ * subset {@code PREFIX ... SELECT [DISTINCT] ?a ?b|* WHERE { patterns } [LIMIT n]}.
+ * Patterns are joined by index nested loops: each is evaluated with the
+ * variables bound so far as constants, so it is one range of the index. They
+ * are ordered greedily, patterns sharing a bound variable first and the one
+ * with the smallest range among them next.
+ */
+@Service
+public class GraphQueryService {
+
+    // Pattern positions hold either a constant term id or a variable index
+    private record Pattern(int[] constants, int[] variables) {
+    }
+
+    private final TripleIndex tripleIndex;
+
+    public GraphQueryService(TripleIndex tripleIndex) {
+        this.tripleIndex = tripleIndex;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the query is malformed or uses
+     *                                  unsupported syntax
+     */
+    public GraphQueryResult query(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query is empty");
+        }
+        List<Token> tokens = TurtleTokenizer.tokenize(query);
+        Map<String, String> prefixes = new HashMap<>();
+        int position = 0;
+        while (position < tokens.size() && tokens.get(position).isWord("prefix")) {
+            if (position + 2 >= tokens.size() || tokens.get(position + 1).type() != Type.PREFIXED_NAME
+                    || !tokens.get(position + 1).text().endsWith(":") || tokens.get(position + 2).type() != Type.IRI) {
+                throw new IllegalArgumentException("Expected PREFIX name: <iri>");
+            }
+            String name = tokens.get(position + 1).text();
+            prefixes.put(name.substring(0, name.length() - 1), tokens.get(position + 2).text());
+            position += 3;
+        }
+        if (position >= tokens.size() || !tokens.get(position++).isWord("select")) {
+            throw new IllegalArgumentException("Only SELECT queries are supported");
+        }
+        boolean distinct = position < tokens.size() && tokens.get(position).isWord("distinct");
+        if (distinct) {
+            position++;
+        }
+        List<String> selected = new ArrayList<>();
+        boolean all = position < tokens.size() && tokens.get(position).is("*");
+        if (all) {
+            position++;
+        }
+        while (!all && position < tokens.size() && tokens.get(position).type() == Type.VARIABLE) {
+            selected.add(tokens.get(position++).text());
+        }
+        if (!all && selected.isEmpty()) {
+            throw new IllegalArgumentException("Expected variables or * after SELECT");
+        }
+        if (position < tokens.size() && tokens.get(position).isWord("where")) {
+            position++;
+        }
+        if (position >= tokens.size() || !tokens.get(position++).is("{")) {
+            throw new IllegalArgumentException("Expected { after SELECT");
+        }
+        int end = position;
+        while (end < tokens.size() && !tokens.get(end).is("}")) {
+            end++;
+        }
+        if (end >= tokens.size()) {
+            throw new IllegalArgumentException("Expected } at end of the patterns");
+        }
+        List<String[]> patterns = new TripleParser(tokens.subList(position, end), prefixes, "").parsePatterns();
+        position = end + 1;
+        if (position < tokens.size() && tokens.get(position).isWord("limit")) {
+            if (position + 1 >= tokens.size() || tokens.get(position + 1).type() != Type.NUMBER) {
+                throw new IllegalArgumentException("Expected a number after LIMIT");
+            }
+            try {
+                limit = Math.min(limit, Integer.parseInt(tokens.get(position + 1).text()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid LIMIT " + tokens.get(position + 1).text());
+            }
+            position += 2;
+        }
+        if (position < tokens.size()) {
+            throw new IllegalArgumentException("Unexpected " + tokens.get(position).text() + " after the patterns");
+        }
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("No triple patterns");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Invalid LIMIT " + limit);
+        }
+
+        // Variables in order of appearance, blank nodes in patterns act as variables
+        Map<String, Integer> variableIndexes = new LinkedHashMap<>();
+        for (String[] pattern : patterns) {
+            for (String term : pattern) {
+                if (term.startsWith("?") || term.startsWith("_:")) {
+                    variableIndexes.putIfAbsent(variableName(term), variableIndexes.size());
+                }
+            }
+        }
+        if (all) {
+            variableIndexes.keySet().stream().filter(name -> !name.startsWith("_:")).forEach(selected::add);
+        }
+        List<Pattern> compiled = new ArrayList<>(patterns.size());
+        for (String[] pattern : patterns) {
+            int[] constants = new int[3];
+            int[] variables = new int[3];
+            for (int k = 0; k < 3; k++) {
+                String term = pattern[k];
+                if (term.startsWith("?") || term.startsWith("_:")) {
+                    constants[k] = -1;
+                    variables[k] = variableIndexes.get(variableName(term));
+                } else {
+                    constants[k] = tripleIndex.id(term);
+                    variables[k] = -1;
+                    if (constants[k] < 0) {
+                        // No triple uses this term, so nothing can match
+                        return new GraphQueryResult(selected, List.of(), false);
+                    }
+                }
+            }
+            compiled.add(new Pattern(constants, variables));
+        }
+
+        int[] projection = selected.stream().mapToInt(name -> variableIndexes.getOrDefault(name, -1)).toArray();
+        Evaluation evaluation = new Evaluation(tripleIndex.snapshot(), variableIndexes.size(), projection, distinct, limit);
+        evaluation.plan(compiled);
+        evaluation.evaluate(0);
+
+        List<Map<String, String>> bindings = new ArrayList<>(Math.min(evaluation.solutions.size(), limit));
+        for (int i = 0; i < evaluation.solutions.size() && i < limit; i++) {
+            int[] solution = evaluation.solutions.get(i);
+            Map<String, String> binding = new LinkedHashMap<>();
+            for (int v = 0; v < projection.length; v++) {
+                if (solution[v] >= 0) {
+                    binding.put(selected.get(v), tripleIndex.term(solution[v]));
+                }
+            }
+            bindings.add(binding);
+        }
+        return new GraphQueryResult(selected, bindings, evaluation.solutions.size() > limit);
+    }
+
+    private static String variableName(String term) {
+        return term.startsWith("?") ? term.substring(1) : term;
+    }
+
+    // Nested loop evaluation over the planned patterns, collects up to limit + 1 solutions
+    private static final class Evaluation {
+
+        private final TripleIndex.Snapshot snapshot;
+        private final int[] values;
+        private final int[] projection;
+        private final Set<List<Integer>> distinctSolutions;
+        private final int limit;
+        private final List<int[]> solutions = new ArrayList<>();
+        private Pattern[] plan;
+
+        Evaluation(TripleIndex.Snapshot snapshot, int variableCount, int[] projection, boolean distinct, int limit) {
+            this.snapshot = snapshot;
+            this.values = new int[variableCount];
+            this.projection = projection;
+            this.distinctSolutions = distinct ? new HashSet<>() : null;
+            this.limit = limit;
+            Arrays.fill(values, -1);
+        }
+
+        void plan(List<Pattern> patterns) {
+            List<Pattern> remaining = new ArrayList<>(patterns);
+            boolean[] bound = new boolean[values.length];
+            plan = new Pattern[patterns.size()];
+            for (int step = 0; step < plan.length; step++) {
+                Pattern best = null;
+                boolean bestConnected = false;
+                long bestEstimate = Long.MAX_VALUE;
+                for (Pattern pattern : remaining) {
+                    boolean connected = false;
+                    for (int variable : pattern.variables()) {
+                        connected |= variable >= 0 && bound[variable];
+                    }
+                    long estimate = snapshot.estimate(pattern.constants()[0], pattern.constants()[1],
+                        pattern.constants()[2]);
+                    if (best == null || (connected && !bestConnected)
+                            || (connected == bestConnected && estimate < bestEstimate)) {
+                        best = pattern;
+                        bestConnected = connected;
+                        bestEstimate = estimate;
+                    }
+                }
+                remaining.remove(best);
+                plan[step] = best;
+                for (int variable : best.variables()) {
+                    if (variable >= 0) {
+                        bound[variable] = true;
+                    }
+                }
+            }
+        }
+
+        // Returns false once enough solutions are collected
+        boolean evaluate(int depth) {
+            if (depth == plan.length) {
+                int[] solution = new int[projection.length];
+                for (int v = 0; v < projection.length; v++) {
+                    solution[v] = projection[v] >= 0 ? values[projection[v]] : -1;
+                }
+                if (distinctSolutions == null || distinctSolutions.add(Arrays.stream(solution).boxed().toList())) {
+                    solutions.add(solution);
+                }
+                return solutions.size() <= limit;
+            }
+            Pattern pattern = plan[depth];
+            int[] key = new int[3];
+            for (int k = 0; k < 3; k++) {
+                int variable = pattern.variables()[k];
+                key[k] = variable >= 0 ? values[variable] : pattern.constants()[k];
+            }
+            boolean[] more = { true };
+            snapshot.match(key[0], key[1], key[2], (subject, predicate, object) -> {
+                int[] triple = { subject, predicate, object };
+                int newlyBound = 0;
+                boolean consistent = true;
+                for (int k = 0; k < 3 && consistent; k++) {
+                    int variable = pattern.variables()[k];
+                    if (variable < 0 || key[k] >= 0) {
+                        continue;
+                    }
+                    if (values[variable] < 0) {
+                        values[variable] = triple[k];
+                        newlyBound |= 1 << k;
+                    } else {
+                        // Same variable twice in the pattern
+                        consistent = values[variable] == triple[k];
+                    }
+                }
+                if (consistent) {
+                    more[0] = evaluate(depth + 1);
+                }
+                for (int k = 0; k < 3; k++) {
+                    if ((newlyBound & (1 << k)) != 0) {
+                        values[pattern.variables()[k]] = -1;
+                    }
+                }
+                return more[0];
+            });
+            return more[0];
+        }
+    }
+}
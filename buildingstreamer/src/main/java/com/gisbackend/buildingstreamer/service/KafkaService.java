@@ -1,22 +1,40 @@
 package com.gisbackend.buildingstreamer.service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.gisbackend.buildingstreamer.config.BoundedExecutor;
+import com.gisbackend.buildingstreamer.config.MessageOrigin;
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.metrics.IngestStage;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.metrics.PipelineTracer;
 import com.gisbackend.buildingstreamer.model.AccessRight;
 import com.gisbackend.buildingstreamer.model.Address;
 import com.gisbackend.buildingstreamer.model.Building;
 import com.gisbackend.buildingstreamer.model.GeoCoordinate;
 import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.IngestedBuilding;
+import com.gisbackend.buildingstreamer.model.MessagePosition;
 import com.gisbackend.buildingstreamer.model.MetaDataNode;
 
 import lombok.extern.slf4j.Slf4j;
@@ -25,111 +43,395 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class KafkaService {
 
-    @Autowired
-    private BuildingService buildingService;
-
-    @Autowired
-    private NominatimService nominatimService;
-
-    @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
-
-    @Autowired
-    private AccessRightsService accessRightsService;
-
-    @Value("${KAFKA_TOPIC}")
-    private String kafkaTopic;
+    private final BuildingService buildingService;
+    private final NominatimService nominatimService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final AccessRightsService accessRightsService;
+    private final ReprojectionService reprojectionService;
+    private final PipelineMetrics pipelineMetrics;
+    private final PipelineTracer pipelineTracer;
+    private final BoundedExecutor outboundExecutor;
+    private final BoundedExecutor groupExecutor;
+    private final MessageOrigin messageOrigin;
+    private final StringPool stringPool;
+    private final RetryTopology retryTopology;
+    private final FailedMessageRouter failedMessageRouter;
+    private final int maxGeocodingPerMessage;
+    private final String kafkaTopic;
+
+    private final ObjectMapper nodeMapper = JsonMapper.builder()
+        .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)
+        .build();
+    // Serializes outbound messages, thread-safe once configured
+    private final ObjectMapper messageMapper = new ObjectMapper();
+
+    public KafkaService(BuildingService buildingService, NominatimService nominatimService,
+            KafkaTemplate<String, String> kafkaTemplate, AccessRightsService accessRightsService,
+            ReprojectionService reprojectionService, PipelineMetrics pipelineMetrics, PipelineTracer pipelineTracer,
+            @Qualifier("outboundExecutor") BoundedExecutor outboundExecutor,
+            @Qualifier("groupExecutor") BoundedExecutor groupExecutor, MessageOrigin messageOrigin,
+            StringPool stringPool, RetryTopology retryTopology, FailedMessageRouter failedMessageRouter,
+            @Value("${app.ingest.geocoding.max-per-message:10}") int maxGeocodingPerMessage,
+            @Value("${KAFKA_TOPIC}") String kafkaTopic) {
+        this.buildingService = buildingService;
+        this.nominatimService = nominatimService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.accessRightsService = accessRightsService;
+        this.reprojectionService = reprojectionService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.pipelineTracer = pipelineTracer;
+        this.outboundExecutor = outboundExecutor;
+        this.groupExecutor = groupExecutor;
+        this.messageOrigin = messageOrigin;
+        this.stringPool = stringPool;
+        this.retryTopology = retryTopology;
+        this.failedMessageRouter = failedMessageRouter;
+        this.maxGeocodingPerMessage = maxGeocodingPerMessage;
+        this.kafkaTopic = kafkaTopic;
+    }
 
-    @KafkaListener(topics = "${KAFKA_TOPIC}", groupId = "gis_group", containerFactory = "graphModelListener")
+    // Stays stopped when ParallelIngestListener consumes the topic instead
+    @KafkaListener(topics = "${KAFKA_TOPIC}", groupId = "gis_group", containerFactory = "graphModelListener",
+        autoStartup = "#{!${app.kafka.parallel.enabled:false}}")
     public void publish(GraphDataModel graphDataModel, ConsumerRecord<?, ?> record) {
+        publish(graphDataModel, record, Set.of());
+    }
+
+    /**
+     * Ingests a message, leaving out the superseded buildings, which were
+     * stored from a later message since the message first failed.
+     */
+    public void publish(GraphDataModel graphDataModel, ConsumerRecord<?, ?> record, Set<String> superseded) {
+        long started = System.nanoTime();
+        boolean success = false;
+        pipelineTracer.begin(record.partition(), record.offset());
         try {
             log.info("Processing Kafka message with Offset: {}", record.offset());
 
-            // Process the received GraphDataModel
-            List<Building> buildings = new ArrayList<>();
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.setConfig(mapper.getDeserializationConfig().with(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES));
-
-            // Initialize variables outside the loop
-            Address address = null;
-            Building building = null;
-            GeoCoordinate geoCoordinate = null;
-
-            // Process metadata nodes
-            for (MetaDataNode metaDataNode : graphDataModel.getGraphMetadata()) {
-                try {
-                    if (metaDataNode.getClassType().equals("https://ibpdi.datacat.org/class/Address")) {
-                        address = mapper.convertValue(metaDataNode.getPropertiesValues(), Address.class);
-                        address.setId(metaDataNode.getId());
-
-                        if (address.getDeprecatedLatitude() == null || address.getDeprecatedLongitude() == null) {
-                            try {
-                                log.warn("Address {} is missing coordinates, attempting to enrich...", address.getId());
-                                address = nominatimService.enrichAddressWithCoordinates(address);
-                            } catch (Exception e) {
-                                log.warn("Failed to enrich address {} with coordinates: {}", address.getId(),
-                                        e.getMessage());
-                            }
-                        }
-                    } else if (metaDataNode.getClassType().equals("https://ibpdi.datacat.org/class/Building")) {
-                        building = mapper.convertValue(metaDataNode.getPropertiesValues(), Building.class);
-                        building.setId(metaDataNode.getId());
-                    } else if (metaDataNode.getClassType().equals("https://ibpdi.datacat.org/class/GeoCoordinate")) {
-                        geoCoordinate = mapper.convertValue(metaDataNode.getPropertiesValues(), GeoCoordinate.class);
-                        geoCoordinate.setId(metaDataNode.getId());
-                    }
-
-                } catch (Exception e) {
-                    log.error("Error processing metadata node {}: {}", metaDataNode.getId(), e.getMessage());
+            // Before splitting, as groups share the nodes linked to several buildings
+            stringPool.canonicalize(graphDataModel);
+
+            // Bulk messages are decoded and geocoded per building, concurrently
+            List<GraphDataModel> groups = BuildingGroups.split(graphDataModel);
+            MessageGeocoding geocoding = new MessageGeocoding();
+            List<DecodedGroup> decodedGroups;
+            if (groups.size() == 1) {
+                decodedGroups = List.of(decode(graphDataModel, superseded, geocoding));
+            } else {
+                // Each group traces its geocoding requests into a branch, added to this record's trace once joined
+                List<CompletableFuture<DecodedGroup>> futures = new ArrayList<>(groups.size());
+                List<PipelineTracer.Branch> branches = new ArrayList<>(groups.size());
+                for (GraphDataModel group : groups) {
+                    PipelineTracer.Branch branch = pipelineTracer.branch();
+                    branches.add(branch);
+                    futures.add(groupExecutor.submit(
+                        () -> pipelineTracer.trace(branch, () -> decode(group, superseded, geocoding))));
+                }
+                decodedGroups = new ArrayList<>(groups.size());
+                for (CompletableFuture<DecodedGroup> future : futures) {
+                    decodedGroups.add(join(future));
                 }
+                branches.forEach(pipelineTracer::merge);
             }
 
-            // Create GeoCoordinate if missing
-            if (geoCoordinate == null && address != null
-                    && address.getDeprecatedLatitude() != null
-                    && address.getDeprecatedLongitude() != null) {
-                geoCoordinate = new GeoCoordinate();
-                geoCoordinate.setId(UUID.randomUUID().toString());
-                geoCoordinate.setLatitude(address.getDeprecatedLatitude());
-                geoCoordinate.setLongitude(address.getDeprecatedLongitude());
-                geoCoordinate.setCoordinateReferenceSystem("EPSG:4326");
+            int unchanged = 0;
+            for (DecodedGroup decoded : decodedGroups) {
+                if (decoded.unchanged()) {
+                    unchanged++;
+                } else {
+                    recordStage(IngestStage.DECODE, decoded.decodeNanos());
+                    if (decoded.geocodeNanos() > 0) {
+                        recordStage(IngestStage.GEOCODE, decoded.geocodeNanos());
+                    }
+                }
+            }
+            // Re-sent, unchanged portfolios cost a hash instead of decode, geocoding and store
+            if (unchanged == decodedGroups.size()) {
+                log.debug("All {} buildings are unchanged, skipping message with Offset: {}", unchanged, record.offset());
+                pipelineMetrics.messageSkipped(PipelineMetrics.SKIPPED_UNCHANGED);
+                success = true;
+                return;
+            }
 
-                // Send GeoCoordinate to Kafka
-                sendGeoCoordinate(geoCoordinate, graphDataModel, address.getId());
+            // While retries are left, a message with one building is retried whole. Of a bulk message the other
+            // buildings are stored and only the failed groups are retried, each as a message of its own. The last
+            // attempt stores them without the missing coordinates, and the message is quarantined
+            DecodedGroup failed = null;
+            List<DecodedGroup> retriedParts = new ArrayList<>();
+            boolean retriesLeft = RetryTopology.attempts(record.headers()) < retryTopology.getRetryCount();
+            for (DecodedGroup decoded : decodedGroups) {
+                if (decoded.geocodingError() != null) {
+                    if (failed == null) {
+                        failed = decoded;
+                    }
+                    if (retriesLeft) {
+                        retriedParts.add(decoded);
+                    }
+                }
+            }
+            if (failed != null && retriesLeft && decodedGroups.size() == 1) {
+                throw geocodingFailed(failed);
             }
 
-            // Link Address, GeoCoordinate and Building
-            if (address != null && building != null) {
-                address.setGeoCoordinate(geoCoordinate);
-                building.setAddress(address);
-                buildings.add(building);
+            // Store the buildings of the message as one batch once all of them are decoded
+            MessagePosition source = RetryTopology.originalPosition(record);
+            List<IngestedBuilding> ingested = new ArrayList<>();
+            List<DecodedGroup> stored = new ArrayList<>();
+            long storeStarted = System.nanoTime();
+            for (DecodedGroup decoded : decodedGroups) {
+                if (!decoded.unchanged() && decoded.address() != null && decoded.building() != null
+                        && !retriedParts.contains(decoded)) {
+                    // Without the hash, so the retry of a failed geocoding is not skipped as unchanged
+                    ingested.add(new IngestedBuilding(decoded.building(), decoded.graphDataModel(),
+                        decoded.geocodingError() == null ? decoded.contentHash() : 0, source));
+                    stored.add(decoded);
+                }
+            }
+            buildingService.addBuildings(ingested);
+            for (DecodedGroup decoded : stored) {
+                if (decoded.createdGeoCoordinate() != null) {
+                    // Sent once the building is stored, not on every attempt
+                    sendGeoCoordinate(decoded.createdGeoCoordinate(), decoded.graphDataModel(),
+                        decoded.address().getId());
+                }
+                pipelineMetrics.buildingStored();
+                pipelineTracer.buildingStored();
+                log.debug("Added or replaced building with ID: {}", decoded.building().getId());
+            }
+            if (!stored.isEmpty()) {
+                recordStage(IngestStage.STORE, System.nanoTime() - storeStarted);
+            }
 
-                buildingService.addBuilding(building);
-                buildingService.saveGraphDataModelForBuilding(building.getId(), graphDataModel);
-                log.debug("Added or replaced building with ID: {}", building.getId());
+            // Forwarded with the headers of this record, so they are retried from its original position
+            for (DecodedGroup part : retriedParts) {
+                failedMessageRouter.acceptPart(record, messageKey(part.graphDataModel()),
+                    messageMapper.writeValueAsString(part.graphDataModel()), geocodingFailed(part));
             }
 
             // Add AccessRights from graphDataModel if not already present
             if (graphDataModel.getAccessRights() != null) {
+                long accessRightsStarted = System.nanoTime();
                 for (AccessRight accessRight : graphDataModel.getAccessRights()) {
-                    boolean exists = accessRightsService.getAllAccessRights().stream()
-                        .anyMatch(existing -> existing.getId().equals(accessRight.getId()));
-                    if (!exists) {
-                        accessRightsService.addAccessRight(accessRight);
+                    if (accessRightsService.addAccessRightIfAbsent(accessRight)) {
                         log.info("Added new AccessRight with ID: {}", accessRight.getId());
                     }
                 }
+                recordStage(IngestStage.ACCESS_RIGHTS, System.nanoTime() - accessRightsStarted);
             }
 
-            log.info("Successfully processed {} buildings from Kafka message", buildings.size());
+            // Stored without coordinates, quarantined for inspection and replay
+            if (failed != null && !retriesLeft) {
+                throw geocodingFailed(failed);
+            }
 
-        } catch (Exception e) {
+            log.info("Successfully processed {} buildings from Kafka message, {} retried separately", stored.size(),
+                retriedParts.size());
+            success = true;
+
+        } catch (JsonProcessingException e) {
             log.error("Critical error processing Kafka message: {}", e.getMessage(), e);
+            throw new IllegalStateException("Failed to encode a part of the message", e);
+        } catch (RuntimeException e) {
+            // The container's error handler forwards the record to a retry topic or the quarantine
+            log.error("Critical error processing Kafka message: {}", e.getMessage(), e);
+            throw e;
+        } finally {
+            pipelineMetrics.recordMessage(success, System.nanoTime() - started);
+            pipelineTracer.end(success);
         }
     }
 
-    public void sendGeoCoordinate(GeoCoordinate geoCoordinate, GraphDataModel graphDataModel, String addressId) {
+    // Building of one message or group, decoded and geocoded but not stored yet
+    private record DecodedGroup(GraphDataModel graphDataModel, long contentHash, boolean unchanged, Address address,
+            Building building, GeoCoordinate createdGeoCoordinate, Exception geocodingError, long decodeNanos,
+            long geocodeNanos) {
+    }
+
+    private static IllegalStateException geocodingFailed(DecodedGroup failed) {
+        return new IllegalStateException("Geocoding failed for address " + failed.address().getId(),
+            failed.geocodingError());
+    }
+
+    /**
+     * Geocoding of one message, shared by its groups: an address shared by
+     * several buildings is looked up once, and at most
+     * app.ingest.geocoding.max-per-message addresses are. The groups beyond
+     * fail like an unreachable Nominatim, and are retried as parts of their own.
+     */
+    private final class MessageGeocoding {
+
+        private final AtomicInteger remaining = new AtomicInteger(maxGeocodingPerMessage);
+        private final Map<String, CompletableFuture<Address>> results = new ConcurrentHashMap<>();
+
+        Address enrich(Address address) {
+            CompletableFuture<Address> result = new CompletableFuture<>();
+            if (address.getId() != null) {
+                CompletableFuture<Address> looked = results.putIfAbsent(address.getId(), result);
+                if (looked != null) {
+                    return join(looked);
+                }
+            }
+            try {
+                if (remaining.getAndDecrement() <= 0) {
+                    throw new IllegalStateException("Geocoded the maximum of " + maxGeocodingPerMessage
+                        + " addresses of the message");
+                }
+                Address enriched = nominatimService.enrichAddressWithCoordinates(address);
+                result.complete(enriched);
+                return enriched;
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Decodes the nodes of a message with at most one building. Runs on the
+     * group executor for bulk messages. A superseded building is treated as
+     * unchanged.
+     */
+    private DecodedGroup decode(GraphDataModel graphDataModel, Set<String> superseded, MessageGeocoding geocoding) {
+        long started = System.nanoTime();
+        long contentHash = ContentHash.of(graphDataModel);
+        String buildingId = buildingNodeId(graphDataModel);
+        if (buildingId != null
+                && (superseded.contains(buildingId) || buildingService.isStoredFrom(buildingId, contentHash))) {
+            log.debug("Building {} is unchanged or superseded", buildingId);
+            return new DecodedGroup(graphDataModel, contentHash, true, null, null, null, null, 0, 0);
+        }
+
+        Address address = null;
+        Building building = null;
+        GeoCoordinate geoCoordinate = null;
+        long geocodeNanos = 0;
+        Exception geocodingError = null;
+
+        // Process metadata nodes
+        for (MetaDataNode metaDataNode : graphDataModel.getGraphMetadata()) {
+            try {
+                if (metaDataNode.getClassType().equals("https://ibpdi.datacat.org/class/Address")) {
+                    address = nodeMapper.convertValue(metaDataNode.getPropertiesValues(), Address.class)
+                        .toBuilder().id(metaDataNode.getId()).build();
+
+                    if (address.getDeprecatedLatitude() == null || address.getDeprecatedLongitude() == null) {
+                        long geocodeStarted = System.nanoTime();
+                        try {
+                            log.warn("Address {} is missing coordinates, attempting to enrich...", address.getId());
+                            address = geocoding.enrich(address);
+                        } catch (Exception e) {
+                            log.warn("Failed to enrich address {} with coordinates: {}", address.getId(),
+                                    e.getMessage());
+                            geocodingError = e;
+                        }
+                        geocodeNanos += System.nanoTime() - geocodeStarted;
+                    }
+                } else if (metaDataNode.getClassType().equals(BuildingGroups.BUILDING_CLASS)) {
+                    building = nodeMapper.convertValue(metaDataNode.getPropertiesValues(), Building.class)
+                        .toBuilder().id(metaDataNode.getId()).build();
+                } else if (metaDataNode.getClassType().equals("https://ibpdi.datacat.org/class/GeoCoordinate")) {
+                    geoCoordinate = nodeMapper.convertValue(metaDataNode.getPropertiesValues(), GeoCoordinate.class)
+                        .toBuilder().id(metaDataNode.getId()).build();
+                    // Stored and indexed in WGS84, the received values are kept
+                    geoCoordinate = reprojectionService.normalize(geoCoordinate);
+                }
+
+            } catch (Exception e) {
+                log.error("Error processing metadata node {}: {}", metaDataNode.getId(), e.getMessage());
+            }
+        }
+        long decodeNanos = System.nanoTime() - started - geocodeNanos;
+
+        // Create GeoCoordinate if missing, it is sent once the building is stored
+        GeoCoordinate createdGeoCoordinate = null;
+        if (geoCoordinate == null && address != null
+                && address.getDeprecatedLatitude() != null
+                && address.getDeprecatedLongitude() != null) {
+            geoCoordinate = GeoCoordinate.builder()
+                .id(UUID.randomUUID().toString())
+                .latitude(address.getDeprecatedLatitude())
+                .longitude(address.getDeprecatedLongitude())
+                .coordinateReferenceSystem("EPSG:4326")
+                .build();
+            createdGeoCoordinate = geoCoordinate;
+        }
+
+        // Link Address, GeoCoordinate and Building
+        if (address != null && building != null) {
+            address = address.toBuilder().geoCoordinate(geoCoordinate).build();
+            building = building.toBuilder().address(address).build();
+        }
+        return new DecodedGroup(graphDataModel, contentHash, false, address, building, createdGeoCoordinate,
+            geocodingError, decodeNanos, geocodeNanos);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Id of the Building node, null if the message has none or several
+    static String buildingNodeId(GraphDataModel graphDataModel) {
+        String id = null;
+        for (MetaDataNode metaDataNode : graphDataModel.getGraphMetadata()) {
+            if (BuildingGroups.BUILDING_CLASS.equals(metaDataNode.getClassType())) {
+                if (id != null) {
+                    return null;
+                }
+                id = metaDataNode.getId();
+            }
+        }
+        return id;
+    }
+
+    // Ids of all Building nodes of the message, without duplicates
+    static List<String> buildingNodeIds(GraphDataModel graphDataModel) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (MetaDataNode metaDataNode : graphDataModel.getGraphMetadata()) {
+            if (BuildingGroups.BUILDING_CLASS.equals(metaDataNode.getClassType()) && metaDataNode.getId() != null) {
+                ids.add(metaDataNode.getId());
+            }
+        }
+        return List.copyOf(ids);
+    }
+
+    /**
+     * Key of a message sent for the model: the id of its building, or the
+     * lowest one of several, so all messages of a building land on one
+     * partition in order and a message for the same buildings always gets
+     * the same key. Null without a building, Kafka then spreads the messages.
+     */
+    static String messageKey(GraphDataModel graphDataModel) {
+        String key = null;
+        for (String id : buildingNodeIds(graphDataModel)) {
+            if (key == null || id.compareTo(key) < 0) {
+                key = id;
+            }
+        }
+        return key;
+    }
+
+    private void recordStage(IngestStage stage, long nanos) {
+        pipelineMetrics.recordStage(stage, nanos);
+        pipelineTracer.stage(stage, nanos);
+    }
+
+    /**
+     * Sends the model with the GeoCoordinate node and its link to the address
+     * added. The given model is left unchanged, the message is built from a
+     * copy.
+     */
+    public void sendGeoCoordinate(GeoCoordinate geoCoordinate, GraphDataModel receivedGraphDataModel,
+            String addressId) {
         try {
+            GraphDataModel graphDataModel = receivedGraphDataModel.copy();
+
             // Create MetaDataNode for GeoCoordinate
             MetaDataNode geoCoordinateNode = new MetaDataNode();
             geoCoordinateNode.setId(geoCoordinate.getId());
@@ -140,27 +442,33 @@ public class KafkaService {
             geoCoordinateNode.getPropertiesValues().put("Longitude", geoCoordinate.getLongitude());
             geoCoordinateNode.getPropertiesValues().put("CoordinateReferenceSystem", geoCoordinate.getCoordinateReferenceSystem());
 
-            // Add the MetaDataNode to the provided GraphDataModel
+            // Add the MetaDataNode to the copy
             graphDataModel.getGraphMetadata().add(geoCoordinateNode);
             String graph = graphDataModel.getGraphData() + "\ninst:" + addressId + " <https://ibpdi.datacat.org/class/hasGeoCoordinate> inst:" + geoCoordinate.getId() + ".\n";
             graphDataModel.setGraphData(graph);
 
-            // Convert GraphDataModel to JSON
-            ObjectMapper mapper = new ObjectMapper();
-            String message = mapper.writeValueAsString(graphDataModel);
-
-            // Send the structured message
-            String key = UUID.randomUUID().toString();
-            kafkaTemplate.send(kafkaTopic, key, message);
-            log.info("Sent structured GeoCoordinate message to Kafka topic {}", kafkaTopic);
+            // Serialize and send on the outbound executor, the model is not modified anymore
+            sendAsync(graphDataModel, "geo_coordinate", "GeoCoordinate");
         } catch (Exception e) {
             log.error("Failed to send structured GeoCoordinate message: {}", e.getMessage());
         }
     }
 
     public void sendBuildingAttributes(Building building) {
+        // Keep the calling request thread free, building is an immutable snapshot
+        outboundExecutor.execute(() -> buildBuildingAttributesMessage(building));
+    }
+
+    private void buildBuildingAttributesMessage(Building building) {
         try {
-            GraphDataModel graphDataModel = buildingService.getGraphDataModelForBuilding(building.getId());
+            GraphDataModel storedGraphDataModel = buildingService.getGraphDataModelForBuilding(building.getId());
+            if (storedGraphDataModel == null) {
+                log.warn("No GraphDataModel stored for building with ID: {}", building.getId());
+                return;
+            }
+
+            // Work on a copy, the stored GraphDataModel is a published snapshot
+            GraphDataModel graphDataModel = storedGraphDataModel.copy();
 
             // Find the MetaDataNode for the building
             MetaDataNode buildingAttributesNode = graphDataModel.getGraphMetadata().stream()
@@ -182,18 +490,34 @@ public class KafkaService {
                 });
             }
 
-            // Convert GraphDataModel to JSON
-            ObjectMapper mapper = new ObjectMapper();
-            String message = mapper.writeValueAsString(graphDataModel);
-
-            // Send the structured message
-            String key = UUID.randomUUID().toString();
-            kafkaTemplate.send(kafkaTopic, key, message);
-            log.info("Sent structured BuildingAttributes message to Kafka topic {}", kafkaTopic);
+            send(graphDataModel, "building_attributes", "BuildingAttributes");
         } catch (Exception e) {
             log.error("Failed to send structured BuildingAttributes message: {}", e.getMessage());
         }
     }
 
+    private void sendAsync(GraphDataModel graphDataModel, String messageType, String description) {
+        outboundExecutor.execute(() -> {
+            try {
+                send(graphDataModel, messageType, description);
+            } catch (Exception e) {
+                log.error("Failed to send structured {} message: {}", description, e.getMessage());
+            }
+        });
+    }
+
+    private void send(GraphDataModel graphDataModel, String messageType, String description) throws Exception {
+        // Convert GraphDataModel to JSON
+        String message = messageMapper.writeValueAsString(graphDataModel);
+
+        // Send the structured message, marked as ours so the listener skips it
+        ProducerRecord<String, String> producerRecord = new ProducerRecord<>(kafkaTopic, messageKey(graphDataModel),
+            message);
+        messageOrigin.stamp(producerRecord.headers(), messageType);
+        long sendStarted = System.nanoTime();
+        kafkaTemplate.send(producerRecord).whenComplete((result, exception) ->
+            pipelineMetrics.recordSend(messageType, exception == null, System.nanoTime() - sendStarted));
+        log.info("Sent structured {} message to Kafka topic {}", description, kafkaTopic);
+    }
 
 }
@@ -1,5 +1,7 @@
 package com.gisbackend.buildingstreamer.service;
 
+import java.util.concurrent.Semaphore;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,8 +14,12 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.metrics.PipelineTracer;
 import com.gisbackend.buildingstreamer.model.Address;
 
+import jakarta.annotation.PostConstruct;
+
 @Service
 public class NominatimService {
 
@@ -25,17 +31,36 @@ public class NominatimService {
     
     @Value("${app.geocoding.enabled:true}")
     private boolean geocodingEnabled;
+
+    // Nominatim allows one request at a time, this replaces sizing a dedicated pool
+    @Value("${app.geocoding.max-concurrent-requests:1}")
+    private int maxConcurrentRequests;
+
+    private Semaphore requestPermits;
     
     @Autowired
     @Qualifier("nominatimRestTemplate")
     private RestTemplate restTemplate;
 
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private PipelineTracer pipelineTracer;
+
+    @PostConstruct
+    void initRequestPermits() {
+        requestPermits = new Semaphore(Math.max(1, maxConcurrentRequests), true);
+    }
+
     /**
      * Enriches an address with latitude and longitude coordinates if they are missing.
-     * Uses retry logic and graceful fallback to prevent blocking the main application flow.
+     * Uses retry logic; an address Nominatim has no match for is returned unchanged.
      * 
      * @param address The address to enrich with coordinates
-     * @return The address with coordinates (if found) or the original address if geocoding failed
+     * @return The address with coordinates (if found) or the original address
+     * @throws RestClientException if Nominatim could not be reached in any attempt,
+     *         so the caller can try again later
      */
     public Address enrichAddressWithCoordinates(Address address) {
         // Check if geocoding is enabled
@@ -63,13 +88,18 @@ public class NominatimService {
             
             if (responses != null && responses.length > 0) {
                 NominatimResponse bestMatch = responses[0]; // Take the first (best) result
-                address.setDeprecatedLatitude(bestMatch.getLat());
-                address.setDeprecatedLongitude(bestMatch.getLon());
+                address = address.toBuilder()
+                    .deprecatedLatitude(bestMatch.getLat())
+                    .deprecatedLongitude(bestMatch.getLon())
+                    .build();
                 // logger.info("Successfully geocoded address {} - lat: {}, lon: {}", 
                     // address.getId(), bestMatch.getLat(), bestMatch.getLon());
             } else {
                 logger.warn("No coordinates found for address {}: {}", address.getId(), query);
             }
+        } catch (RestClientException e) {
+            logger.error("Error geocoding address {}: {}", address.getId(), e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.error("Error geocoding address {} (continuing without coordinates): {}", 
                 address.getId(), e.getMessage());
@@ -126,28 +156,48 @@ public class NominatimService {
      * Makes the actual request to Nominatim API with retry logic.
      */
     private NominatimResponse[] searchCoordinatesWithRetry(String query) {
+        // Thrown at the end if no attempt got an answer from Nominatim
+        RestClientException unavailable = null;
+        boolean answered = false;
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            if (attempt > 1) {
+                pipelineMetrics.geocodingRetry();
+            }
             try {
                 logger.info("Geocoding attempt {} for query: {}", attempt, query);
                 
-                // Add delay to respect Nominatim usage policy
-                Thread.sleep(REQUEST_DELAY_MS);
-                
-                NominatimResponse[] result = searchCoordinates(query);
+                NominatimResponse[] result;
+                requestPermits.acquire();
+                try {
+                    // Add delay to respect Nominatim usage policy
+                    Thread.sleep(REQUEST_DELAY_MS);
+
+                    long requestStarted = System.nanoTime();
+                    try {
+                        result = searchCoordinates(query);
+                    } finally {
+                        pipelineTracer.geocodingRequest(System.nanoTime() - requestStarted, attempt > 1);
+                    }
+                } finally {
+                    requestPermits.release();
+                }
                 
                 if (result != null && result.length > 0) {
                     logger.info("Geocoding successful on attempt {} - found {} results", attempt, result.length);
                     return result;
                 } else {
                     logger.warn("Geocoding attempt {} returned empty result for query: {}", attempt, query);
+                    answered = true;
                 }
                 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.error("Thread interrupted during geocoding attempt {}", attempt, e);
+                unavailable = new RestClientException("Interrupted during geocoding", e);
                 break;
             } catch (RestClientException e) {
                 logger.warn("Geocoding attempt {} failed: {}", attempt, e.getMessage());
+                unavailable = e;
                 
                 if (attempt < MAX_RETRIES) {
                     try {
@@ -166,6 +216,10 @@ public class NominatimService {
         }
         
         logger.error("Failed to geocode after {} attempts: {}", MAX_RETRIES, query);
+        pipelineMetrics.geocodingFailure();
+        if (!answered && unavailable != null) {
+            throw unavailable;
+        }
         return null;
     }
 
@@ -173,6 +227,7 @@ public class NominatimService {
      * Makes the actual request to Nominatim API.
      */
     private NominatimResponse[] searchCoordinates(String query) {
+        long started = System.nanoTime();
         try {
             String url = UriComponentsBuilder.fromUriString(NOMINATIM_BASE_URL)
                     .queryParam("q", query)
@@ -197,8 +252,11 @@ public class NominatimService {
                 logger.warn("Nominatim response is null for URL: {}", url);
             }
             
+            pipelineMetrics.recordGeocodingRequest(response != null && response.length > 0 ? "success" : "empty",
+                System.nanoTime() - started);
             return response;
         } catch (Exception e) {
+            pipelineMetrics.recordGeocodingRequest("error", System.nanoTime() - started);
             logger.error("Error making request to Nominatim: {}", e.getMessage(), e);
             throw new RestClientException("Error making request to Nominatim: " + e.getMessage(), e);
         }
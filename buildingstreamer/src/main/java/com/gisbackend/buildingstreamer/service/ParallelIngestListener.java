@@ -0,0 +1,75 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.config.BoundedExecutor;
+import com.gisbackend.buildingstreamer.config.KeyedExecutor;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parallel consumer of the building topic, enabled with
+ * app.kafka.parallel.enabled in place of the listener in KafkaService. Records
+ * of one partition are processed concurrently across buildings and strictly in
+ * offset order per building, so throughput scales with the number of
+ * buildings in flight rather than the number of partitions. A message with
+ * several buildings waits for the earlier records of each of them. The offset
+ * of a record is committed once it and all records before it are processed.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.kafka.parallel.enabled", havingValue = "true")
+public class ParallelIngestListener {
+
+    @Autowired
+    private KafkaService kafkaService;
+
+    @Autowired
+    private FailedMessageRouter failedMessageRouter;
+
+    @Autowired
+    private BoundedExecutor ingestExecutor;
+
+    private KeyedExecutor keyedExecutor;
+
+    @PostConstruct
+    void init() {
+        keyedExecutor = new KeyedExecutor(ingestExecutor);
+    }
+
+    // The container acknowledges the record when the returned future completes, failed
+    // records only once they were forwarded to a retry topic or the quarantine
+    @KafkaListener(topics = "${KAFKA_TOPIC}", groupId = "gis_group", containerFactory = "parallelGraphModelListener")
+    public CompletableFuture<Void> publish(GraphDataModel graphDataModel, ConsumerRecord<?, ?> record) {
+        return keyedExecutor.submit(orderingKeys(graphDataModel, record), () -> {
+            try {
+                kafkaService.publish(graphDataModel, record);
+            } catch (RuntimeException e) {
+                failedMessageRouter.accept(record, e);
+            }
+        });
+    }
+
+    public int getPendingKeys() {
+        return keyedExecutor.getPendingKeys();
+    }
+
+    // Every building of the message, so a building is never processed under two keys at once;
+    // else the record key, and records with neither share one lane
+    private static List<String> orderingKeys(GraphDataModel graphDataModel, ConsumerRecord<?, ?> record) {
+        List<String> buildingIds = KafkaService.buildingNodeIds(graphDataModel);
+        if (!buildingIds.isEmpty()) {
+            return buildingIds;
+        }
+        return List.of(record.key() != null ? record.key().toString() : "");
+    }
+}
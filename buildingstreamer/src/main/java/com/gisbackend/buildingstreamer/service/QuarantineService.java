@@ -0,0 +1,174 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.model.QuarantinedMessage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Messages on the dead-letter topic, kept for inspection and replay. Every
+ * instance reads the whole dead-letter topic, so all of them list the same
+ * messages, including the ones quarantined before a restart or by another
+ * instance. Replaying or discarding a message appends a resolved marker for
+ * it to the dead-letter topic, which removes it on every instance. Holds the
+ * most recent app.kafka.quarantine.capacity messages; older ones remain on the
+ * dead-letter topic only.
+ */
+@Slf4j
+@Service
+public class QuarantineService {
+
+    // Id of the message a marker record resolves, marker records have no value
+    public static final String RESOLVED_HEADER = "buildingstreamer-quarantine-resolved";
+
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    // Message with the dead-letter partition it was read from, where its marker goes
+    private record Entry(QuarantinedMessage message, int partition) {
+    }
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private RetryTopology retryTopology;
+
+    @Value("${app.kafka.quarantine.capacity:10000}")
+    private int capacity;
+
+    // Insertion ordered, oldest first
+    private final Map<String, Entry> messages = new LinkedHashMap<>();
+
+    @KafkaListener(topicPartitions = @TopicPartition(topic = "#{@retryTopology.deadLetterTopic}",
+        partitions = "#{@retryTopology.deadLetterPartitions}",
+        partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")),
+        containerFactory = "deadLetterListener")
+    public void deadLetter(ConsumerRecord<String, String> record) {
+        String resolved = RetryTopology.header(record.headers(), RESOLVED_HEADER);
+        if (resolved != null) {
+            synchronized (this) {
+                messages.remove(resolved);
+            }
+            return;
+        }
+        add(new Entry(message(record), record.partition()));
+    }
+
+    // Where the message was first received, as the FailedMessageRouter recorded it
+    private static QuarantinedMessage message(ConsumerRecord<String, String> record) {
+        String topic = RetryTopology.header(record.headers(), RetryTopology.ORIGINAL_TOPIC_HEADER);
+        String partition = RetryTopology.header(record.headers(), RetryTopology.ORIGINAL_PARTITION_HEADER);
+        String offset = RetryTopology.header(record.headers(), RetryTopology.ORIGINAL_OFFSET_HEADER);
+        if (topic == null || partition == null || offset == null) {
+            // Not forwarded by this service, identified by its place on the dead-letter topic
+            topic = record.topic();
+            partition = String.valueOf(record.partition());
+            offset = String.valueOf(record.offset());
+        }
+        return new QuarantinedMessage(topic + "-" + partition + "-" + offset, topic, Integer.parseInt(partition),
+            Long.parseLong(offset), record.key(), RetryTopology.attempts(record.headers()),
+            RetryTopology.header(record.headers(), RetryTopology.ERROR_HEADER), Instant.ofEpochMilli(record.timestamp()),
+            record.value());
+    }
+
+    private synchronized void add(Entry entry) {
+        String id = entry.message().id();
+        messages.remove(id);
+        messages.put(id, entry);
+        Iterator<String> oldest = messages.keySet().iterator();
+        while (messages.size() > capacity) {
+            log.warn("Quarantine is full, message {} is kept on topic {} only", oldest.next(),
+                retryTopology.getDeadLetterTopic());
+            oldest.remove();
+        }
+    }
+
+    public synchronized List<QuarantinedMessage> getMessages(int limit) {
+        List<QuarantinedMessage> result = new ArrayList<>(Math.min(limit, messages.size()));
+        for (Entry entry : messages.values()) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(entry.message());
+        }
+        return result;
+    }
+
+    public synchronized QuarantinedMessage getMessage(String id) {
+        Entry entry = messages.get(id);
+        return entry != null ? entry.message() : null;
+    }
+
+    public synchronized int getMessageCount() {
+        return messages.size();
+    }
+
+    /**
+     * Sends a quarantined message to the building topic again and removes it
+     * from the quarantine once the broker acknowledged it. Returns false if
+     * there is no message with this id.
+     */
+    public boolean replay(String id) throws Exception {
+        Entry entry;
+        synchronized (this) {
+            entry = messages.get(id);
+        }
+        if (entry == null) {
+            return false;
+        }
+        QuarantinedMessage message = entry.message();
+        // Not marked as ours, so this instance consumes it like any other message
+        kafkaTemplate.send(retryTopology.getMainTopic(), message.key(), message.payload())
+            .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        resolve(entry);
+        log.info("Replayed quarantined message {} to topic {}", id, retryTopology.getMainTopic());
+        return true;
+    }
+
+    /**
+     * Removes a message from the quarantine without replaying it. It stays on
+     * the dead-letter topic. Returns false if there is no message with this id.
+     */
+    public boolean discard(String id) throws Exception {
+        Entry entry;
+        synchronized (this) {
+            entry = messages.get(id);
+        }
+        if (entry == null) {
+            return false;
+        }
+        resolve(entry);
+        log.info("Discarded quarantined message {}", id);
+        return true;
+    }
+
+    // The marker follows the message on its partition, so every instance reads it after the message
+    private void resolve(Entry entry) throws Exception {
+        String id = entry.message().id();
+        ProducerRecord<String, String> marker = new ProducerRecord<>(retryTopology.getDeadLetterTopic(),
+            entry.partition(), entry.message().key(), null);
+        RetryTopology.setHeader(marker.headers(), RESOLVED_HEADER, id);
+        kafkaTemplate.send(marker).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        synchronized (this) {
+            messages.remove(id);
+        }
+    }
+}
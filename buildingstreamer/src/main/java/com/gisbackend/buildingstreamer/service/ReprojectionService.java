@@ -0,0 +1,183 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.crs.CoordinateReferenceSystem;
+import com.gisbackend.buildingstreamer.crs.CoordinateTransform;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps stored coordinates in WGS84 and converts responses to the reference
+ * system a client asks for. For projected systems the latitude field holds the
+ * northing and the longitude field the easting, in meters.
+ */
+@Slf4j
+@Service
+public class ReprojectionService {
+
+    // About a millimeter on the ground in both cases
+    private static final int DEGREE_DECIMALS = 8;
+    private static final int METER_DECIMALS = 3;
+    private static final long[] DECIMAL_SCALES = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+        100_000_000 };
+
+    /**
+     * Converts a coordinate delivered in another supported reference system to
+     * WGS84 and keeps the received values in the original fields of the
+     * returned copy. Coordinates in WGS84, without a reference system or in an
+     * unsupported one are returned as they are.
+     */
+    public GeoCoordinate normalize(GeoCoordinate geoCoordinate) {
+        String code = geoCoordinate.getCoordinateReferenceSystem();
+        if (code == null || code.isBlank()) {
+            return geoCoordinate;
+        }
+        CoordinateReferenceSystem source = CoordinateReferenceSystem.forCode(code);
+        if (source == null) {
+            log.warn("Unsupported coordinate reference system {} on GeoCoordinate {}, stored as received",
+                code, geoCoordinate.getId());
+            return geoCoordinate;
+        }
+        if (source == CoordinateReferenceSystem.WGS84) {
+            return geoCoordinate;
+        }
+        double x = parse(geoCoordinate.getLongitude());
+        double y = parse(geoCoordinate.getLatitude());
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            log.warn("Invalid coordinates on GeoCoordinate {}, stored as received", geoCoordinate.getId());
+            return geoCoordinate;
+        }
+        double[] point = CoordinateTransform.between(source, CoordinateReferenceSystem.WGS84).transform(x, y);
+        return geoCoordinate.toBuilder()
+            .originalCoordinateReferenceSystem(code)
+            .originalLatitude(geoCoordinate.getLatitude())
+            .originalLongitude(geoCoordinate.getLongitude())
+            .coordinateReferenceSystem(CoordinateReferenceSystem.WGS84.getCode())
+            .latitude(format(point[1], DEGREE_DECIMALS))
+            .longitude(format(point[0], DEGREE_DECIMALS))
+            .build();
+    }
+
+    /**
+     * Copies of the buildings with their coordinates in the target system. All
+     * coordinates go through one bulk transform; coordinates received in the
+     * target system are returned as received. Buildings without a WGS84
+     * coordinate are returned unchanged.
+     */
+    public List<Building> reproject(List<Building> buildings, CoordinateReferenceSystem target) {
+        if (target == CoordinateReferenceSystem.WGS84) {
+            return buildings;
+        }
+        int count = buildings.size();
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        Codes codes = new Codes();
+        for (int i = 0; i < count; i++) {
+            GeoCoordinate geoCoordinate = wgs84Coordinate(buildings.get(i), codes);
+            xs[i] = geoCoordinate != null ? parse(geoCoordinate.getLongitude()) : Double.NaN;
+            ys[i] = geoCoordinate != null ? parse(geoCoordinate.getLatitude()) : Double.NaN;
+        }
+        CoordinateTransform.between(CoordinateReferenceSystem.WGS84, target).transform(xs, ys, count);
+
+        int decimals = target.isGeographic() ? DEGREE_DECIMALS : METER_DECIMALS;
+        List<Building> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Building building = buildings.get(i);
+            if (Double.isNaN(xs[i]) || Double.isNaN(ys[i])) {
+                result.add(building);
+                continue;
+            }
+            Address address = building.getAddress();
+            GeoCoordinate geoCoordinate = address.getGeoCoordinate();
+            GeoCoordinate.GeoCoordinateBuilder reprojected = geoCoordinate.toBuilder()
+                .coordinateReferenceSystem(target.getCode());
+            if (target == codes.resolve(geoCoordinate.getOriginalCoordinateReferenceSystem())) {
+                reprojected.latitude(geoCoordinate.getOriginalLatitude())
+                    .longitude(geoCoordinate.getOriginalLongitude());
+            } else {
+                reprojected.latitude(format(ys[i], decimals)).longitude(format(xs[i], decimals));
+            }
+            result.add(building.toBuilder()
+                .address(address.toBuilder().geoCoordinate(reprojected.build()).build())
+                .build());
+        }
+        return result;
+    }
+
+    // Stored coordinate of a building if it is in WGS84; one without a reference
+    // system is taken as WGS84 like everywhere else
+    private static GeoCoordinate wgs84Coordinate(Building building, Codes codes) {
+        Address address = building.getAddress();
+        GeoCoordinate geoCoordinate = address != null ? address.getGeoCoordinate() : null;
+        if (geoCoordinate == null) {
+            return null;
+        }
+        String code = geoCoordinate.getCoordinateReferenceSystem();
+        if (code != null && codes.resolve(code) != CoordinateReferenceSystem.WGS84) {
+            return null;
+        }
+        return geoCoordinate;
+    }
+
+    // Reference system of the previous identifier, which nearly every coordinate
+    // in a batch shares, so parsing happens once per batch instead of per point
+    private static final class Codes {
+        private String code;
+        private CoordinateReferenceSystem system;
+
+        CoordinateReferenceSystem resolve(String code) {
+            if (code == null) {
+                return null;
+            }
+            if (!code.equals(this.code)) {
+                this.code = code;
+                this.system = CoordinateReferenceSystem.forCode(code);
+            }
+            return system;
+        }
+    }
+
+    private static double parse(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.strip());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // Fixed point without trailing zeros, e.g. 5820000.12 or 13.37881845
+    static String format(double value, int decimals) {
+        long scale = DECIMAL_SCALES[decimals];
+        long scaled = Math.round(Math.abs(value) * scale);
+        long integer = scaled / scale;
+        long fraction = scaled % scale;
+        StringBuilder text = new StringBuilder(24);
+        if (value < 0 && scaled != 0) {
+            text.append('-');
+        }
+        text.append(integer);
+        if (fraction != 0) {
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                decimals--;
+            }
+            text.append('.');
+            String digits = Long.toString(fraction);
+            for (int i = digits.length(); i < decimals; i++) {
+                text.append('0');
+            }
+            text.append(digits);
+        }
+        return text.toString();
+    }
+}
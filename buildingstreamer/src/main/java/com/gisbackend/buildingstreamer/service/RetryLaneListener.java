@@ -0,0 +1,106 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.model.BuildingRecord;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MessagePosition;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumes the retry topics of the {@link RetryTopology}. A record that is not
+ * due yet pauses only its own partition until it is, so the retry topics and
+ * the building topic never wait for each other. Due records are ingested like
+ * records from the building topic and forwarded again if they fail. Buildings
+ * stored from a later message of the partition the record was first consumed
+ * from are left out of the retry as superseded instead of overwriting the
+ * newer state, and a retry whose buildings are all superseded is dropped. The
+ * retry group is shared by all instances, so this compares message positions,
+ * which unlike the versions of the local store mean the same everywhere.
+ */
+@Slf4j
+@Service
+public class RetryLaneListener {
+
+    static final String LISTENER_ID = "retryLane";
+
+    @Autowired
+    private KafkaService kafkaService;
+
+    @Autowired
+    private FailedMessageRouter failedMessageRouter;
+
+    @Autowired
+    private BuildingService buildingService;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @KafkaListener(id = LISTENER_ID, topics = "#{@retryTopology.retryTopics}", groupId = "gis_group_retry",
+        containerFactory = "retryListener")
+    public void retry(ConsumerRecord<String, GraphDataModel> record, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        String due = RetryTopology.header(record.headers(), RetryTopology.DUE_HEADER);
+        long wait = due != null ? Long.parseLong(due) - System.currentTimeMillis() : 0;
+        if (wait > 0) {
+            // Consume the record again once the partition is resumed
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            consumer.seek(partition, record.offset());
+            MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+            container.pausePartition(partition);
+            CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS)
+                .execute(() -> container.resumePartition(partition));
+            return;
+        }
+
+        List<String> buildingIds = record.value() != null ? KafkaService.buildingNodeIds(record.value()) : List.of();
+        Set<String> superseded = superseded(buildingIds, RetryTopology.originalPosition(record));
+        if (!buildingIds.isEmpty() && superseded.size() == buildingIds.size()) {
+            log.info("Dropping retry of record {}-{}@{}, its buildings were stored from later messages", record.topic(),
+                record.partition(), record.offset());
+            pipelineMetrics.messageSkipped(PipelineMetrics.SKIPPED_SUPERSEDED);
+        } else {
+            if (!superseded.isEmpty()) {
+                log.info("Retrying record {}-{}@{} without buildings stored from later messages: {}", record.topic(),
+                    record.partition(), record.offset(), superseded);
+            }
+            try {
+                kafkaService.publish(record.value(), record, superseded);
+            } catch (RuntimeException e) {
+                failedMessageRouter.accept(record, e);
+            }
+        }
+        acknowledgment.acknowledge();
+    }
+
+    // Buildings stored from a message after the failed one on the same topic partition
+    private Set<String> superseded(List<String> buildingIds, MessagePosition failed) {
+        Set<String> superseded = new HashSet<>();
+        for (String id : buildingIds) {
+            BuildingRecord stored = buildingService.getBuildingRecord(id);
+            if (stored != null && stored.source() != null && stored.source().isAfter(failed)) {
+                superseded.add(id);
+            }
+        }
+        return superseded;
+    }
+}
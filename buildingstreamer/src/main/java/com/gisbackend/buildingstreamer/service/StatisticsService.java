@@ -0,0 +1,137 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.gisbackend.buildingstreamer.index.BitmapIndex;
+import com.gisbackend.buildingstreamer.index.ColumnStatistics;
+import com.gisbackend.buildingstreamer.index.ColumnStore;
+import com.gisbackend.buildingstreamer.index.RoaringBitmap;
+import com.gisbackend.buildingstreamer.model.BuildingRecord;
+import com.gisbackend.buildingstreamer.model.BuildingStatistics;
+import com.gisbackend.buildingstreamer.model.GroupStatistics;
+
+/**
+ * Ad-hoc aggregations over the store. Filters and groups are resolved to row
+ * bitmaps, the numeric work runs on the primitive columns of the
+ * {@link ColumnStore}.
+ */
+@Service
+public class StatisticsService {
+
+    public static final Set<String> METRICS = Set.of("count", "min", "max", "avg", "histogram", "percentiles");
+
+    @Autowired
+    private BuildingService buildingService;
+
+    @Autowired
+    private BitmapIndex bitmapIndex;
+
+    @Autowired
+    private ColumnStore columnStore;
+
+    /**
+     * @param groupBy     indexed field or {@code attributes.<key>}, null for a single group
+     * @param metrics     subset of {@link #METRICS}
+     * @param field       numeric field the metrics other than count are computed on
+     * @param percentiles percentiles in (0, 100]
+     * @param filters     conditions as accepted by {@link BuildingService#selectRows(Map)}
+     * @throws IllegalArgumentException for unknown fields, metrics or malformed filters
+     */
+    public BuildingStatistics getStatistics(String groupBy, Set<String> metrics, String field, int bucketWidth,
+            double[] percentiles, Map<String, String> filters) {
+        if (!METRICS.containsAll(metrics)) {
+            throw new IllegalArgumentException("Unknown metric in " + metrics + ", supported are " + METRICS);
+        }
+        ColumnStore.IntField column = ColumnStore.IntField.of(field);
+        if (column == null) {
+            throw new IllegalArgumentException("No numeric column " + field);
+        }
+        if (bucketWidth < 1) {
+            throw new IllegalArgumentException("Bucket width has to be positive");
+        }
+        for (double percentile : percentiles) {
+            if (!(percentile > 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("Percentile out of range: " + percentile);
+            }
+        }
+
+        RoaringBitmap scope = buildingService.selectRows(filters);
+        Map<String, RoaringBitmap> groups = groupBy == null
+            ? Map.of("all", scope)
+            : bitmapIndex.groups(groupBy, scope, rowId -> {
+                BuildingRecord record = buildingService.getBuildingRecord(rowId);
+                return (record != null) ? record.building() : null;
+            });
+
+        // Dense group code per row, -1 for rows outside every group
+        List<String> names = new ArrayList<>(groups.keySet());
+        int[] groupCodes = new int[columnStore.getRowCount()];
+        Arrays.fill(groupCodes, -1);
+        for (int group = 0; group < names.size(); group++) {
+            int code = group;
+            groups.get(names.get(group)).forEach(rowId -> {
+                if (rowId < groupCodes.length) {
+                    groupCodes[rowId] = code;
+                }
+            });
+        }
+
+        ColumnStatistics statistics = columnStore.aggregate(column, groupCodes, names.size(), bucketWidth,
+                metrics.contains("histogram"), metrics.contains("percentiles"));
+        List<GroupStatistics> result = new ArrayList<>(names.size());
+        for (int group = 0; group < names.size(); group++) {
+            result.add(groupStatistics(names.get(group), group, statistics, metrics, percentiles));
+        }
+        return new BuildingStatistics(groupBy, field, scope.cardinality(), result);
+    }
+
+    private static GroupStatistics groupStatistics(String name, int group, ColumnStatistics statistics,
+            Set<String> metrics, double[] percentiles) {
+        long count = statistics.counts()[group];
+        boolean hasValues = count > 0;
+        Integer min = metrics.contains("min") && hasValues ? statistics.mins()[group] : null;
+        Integer max = metrics.contains("max") && hasValues ? statistics.maxs()[group] : null;
+        Double avg = metrics.contains("avg") && hasValues ? (double) statistics.sums()[group] / count : null;
+
+        Map<Integer, Long> histogram = null;
+        if (statistics.histogram() != null) {
+            histogram = new LinkedHashMap<>();
+            if (hasValues) {
+                int first = (statistics.mins()[group] - statistics.bucketStart()) / statistics.bucketWidth();
+                int last = (statistics.maxs()[group] - statistics.bucketStart()) / statistics.bucketWidth();
+                for (int bucket = first; bucket <= last; bucket++) {
+                    histogram.put(statistics.bucketStart() + bucket * statistics.bucketWidth(),
+                            statistics.histogram()[group * statistics.bucketCount() + bucket]);
+                }
+            }
+        }
+
+        Map<String, Integer> percentileValues = null;
+        if (statistics.sortedValues() != null) {
+            percentileValues = new LinkedHashMap<>();
+            int[] sorted = statistics.sortedValues()[group];
+            for (double percentile : percentiles) {
+                if (sorted.length > 0) {
+                    // Nearest rank
+                    int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+                    percentileValues.put(percentileKey(percentile), sorted[Math.max(0, rank - 1)]);
+                }
+            }
+        }
+        return new GroupStatistics(name, statistics.rows()[group], min, max, avg, histogram, percentileValues);
+    }
+
+    private static String percentileKey(double percentile) {
+        return percentile == Math.rint(percentile)
+            ? "p" + (int) percentile
+            : "p" + percentile;
+    }
+}
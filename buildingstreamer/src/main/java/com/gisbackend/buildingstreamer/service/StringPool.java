@@ -0,0 +1,134 @@
+package com.gisbackend.buildingstreamer.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.gisbackend.buildingstreamer.model.AccessRight;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+import com.gisbackend.buildingstreamer.model.UseCase;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Canonical instances of the strings that repeat across ingested messages:
+ * class types, property names, the values of low-cardinality properties such
+ * as city or energy class, graph templates, access rights and use cases.
+ * Every message otherwise brings its own copies, which the stored
+ * GraphDataModels and the buildings decoded from them keep for good.
+ * <p>
+ * The pool is bounded by app.ingest.string-pool.max-size entries. Once full,
+ * new values are no longer pooled, so a property that turns out to have many
+ * distinct values cannot grow it without limit. Pooled entries are never
+ * evicted.
+ */
+@Slf4j
+@Component
+public class StringPool {
+
+    // Low-cardinality properties, matched ignoring case like the node mapper does. Dates and years are
+    // bounded by the calendar, parking spaces by small counts. Street names, house numbers and postal codes
+    // are left out: they are nearly unique per building and would fill the pool.
+    private static final Set<String> POOLED_PROPERTIES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        POOLED_PROPERTIES.addAll(Set.of("Country", "City", "EnergyEfficiencyClass", "PrimaryHeatingType",
+            "PrimaryTypeOfBuilding", "CoordinateReferenceSystem", "ValidFrom", "ConstructionYear",
+            "ParkingSpaces"));
+    }
+
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final AtomicBoolean fullReported = new AtomicBoolean();
+
+    public StringPool(@Value("${app.ingest.string-pool.max-size:65536}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Pooled instance equal to the value, the value itself if the pool is full.
+     */
+    public String canonicalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = pool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (pool.size() >= maxSize) {
+            if (fullReported.compareAndSet(false, true)) {
+                log.warn("String pool reached {} entries, further values are not pooled", maxSize);
+            }
+            return value;
+        }
+        pooled = pool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Replaces the repeating strings of a received message with their pooled
+     * instances, before anything is decoded from it.
+     */
+    public void canonicalize(GraphDataModel graphDataModel) {
+        if (graphDataModel.getGraphTemplate() != null) {
+            graphDataModel.replaceGraphTemplate(canonicalize(graphDataModel.getGraphTemplate()));
+        }
+        if (graphDataModel.getGraphMetadata() != null) {
+            for (MetaDataNode node : graphDataModel.getGraphMetadata()) {
+                canonicalize(node);
+            }
+        }
+        if (graphDataModel.getAccessRights() != null) {
+            List<AccessRight> accessRights = new ArrayList<>(graphDataModel.getAccessRights().size());
+            for (AccessRight accessRight : graphDataModel.getAccessRights()) {
+                accessRights.add(accessRight == null ? null : accessRight.toBuilder()
+                    .id(canonicalize(accessRight.getId()))
+                    .name(canonicalize(accessRight.getName()))
+                    .guidelineClassificationId(canonicalize(accessRight.getGuidelineClassificationId()))
+                    .userGroupId(canonicalize(accessRight.getUserGroupId()))
+                    .useCaseId(canonicalize(accessRight.getUseCaseId()))
+                    .guidlineClassificationPropertyId(canonicalize(accessRight.getGuidlineClassificationPropertyId()))
+                    .build());
+            }
+            graphDataModel.setAccessRights(accessRights);
+        }
+        UseCase useCase = graphDataModel.getUseCase();
+        if (useCase != null) {
+            graphDataModel.setUseCase(useCase.toBuilder()
+                .id(canonicalize(useCase.getId()))
+                .name(canonicalize(useCase.getName()))
+                .description(canonicalize(useCase.getDescription()))
+                .build());
+        }
+    }
+
+    // Property names are always pooled, they become the keys of additionalAttributes
+    private void canonicalize(MetaDataNode node) {
+        node.setClassType(canonicalize(node.getClassType()));
+        Map<String, String> properties = node.getPropertiesValues();
+        if (properties == null || properties.isEmpty()) {
+            return;
+        }
+        Map<String, String> pooled = new LinkedHashMap<>((int) (properties.size() / 0.75f) + 1);
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            String value = property.getValue();
+            pooled.put(canonicalize(property.getKey()),
+                POOLED_PROPERTIES.contains(property.getKey()) ? canonicalize(value) : value);
+        }
+        node.setPropertiesValues(pooled);
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
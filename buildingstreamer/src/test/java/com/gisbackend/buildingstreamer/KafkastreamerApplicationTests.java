@@ -0,0 +1,13 @@
+package com.gisbackend.buildingstreamer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class BuildingStreamerApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
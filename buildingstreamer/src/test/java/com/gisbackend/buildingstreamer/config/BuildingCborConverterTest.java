@@ -0,0 +1,167 @@
+package com.gisbackend.buildingstreamer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+
+class BuildingCborConverterTest {
+
+    private static final Type BUILDINGS = new ParameterizedTypeReference<List<Building>>() {
+    }.getType();
+
+    private final BuildingCborConverter converter = new BuildingCborConverter();
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+    private static Building building(String id, String city) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("roof", "flat");
+        attributes.put("floors", "4");
+        attributes.put("height", "12.5");
+        attributes.put("code", "007");
+        return Building.builder()
+            .id(id)
+            .name("Building " + id)
+            .validFrom("2024-01-01")
+            .parkingSpaces("12")
+            .constructionYear("around 1900")
+            .energyEfficiencyClass("B")
+            .additionalAttributes(attributes)
+            .address(Address.builder()
+                .id("a-" + id)
+                .city(city)
+                .houseNumber("7a")
+                .geoCoordinate(GeoCoordinate.builder()
+                    .id("g-" + id)
+                    .coordinateReferenceSystem("EPSG:4326")
+                    .latitude("52.52")
+                    .longitude("13.405")
+                    .build())
+                .build())
+            .build();
+    }
+
+    private JsonNode write(Object body, Type type) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, type, MediaType.APPLICATION_CBOR, message);
+        assertThat(message.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+        return cbor.readTree(message.getBodyAsBytes());
+    }
+
+    // Field of a building, address or coordinate array by its name in "fields"
+    private static JsonNode field(JsonNode document, String kind, JsonNode values, String name) {
+        JsonNode names = document.get("fields").get(kind);
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).asText().equals(name)) {
+                return values.get(i);
+            }
+        }
+        throw new AssertionError("No field " + name);
+    }
+
+    private static String text(JsonNode document, JsonNode code) {
+        return document.get("strings").get(code.asInt()).asText();
+    }
+
+    @Test
+    void writesBuildingsWithADictionaryOfRepeatingText() throws IOException {
+        JsonNode document = write(List.of(building("b1", "Berlin"), building("b2", "Berlin")), BUILDINGS);
+
+        assertThat(document.get("version").asInt()).isEqualTo(BuildingCborConverter.VERSION);
+        List<String> strings = new ArrayList<>();
+        document.get("strings").forEach(value -> strings.add(value.asText()));
+        assertThat(strings).doesNotHaveDuplicates().contains("Berlin", "B", "roof", "flat", "code", "007")
+            .doesNotContain("4", "12.5");
+
+        JsonNode second = document.get("buildings").get(1);
+        assertThat(field(document, "building", second, "id").asText()).isEqualTo("b2");
+        assertThat(field(document, "building", second, "parkingSpaces").isIntegralNumber()).isTrue();
+        assertThat(field(document, "building", second, "parkingSpaces").asInt()).isEqualTo(12);
+        assertThat(field(document, "building", second, "constructionYear").asText()).isEqualTo("around 1900");
+        assertThat(text(document, field(document, "building", second, "energyEfficiencyClass"))).isEqualTo("B");
+
+        JsonNode address = field(document, "building", second, "address");
+        assertThat(text(document, field(document, "address", address, "city"))).isEqualTo("Berlin");
+        assertThat(field(document, "address", address, "houseNumber").asText()).isEqualTo("7a");
+        JsonNode geoCoordinate = field(document, "address", address, "geoCoordinate");
+        assertThat(field(document, "geoCoordinate", geoCoordinate, "latitude").doubleValue()).isEqualTo(52.52);
+        assertThat(field(document, "geoCoordinate", geoCoordinate, "originalLatitude").isNull()).isTrue();
+    }
+
+    @Test
+    void splitsTextAndNumericAttributes() throws IOException {
+        JsonNode document = write(building("b1", "Berlin"), Building.class);
+        JsonNode building = document.get("buildings").get(0);
+
+        Map<String, String> text = new LinkedHashMap<>();
+        field(document, "building", building, "additionalAttributes").fields().forEachRemaining(
+            entry -> text.put(document.get("strings").get(Integer.parseInt(entry.getKey())).asText(),
+                text(document, entry.getValue())));
+        Map<String, Number> numeric = new LinkedHashMap<>();
+        field(document, "building", building, "numericAttributes").fields().forEachRemaining(
+            entry -> numeric.put(document.get("strings").get(Integer.parseInt(entry.getKey())).asText(),
+                entry.getValue().numberValue()));
+
+        assertThat(text).containsExactly(Map.entry("roof", "flat"), Map.entry("code", "007"));
+        assertThat(numeric).hasSize(2).containsEntry("floors", 4);
+        assertThat(numeric.get("height").doubleValue()).isEqualTo(12.5);
+    }
+
+    @Test
+    void writesOnlyBuildingsAsCbor() {
+        assertThat(converter.canWrite(Building.class, MediaType.APPLICATION_CBOR)).isTrue();
+        assertThat(converter.canWrite(BUILDINGS, List.class, MediaType.APPLICATION_CBOR)).isTrue();
+        assertThat(converter.canWrite(Building.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(String.class, MediaType.APPLICATION_CBOR)).isFalse();
+        assertThat(converter.canRead(Building.class, MediaType.APPLICATION_CBOR)).isFalse();
+    }
+
+    @Test
+    void treatsTextAsANumberOnlyIfItReadsBackTheSame() {
+        assertThat(BuildingCborConverter.number("42")).isEqualTo(42L);
+        assertThat(BuildingCborConverter.number("-3")).isEqualTo(-3L);
+        assertThat(BuildingCborConverter.number("52.5200001")).isEqualTo(52.5200001);
+        assertThat(BuildingCborConverter.number("1.0")).isEqualTo(1.0);
+        for (String text : new String[] { null, "", "-", "007", "-0", "1.50", "1.", ".5", "1e5", "0.0001", "12a",
+                "12345678.5", "1234567890123456789", "0.1234567890123456" }) {
+            assertThat(BuildingCborConverter.number(text)).as(text).isNull();
+        }
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder text = new StringBuilder(random.nextBoolean() ? "-" : "");
+            int digits = 1 + random.nextInt(9);
+            for (int d = 0; d < digits; d++) {
+                text.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean()) {
+                text.append('.');
+                int fraction = 1 + random.nextInt(10);
+                for (int d = 0; d < fraction; d++) {
+                    text.append((char) ('0' + random.nextInt(10)));
+                }
+            }
+            Number number = BuildingCborConverter.number(text.toString());
+            if (number != null) {
+                assertThat(number.toString()).isEqualTo(text.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.gisbackend.buildingstreamer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class KeyedExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+    private final KeyedExecutor executor = new KeyedExecutor(pool);
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    // Keys are released by a callback of the task's future, which may run after the callers waiting on it
+    private void assertNoPendingKeys() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getPendingKeys() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(executor.getPendingKeys()).isZero();
+    }
+
+    @Test
+    void runsTasksOfAKeyInSubmissionOrder() {
+        Map<String, List<Integer>> runs = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String key = "k" + (i % 7);
+            int task = i;
+            futures.add(executor.submit(key,
+                () -> runs.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(task)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(runs).hasSize(7);
+        assertThat(runs.values()).allSatisfy(tasks -> assertThat(tasks).isSorted());
+        assertThat(runs.values().stream().mapToInt(List::size).sum()).isEqualTo(2000);
+        assertNoPendingKeys();
+    }
+
+    @Test
+    void runsDifferentKeysConcurrently() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        Runnable task = () -> {
+            bothRunning.countDown();
+            try {
+                bothRunning.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompletableFuture<Void> a = executor.submit("a", task);
+        CompletableFuture<Void> b = executor.submit("b", task);
+
+        assertThat(bothRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture.allOf(a, b).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void tasksWithSeveralKeysWaitForAllOfThemAndHoldBackLaterOnes() {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("a", () -> {
+            await(release);
+            order.add("a1");
+        });
+        executor.submit("b", () -> order.add("b1"));
+        CompletableFuture<Void> both = executor.submit(List.of("a", "b"), () -> order.add("ab"));
+        CompletableFuture<Void> later = executor.submit("b", () -> order.add("b2"));
+
+        release.countDown();
+        CompletableFuture.allOf(both, later).join();
+
+        assertThat(order.indexOf("ab")).isGreaterThan(order.indexOf("a1")).isGreaterThan(order.indexOf("b1"));
+        assertThat(order.indexOf("b2")).isGreaterThan(order.indexOf("ab"));
+        assertNoPendingKeys();
+    }
+
+    @Test
+    void failedTasksDoNotStopTheFollowingOnes() {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<Void> failed = executor.submit("a", () -> {
+            throw new IllegalStateException("failed");
+        });
+        CompletableFuture<Void> next = executor.submit("a", runs::incrementAndGet);
+        CompletableFuture<Void> multi = executor.submit(List.of("a", "b"), runs::incrementAndGet);
+
+        CompletableFuture.allOf(next, multi).join();
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(runs).hasValue(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gisbackend.buildingstreamer.crs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class CoordinateTransformTest {
+
+    private static double[] fromWgs84(String code, double lon, double lat) {
+        return CoordinateTransform.between(CoordinateReferenceSystem.WGS84, CoordinateReferenceSystem.forCode(code))
+            .transform(lon, lat);
+    }
+
+    private static double[] toWgs84(String code, double x, double y) {
+        return CoordinateTransform.between(CoordinateReferenceSystem.forCode(code), CoordinateReferenceSystem.WGS84)
+            .transform(x, y);
+    }
+
+    @Test
+    void resolvesTheUsualNotationsOfEpsgCodes() {
+        CoordinateReferenceSystem utm32 = CoordinateReferenceSystem.forCode("EPSG:25832");
+
+        assertThat(utm32.getCode()).isEqualTo("EPSG:25832");
+        assertThat(utm32.isGeographic()).isFalse();
+        assertThat(CoordinateReferenceSystem.forCode("urn:ogc:def:crs:EPSG::25832")).isSameAs(utm32);
+        assertThat(CoordinateReferenceSystem.forCode("http://www.opengis.net/def/crs/EPSG/0/25832")).isSameAs(utm32);
+        assertThat(CoordinateReferenceSystem.forCode(" 25832 ")).isSameAs(utm32);
+        assertThat(CoordinateReferenceSystem.forCode("epsg:4326")).isSameAs(CoordinateReferenceSystem.WGS84);
+        assertThat(CoordinateReferenceSystem.forCode("WGS84")).isSameAs(CoordinateReferenceSystem.WGS84);
+        assertThat(CoordinateReferenceSystem.forCode("urn:ogc:def:crs:OGC:1.3:CRS84"))
+            .isSameAs(CoordinateReferenceSystem.WGS84);
+        assertThat(CoordinateReferenceSystem.forCode("EPSG:9999")).isNull();
+        assertThat(CoordinateReferenceSystem.forCode("somewhere")).isNull();
+        assertThat(CoordinateReferenceSystem.forCode(null)).isNull();
+    }
+
+    @Test
+    void projectsToKnownValues() {
+        // Web Mercator on the sphere with the WGS84 semi-major axis
+        assertThat(fromWgs84("EPSG:3857", 180, 0)[0]).isCloseTo(20_037_508.343, within(0.001));
+        assertThat(fromWgs84("EPSG:3857", 0, 45)[1]).isCloseTo(5_621_521.486, within(0.001));
+        // UTM: the central meridian is at the false easting, northing is the scaled meridian arc
+        double[] utm = fromWgs84("EPSG:25832", 9, 45);
+        assertThat(utm[0]).isCloseTo(500_000, within(0.001));
+        assertThat(utm[1]).isCloseTo(4_984_944.378 * 0.9996, within(0.05));
+        assertThat(fromWgs84("EPSG:32632", 9, 0)).containsExactly(new double[] { 500_000, 0 }, within(0.001));
+        // LAEA Europe: the projection center is at the false origin
+        assertThat(fromWgs84("EPSG:3035", 10, 52)).containsExactly(new double[] { 4_321_000, 3_210_000 },
+            within(0.001));
+        // Gauss-Krüger zone 3, after the datum shift only close to its central meridian
+        assertThat(fromWgs84("EPSG:31467", 9, 50)[0]).isCloseTo(3_500_000, within(200.0));
+    }
+
+    @Test
+    void roundTripsBetweenAllSupportedSystems() {
+        String[] codes = { "EPSG:4258", "EPSG:3857", "EPSG:3035", "EPSG:25832", "EPSG:25833", "EPSG:32632",
+            "EPSG:31467", "EPSG:31468" };
+        double[][] points = { { 13.4050, 52.5200 }, { 11.5820, 48.1351 }, { 6.9603, 50.9375 }, { 8.6821, 50.1109 } };
+        for (String code : codes) {
+            for (double[] point : points) {
+                double[] projected = fromWgs84(code, point[0], point[1]);
+                double[] back = toWgs84(code, projected[0], projected[1]);
+                assertThat(back).as(code).containsExactly(point, within(1e-8));
+            }
+        }
+    }
+
+    @Test
+    void shiftsTheDhdnDatumByUpToAFewHundredMeters() {
+        // Same projection without and with the datum shift
+        double[] etrs = fromWgs84("EPSG:25832", 9, 50);
+        double[] gk = fromWgs84("EPSG:31467", 9, 50);
+        double shift = Math.hypot(gk[0] - 3_000_000 - etrs[0], gk[1] - etrs[1] / 0.9996);
+
+        assertThat(shift).isBetween(10.0, 500.0);
+    }
+
+    @Test
+    void transformsBatchesInPlaceAndKeepsNaN() {
+        double[] xs = { 13.405, Double.NaN, 9 };
+        double[] ys = { 52.52, 50, 45 };
+        CoordinateTransform transform = CoordinateTransform.between(CoordinateReferenceSystem.WGS84,
+            CoordinateReferenceSystem.forCode("EPSG:25832"));
+
+        transform.transform(xs, ys, 2);
+
+        assertThat(xs[0]).isEqualTo(fromWgs84("EPSG:25832", 13.405, 52.52)[0]);
+        assertThat(xs[1]).isNaN();
+        assertThat(ys[1]).isNaN();
+        assertThat(xs[2]).isEqualTo(9);
+        assertThat(CoordinateTransform.between(CoordinateReferenceSystem.WGS84, CoordinateReferenceSystem.WGS84)
+            .isIdentity()).isTrue();
+    }
+}
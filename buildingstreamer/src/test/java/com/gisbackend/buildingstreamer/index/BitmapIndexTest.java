@@ -0,0 +1,185 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.BuildingFilter;
+
+class BitmapIndexTest {
+
+    private static final String[] CITIES = { "Berlin", "Hamburg", "München", "Köln" };
+    private static final String[] CLASSES = { "A", "B", "C", "D", "E" };
+
+    private final BitmapIndex index = new BitmapIndex();
+    private final List<Building> rows = new ArrayList<>();
+
+    private static Building building(int row, String city, String energyClass, int year) {
+        return Building.builder()
+            .id("b" + row)
+            .energyEfficiencyClass(energyClass)
+            .constructionYear(Integer.toString(year))
+            .address(Address.builder().city(city).build())
+            .additionalAttribute("Usage", row % 2 == 0 ? "Office" : "Retail")
+            .build();
+    }
+
+    private void put(int row, Building building) {
+        Building previous = row < rows.size() ? rows.get(row) : null;
+        index.update(row, previous, building);
+        if (previous == null) {
+            rows.add(building);
+        } else {
+            rows.set(row, building);
+        }
+    }
+
+    private List<Integer> evaluate(BuildingFilter filter) {
+        List<Integer> result = new ArrayList<>();
+        index.evaluate(filter, rows::get).forEach(result::add);
+        return result;
+    }
+
+    private List<Integer> scan(Predicate<Building> predicate) {
+        List<Integer> result = new ArrayList<>();
+        for (int row = 0; row < rows.size(); row++) {
+            if (predicate.test(rows.get(row))) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private static BuildingFilter eq(String field, String value) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setField(field);
+        filter.setEq(value);
+        return filter;
+    }
+
+    private static BuildingFilter range(String field, String from, String to) {
+        BuildingFilter filter = new BuildingFilter();
+        filter.setField(field);
+        filter.setFrom(from);
+        filter.setTo(to);
+        return filter;
+    }
+
+    private void fill(int count) {
+        Random random = new Random(17);
+        for (int row = 0; row < count; row++) {
+            put(row, building(row, CITIES[random.nextInt(CITIES.length)], CLASSES[random.nextInt(CLASSES.length)],
+                1900 + random.nextInt(120)));
+        }
+    }
+
+    @Test
+    void filtersMatchAScanOfTheRows() {
+        fill(3000);
+        BuildingFilter and = new BuildingFilter();
+        and.setAnd(List.of(eq("city", "berlin"), range("constructionYear", "1950", "1979")));
+        BuildingFilter or = new BuildingFilter();
+        or.setOr(List.of(eq("energyEfficiencyClass", "A"), eq("attributes.Usage", "retail")));
+        BuildingFilter not = new BuildingFilter();
+        not.setNot(eq("city", "Köln"));
+        BuildingFilter in = new BuildingFilter();
+        in.setField("energyEfficiencyClass");
+        in.setIn(List.of("D", "e", "X"));
+
+        assertThat(evaluate(and)).containsExactlyElementsOf(scan(building -> building.getAddress().getCity().equals("Berlin")
+            && Integer.parseInt(building.getConstructionYear()) >= 1950
+            && Integer.parseInt(building.getConstructionYear()) <= 1979));
+        assertThat(evaluate(or)).containsExactlyElementsOf(scan(building -> building.getEnergyEfficiencyClass().equals("A")
+            || building.getAdditionalAttributes().get("Usage").equals("Retail")));
+        assertThat(evaluate(not)).containsExactlyElementsOf(scan(building -> !building.getAddress().getCity().equals("Köln")));
+        assertThat(evaluate(in)).containsExactlyElementsOf(scan(building -> building.getEnergyEfficiencyClass().equals("D")
+            || building.getEnergyEfficiencyClass().equals("E")));
+        assertThat(evaluate(null)).hasSize(3000);
+    }
+
+    @Test
+    void updatesMoveRowsBetweenValues() {
+        fill(100);
+        Building moved = building(5, "Dresden", "A", 2000);
+        put(5, moved);
+        assertThat(evaluate(eq("city", "Dresden"))).containsExactly(5);
+        assertThat(evaluate(eq("city", CITIES[0]))).doesNotContain(5);
+        // The last row of a value removes the value
+        put(5, building(5, "Berlin", "A", 2000));
+        assertThat(evaluate(eq("city", "dresden"))).isEmpty();
+        assertThat(index.groups("city", index.evaluate(null, rows::get), rows::get)).doesNotContainKey("Dresden");
+    }
+
+    @Test
+    void groupsUseTheFirstSpellingInValueOrder() {
+        put(0, building(0, "Berlin", "A", 1990));
+        put(1, building(1, "BERLIN", "B", 1890));
+        put(2, building(2, "Hamburg", "C", 2001));
+        Map<String, RoaringBitmap> groups = index.groups("constructionYear", index.evaluate(null, rows::get), rows::get);
+        assertThat(groups.keySet()).containsExactly("1890", "1990", "2001");
+        Map<String, RoaringBitmap> cities = index.groups("city", index.evaluate(null, rows::get), rows::get);
+        assertThat(cities.keySet()).containsExactly("Berlin", "Hamburg");
+        assertThat(cities.get("Berlin").cardinality()).isEqualTo(2);
+    }
+
+    @Test
+    void fieldsWithTooManyValuesAreScanned() {
+        for (int row = 0; row < 5000; row++) {
+            put(row, Building.builder().id("b" + row).additionalAttribute("Serial", "s" + row).build());
+        }
+        assertThat(evaluate(eq("attributes.Serial", "S4711"))).containsExactly(4711);
+        BuildingFilter and = new BuildingFilter();
+        and.setAnd(List.of(eq("attributes.Serial", "s4711"), eq("attributes.Serial", "s4712")));
+        assertThat(evaluate(and)).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedFilters() {
+        fill(10);
+        assertThatThrownBy(() -> evaluate(eq("unknown", "x"))).isInstanceOf(IllegalArgumentException.class);
+        BuildingFilter twoCriteria = range("city", "a", "b");
+        twoCriteria.setEq("Berlin");
+        assertThatThrownBy(() -> evaluate(twoCriteria)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readersSeeConsistentBitmapsDuringUpdates() throws Exception {
+        fill(2000);
+        Thread writer = new Thread(() -> {
+            Random random = new Random(1);
+            for (int i = 0; i < 20000; i++) {
+                int row = random.nextInt(2000);
+                put(row, building(row, CITIES[random.nextInt(CITIES.length)], "A", 1950));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            for (String city : CITIES) {
+                RoaringBitmap matches = index.evaluate(eq("city", city), rows::get);
+                int[] visited = new int[1];
+                matches.forEach(row -> {
+                    assertThat(row).isBetween(0, 1999);
+                    visited[0]++;
+                });
+                assertThat(visited[0]).isEqualTo(matches.cardinality());
+            }
+        }
+        writer.join();
+        int total = 0;
+        for (String city : CITIES) {
+            total += index.evaluate(eq("city", city), rows::get).cardinality();
+        }
+        assertThat(total).isEqualTo(2000);
+        assertThat(evaluate(eq("city", "Berlin"))).containsExactlyElementsOf(
+            scan(building -> building.getAddress().getCity().equals("Berlin")));
+    }
+}
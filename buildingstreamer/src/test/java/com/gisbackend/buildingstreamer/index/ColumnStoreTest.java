@@ -0,0 +1,113 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.index.ColumnStore.IntField;
+import com.gisbackend.buildingstreamer.model.Building;
+
+class ColumnStoreTest {
+
+    private final ColumnStore store = new ColumnStore();
+
+    private static Building building(Integer year) {
+        return Building.builder().constructionYear(year != null ? year.toString() : null).parkingSpaces("2").build();
+    }
+
+    private static List<Integer> rows(RoaringBitmap bitmap) {
+        List<Integer> rows = new ArrayList<>();
+        bitmap.forEach(rows::add);
+        return rows;
+    }
+
+    @Test
+    void rangesMatchTheValuesAcrossMerges() {
+        Random random = new Random(23);
+        int[] years = new int[20000];
+        for (int row = 0; row < years.length; row++) {
+            years[row] = 1850 + random.nextInt(170);
+            store.update(row, null, building(years[row]));
+        }
+        // Rewrites go through the delta and several merges
+        for (int i = 0; i < 10000; i++) {
+            int row = random.nextInt(years.length);
+            Building previous = building(years[row]);
+            years[row] = 1850 + random.nextInt(170);
+            store.update(row, previous, building(years[row]));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int row = 0; row < years.length; row++) {
+            if (years[row] >= 1950 && years[row] <= 1960) {
+                expected.add(row);
+            }
+        }
+        assertThat(rows(store.range(IntField.CONSTRUCTION_YEAR, 1950, 1960))).containsExactlyElementsOf(expected);
+        assertThat(store.range(IntField.CONSTRUCTION_YEAR, 2100, 2200).isEmpty()).isTrue();
+        assertThat(store.range(IntField.PARKING_SPACES, 2, 2).cardinality()).isEqualTo(years.length);
+        assertThat(store.getRowCount()).isEqualTo(years.length);
+    }
+
+    @Test
+    void aggregatesPerGroup() {
+        int[] years = { 1900, 1950, 2000, 1990, 0, 1970 };
+        for (int row = 0; row < years.length; row++) {
+            store.update(row, null, building(years[row] == 0 ? null : years[row]));
+        }
+        int[] groups = { 0, 0, 0, 1, 1, -1 };
+
+        ColumnStatistics statistics = store.aggregate(IntField.CONSTRUCTION_YEAR, groups, 2, 50, true, true);
+
+        assertThat(statistics.rows()).containsExactly(3, 2);
+        assertThat(statistics.counts()).containsExactly(3, 1);
+        assertThat(statistics.sums()).containsExactly(5850, 1990);
+        assertThat(statistics.mins()).containsExactly(1900, 1990);
+        assertThat(statistics.maxs()).containsExactly(2000, 1990);
+        assertThat(statistics.bucketStart()).isEqualTo(1900);
+        assertThat(statistics.bucketCount()).isEqualTo(3);
+        assertThat(statistics.histogram()).containsExactly(1, 1, 1, 0, 1, 0);
+        assertThat(statistics.sortedValues()[0]).containsExactly(1900, 1950, 2000);
+        assertThat(statistics.sortedValues()[1]).containsExactly(1990);
+    }
+
+    @Test
+    void rejectsHistogramsWithTooManyBuckets() {
+        store.update(0, null, building(1));
+        store.update(1, null, building(1_000_000));
+        assertThatThrownBy(() -> store.aggregate(IntField.CONSTRUCTION_YEAR, new int[] { 0, 0 }, 1, 1, true, false))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readersSeeWholeSnapshotsDuringUpdates() throws Exception {
+        for (int row = 0; row < 5000; row++) {
+            store.update(row, null, building(2000));
+        }
+        Thread writer = new Thread(() -> {
+            for (int row = 0; row < 5000; row++) {
+                store.update(row, building(2000), building(1900));
+            }
+        });
+        writer.start();
+        int[] groups = new int[5000];
+        while (writer.isAlive()) {
+            int moved = store.range(IntField.CONSTRUCTION_YEAR, 1900, 1900).cardinality();
+            int remaining = store.range(IntField.CONSTRUCTION_YEAR, 2000, 2000).cardinality();
+            assertThat(moved).isBetween(0, 5000);
+            assertThat(remaining).isBetween(0, 5000);
+            ColumnStatistics statistics = store.aggregate(IntField.CONSTRUCTION_YEAR, groups, 1, 100, false, true);
+            assertThat(statistics.counts()[0]).isEqualTo(5000);
+            assertThat(statistics.sortedValues()[0]).hasSize(5000);
+            int[] sorted = statistics.sortedValues()[0];
+            assertThat(Arrays.stream(sorted).allMatch(value -> value == 1900 || value == 2000)).isTrue();
+        }
+        writer.join();
+        assertThat(store.range(IntField.CONSTRUCTION_YEAR, 1900, 1900).cardinality()).isEqualTo(5000);
+    }
+}
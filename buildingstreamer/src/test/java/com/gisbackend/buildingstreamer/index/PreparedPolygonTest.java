@@ -0,0 +1,76 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class PreparedPolygonTest {
+
+    private static final double[] SQUARE = { 0, 0, 10, 0, 10, 10, 0, 10 };
+    private static final double[] HOLE = { 4, 4, 6, 4, 6, 6, 4, 6, 4, 4 };
+
+    // Even-odd ray cast over all rings, the reference the grid has to agree with
+    private static boolean reference(List<double[]> rings, double x, double y) {
+        boolean inside = false;
+        for (double[] ring : rings) {
+            int n = ring.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double xi = ring[2 * i];
+                double yi = ring[2 * i + 1];
+                double xj = ring[2 * j];
+                double yj = ring[2 * j + 1];
+                if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    @Test
+    void excludesHolesAndPointsOutside() {
+        PreparedPolygon polygon = new PreparedPolygon(List.of(SQUARE, HOLE));
+
+        assertThat(polygon.contains(1, 1)).isTrue();
+        assertThat(polygon.contains(9.99, 5)).isTrue();
+        assertThat(polygon.contains(5, 5)).isFalse();
+        assertThat(polygon.contains(-1, 5)).isFalse();
+        assertThat(polygon.contains(5, 10.5)).isFalse();
+        assertThat(polygon.getMinLon()).isZero();
+        assertThat(polygon.getMaxLat()).isEqualTo(10);
+    }
+
+    @Test
+    void treatsSeveralOuterRingsAsAMultipolygon() {
+        PreparedPolygon polygon = new PreparedPolygon(List.of(SQUARE, new double[] { 20, 0, 30, 0, 25, 10 }));
+
+        assertThat(polygon.contains(5, 5)).isTrue();
+        assertThat(polygon.contains(25, 2)).isTrue();
+        assertThat(polygon.contains(15, 5)).isFalse();
+        assertThat(polygon.contains(21, 9)).isFalse();
+    }
+
+    @Test
+    void agreesWithARayCastOnAConcavePolygon() {
+        // Star with ten points, concave between them
+        double[] star = new double[40];
+        for (int i = 0; i < 20; i++) {
+            double angle = Math.PI * i / 10;
+            double radius = i % 2 == 0 ? 1 : 0.4;
+            star[2 * i] = 13.4 + radius * Math.cos(angle);
+            star[2 * i + 1] = 52.5 + radius * Math.sin(angle);
+        }
+        List<double[]> rings = List.of(star);
+        PreparedPolygon polygon = new PreparedPolygon(rings);
+
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 20000; i++) {
+            double lon = 12.2 + random.nextDouble() * 2.4;
+            double lat = 51.3 + random.nextDouble() * 2.4;
+            assertThat(polygon.contains(lon, lat)).as("%s, %s", lon, lat).isEqualTo(reference(rings, lon, lat));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class RoaringBitmapTest {
+
+    // Values spread over a few chunks, dense enough in some to switch them to bitmap containers
+    private static TreeSet<Integer> randomValues(Random random, int count) {
+        TreeSet<Integer> values = new TreeSet<>();
+        while (values.size() < count) {
+            int chunk = random.nextInt(4);
+            int bound = chunk == 0 ? 6000 : 65536;
+            values.add((chunk << 16) | random.nextInt(bound));
+        }
+        return values;
+    }
+
+    private static RoaringBitmap bitmapOf(Iterable<Integer> values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static List<Integer> valuesOf(RoaringBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+
+    @Test
+    void setOperationsMatchSortedSets() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Integer> a = randomValues(random, random.nextInt(12000));
+            TreeSet<Integer> b = randomValues(random, random.nextInt(12000));
+            RoaringBitmap left = bitmapOf(a);
+            RoaringBitmap right = bitmapOf(b);
+
+            TreeSet<Integer> and = new TreeSet<>(a);
+            and.retainAll(b);
+            TreeSet<Integer> or = new TreeSet<>(a);
+            or.addAll(b);
+            TreeSet<Integer> andNot = new TreeSet<>(a);
+            andNot.removeAll(b);
+
+            assertThat(valuesOf(left.and(right))).containsExactlyElementsOf(and);
+            assertThat(valuesOf(left.or(right))).containsExactlyElementsOf(or);
+            assertThat(valuesOf(RoaringBitmap.or(List.of(left, right, new RoaringBitmap())))).containsExactlyElementsOf(or);
+            assertThat(valuesOf(left.andNot(right))).containsExactlyElementsOf(andNot);
+            assertThat(left.cardinality()).isEqualTo(a.size());
+            // Operands are left as they were
+            assertThat(valuesOf(left)).containsExactlyElementsOf(a);
+            assertThat(valuesOf(right)).containsExactlyElementsOf(b);
+        }
+    }
+
+    @Test
+    void removeShrinksDenseChunksBackToArrays() {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int i = 0; i < 10000; i++) {
+            values.add(i * 3);
+        }
+        RoaringBitmap bitmap = bitmapOf(values);
+        for (int i = 0; i < 9000; i++) {
+            bitmap.remove(i * 3);
+            values.remove(i * 3);
+        }
+        bitmap.remove(123_456_789);
+        assertThat(valuesOf(bitmap)).containsExactlyElementsOf(values);
+        assertThat(bitmap.contains(27000)).isTrue();
+        assertThat(bitmap.contains(3)).isFalse();
+    }
+
+    @Test
+    void withAndWithoutLeaveTheOriginalUnchanged() {
+        Random random = new Random(11);
+        TreeSet<Integer> values = randomValues(random, 9000);
+        RoaringBitmap original = bitmapOf(values);
+        RoaringBitmap current = original;
+        TreeSet<Integer> expected = new TreeSet<>(values);
+        for (int i = 0; i < 2000; i++) {
+            int value = random.nextInt(5 << 16);
+            if (random.nextBoolean()) {
+                current = current.with(value);
+                expected.add(value);
+            } else {
+                current = current.without(value);
+                expected.remove(value);
+            }
+        }
+        assertThat(valuesOf(current)).containsExactlyElementsOf(expected);
+        assertThat(valuesOf(original)).containsExactlyElementsOf(values);
+        assertThat(original.with(values.first())).isSameAs(original);
+        assertThat(original.without(-1 >>> 1)).isSameAs(original);
+    }
+
+    @Test
+    void toArrayPagesInAscendingOrder() {
+        RoaringBitmap bitmap = bitmapOf(randomValues(new Random(3), 10000));
+        List<Integer> all = valuesOf(bitmap);
+        int[] page = bitmap.toArray(4500, 700);
+        assertThat(page).hasSize(700);
+        for (int i = 0; i < page.length; i++) {
+            assertThat(page[i]).isEqualTo(all.get(4500 + i));
+        }
+        assertThat(bitmap.toArray(all.size() - 5, 100)).hasSize(5);
+        assertThat(bitmap.toArray(all.size() + 5, 100)).isEmpty();
+    }
+
+    @Test
+    void fromBitsReadsEveryWord() {
+        long[] words = new long[3000];
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(words.length * 64);
+            words[value >>> 6] |= 1L << value;
+            expected.add(value);
+        }
+        assertThat(valuesOf(RoaringBitmap.fromBits(words))).containsExactlyElementsOf(expected);
+    }
+}
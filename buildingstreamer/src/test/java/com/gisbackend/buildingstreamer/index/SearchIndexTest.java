@@ -0,0 +1,125 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.index.SearchIndex.SearchHit;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+
+class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex();
+
+    private static Building building(String name, String street, String city) {
+        return Building.builder()
+            .name(name)
+            .address(Address.builder().streetName(street).city(city).postalCode("10115").build())
+            .build();
+    }
+
+    private List<Integer> rows(String query) {
+        List<Integer> rows = new ArrayList<>();
+        index.search(query, 100).forEach(hit -> rows.add(hit.rowId()));
+        return rows;
+    }
+
+    @Test
+    void allTokensHaveToMatchAndTheLastOneMayBeAPrefix() {
+        index.update(0, null, building("Rathaus", "Marktplatz", "Berlin"));
+        index.update(1, null, building("Bahnhof", "Bahnhofstraße", "Berlin"));
+        index.update(2, null, building("Rathaus", "Am Markt", "Hamburg"));
+
+        assertThat(rows("rathaus berlin")).containsExactly(0);
+        assertThat(rows("Rathaus Ham")).containsExactly(2);
+        assertThat(rows("bahnhofstrasse")).containsExactly(1);
+        assertThat(rows("rathaus bahnhof")).isEmpty();
+        assertThat(rows("  ")).isEmpty();
+    }
+
+    @Test
+    void diacriticsAreFoldedAndTyposAreTolerated() {
+        index.update(0, null, building("Schloss", "Königsallee", "Düsseldorf"));
+
+        assertThat(rows("dusseldorf")).containsExactly(0);
+        assertThat(rows("Dusseldrof")).containsExactly(0);
+        assertThat(rows("koenigsallee")).containsExactly(0);
+        assertThat(rows("xyzzyplugh")).isEmpty();
+    }
+
+    @Test
+    void exactMatchesAndWeightierFieldsRankFirst() {
+        index.update(0, null, building("Hof", "Hauptstraße", "Berlin"));
+        index.update(1, null, building("Berliner Hof", "Hauptstraße", "Potsdam"));
+        index.update(2, null, building("Berlin", "Hauptstraße", "Potsdam"));
+
+        // Exact name, name prefix, exact city
+        List<SearchHit> hits = index.search("berlin", 10);
+        assertThat(hits).extracting(SearchHit::rowId).containsExactly(2, 1, 0);
+        assertThat(index.search("berlin", 2)).extracting(SearchHit::rowId).containsExactly(2, 1);
+    }
+
+    @Test
+    void updatesReplaceTheTermsOfARow() {
+        Building before = building("Alte Post", "Poststraße", "Leipzig");
+        Building after = building("Neue Post", "Poststraße", "Leipzig");
+        index.update(0, null, before);
+        index.update(1, null, building("Alte Mühle", "Mühlweg", "Leipzig"));
+        int terms = index.getTermCount();
+
+        index.update(0, before, after);
+        assertThat(rows("alte")).containsExactly(1);
+        assertThat(rows("neue post")).containsExactly(0);
+        // "alte" is still used by the other row
+        assertThat(index.getTermCount()).isEqualTo(terms + 1);
+
+        index.update(1, building("Alte Mühle", "Mühlweg", "Leipzig"), building("", "", ""));
+        assertThat(rows("alte")).isEmpty();
+        assertThat(rows("muhle")).isEmpty();
+    }
+
+    @Test
+    void earlierResultsAreNotChangedByLaterAppends() {
+        for (int row = 0; row < 1000; row++) {
+            index.update(row, null, building("Halle " + row, "Ring", "Erfurt"));
+        }
+        List<SearchHit> before = index.search("erfurt", 2000);
+        for (int row = 1000; row < 1500; row++) {
+            index.update(row, null, building("Halle " + row, "Ring", "Erfurt"));
+        }
+        index.update(10, building("Halle 10", "Ring", "Erfurt"), building("Halle 10", "Ring", "Gera"));
+
+        assertThat(before).hasSize(1000);
+        assertThat(index.search("erfurt", 2000)).hasSize(1499);
+        assertThat(rows("halle 10 gera")).containsExactly(10);
+    }
+
+    @Test
+    void searchesRunWhileRowsAreUpdated() throws Exception {
+        for (int row = 0; row < 500; row++) {
+            index.update(row, null, building("Lager", "Hafenstraße", "Kiel"));
+        }
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                int row = i % 500;
+                boolean moved = (i / 500) % 2 == 0;
+                index.update(row, building("Lager", "Hafenstraße", moved ? "Kiel" : "Lübeck"),
+                    building("Lager", "Hafenstraße", moved ? "Lübeck" : "Kiel"));
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            int kiel = index.search("lager kiel", 1000).size();
+            int lubeck = index.search("lager lubeck", 1000).size();
+            assertThat(kiel).isBetween(0, 500);
+            assertThat(lubeck).isBetween(0, 500);
+        }
+        writer.join();
+        assertThat(index.search("kiel", 1000)).hasSize(500);
+        assertThat(index.search("lubeck", 1000)).isEmpty();
+    }
+}
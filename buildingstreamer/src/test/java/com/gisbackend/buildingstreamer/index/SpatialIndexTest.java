@@ -0,0 +1,152 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.index.SpatialIndex.Neighbor;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+
+class SpatialIndexTest {
+
+    private static Building at(int id, double lat, double lon) {
+        return Building.builder()
+            .id("b" + id)
+            .address(Address.builder()
+                .id("a" + id)
+                .geoCoordinate(GeoCoordinate.builder().latitude(Double.toString(lat)).longitude(Double.toString(lon)).build())
+                .build())
+            .build();
+    }
+
+    private static Building nowhere(int id) {
+        return Building.builder().id("b" + id).address(Address.builder().id("a" + id).build()).build();
+    }
+
+    // Index over random points around central Europe, enough of them to fill several trees, some moved or removed
+    private static final class Fixture {
+        final SpatialIndex index = new SpatialIndex();
+        final List<double[]> points = new ArrayList<>();
+
+        Fixture(int size) {
+            SplittableRandom random = new SplittableRandom(7);
+            List<Building> current = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                double[] point = { 47 + random.nextDouble() * 8, 5 + random.nextDouble() * 10 };
+                Building building = at(row, point[0], point[1]);
+                index.update(row, null, building);
+                points.add(point);
+                current.add(building);
+            }
+            for (int row = 0; row < size; row += 3) {
+                double[] point = { 47 + random.nextDouble() * 8, 5 + random.nextDouble() * 10 };
+                Building moved = at(row, point[0], point[1]);
+                index.update(row, current.get(row), moved);
+                points.set(row, point);
+                current.set(row, moved);
+            }
+            for (int row = 1; row < size; row += 10) {
+                index.update(row, current.get(row), nowhere(row));
+                points.set(row, null);
+            }
+        }
+
+        List<Neighbor> bruteForce(double lat, double lon) {
+            List<Neighbor> all = new ArrayList<>();
+            for (int row = 0; row < points.size(); row++) {
+                double[] point = points.get(row);
+                if (point != null) {
+                    all.add(new Neighbor(row, SpatialIndex.haversine(lat, lon, point[0], point[1])));
+                }
+            }
+            all.sort(Comparator.comparingDouble(Neighbor::distanceMeters));
+            return all;
+        }
+    }
+
+    private static List<Integer> rows(List<Neighbor> neighbors) {
+        return neighbors.stream().map(Neighbor::rowId).toList();
+    }
+
+    @Test
+    void computesGreatCircleDistances() {
+        // Berlin to Paris
+        assertThat(SpatialIndex.haversine(52.5200, 13.4050, 48.8566, 2.3522)).isCloseTo(877_500, within(1_000.0));
+        assertThat(SpatialIndex.haversine(10, 20, 10, 20)).isZero();
+        assertThat(SpatialIndex.haversine(0, 0, 0, 180)).isCloseTo(Math.PI * SpatialIndex.EARTH_RADIUS_METERS,
+            within(1.0));
+    }
+
+    @Test
+    void findsTheNearestRowsLikeABruteForceScan() {
+        Fixture fixture = new Fixture(5000);
+
+        for (double[] query : new double[][] { { 52.52, 13.40 }, { 48.14, 11.58 }, { 40.0, -3.7 } }) {
+            List<Neighbor> nearest = fixture.index.nearest(query[0], query[1], 10);
+            List<Neighbor> expected = fixture.bruteForce(query[0], query[1]).subList(0, 10);
+
+            assertThat(rows(nearest)).isEqualTo(rows(expected));
+            for (int i = 0; i < nearest.size(); i++) {
+                assertThat(nearest.get(i).distanceMeters()).isCloseTo(expected.get(i).distanceMeters(), within(0.01));
+            }
+        }
+    }
+
+    @Test
+    void findsTheRowsWithinARadiusNearestFirst() {
+        Fixture fixture = new Fixture(5000);
+
+        List<Neighbor> found = fixture.index.within(50.11, 8.68, 50_000, Integer.MAX_VALUE);
+        List<Integer> expected = rows(fixture.bruteForce(50.11, 8.68).stream()
+            .filter(neighbor -> neighbor.distanceMeters() <= 50_000).toList());
+
+        assertThat(expected).isNotEmpty();
+        assertThat(rows(found)).isEqualTo(expected);
+        assertThat(fixture.index.within(50.11, 8.68, 50_000, 3)).hasSize(3);
+    }
+
+    @Test
+    void dropsMovedAndRemovedPositions() {
+        SpatialIndex index = new SpatialIndex();
+        Building berlin = at(0, 52.52, 13.40);
+        Building munich = at(0, 48.14, 11.58);
+        index.update(0, null, berlin);
+        index.update(0, berlin, munich);
+        index.update(1, null, at(1, 52.50, 13.40));
+
+        assertThat(rows(index.within(52.52, 13.40, 10_000, 10))).containsExactly(1);
+        assertThat(rows(index.nearest(48.14, 11.58, 1))).containsExactly(0);
+
+        index.update(0, munich, nowhere(0));
+        assertThat(rows(index.nearest(48.14, 11.58, 5))).containsExactly(1);
+    }
+
+    @Test
+    void visitsEveryRowInABox() {
+        Fixture fixture = new Fixture(2000);
+        List<Integer> visited = new ArrayList<>();
+
+        fixture.index.forEachInBox(49, 7, 51, 9, (rowId, lat, lon) -> {
+            if (lat >= 49 && lat <= 51 && lon >= 7 && lon <= 9) {
+                visited.add(rowId);
+            }
+        });
+
+        List<Integer> expected = new ArrayList<>();
+        for (int row = 0; row < fixture.points.size(); row++) {
+            double[] point = fixture.points.get(row);
+            if (point != null && point[0] >= 49 && point[0] <= 51 && point[1] >= 7 && point[1] <= 9) {
+                expected.add(row);
+            }
+        }
+        assertThat(visited).containsExactlyInAnyOrderElementsOf(expected);
+    }
+}
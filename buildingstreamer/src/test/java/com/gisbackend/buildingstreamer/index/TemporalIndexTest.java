@@ -0,0 +1,132 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+
+class TemporalIndexTest {
+
+    private static Building building(String id, String validFrom, String city, String energyClass) {
+        return Building.builder()
+            .id(id)
+            .validFrom(validFrom)
+            .energyEfficiencyClass(energyClass)
+            .address(Address.builder().id("a-" + id).city(city).build())
+            .build();
+    }
+
+    private static long time(String value) {
+        return TemporalIndex.parseTime(value);
+    }
+
+    private static List<String> ids(List<Building> buildings) {
+        return buildings.stream().map(Building::getId).toList();
+    }
+
+    @Test
+    void returnsTheVersionWithTheLatestValidFromAtOrBeforeTheTime() {
+        TemporalIndex index = new TemporalIndex(Duration.ofDays(36500), 64);
+        Building v2020 = building("b1", "2020-01-01", "Berlin", "C");
+        Building v2022 = building("b1", "2022-01-01", "Berlin", "B");
+        Building v2021 = building("b1", "2021-01-01", "Berlin", "A");
+        index.update(0, null, v2020);
+        index.update(0, v2020, v2022);
+        // Received late, inserted between the others
+        index.update(0, v2022, v2021);
+
+        assertThat(index.get(0, time("2019-12-31T23:59:59Z"))).isNull();
+        assertThat(index.get(0, time("2020-01-01"))).isSameAs(v2020);
+        assertThat(index.get(0, time("2021-06-01"))).isSameAs(v2021);
+        assertThat(index.get(0, time("2030-01-01"))).isSameAs(v2022);
+        assertThat(index.get(1, time("2030-01-01"))).isNull();
+        assertThat(index.getVersionCount(0)).isEqualTo(3);
+    }
+
+    @Test
+    void correctsAVersionWithTheSameValidFrom() {
+        TemporalIndex index = new TemporalIndex(Duration.ofDays(36500), 64);
+        Building first = building("b1", "2020-01-01", "Berlin", "C");
+        Building corrected = building("b1", "2020-01-01", "Berlin", "B");
+        index.update(0, null, first);
+        index.update(0, first, corrected);
+
+        assertThat(index.getVersionCount(0)).isEqualTo(1);
+        assertThat(index.get(0, time("2020-06-01"))).isSameAs(corrected);
+    }
+
+    @Test
+    void dropsVersionsBeyondTheRetentionWindowAndTheCap() {
+        TemporalIndex retained = new TemporalIndex(Duration.ofDays(365), 64);
+        Building old = building("b1", "2000-01-01", "Berlin", "C");
+        Building newer = building("b1", "2001-01-01", "Berlin", "B");
+        retained.update(0, null, old);
+        retained.update(0, old, newer);
+
+        assertThat(retained.get(0, time("2000-06-01"))).isNull();
+        assertThat(retained.get(0, time("2001-06-01"))).isSameAs(newer);
+
+        TemporalIndex capped = new TemporalIndex(Duration.ofDays(36500), 2);
+        Building previous = null;
+        for (int year = 2020; year < 2024; year++) {
+            Building version = building("b1", year + "-01-01", "Berlin", "C");
+            capped.update(0, previous, version);
+            previous = version;
+        }
+        assertThat(capped.getVersionCount(0)).isEqualTo(2);
+        assertThat(capped.get(0, time("2021-06-01"))).isNull();
+        assertThat(capped.get(0, time("2022-06-01")).getValidFrom()).isEqualTo("2022-01-01");
+    }
+
+    @Test
+    void findsBuildingsByTheValueTheyHadAtTheTime() {
+        TemporalIndex index = new TemporalIndex(Duration.ofDays(36500), 64);
+        Building inBerlin = building("b1", "2020-01-01", "Berlin", "C");
+        Building moved = building("b1", "2022-01-01", "Hamburg", "A");
+        index.update(0, null, inBerlin);
+        index.update(0, inBerlin, moved);
+        index.update(1, null, building("b2", "2021-01-01", " berlin ", "C"));
+        index.update(2, null, building("b3", "2019-01-01", "Munich", "C"));
+
+        assertThat(ids(index.getAll(time("2021-06-01"), "city", "BERLIN"))).containsExactly("b1", "b2");
+        assertThat(ids(index.getAll(time("2023-01-01"), "city", "Berlin"))).containsExactly("b2");
+        assertThat(ids(index.getAll(time("2023-01-01"), "city", "Hamburg"))).containsExactly("b1");
+        assertThat(ids(index.getAll(time("2020-06-01"), "energyEfficiencyClass", "c"))).containsExactly("b1", "b3");
+        assertThat(index.getAll(time("2021-06-01"), "city", "Paris")).isEmpty();
+        assertThat(index.getAll(time("2021-06-01"), "city", " ")).isEmpty();
+    }
+
+    @Test
+    void forgetsValuesOfDroppedVersions() {
+        TemporalIndex index = new TemporalIndex(Duration.ofDays(36500), 1);
+        Building inBerlin = building("b1", "2020-01-01", "Berlin", "C");
+        Building moved = building("b1", "2022-01-01", "Hamburg", "C");
+        index.update(0, null, inBerlin);
+        index.update(0, inBerlin, moved);
+
+        assertThat(index.getAll(time("2021-01-01"), "city", "Berlin")).isEmpty();
+        assertThat(ids(index.getAll(time("2023-01-01"), "city", "Hamburg"))).containsExactly("b1");
+    }
+
+    @Test
+    void rejectsFieldsWithoutHistory() {
+        TemporalIndex index = new TemporalIndex(Duration.ofDays(365), 64);
+
+        assertThatThrownBy(() -> index.getAll(0, "name", "x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parsesDatesDateTimesAndInstants() {
+        assertThat(TemporalIndex.parseTime("2024-01-01")).isEqualTo(1704067200000L);
+        assertThat(TemporalIndex.parseTime("2024-01-01T01:00:00")).isEqualTo(1704070800000L);
+        assertThat(TemporalIndex.parseTime("2024-01-01T02:00:00+01:00")).isEqualTo(1704070800000L);
+        assertThat(TemporalIndex.parseTime(" 2024-01-01T01:00:00z ")).isEqualTo(1704070800000L);
+        assertThatThrownBy(() -> TemporalIndex.parseTime("yesterday")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
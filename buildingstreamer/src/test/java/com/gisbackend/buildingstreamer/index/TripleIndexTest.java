@@ -0,0 +1,86 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+
+class TripleIndexTest {
+
+    private static final String PREFIXES = "@prefix ibpdi: <https://ibpdi.datacat.org/class/> .\n"
+        + "@prefix inst: <https://example.org/> .\n";
+    private static final String BUILDING = "<https://ibpdi.datacat.org/class/Building>";
+    private static final String CITY = "<https://example.org/city>";
+
+    private static GraphDataModel graph(String turtle) {
+        GraphDataModel model = new GraphDataModel();
+        model.setGraphData(PREFIXES + turtle);
+        return model;
+    }
+
+    private static int[] encode(TripleIndex index, String id, String city) {
+        return index.encode(id, graph("inst:" + id + " a ibpdi:Building ; inst:city \"" + city + "\" ."));
+    }
+
+    private static List<String> subjects(TripleIndex index, String predicate, String object) {
+        List<String> subjects = new ArrayList<>();
+        index.snapshot().match(-1, index.id(predicate), index.id(object), (s, p, o) -> {
+            subjects.add(index.term(s));
+            return true;
+        });
+        return subjects;
+    }
+
+    @Test
+    void matchesPatternsOverAllRows() {
+        TripleIndex index = new TripleIndex(4096);
+        index.update(0, encode(index, "b1", "Berlin"));
+        index.update(1, encode(index, "b2", "Hamburg"));
+        index.update(2, encode(index, "b3", "Berlin"));
+
+        assertThat(subjects(index, TripleParser.RDF_TYPE, BUILDING)).containsExactlyInAnyOrder(
+            "<https://example.org/b1>", "<https://example.org/b2>", "<https://example.org/b3>");
+        assertThat(subjects(index, CITY, "\"Berlin\"")).containsExactlyInAnyOrder(
+            "<https://example.org/b1>", "<https://example.org/b3>");
+        assertThat(index.snapshot().estimate(-1, index.id(CITY), -1)).isEqualTo(3);
+        assertThat(index.id("\"Paris\"")).isEqualTo(-1);
+    }
+
+    @Test
+    void replacesTheTriplesOfARow() {
+        TripleIndex index = new TripleIndex(4096);
+        index.update(0, encode(index, "b1", "Berlin"));
+
+        index.update(0, encode(index, "b1", "Hamburg"));
+
+        assertThat(subjects(index, CITY, "\"Berlin\"")).isEmpty();
+        assertThat(subjects(index, CITY, "\"Hamburg\"")).containsExactly("<https://example.org/b1>");
+        assertThat(subjects(index, TripleParser.RDF_TYPE, BUILDING)).containsExactly("<https://example.org/b1>");
+    }
+
+    @Test
+    void staysConsistentAcrossRebuilds() {
+        TripleIndex index = new TripleIndex(1);
+        for (int round = 0; round < 20; round++) {
+            for (int row = 0; row < 50; row++) {
+                index.update(row, encode(index, "b" + row, row % 2 == round % 2 ? "Berlin" : "Hamburg"));
+            }
+            assertThat(subjects(index, CITY, "\"Berlin\"")).hasSize(25);
+            assertThat(subjects(index, TripleParser.RDF_TYPE, BUILDING)).hasSize(50);
+        }
+    }
+
+    @Test
+    void skipsGraphDataThatCannotBeParsed() {
+        TripleIndex index = new TripleIndex(4096);
+
+        assertThat(index.encode("b1", null)).isEmpty();
+        assertThat(index.encode("b1", graph("inst:b1 a ibpdi:Building ; inst:name ?x ."))).isEmpty();
+        assertThat(index.encode("b1", graph("_:n inst:city \"Berlin\" ."))).hasSize(3);
+        assertThat(index.id("_:b1_n")).isNotNegative();
+    }
+}
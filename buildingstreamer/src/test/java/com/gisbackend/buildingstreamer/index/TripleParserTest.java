@@ -0,0 +1,72 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TripleParserTest {
+
+    private static final String PREFIXES = "@prefix ibpdi: <https://ibpdi.datacat.org/class/> .\n"
+        + "PREFIX inst: <https://example.org/>\n";
+
+    private static List<List<String>> document(String turtle) {
+        return new TripleParser(TurtleTokenizer.tokenize(PREFIXES + turtle), new HashMap<>(), "b1_")
+            .parseDocument().stream().map(List::of).toList();
+    }
+
+    @Test
+    void expandsPredicateAndObjectLists() {
+        assertThat(document("inst:b1 a ibpdi:Building ; inst:name \"Hall\"@DE, 'Halle' ; inst:floors 3 ;"
+            + " inst:area 1.5 ; inst:open true ; inst:site _:s .")).containsExactly(
+                List.of("<https://example.org/b1>", TripleParser.RDF_TYPE, "<https://ibpdi.datacat.org/class/Building>"),
+                List.of("<https://example.org/b1>", "<https://example.org/name>", "\"Hall\"@de"),
+                List.of("<https://example.org/b1>", "<https://example.org/name>", "\"Halle\""),
+                List.of("<https://example.org/b1>", "<https://example.org/floors>",
+                    "\"3\"^^<http://www.w3.org/2001/XMLSchema#integer>"),
+                List.of("<https://example.org/b1>", "<https://example.org/area>",
+                    "\"1.5\"^^<http://www.w3.org/2001/XMLSchema#decimal>"),
+                List.of("<https://example.org/b1>", "<https://example.org/open>",
+                    "\"true\"^^<http://www.w3.org/2001/XMLSchema#boolean>"),
+                List.of("<https://example.org/b1>", "<https://example.org/site>", "_:b1_s"));
+    }
+
+    @Test
+    void normalizesStringDatatypes() {
+        assertThat(document("@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+            + "inst:b1 inst:name \"Hall\"^^xsd:string ; inst:year \"1911\"^^xsd:gYear .")).containsExactly(
+                List.of("<https://example.org/b1>", "<https://example.org/name>", "\"Hall\""),
+                List.of("<https://example.org/b1>", "<https://example.org/year>",
+                    "\"1911\"^^<http://www.w3.org/2001/XMLSchema#gYear>"));
+    }
+
+    @Test
+    void skipsMalformedStatementsOnly() {
+        assertThat(document("inst:b1 a ibpdi:Building .\n"
+            + "inst:b2 a unknown:Building .\n"
+            + "inst:b3 a ?variable .\n"
+            + "inst:b5 a ibpdi:Building ; inst:name ?variable .\n"
+            + "inst:b4 a ibpdi:Building .")).extracting(triple -> triple.get(0))
+                .containsExactly("<https://example.org/b1>", "<https://example.org/b4>");
+    }
+
+    @Test
+    void parsesPatternsWithVariables() {
+        Map<String, String> prefixes = new HashMap<>(Map.of("inst", "https://example.org/"));
+
+        List<String[]> patterns = new TripleParser(TurtleTokenizer.tokenize("?b a inst:Building ; inst:city ?c"),
+            prefixes, "").parsePatterns();
+
+        assertThat(patterns).extracting(List::of).containsExactly(
+            List.of("?b", TripleParser.RDF_TYPE, "<https://example.org/Building>"),
+            List.of("?b", "<https://example.org/city>", "?c"));
+        assertThatThrownBy(() -> new TripleParser(TurtleTokenizer.tokenize("?b a"), prefixes, "").parsePatterns())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TripleParser(TurtleTokenizer.tokenize("?b a x:Y"), prefixes, "").parsePatterns())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
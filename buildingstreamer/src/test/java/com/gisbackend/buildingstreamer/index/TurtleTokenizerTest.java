@@ -0,0 +1,53 @@
+package com.gisbackend.buildingstreamer.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Token;
+import com.gisbackend.buildingstreamer.index.TurtleTokenizer.Type;
+
+class TurtleTokenizerTest {
+
+    @Test
+    void splitsTermsAndPunctuation() {
+        List<Token> tokens = TurtleTokenizer.tokenize(
+            "@prefix inst: <https://example.org/> . # comment\n"
+                + "inst:a.b a _:n1 ; inst:p ?x, $y, -1.5e3 .");
+
+        assertThat(tokens).extracting(Token::type).containsExactly(Type.WORD, Type.PREFIXED_NAME, Type.IRI,
+            Type.PUNCTUATION, Type.PREFIXED_NAME, Type.WORD, Type.BLANK_NODE, Type.PUNCTUATION,
+            Type.PREFIXED_NAME, Type.VARIABLE, Type.PUNCTUATION, Type.VARIABLE, Type.PUNCTUATION, Type.NUMBER,
+            Type.PUNCTUATION);
+        assertThat(tokens).extracting(Token::text).containsExactly("@prefix", "inst:", "https://example.org/",
+            ".", "inst:a.b", "a", "n1", ";", "inst:p", "x", ",", "y", ",", "-1.5e3", ".");
+        assertThat(tokens.get(2).start()).isEqualTo(14);
+        assertThat(tokens.get(2).end()).isEqualTo(36);
+        assertThat(tokens.get(0).isWord("@PREFIX")).isTrue();
+        assertThat(tokens.get(3).is(".")).isTrue();
+    }
+
+    @Test
+    void keepsLiteralsAsWritten() {
+        List<Token> tokens = TurtleTokenizer.tokenize(
+            "\"a \\\"quoted\\\" word\"@de-CH 'single' \"\"\"two\n\"lines\"\"\" \"5\"^^xsd:int \"6\"^^<urn:t>");
+
+        assertThat(tokens).extracting(Token::type).containsOnly(Type.LITERAL);
+        assertThat(tokens).extracting(Token::text)
+            .containsExactly("a \\\"quoted\\\" word", "single", "two\n\"lines", "5", "6");
+        assertThat(tokens).extracting(Token::suffix).containsExactly("@de-CH", null, null, "^^xsd:int", "^^<urn:t>");
+    }
+
+    @Test
+    void rejectsUnterminatedTerms() {
+        assertThatThrownBy(() -> TurtleTokenizer.tokenize("<https://example.org/"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TurtleTokenizer.tokenize("\"open"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TurtleTokenizer.tokenize("\"5\"^^ ."))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package com.gisbackend.buildingstreamer.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class GraphDataModelTest {
+
+    private static final String TURTLE = "@prefix inst: <https://example.org/inst/> .\ninst:b1 a inst:Building .\n";
+
+    private static GraphDataModel model() {
+        MetaDataNode node = new MetaDataNode();
+        node.setId("b1");
+        node.setClassType("https://ibpdi.datacat.org/class/Building");
+        // In received order, as the string pool leaves them
+        node.setPropertiesValues(new LinkedHashMap<>());
+        node.getPropertiesValues().put("Name", "Rathaus");
+        node.getPropertiesValues().put("City", "Berlin");
+        GraphDataModel model = new GraphDataModel();
+        model.setGraphTemplate(TURTLE);
+        model.setGraphData(TURTLE);
+        model.setGraphMetadata(new ArrayList<>(List.of(node)));
+        model.setAccessRights(new ArrayList<>(List.of(AccessRight.builder().id("ar1").right(1).build())));
+        model.setUseCase(UseCase.builder().id("uc1").build());
+        return model;
+    }
+
+    @Test
+    void frozenCopiesRejectChanges() {
+        GraphDataModel frozen = model().frozen();
+        MetaDataNode node = frozen.getGraphMetadata().get(0);
+
+        assertThatThrownBy(() -> frozen.setGraphData(TURTLE)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> frozen.replaceGraphTemplate(TURTLE)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> frozen.getGraphMetadata().add(new MetaDataNode()))
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> frozen.getAccessRights().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> node.setId("b2")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> node.getPropertiesValues().put("Name", "Post"))
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(frozen.frozen()).isSameAs(frozen);
+        assertThat(node.getPropertiesValues().keySet()).containsExactly("Name", "City");
+    }
+
+    @Test
+    void frozenCopiesDoNotSeeChangesOfTheOriginal() {
+        GraphDataModel original = model();
+        GraphDataModel frozen = original.frozen();
+
+        original.getGraphMetadata().get(0).getPropertiesValues().put("Name", "Post");
+        original.getGraphMetadata().add(new MetaDataNode());
+        original.setGraphData(TURTLE + "inst:b1 inst:name \"Post\" .\n");
+
+        assertThat(frozen.getGraphMetadata()).hasSize(1);
+        assertThat(frozen.getGraphMetadata().get(0).getPropertiesValues()).containsEntry("Name", "Rathaus");
+        assertThat(frozen.getGraphData()).isEqualTo(TURTLE);
+    }
+
+    @Test
+    void copiesOfFrozenModelsCanBeChanged() {
+        GraphDataModel frozen = model().frozen();
+        GraphDataModel copy = frozen.copy();
+
+        copy.getGraphMetadata().get(0).getPropertiesValues().put("Name", "Post");
+        copy.getGraphMetadata().add(new MetaDataNode());
+        copy.setGraphData(TURTLE + "inst:b1 inst:name \"Post\" .\n");
+
+        assertThat(frozen.getGraphMetadata()).hasSize(1);
+        assertThat(frozen.getGraphMetadata().get(0).getPropertiesValues()).containsEntry("Name", "Rathaus");
+    }
+
+    @Test
+    void serializesFrozenModelsLikeTheOriginal() throws Exception {
+        GraphDataModel original = model();
+        assertThat(original.frozen().serializeToJson()).isEqualTo(original.serializeToJson());
+        assertThat(GraphDataModel.deserializeFromJson(original.serializeToJson()).getAccessRights())
+            .containsExactlyElementsOf(original.getAccessRights());
+    }
+}
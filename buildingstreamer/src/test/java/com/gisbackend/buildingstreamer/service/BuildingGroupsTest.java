@@ -0,0 +1,109 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+
+class BuildingGroupsTest {
+
+    private static final String PREFIXES = "@prefix inst: <https://example.org/instance/> .\n"
+        + "@prefix ibpdi: <https://ibpdi.datacat.org/class/> .\n";
+
+    private static GraphDataModel model(String graphData, String... nodes) {
+        GraphDataModel model = new GraphDataModel();
+        for (String node : nodes) {
+            String[] idAndType = node.split(":");
+            MetaDataNode metaDataNode = new MetaDataNode();
+            metaDataNode.setId(idAndType[0]);
+            metaDataNode.setClassType("https://ibpdi.datacat.org/class/" + idAndType[1]);
+            model.getGraphMetadata().add(metaDataNode);
+        }
+        model.setGraphData(graphData);
+        model.setGraphTemplate(PREFIXES);
+        return model;
+    }
+
+    private static List<String> ids(GraphDataModel group) {
+        return group.getGraphMetadata().stream().map(MetaDataNode::getId).toList();
+    }
+
+    @Test
+    void returnsMessagesWithOneBuildingAsTheyAre() {
+        GraphDataModel model = model(PREFIXES + "inst:b1 a ibpdi:Building .\n", "b1:Building", "a1:Address");
+
+        assertThat(BuildingGroups.split(model)).containsExactly(model);
+    }
+
+    @Test
+    void groupsEachBuildingWithTheNodesLinkedToIt() {
+        GraphDataModel model = model(PREFIXES
+            + "inst:b1 a ibpdi:Building ; ibpdi:hasAddress inst:a1 .\n"
+            + "inst:b2 a ibpdi:Building ; ibpdi:hasAddress inst:a2 .\n"
+            + "inst:a2 ibpdi:hasGeoCoordinate inst:g2 .\n"
+            + "inst:a1 ibpdi:hasGeoCoordinate inst:g1 .\n",
+            "b1:Building", "b2:Building", "a1:Address", "a2:Address", "g2:GeoCoordinate", "g1:GeoCoordinate");
+
+        List<GraphDataModel> groups = BuildingGroups.split(model);
+
+        assertThat(groups).hasSize(2);
+        assertThat(ids(groups.get(0))).containsExactly("b1", "a1", "g1");
+        assertThat(ids(groups.get(1))).containsExactly("b2", "a2", "g2");
+        assertThat(groups.get(0).getGraphData())
+            .startsWith(PREFIXES)
+            .contains("inst:b1 a ibpdi:Building ; ibpdi:hasAddress inst:a1 .", "inst:a1 ibpdi:hasGeoCoordinate inst:g1 .")
+            .doesNotContain("b2", "a2", "g2");
+        assertThat(groups.get(1).getGraphTemplate()).isEqualTo(PREFIXES);
+    }
+
+    @Test
+    void putsASharedAddressIntoTheGroupOfEachBuilding() {
+        GraphDataModel model = model(PREFIXES
+            + "inst:b1 ibpdi:hasAddress inst:a1 .\n"
+            + "inst:b2 ibpdi:hasAddress inst:a1 .\n"
+            + "inst:a1 ibpdi:hasGeoCoordinate inst:g1 .\n",
+            "b1:Building", "a1:Address", "g1:GeoCoordinate", "b2:Building");
+
+        List<GraphDataModel> groups = BuildingGroups.split(model);
+
+        assertThat(ids(groups.get(0))).containsExactly("b1", "a1", "g1");
+        assertThat(ids(groups.get(1))).containsExactly("a1", "g1", "b2");
+        assertThat(groups.get(1).getGraphData()).contains("inst:a1 ibpdi:hasGeoCoordinate inst:g1 .")
+            .doesNotContain("inst:b1");
+    }
+
+    @Test
+    void addsUnlinkedNodesToTheBuildingBeforeThem() {
+        GraphDataModel model = model(PREFIXES, "n0:Note", "b1:Building", "n1:Note", "b2:Building", "n2:Note");
+
+        List<GraphDataModel> groups = BuildingGroups.split(model);
+
+        assertThat(ids(groups.get(0))).containsExactly("n0", "b1", "n1");
+        assertThat(ids(groups.get(1))).containsExactly("b2", "n2");
+    }
+
+    @Test
+    void keepsStatementsWholeAcrossLinesAndNestedNodes() {
+        String multiLine = "inst:b2 ibpdi:name \"\"\"Line one.\nLine two.\"\"\" ;\n"
+            + "    ibpdi:owner [ ibpdi:name \"Owner.\" ] .";
+        GraphDataModel model = model(PREFIXES + "inst:b1 a ibpdi:Building .\n" + multiLine + "\n",
+            "b1:Building", "b2:Building");
+
+        List<GraphDataModel> groups = BuildingGroups.split(model);
+
+        assertThat(groups.get(1).getGraphData()).isEqualTo(PREFIXES + multiLine + "\n");
+        assertThat(groups.get(0).getGraphData()).doesNotContain("Line");
+    }
+
+    @Test
+    void rejectsUnterminatedLiteralsInBulkMessages() {
+        GraphDataModel model = model(PREFIXES + "inst:b1 ibpdi:name \"open .\n", "b1:Building", "b2:Building");
+
+        assertThatThrownBy(() -> BuildingGroups.split(model)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,137 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.AccessRight;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.ChangeEvent;
+import com.gisbackend.buildingstreamer.model.ChangeFeed;
+
+class ChangeLogTest {
+
+    private static Building building(String id) {
+        return Building.builder().id(id).build();
+    }
+
+    private static void added(ChangeLog changeLog, String id) {
+        changeLog.commit(changeLog.reserve(ChangeEvent.Type.BUILDING_ADDED, building(id), null));
+    }
+
+    private static List<String> ids(ChangeFeed feed) {
+        return feed.changes().stream().map(ChangeEvent::id).toList();
+    }
+
+    @Test
+    void returnsTheChangesAfterASequenceOldestFirst() {
+        ChangeLog changeLog = new ChangeLog(100);
+        added(changeLog, "b1");
+        changeLog.commit(changeLog.reserve(ChangeEvent.Type.BUILDING_ATTRIBUTES_CHANGED, building("b1"),
+            Map.of("roof", "flat")));
+        changeLog.accessRightAdded(AccessRight.builder().id("r1").build());
+        changeLog.accessRightsCleared();
+
+        ChangeFeed all = changeLog.getChanges(0, 10);
+        assertThat(all.resyncRequired()).isFalse();
+        assertThat(all.next()).isEqualTo(4);
+        assertThat(all.more()).isFalse();
+        assertThat(all.changes()).extracting(ChangeEvent::sequence).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(all.changes()).extracting(ChangeEvent::type).containsExactly(ChangeEvent.Type.BUILDING_ADDED,
+            ChangeEvent.Type.BUILDING_ATTRIBUTES_CHANGED, ChangeEvent.Type.ACCESS_RIGHT_ADDED,
+            ChangeEvent.Type.ACCESS_RIGHTS_CLEARED);
+        assertThat(all.changes().get(1).attributes()).containsEntry("roof", "flat");
+        assertThat(all.changes().get(2).id()).isEqualTo("r1");
+
+        ChangeFeed page = changeLog.getChanges(1, 2);
+        assertThat(page.changes()).extracting(ChangeEvent::sequence).containsExactly(2L, 3L);
+        assertThat(page.next()).isEqualTo(3);
+        assertThat(page.more()).isTrue();
+        assertThat(changeLog.getChanges(4, 10).changes()).isEmpty();
+    }
+
+    @Test
+    void stopsBeforeTheFirstChangeNotCommittedYet() {
+        ChangeLog changeLog = new ChangeLog(100);
+        added(changeLog, "b1");
+        ChangeEvent pending = changeLog.reserve(ChangeEvent.Type.BUILDING_ADDED, building("b2"), null);
+        added(changeLog, "b3");
+
+        ChangeFeed feed = changeLog.getChanges(0, 10);
+        assertThat(ids(feed)).containsExactly("b1");
+        assertThat(feed.next()).isEqualTo(1);
+        assertThat(feed.more()).isTrue();
+
+        changeLog.commit(pending);
+        assertThat(ids(changeLog.getChanges(feed.next(), 10))).containsExactly("b2", "b3");
+    }
+
+    @Test
+    void asksForAResyncOnceChangesAreNoLongerRetained() {
+        ChangeLog changeLog = new ChangeLog(4);
+        for (int i = 1; i <= 10; i++) {
+            added(changeLog, "b" + i);
+        }
+
+        ChangeFeed lost = changeLog.getChanges(2, 10);
+        assertThat(lost.resyncRequired()).isTrue();
+        assertThat(lost.next()).isEqualTo(10);
+        assertThat(lost.changes()).isEmpty();
+        assertThat(ids(changeLog.getChanges(6, 10))).containsExactly("b7", "b8", "b9", "b10");
+        // A sequence from before a restart
+        assertThat(changeLog.getChanges(11, 10).resyncRequired()).isTrue();
+        assertThat(changeLog.getChanges(-1, 10).resyncRequired()).isTrue();
+    }
+
+    @Test
+    void resyncsBehindTheFirstUncommittedChange() {
+        ChangeLog changeLog = new ChangeLog(4);
+        added(changeLog, "b1");
+        changeLog.reserve(ChangeEvent.Type.BUILDING_ADDED, building("b2"), null);
+        added(changeLog, "b3");
+
+        assertThat(changeLog.getChanges(100, 10).next()).isEqualTo(1);
+    }
+
+    @Test
+    void numbersConcurrentChangesWithoutGaps() throws Exception {
+        ChangeLog changeLog = new ChangeLog(100000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int writer = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        added(changeLog, writer + "-" + i);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long next = 0;
+        int read = 0;
+        ChangeFeed feed;
+        do {
+            feed = changeLog.getChanges(next, 1000);
+            for (ChangeEvent event : feed.changes()) {
+                assertThat(event.sequence()).isEqualTo(++next);
+            }
+            read += feed.changes().size();
+        } while (feed.more());
+        assertThat(read).isEqualTo(40000);
+        assertThat(changeLog.getSequence()).isEqualTo(40000);
+    }
+}
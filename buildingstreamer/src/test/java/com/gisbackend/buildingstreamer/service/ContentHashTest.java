@@ -0,0 +1,107 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.AccessRight;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+import com.gisbackend.buildingstreamer.model.UseCase;
+
+class ContentHashTest {
+
+    private static final String TEMPLATE = "@prefix ibpdi: <https://ibpdi.datacat.org/class/> .\n";
+    private static final String DATA = "@prefix ibpdi: <https://ibpdi.datacat.org/class/> .\n"
+        + "@prefix inst: <https://example.org/> .\n"
+        + "inst:b1 a ibpdi:Building .\n";
+
+    private static MetaDataNode node(String id, String type, Map<String, String> properties) {
+        MetaDataNode node = new MetaDataNode();
+        node.setId(id);
+        node.setClassType("https://ibpdi.datacat.org/class/" + type);
+        node.setPropertiesValues(new LinkedHashMap<>(properties));
+        return node;
+    }
+
+    private static GraphDataModel message(Consumer<GraphDataModel> change) {
+        GraphDataModel model = new GraphDataModel();
+        model.setGraphTemplate(TEMPLATE);
+        model.setGraphData(DATA);
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("Name", "Town hall");
+        properties.put("ConstructionYear", "1911");
+        model.getGraphMetadata().add(node("b1", "Building", properties));
+        model.getGraphMetadata().add(node("a1", "Address", Map.of("City", "Berlin")));
+        model.setAccessRights(List.of(AccessRight.builder().id("r1").name("read").build()));
+        model.setUseCase(UseCase.builder().id("u1").name("Portfolio").build());
+        change.accept(model);
+        return model;
+    }
+
+    private static long hash(Consumer<GraphDataModel> change) {
+        return ContentHash.of(message(change));
+    }
+
+    @Test
+    void hashesEqualContentEqually() {
+        GraphDataModel model = message(m -> {
+        });
+
+        assertThat(ContentHash.of(model)).isEqualTo(hash(m -> {
+        }));
+        assertThat(ContentHash.of(model.copy())).isEqualTo(ContentHash.of(model));
+        assertThat(ContentHash.of(model.frozen())).isEqualTo(ContentHash.of(model));
+    }
+
+    @Test
+    void ignoresTheOrderOfPropertiesButNotOfNodes() {
+        long hash = hash(m -> {
+        });
+
+        assertThat(hash(m -> {
+            Map<String, String> reversed = new LinkedHashMap<>();
+            reversed.put("ConstructionYear", "1911");
+            reversed.put("Name", "Town hall");
+            m.getGraphMetadata().get(0).setPropertiesValues(reversed);
+        })).isEqualTo(hash);
+        assertThat(hash(m -> m.getGraphMetadata().add(m.getGraphMetadata().remove(0)))).isNotEqualTo(hash);
+    }
+
+    @Test
+    void changesWithEverythingIngestReads() {
+        long hash = hash(m -> {
+        });
+        List<Consumer<GraphDataModel>> changes = List.of(
+            m -> m.setGraphTemplate(TEMPLATE + "@prefix inst: <https://example.org/> .\n"),
+            m -> m.setGraphData(DATA.replace("b1", "b2")),
+            m -> m.getGraphMetadata().get(0).getPropertiesValues().put("Name", "Town Hall"),
+            m -> m.getGraphMetadata().get(0).getPropertiesValues().put("Floors", "3"),
+            m -> m.getGraphMetadata().get(1).getPropertiesValues().clear(),
+            m -> m.getGraphMetadata().get(1).setId("a2"),
+            m -> m.getGraphMetadata().get(1).setClassType("https://ibpdi.datacat.org/class/Site"),
+            m -> m.getGraphMetadata().remove(1),
+            m -> m.setAccessRights(List.of(AccessRight.builder().id("r1").name("write").build())),
+            m -> m.setAccessRights(List.of()),
+            m -> m.setUseCase(UseCase.builder().id("u2").name("Portfolio").build()),
+            m -> m.setUseCase(null));
+
+        for (Consumer<GraphDataModel> change : changes) {
+            assertThat(hash(change)).isNotEqualTo(hash).isNotZero();
+        }
+    }
+
+    @Test
+    void separatesAdjacentValues() {
+        // The same text split differently between name and value
+        assertThat(hash(m -> m.getGraphMetadata().get(1).setPropertiesValues(new LinkedHashMap<>(Map.of("Cit", "yBerlin")))))
+            .isNotEqualTo(hash(m -> {
+            }));
+        assertThat(ContentHash.of(new GraphDataModel())).isNotZero();
+    }
+}
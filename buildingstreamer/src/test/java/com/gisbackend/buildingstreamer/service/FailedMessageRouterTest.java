@@ -0,0 +1,133 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.gisbackend.buildingstreamer.config.MessageOrigin;
+import com.gisbackend.buildingstreamer.config.RawValueRecordingDeserializer;
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.model.MessagePosition;
+
+class FailedMessageRouterTest {
+
+    private static final String PAYLOAD = "{\"GraphData\":\"received\"}";
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    private final PipelineMetrics pipelineMetrics = mock(PipelineMetrics.class);
+    private final FailedMessageRouter router = new FailedMessageRouter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(router, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(router, "retryTopology",
+            new RetryTopology("buildings", List.of(Duration.ofSeconds(1), Duration.ofSeconds(30)), 1));
+        ReflectionTestUtils.setField(router, "pipelineMetrics", pipelineMetrics);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static ConsumerRecord<String, Object> received(String topic, long offset) {
+        ConsumerRecord<String, Object> record = new ConsumerRecord<>(topic, 0, offset, "b1", new Object());
+        record.headers().add(RawValueRecordingDeserializer.RAW_VALUE_HEADER, PAYLOAD.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(MessageOrigin.ORIGIN_HEADER, "other-instance".getBytes(StandardCharsets.UTF_8));
+        record.headers().add("trace", "t1".getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    private ProducerRecord<String, String> forwarded() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void forwardsTheRawMessageToTheFirstRetryTopic() {
+        ConsumerRecord<String, Object> record = received("buildings", 10);
+
+        router.accept(record, new IllegalStateException("Geocoding failed"));
+
+        ProducerRecord<String, String> forwarded = forwarded();
+        assertThat(forwarded.topic()).isEqualTo("buildings-retry-1000");
+        assertThat(forwarded.key()).isEqualTo("b1");
+        assertThat(forwarded.value()).isEqualTo(PAYLOAD);
+        assertThat(RetryTopology.attempts(forwarded.headers())).isEqualTo(1);
+        assertThat(RetryTopology.header(forwarded.headers(), RetryTopology.ERROR_HEADER))
+            .isEqualTo("IllegalStateException: Geocoding failed");
+        assertThat(RetryTopology.header(forwarded.headers(), "trace")).isEqualTo("t1");
+        assertThat(forwarded.headers().lastHeader(RawValueRecordingDeserializer.RAW_VALUE_HEADER)).isNull();
+        verify(pipelineMetrics).messageRetried();
+    }
+
+    @Test
+    void stripsTheOriginSoTheRetryIsNotSkippedAsAnEcho() {
+        router.accept(received("buildings", 10), new IllegalStateException("Geocoding failed"));
+
+        assertThat(forwarded().headers().lastHeader(MessageOrigin.ORIGIN_HEADER)).isNull();
+    }
+
+    @Test
+    void keepsTheOriginalPositionAcrossRetries() {
+        router.accept(received("buildings", 10), new IllegalStateException("Geocoding failed"));
+        ProducerRecord<String, String> first = forwarded();
+
+        ConsumerRecord<String, Object> retried = new ConsumerRecord<>(first.topic(), 0, 3, first.key(), new Object());
+        first.headers().forEach(header -> retried.headers().add(header));
+        assertThat(RetryTopology.originalPosition(retried)).isEqualTo(new MessagePosition("buildings", 0, 10));
+    }
+
+    @Test
+    void quarantinesAfterTheLastRetry() {
+        ConsumerRecord<String, Object> record = received("buildings-retry-30000", 3);
+        RetryTopology.setHeader(record.headers(), RetryTopology.ATTEMPT_HEADER, 2);
+        RetryTopology.setHeader(record.headers(), RetryTopology.ORIGINAL_TOPIC_HEADER, "buildings");
+        RetryTopology.setHeader(record.headers(), RetryTopology.ORIGINAL_PARTITION_HEADER, 0);
+        RetryTopology.setHeader(record.headers(), RetryTopology.ORIGINAL_OFFSET_HEADER, 10);
+
+        router.accept(record, new IllegalStateException("Geocoding failed"));
+
+        ProducerRecord<String, String> forwarded = forwarded();
+        assertThat(forwarded.topic()).isEqualTo("buildings-dlt");
+        assertThat(RetryTopology.header(forwarded.headers(), RetryTopology.ORIGINAL_OFFSET_HEADER)).isEqualTo("10");
+        verify(pipelineMetrics).messageQuarantined();
+    }
+
+    @Test
+    void quarantinesInvalidAndUndecodableMessagesRightAway() {
+        router.accept(received("buildings", 10), new IllegalArgumentException("The Turtle file contains invalid syntax."));
+        assertThat(forwarded().topic()).isEqualTo("buildings-dlt");
+
+        assertThat(FailedMessageRouter.isRetryable(
+            new RuntimeException(new DeserializationException("bad", new byte[0], false, null)))).isFalse();
+        assertThat(FailedMessageRouter.isRetryable(new IllegalStateException("timeout"))).isTrue();
+    }
+
+    @Test
+    void failsWhenTheForwardedCopyIsNotSent() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThatThrownBy(() -> router.accept(received("buildings", 10), new IllegalStateException("failed")))
+            .isInstanceOf(KafkaException.class);
+    }
+}
@@ -0,0 +1,200 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.web.client.RestClientException;
+
+import com.gisbackend.buildingstreamer.config.BoundedExecutor;
+import com.gisbackend.buildingstreamer.config.MessageOrigin;
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.metrics.PipelineTracer;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.IngestedBuilding;
+import com.gisbackend.buildingstreamer.model.MessagePosition;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+
+class KafkaServiceTest {
+
+    private static final String IBPDI = "https://ibpdi.datacat.org/class/";
+
+    private final BuildingService buildingService = mock(BuildingService.class);
+    private final NominatimService nominatimService = mock(NominatimService.class);
+    private final FailedMessageRouter failedMessageRouter = mock(FailedMessageRouter.class);
+    private final BoundedExecutor outboundExecutor = new BoundedExecutor("test-outbound", false, 2);
+    private final BoundedExecutor groupExecutor = new BoundedExecutor("test-group", false, 4);
+
+    @AfterEach
+    void tearDown() {
+        outboundExecutor.close();
+        groupExecutor.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private KafkaService kafkaService(int maxGeocodingPerMessage) {
+        return new KafkaService(buildingService, nominatimService, mock(KafkaTemplate.class),
+            mock(AccessRightsService.class), new ReprojectionService(), mock(PipelineMetrics.class),
+            new PipelineTracer(false, 16), outboundExecutor, groupExecutor, new MessageOrigin("test"),
+            new StringPool(1024), new RetryTopology("buildings", List.of(Duration.ofSeconds(1)), 1),
+            failedMessageRouter, maxGeocodingPerMessage, "buildings");
+    }
+
+    private static MetaDataNode node(String id, String type, Map<String, String> properties) {
+        MetaDataNode node = new MetaDataNode();
+        node.setId(id);
+        node.setClassType(IBPDI + type);
+        node.getPropertiesValues().putAll(properties);
+        return node;
+    }
+
+    private static GraphDataModel model(String... buildingIds) {
+        List<MetaDataNode> nodes = new ArrayList<>();
+        for (String id : buildingIds) {
+            nodes.add(node(id, "Building", Map.of()));
+        }
+        nodes.add(node("a1", "Address", Map.of()));
+        GraphDataModel model = new GraphDataModel();
+        model.getGraphMetadata().addAll(nodes);
+        return model;
+    }
+
+    // Buildings b1 to bn at addresses without coordinates; addresses names the address of each building
+    private static GraphDataModel portfolio(String... addresses) {
+        StringBuilder graph = new StringBuilder("@prefix inst: <https://example.org/instance/> .\n"
+            + "@prefix ibpdi: <" + IBPDI + "> .\n");
+        GraphDataModel model = new GraphDataModel();
+        for (int i = 0; i < addresses.length; i++) {
+            String building = "b" + (i + 1);
+            model.getGraphMetadata().add(node(building, "Building", Map.of("Name", "Building " + (i + 1))));
+            String address = addresses[i];
+            if (model.getGraphMetadata().stream().noneMatch(node -> node.getId().equals(address))) {
+                model.getGraphMetadata().add(node(address, "Address",
+                    Map.of("City", "Berlin", "StreetName", "Street " + address)));
+            }
+            graph.append("inst:").append(building).append(" a ibpdi:Building .\n")
+                .append("inst:").append(building).append(" ibpdi:hasAddress inst:").append(addresses[i]).append(" .\n");
+        }
+        model.setGraphData(graph.toString());
+        return model;
+    }
+
+    private static ConsumerRecord<String, GraphDataModel> record(GraphDataModel model) {
+        return new ConsumerRecord<>("buildings", 0, 10, "b1", model);
+    }
+
+    // Geocodes every address but the failing ones, for which Nominatim cannot be reached
+    private void geocodeAllBut(String... failing) {
+        when(nominatimService.enrichAddressWithCoordinates(any())).thenAnswer(invocation -> {
+            Address address = invocation.getArgument(0);
+            if (List.of(failing).contains(address.getId())) {
+                throw new RestClientException("Nominatim unreachable");
+            }
+            return address.toBuilder().deprecatedLatitude("52.52").deprecatedLongitude("13.40").build();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<IngestedBuilding> stored() {
+        ArgumentCaptor<List<IngestedBuilding>> captor = ArgumentCaptor.forClass(List.class);
+        verify(buildingService).addBuildings(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<String> ids(List<IngestedBuilding> buildings) {
+        return buildings.stream().map(ingested -> ingested.building().getId()).toList();
+    }
+
+    @Test
+    void messagesAreKeyedByTheirLowestBuildingId() {
+        assertThat(KafkaService.messageKey(model("b7"))).isEqualTo("b7");
+        assertThat(KafkaService.messageKey(model("b7", "b3", "b9"))).isEqualTo("b3");
+        assertThat(KafkaService.messageKey(model("b9", "b3", "b7"))).isEqualTo("b3");
+        assertThat(KafkaService.messageKey(model())).isNull();
+    }
+
+    @Test
+    void storesTheOtherBuildingsOfABulkMessageAndRetriesOnlyTheFailedGroup() {
+        geocodeAllBut("a2");
+        ConsumerRecord<String, GraphDataModel> record = record(portfolio("a1", "a2", "a3"));
+
+        kafkaService(10).publish(record.value(), record);
+
+        List<IngestedBuilding> stored = stored();
+        assertThat(ids(stored)).containsExactly("b1", "b3");
+        assertThat(stored).allSatisfy(ingested ->
+            assertThat(ingested.source()).isEqualTo(new MessagePosition("buildings", 0, 10)));
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(failedMessageRouter).acceptPart(eq(record), eq("b2"), payload.capture(), any(IllegalStateException.class));
+        assertThat(payload.getValue()).contains("\"b2\"", "\"a2\"").doesNotContain("\"b1\"", "\"b3\"");
+    }
+
+    @Test
+    void retriesAMessageWithOneBuildingWhole() {
+        geocodeAllBut("a1");
+        ConsumerRecord<String, GraphDataModel> record = record(portfolio("a1"));
+
+        assertThatThrownBy(() -> kafkaService(10).publish(record.value(), record))
+            .isInstanceOf(IllegalStateException.class);
+        verify(buildingService, never()).addBuildings(any());
+        verify(failedMessageRouter, never()).acceptPart(any(), any(), any(), any());
+    }
+
+    @Test
+    void storesAllBuildingsOnTheLastAttemptAndFailsTheMessage() {
+        geocodeAllBut("a2");
+        ConsumerRecord<String, GraphDataModel> record = record(portfolio("a1", "a2", "a3"));
+        RetryTopology.setHeader(record.headers(), RetryTopology.ATTEMPT_HEADER, 1);
+
+        assertThatThrownBy(() -> kafkaService(10).publish(record.value(), record))
+            .isInstanceOf(IllegalStateException.class);
+        List<IngestedBuilding> stored = stored();
+        assertThat(ids(stored)).containsExactlyInAnyOrder("b1", "b2", "b3");
+        // Stored without coordinates, so its retry from the quarantine is not skipped as unchanged
+        assertThat(stored).filteredOn(ingested -> ingested.building().getId().equals("b2"))
+            .singleElement().extracting(IngestedBuilding::contentHash).isEqualTo(0L);
+        verify(failedMessageRouter, never()).acceptPart(any(), any(), any(), any());
+    }
+
+    @Test
+    void geocodesAtMostTheLimitOfAddressesPerMessage() {
+        geocodeAllBut();
+        ConsumerRecord<String, GraphDataModel> record = record(portfolio("a1", "a2", "a3"));
+
+        kafkaService(2).publish(record.value(), record);
+
+        verify(nominatimService, times(2)).enrichAddressWithCoordinates(any());
+        assertThat(stored()).hasSize(2);
+        verify(failedMessageRouter).acceptPart(eq(record), anyString(), anyString(), any(IllegalStateException.class));
+    }
+
+    @Test
+    void geocodesAnAddressSharedByBuildingsOnce() {
+        geocodeAllBut();
+        ConsumerRecord<String, GraphDataModel> record = record(portfolio("a1", "a1", "a2"));
+
+        kafkaService(10).publish(record.value(), record);
+
+        verify(nominatimService, times(2)).enrichAddressWithCoordinates(any());
+        assertThat(ids(stored())).containsExactlyInAnyOrder("b1", "b2", "b3");
+    }
+}
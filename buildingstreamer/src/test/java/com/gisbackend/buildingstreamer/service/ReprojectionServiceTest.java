@@ -0,0 +1,84 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.crs.CoordinateReferenceSystem;
+import com.gisbackend.buildingstreamer.model.Address;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.GeoCoordinate;
+
+class ReprojectionServiceTest {
+
+    private final ReprojectionService reprojectionService = new ReprojectionService();
+
+    private static GeoCoordinate coordinate(String crs, String latitude, String longitude) {
+        return GeoCoordinate.builder().id("g1").coordinateReferenceSystem(crs).latitude(latitude).longitude(longitude)
+            .build();
+    }
+
+    private static Building at(GeoCoordinate geoCoordinate) {
+        return Building.builder().id("b1").address(Address.builder().id("a1").geoCoordinate(geoCoordinate).build())
+            .build();
+    }
+
+    @Test
+    void storesProjectedCoordinatesInWgs84AndKeepsTheReceivedOnes() {
+        GeoCoordinate received = coordinate("EPSG:25832", "4982950.4", "500000");
+
+        GeoCoordinate normalized = reprojectionService.normalize(received);
+
+        assertThat(normalized.getCoordinateReferenceSystem()).isEqualTo("EPSG:4326");
+        assertThat(Double.parseDouble(normalized.getLatitude())).isCloseTo(45, within(1e-6));
+        assertThat(normalized.getLongitude()).isEqualTo("9");
+        assertThat(normalized.getOriginalCoordinateReferenceSystem()).isEqualTo("EPSG:25832");
+        assertThat(normalized.getOriginalLatitude()).isEqualTo("4982950.4");
+        assertThat(normalized.getOriginalLongitude()).isEqualTo("500000");
+    }
+
+    @Test
+    void storesWgs84UnsupportedAndInvalidCoordinatesAsReceived() {
+        for (GeoCoordinate received : List.of(coordinate("EPSG:4326", "52.52", "13.405"),
+                coordinate(null, "52.52", "13.405"), coordinate("EPSG:9999", "1", "2"),
+                coordinate("EPSG:25832", "north", "500000"))) {
+            assertThat(reprojectionService.normalize(received)).isSameAs(received);
+        }
+    }
+
+    @Test
+    void reprojectsCopiesAndReturnsReceivedValuesInTheirOwnSystem() {
+        Building received = at(reprojectionService.normalize(coordinate("EPSG:25832", "5820000.12", "390000.5")));
+        Building wgs84 = at(coordinate("EPSG:4326", "45", "9"));
+        Building elsewhere = at(coordinate("EPSG:9999", "1", "2"));
+        Building without = Building.builder().id("b4").build();
+        List<Building> buildings = List.of(received, wgs84, elsewhere, without);
+
+        List<Building> utm = reprojectionService.reproject(buildings, CoordinateReferenceSystem.forCode("EPSG:25832"));
+
+        GeoCoordinate original = utm.get(0).getAddress().getGeoCoordinate();
+        assertThat(original.getCoordinateReferenceSystem()).isEqualTo("EPSG:25832");
+        assertThat(original.getLatitude()).isEqualTo("5820000.12");
+        assertThat(original.getLongitude()).isEqualTo("390000.5");
+        GeoCoordinate projected = utm.get(1).getAddress().getGeoCoordinate();
+        assertThat(projected.getLongitude()).isEqualTo("500000");
+        assertThat(Double.parseDouble(projected.getLatitude())).isCloseTo(4_982_950.4, within(0.05));
+        assertThat(utm.get(2)).isSameAs(elsewhere);
+        assertThat(utm.get(3)).isSameAs(without);
+        assertThat(wgs84.getAddress().getGeoCoordinate().getLatitude()).isEqualTo("45");
+        assertThat(reprojectionService.reproject(buildings, CoordinateReferenceSystem.WGS84)).isSameAs(buildings);
+    }
+
+    @Test
+    void formatsFixedPointWithoutTrailingZeros() {
+        assertThat(ReprojectionService.format(13.378818450001, 8)).isEqualTo("13.37881845");
+        assertThat(ReprojectionService.format(5820000.1200004, 3)).isEqualTo("5820000.12");
+        assertThat(ReprojectionService.format(0.05, 3)).isEqualTo("0.05");
+        assertThat(ReprojectionService.format(-0.0000000001, 8)).isEqualTo("0");
+        assertThat(ReprojectionService.format(-2.5, 3)).isEqualTo("-2.5");
+        assertThat(ReprojectionService.format(7, 3)).isEqualTo("7");
+    }
+}
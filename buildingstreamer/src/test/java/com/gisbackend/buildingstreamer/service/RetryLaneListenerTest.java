@@ -0,0 +1,126 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
+
+import com.gisbackend.buildingstreamer.config.RetryTopology;
+import com.gisbackend.buildingstreamer.metrics.PipelineMetrics;
+import com.gisbackend.buildingstreamer.model.Building;
+import com.gisbackend.buildingstreamer.model.BuildingRecord;
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MessagePosition;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+
+@ExtendWith(MockitoExtension.class)
+class RetryLaneListenerTest {
+
+    @Mock
+    private KafkaService kafkaService;
+
+    @Mock
+    private FailedMessageRouter failedMessageRouter;
+
+    @Mock
+    private BuildingService buildingService;
+
+    @Mock
+    private PipelineMetrics pipelineMetrics;
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private Consumer<?, ?> consumer;
+
+    @InjectMocks
+    private RetryLaneListener listener;
+
+    // Retry of the message at buildings-0@10 with buildings b1 and b2, due now
+    private static ConsumerRecord<String, GraphDataModel> retry() {
+        GraphDataModel model = new GraphDataModel();
+        for (String id : new String[] { "b1", "b2" }) {
+            MetaDataNode node = new MetaDataNode();
+            node.setId(id);
+            node.setClassType(BuildingGroups.BUILDING_CLASS);
+            model.getGraphMetadata().add(node);
+        }
+        ConsumerRecord<String, GraphDataModel> record = new ConsumerRecord<>("buildings-retry-1000", 2, 7, "b1", model);
+        RetryTopology.setHeader(record.headers(), RetryTopology.ORIGINAL_TOPIC_HEADER, "buildings");
+        RetryTopology.setHeader(record.headers(), RetryTopology.ORIGINAL_PARTITION_HEADER, 0);
+        RetryTopology.setHeader(record.headers(), RetryTopology.ORIGINAL_OFFSET_HEADER, 10);
+        RetryTopology.setHeader(record.headers(), RetryTopology.ATTEMPT_HEADER, 1);
+        RetryTopology.setHeader(record.headers(), RetryTopology.DUE_HEADER, 0);
+        return record;
+    }
+
+    private void stored(String id, long version, MessagePosition source) {
+        when(buildingService.getBuildingRecord(id)).thenReturn(
+            new BuildingRecord(id, 0, version, Building.builder().id(id).build(), null, 0, source));
+    }
+
+    @Test
+    void retriesBuildingsWhoseHigherLocalVersionsComeFromAnUnrelatedHistory() {
+        // Many local changes, but from earlier offsets, another partition or outside of Kafka
+        stored("b1", 42, new MessagePosition("buildings", 0, 9));
+        stored("b2", 17, new MessagePosition("buildings", 3, 500));
+        ConsumerRecord<String, GraphDataModel> record = retry();
+
+        listener.retry(record, acknowledgment, consumer);
+
+        verify(kafkaService).publish(record.value(), record, Set.of());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void leavesOutBuildingsStoredFromALaterMessageOfThePartition() {
+        stored("b1", 1, new MessagePosition("buildings", 0, 11));
+        stored("b2", 5, null);
+        ConsumerRecord<String, GraphDataModel> record = retry();
+
+        listener.retry(record, acknowledgment, consumer);
+
+        verify(kafkaService).publish(record.value(), record, Set.of("b1"));
+    }
+
+    @Test
+    void dropsRetriesWhoseBuildingsAreAllSuperseded() {
+        stored("b1", 1, new MessagePosition("buildings", 0, 11));
+        stored("b2", 1, new MessagePosition("buildings", 0, 12));
+
+        listener.retry(retry(), acknowledgment, consumer);
+
+        verify(kafkaService, never()).publish(any(), any(), any());
+        verify(pipelineMetrics).messageSkipped(PipelineMetrics.SKIPPED_SUPERSEDED);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void forwardsRetriesThatFailAgain() {
+        ConsumerRecord<String, GraphDataModel> record = retry();
+        IllegalStateException failure = new IllegalStateException("Geocoding failed");
+        org.mockito.Mockito.doThrow(failure).when(kafkaService).publish(eq(record.value()), eq(record), any());
+
+        listener.retry(record, acknowledgment, consumer);
+
+        verify(failedMessageRouter).accept(record, failure);
+        verify(acknowledgment).acknowledge();
+    }
+}
@@ -0,0 +1,66 @@
+package com.gisbackend.buildingstreamer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.gisbackend.buildingstreamer.model.GraphDataModel;
+import com.gisbackend.buildingstreamer.model.MetaDataNode;
+
+class StringPoolTest {
+
+    // New instances, as a deserializer creates them for every message
+    private static GraphDataModel message(String street) {
+        MetaDataNode node = new MetaDataNode();
+        node.setId(new String("a1"));
+        node.setClassType(new String("https://ibpdi.datacat.org/class/Address"));
+        node.getPropertiesValues().putAll(Map.of(
+            new String("city"), new String("Berlin"),
+            new String("ValidFrom"), new String("2024-01-01"),
+            new String("StreetName"), street));
+        GraphDataModel model = new GraphDataModel();
+        model.getGraphMetadata().add(node);
+        return model;
+    }
+
+    private static MetaDataNode node(GraphDataModel model) {
+        return model.getGraphMetadata().get(0);
+    }
+
+    private static String key(MetaDataNode node, String name) {
+        return node.getPropertiesValues().keySet().stream().filter(name::equals).findFirst().orElseThrow();
+    }
+
+    @Test
+    void sharesClassTypesPropertyNamesAndLowCardinalityValues() {
+        StringPool pool = new StringPool(100);
+        GraphDataModel first = message(new String("Hauptstraße"));
+        GraphDataModel second = message(new String("Hauptstraße"));
+
+        pool.canonicalize(first);
+        pool.canonicalize(second);
+
+        assertThat(node(second).getClassType()).isSameAs(node(first).getClassType());
+        assertThat(key(node(second), "city")).isSameAs(key(node(first), "city"));
+        // Matched ignoring case like the node mapper does
+        assertThat(node(second).getPropertiesValues().get("city")).isSameAs(node(first).getPropertiesValues().get("city"));
+        assertThat(node(second).getPropertiesValues().get("ValidFrom"))
+            .isSameAs(node(first).getPropertiesValues().get("ValidFrom"));
+        assertThat(node(second).getPropertiesValues().get("StreetName"))
+            .isNotSameAs(node(first).getPropertiesValues().get("StreetName"));
+    }
+
+    @Test
+    void stopsPoolingOnceFull() {
+        StringPool pool = new StringPool(2);
+        assertThat(pool.canonicalize(new String("a"))).isSameAs(pool.canonicalize(new String("a")));
+        pool.canonicalize("b");
+
+        String c = new String("c");
+        assertThat(pool.canonicalize(c)).isSameAs(c);
+        assertThat(pool.canonicalize(new String("c"))).isNotSameAs(c);
+        assertThat(pool.size()).isEqualTo(2);
+    }
+}